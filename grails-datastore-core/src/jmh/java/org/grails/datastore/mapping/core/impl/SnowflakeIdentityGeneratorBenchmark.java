@@ -0,0 +1,98 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.core.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the compare-and-set {@link SnowflakeIdentityGenerator} with a synchronized Snowflake generator that
+ * spins until the next millisecond once the sequence is exhausted, with 32 threads generating identifiers.
+ *
+ * Run with ./gradlew :grails-datastore-core:jmh -Pjmh.include=SnowflakeIdentityGeneratorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(32)
+@Fork(1)
+public class SnowflakeIdentityGeneratorBenchmark {
+
+    private static final int BULK_SIZE = 100;
+
+    private final SnowflakeIdentityGenerator generator = new SnowflakeIdentityGenerator(1, 10);
+    private final SynchronizedSnowflakeGenerator synchronizedGenerator = new SynchronizedSnowflakeGenerator(1);
+
+    @Benchmark
+    public long compareAndSetNextId() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public long[] compareAndSetNextIds() {
+        return generator.nextIds(BULK_SIZE);
+    }
+
+    @Benchmark
+    public long synchronizedNextId() {
+        return synchronizedGenerator.nextId();
+    }
+
+    /**
+     * The previous generator of the Neo4j datastore, with the same bit layout as {@link SnowflakeIdentityGenerator}
+     */
+    static class SynchronizedSnowflakeGenerator {
+        private final long workerId;
+        private long lastTimestamp = -1L;
+        private long sequence = 0L;
+
+        SynchronizedSnowflakeGenerator(long workerId) {
+            this.workerId = workerId;
+        }
+
+        synchronized long nextId() {
+            long timestamp = System.currentTimeMillis();
+            if (timestamp < lastTimestamp) {
+                throw new IllegalStateException("Clock moved backwards");
+            }
+            if (lastTimestamp == timestamp) {
+                sequence = (sequence + 1) & 4095;
+                if (sequence == 0) {
+                    while (timestamp <= lastTimestamp) {
+                        timestamp = System.currentTimeMillis();
+                    }
+                }
+            } else {
+                sequence = 0;
+            }
+            lastTimestamp = timestamp;
+            return ((timestamp - SnowflakeIdentityGenerator.DEFAULT_EPOCH) << 22) | (workerId << 12) | sequence;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.reflect;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+import org.grails.datastore.mapping.engine.BeanEntityAccess;
+import org.grails.datastore.mapping.engine.EntityAccess;
+import org.grails.datastore.mapping.keyvalue.mapping.config.KeyValueMappingContext;
+import org.grails.datastore.mapping.model.PersistentEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.convert.ConversionService;
+
+/**
+ * Compares reading and writing the properties of an entity with {@link BeanEntityAccess}, the cglib FastMethod maps
+ * of {@link FastClassData} and the generated accessor used by {@link FastEntityAccess}.
+ *
+ * Run with ./gradlew :grails-datastore-core:jmh -Pjmh.include=EntityAccessBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityAccessBenchmark {
+
+    private static final String[] PROPERTIES = { "title", "author", "pages", "price" };
+    private static final Object[] VALUES = { "The Stand", "Stephen King", 1153, 9.99d };
+
+    private PersistentEntity persistentEntity;
+    private FastClassData fastClassData;
+    private ConversionService conversionService;
+    private Book book;
+
+    private EntityAccess beanEntityAccess;
+    private EntityAccess fastEntityAccess;
+
+    @Setup
+    public void setup() {
+        KeyValueMappingContext mappingContext = new KeyValueMappingContext("benchmark");
+        persistentEntity = mappingContext.addPersistentEntity(Book.class);
+        fastClassData = mappingContext.getFastClassData(persistentEntity);
+        conversionService = mappingContext.getConversionService();
+        book = new Book();
+
+        BeanEntityAccess beanAccess = new BeanEntityAccess(persistentEntity, book);
+        beanAccess.setConversionService(conversionService);
+        beanEntityAccess = beanAccess;
+        fastEntityAccess = mappingContext.createEntityAccess(persistentEntity, book);
+    }
+
+    @Benchmark
+    public Object beanEntityAccess() {
+        return readAndWrite(beanEntityAccess);
+    }
+
+    @Benchmark
+    public Object fastMethodMaps() throws InvocationTargetException {
+        Object last = null;
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            String property = PROPERTIES[i];
+            // the previous FastEntityAccess: two map lookups, unconditional conversion and an arguments array
+            Object converted = conversionService.convert(VALUES[i], fastClassData.getFastGetters().get(property).getReturnType());
+            fastClassData.getFastSetters().get(property).invoke(book, new Object[] { converted });
+            last = fastClassData.getFastGetters().get(property).invoke(book, null);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public Object fastEntityAccess() {
+        return readAndWrite(fastEntityAccess);
+    }
+
+    @Benchmark
+    public Object generatedAccessorByIndex() {
+        EntityPropertyAccessor accessor = fastClassData.getPropertyAccessor();
+        Object last = null;
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            int index = fastClassData.getPropertyIndex(PROPERTIES[i]);
+            accessor.set(book, index, VALUES[i]);
+            last = accessor.get(book, index);
+        }
+        return last;
+    }
+
+    private static Object readAndWrite(EntityAccess access) {
+        Object last = null;
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            access.setProperty(PROPERTIES[i], VALUES[i]);
+            last = access.getProperty(PROPERTIES[i]);
+        }
+        return last;
+    }
+
+    public static class Book {
+        private Long id;
+        private Long version;
+        private String title;
+        private String author;
+        private int pages;
+        private double price;
+
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+        public String getAuthor() { return author; }
+        public void setAuthor(String author) { this.author = author; }
+        public int getPages() { return pages; }
+        public void setPages(int pages) { this.pages = pages; }
+        public double getPrice() { return price; }
+        public void setPrice(double price) { this.price = price; }
+    }
+}
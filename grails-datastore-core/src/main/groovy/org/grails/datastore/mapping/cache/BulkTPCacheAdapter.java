@@ -0,0 +1,47 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.cache;
+
+import org.grails.datastore.mapping.cache.exception.CacheException;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A {@link TPCacheAdapter} that supports multi-key operations. The engine uses them when storing or retrieving
+ * multiple entities at once and falls back to the single key operations for adapters that don't implement this
+ * interface. Implementations should map them to the multi-key operations of the third-party cache where available.
+ *
+ * @since 5.0
+ */
+public interface BulkTPCacheAdapter<T> extends TPCacheAdapter<T> {
+
+    /**
+     * Stores multiple cached entries in a <b>synchronous</b> manner, with the same transactional semantics as
+     * {@link #cacheEntry(java.io.Serializable, Object)}.
+     * @param entries the entries keyed by entry key
+     * @throws CacheException runtime exception indicating any cache-related problems
+     */
+    void cacheEntries(Map<? extends Serializable, T> entries) throws CacheException;
+
+    /**
+     * Returns the stored values for the specified keys.
+     * @param keys the entry keys
+     * @return the entries found keyed by entry key, keys without a cached entry are absent from the map
+     * @throws CacheException runtime exception indicating any cache-related problems
+     */
+    Map<Serializable, T> getCachedEntries(Collection<? extends Serializable> keys) throws CacheException;
+}
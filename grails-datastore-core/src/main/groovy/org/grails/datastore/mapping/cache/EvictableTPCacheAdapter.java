@@ -0,0 +1,42 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.cache;
+
+import org.grails.datastore.mapping.cache.exception.CacheException;
+
+import java.io.Serializable;
+
+/**
+ * A {@link TPCacheAdapter} whose entries can be invalidated. The engine evicts the entry of a deleted entity and
+ * clears the cache of an entity after bulk updates and deletes. Entries of adapters that don't implement this
+ * interface are left to the expiry policy of the third-party cache.
+ *
+ * @since 5.0
+ */
+public interface EvictableTPCacheAdapter<T> extends TPCacheAdapter<T> {
+
+    /**
+     * Removes the entry for the specified key, for example because the entity was deleted.
+     * @param key the entry key
+     * @throws CacheException runtime exception indicating any cache-related problems
+     */
+    void evictEntry(Serializable key) throws CacheException;
+
+    /**
+     * Removes all entries, for example after a bulk update or delete that bypassed the cache.
+     * @throws CacheException runtime exception indicating any cache-related problems
+     */
+    void clear() throws CacheException;
+}
@@ -0,0 +1,161 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.cache;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.grails.datastore.mapping.model.PersistentEntity;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+
+/**
+ * Caches the results of queries executed with {@link org.grails.datastore.mapping.query.Query#cache(boolean)} enabled.
+ * Results are grouped by the root entity of the queried entity (the entity family) and a whole family is invalidated
+ * whenever one of its entities is written. Each family holds at most {@link #getMaxSize()} results, evicted in least
+ * recently used order.
+ *
+ * Every invalidation increments the generation of the family. Results are only stored if the generation is unchanged
+ * since the query started executing, so that a query racing with a write cannot cache stale results.
+ *
+ * @since 5.0
+ */
+@SuppressWarnings("rawtypes")
+public class QueryResultCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<String, Family>();
+    private final int maxSize;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public QueryResultCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum number of cached results per entity family
+     */
+    public QueryResultCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Obtains the current generation of the family of the given entity. Should be read before executing a query
+     * whose results are later passed to {@link #put(PersistentEntity, Object, List, long)}.
+     *
+     * @param entity The entity
+     * @return The generation
+     */
+    public long getGeneration(PersistentEntity entity) {
+        return getFamily(entity).generation.get();
+    }
+
+    /**
+     * @param entity The queried entity
+     * @param key The key of the query
+     * @return The cached results or null if there are none
+     */
+    public List get(PersistentEntity entity, Object key) {
+        List results = getFamily(entity).results.get(key);
+        if (results == null) {
+            missCount.incrementAndGet();
+        }
+        else {
+            hitCount.incrementAndGet();
+        }
+        return results;
+    }
+
+    /**
+     * Stores the results of a query, unless the family of the entity was invalidated since the given generation
+     *
+     * @param entity The queried entity
+     * @param key The key of the query
+     * @param results The results
+     * @param generation The generation obtained before the query was executed
+     */
+    public void put(PersistentEntity entity, Object key, List results, long generation) {
+        Family family = getFamily(entity);
+        if (family.generation.get() != generation) {
+            return;
+        }
+        family.results.put(key, results);
+        if (family.generation.get() != generation) {
+            // invalidated concurrently, the clear may have happened before the put
+            family.results.remove(key, results);
+        }
+    }
+
+    /**
+     * Invalidates all the cached results of the family of the given entity
+     *
+     * @param entity The entity that was written
+     */
+    public void invalidate(PersistentEntity entity) {
+        Family family = getFamily(entity);
+        family.generation.incrementAndGet();
+        family.results.clear();
+    }
+
+    /**
+     * Invalidates all the cached results
+     */
+    public void clear() {
+        for (Family family : families.values()) {
+            family.generation.incrementAndGet();
+            family.results.clear();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private Family getFamily(PersistentEntity entity) {
+        String name = entity.getRootEntity().getName();
+        Family family = families.get(name);
+        if (family == null) {
+            family = new Family(maxSize);
+            Family existing = families.putIfAbsent(name, family);
+            if (existing != null) {
+                family = existing;
+            }
+        }
+        return family;
+    }
+
+    private static class Family {
+        final AtomicLong generation = new AtomicLong();
+        final ConcurrentLinkedHashMap<Object, List> results;
+
+        Family(int maxSize) {
+            results = new ConcurrentLinkedHashMap.Builder<Object, List>()
+                    .maximumWeightedCapacity(maxSize)
+                    .build();
+        }
+    }
+}
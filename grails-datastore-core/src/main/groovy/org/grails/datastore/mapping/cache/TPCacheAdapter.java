@@ -11,7 +11,8 @@ import java.io.Serializable;
  * Each TPCacheAdapter is registered per type of PersistentEntity via {@link TPCacheAdapterRepository}.
  * </p>
  * <p>
- * Current API does not yet provide bulk operations because the rest of the engine is not bulk-optimized.
+ * Bulk operations and invalidation are optional, adapters that support them implement {@link BulkTPCacheAdapter}
+ * and {@link EvictableTPCacheAdapter} respectively.
  * </p>
  * <p>
  * Transactional semantics: depending on the concrete third-party cache capabilities and the presence of JTA transaction
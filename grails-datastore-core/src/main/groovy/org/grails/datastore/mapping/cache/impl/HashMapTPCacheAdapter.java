@@ -1,9 +1,13 @@
 package org.grails.datastore.mapping.cache.impl;
 
-import org.grails.datastore.mapping.cache.TPCacheAdapter;
+import org.grails.datastore.mapping.cache.BulkTPCacheAdapter;
+import org.grails.datastore.mapping.cache.EvictableTPCacheAdapter;
 import org.grails.datastore.mapping.cache.exception.CacheException;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -11,7 +15,7 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * @author Roman Stepanenko
  */
-public class HashMapTPCacheAdapter<T> implements TPCacheAdapter<T> {
+public class HashMapTPCacheAdapter<T> implements BulkTPCacheAdapter<T>, EvictableTPCacheAdapter<T> {
     public void cacheEntry(Serializable key, T entry) throws CacheException {
         cache.put(key, entry);
     }
@@ -20,5 +24,28 @@ public class HashMapTPCacheAdapter<T> implements TPCacheAdapter<T> {
         return cache.get(key);
     }
 
+    public void cacheEntries(Map<? extends Serializable, T> entries) throws CacheException {
+        cache.putAll(entries);
+    }
+
+    public Map<Serializable, T> getCachedEntries(Collection<? extends Serializable> keys) throws CacheException {
+        Map<Serializable, T> entries = new HashMap<Serializable, T>();
+        for (Serializable key : keys) {
+            T entry = cache.get(key);
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        return entries;
+    }
+
+    public void evictEntry(Serializable key) throws CacheException {
+        cache.remove(key);
+    }
+
+    public void clear() throws CacheException {
+        cache.clear();
+    }
+
     private ConcurrentHashMap<Object, T> cache = new ConcurrentHashMap<Object, T>();
 }
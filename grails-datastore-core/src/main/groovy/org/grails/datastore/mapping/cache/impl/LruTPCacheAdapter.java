@@ -0,0 +1,182 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.cache.impl;
+
+import org.grails.datastore.mapping.cache.BulkTPCacheAdapter;
+import org.grails.datastore.mapping.cache.EvictableTPCacheAdapter;
+import org.grails.datastore.mapping.cache.exception.CacheException;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.googlecode.concurrentlinkedhashmap.EvictionListener;
+
+/**
+ * A bounded, local implementation of {@link org.grails.datastore.mapping.cache.TPCacheAdapter}. Entries are evicted
+ * in least recently used order once the maximum size is reached and, if a time to live is configured, expire after
+ * the given duration. Hit, miss, eviction and expiration counts are recorded.
+ *
+ * Since adapters are registered per entity, each entity gets its own maximum size and time to live.
+ *
+ * @since 5.0
+ */
+public class LruTPCacheAdapter<T> implements BulkTPCacheAdapter<T>, EvictableTPCacheAdapter<T> {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final ConcurrentLinkedHashMap<Serializable, CachedEntry<T>> cache;
+    private final int maxSize;
+    private final long timeToLiveMillis;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+
+    public LruTPCacheAdapter() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public LruTPCacheAdapter(int maxSize) {
+        this(maxSize, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param maxSize The maximum number of entries
+     * @param timeToLive The time after which an entry expires, zero or less for no expiry
+     * @param timeUnit The unit of the time to live
+     */
+    public LruTPCacheAdapter(int maxSize, long timeToLive, TimeUnit timeUnit) {
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = timeUnit.toMillis(timeToLive);
+        this.cache = new ConcurrentLinkedHashMap.Builder<Serializable, CachedEntry<T>>()
+                .maximumWeightedCapacity(maxSize)
+                .listener(new EvictionListener<Serializable, CachedEntry<T>>() {
+                    public void onEviction(Serializable key, CachedEntry<T> value) {
+                        evictionCount.incrementAndGet();
+                    }
+                })
+                .build();
+    }
+
+    public void cacheEntry(Serializable key, T entry) throws CacheException {
+        if (key == null) {
+            return;
+        }
+        if (entry == null) {
+            cache.remove(key);
+            return;
+        }
+
+        long expiresAt = timeToLiveMillis > 0 ? System.currentTimeMillis() + timeToLiveMillis : Long.MAX_VALUE;
+        cache.put(key, new CachedEntry<T>(entry, expiresAt));
+    }
+
+    public T getCachedEntry(Serializable key) throws CacheException {
+        CachedEntry<T> cached = key != null ? cache.get(key) : null;
+        if (cached == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (cached.expiresAt < System.currentTimeMillis()) {
+            if (cache.remove(key, cached)) {
+                expirationCount.incrementAndGet();
+            }
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return cached.entry;
+    }
+
+    public void cacheEntries(Map<? extends Serializable, T> entries) throws CacheException {
+        for (Map.Entry<? extends Serializable, T> entry : entries.entrySet()) {
+            cacheEntry(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public Map<Serializable, T> getCachedEntries(Collection<? extends Serializable> keys) throws CacheException {
+        Map<Serializable, T> entries = new HashMap<Serializable, T>();
+        for (Serializable key : keys) {
+            T entry = getCachedEntry(key);
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        return entries;
+    }
+
+    public void evictEntry(Serializable key) throws CacheException {
+        if (key != null) {
+            cache.remove(key);
+        }
+    }
+
+    public void clear() throws CacheException {
+        cache.clear();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    /**
+     * @return The number of entries currently cached, including expired entries that were not read since they expired
+     */
+    public int getSize() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return The number of entries evicted because the maximum size was reached
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return The number of entries removed because their time to live elapsed
+     */
+    public long getExpirationCount() {
+        return expirationCount.get();
+    }
+
+    private static class CachedEntry<T> {
+        final T entry;
+        final long expiresAt;
+
+        CachedEntry(T entry, long expiresAt) {
+            this.entry = entry;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -19,8 +19,10 @@ import groovy.lang.MetaClassRegistry;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.codehaus.groovy.runtime.InvokerHelper;
+import org.grails.datastore.mapping.cache.QueryResultCache;
 import org.grails.datastore.mapping.cache.TPCacheAdapterRepository;
 import org.grails.datastore.mapping.config.Property;
+import org.grails.datastore.mapping.core.impl.SnowflakeIdentityGenerator;
 import org.grails.datastore.mapping.model.MappingContext;
 import org.grails.datastore.mapping.model.PersistentEntity;
 import org.grails.datastore.mapping.model.PersistentProperty;
@@ -60,6 +62,18 @@ public abstract class AbstractDatastore implements Datastore, StatelessDatastore
     protected MappingContext mappingContext;
     protected Map<String, String> connectionDetails = Collections.emptyMap();
     protected TPCacheAdapterRepository cacheAdapterRepository;
+    protected QueryResultCache queryResultCache = new QueryResultCache();
+
+    /**
+     * The connection detail holding the worker id of the {@link SnowflakeIdentityGenerator}
+     */
+    public static final String SNOWFLAKE_WORKER_ID = "snowflakeWorkerId";
+    /**
+     * The connection detail holding the number of milliseconds the clock may move backwards without failing the {@link SnowflakeIdentityGenerator}
+     */
+    public static final String SNOWFLAKE_MAX_CLOCK_BACKWARDS_MILLIS = "snowflakeMaxClockBackwardsMillis";
+
+    private volatile SnowflakeIdentityGenerator snowflakeIdentityGenerator;
 
     public AbstractDatastore() {}
 
@@ -217,6 +231,70 @@ public abstract class AbstractDatastore implements Datastore, StatelessDatastore
         return mappingContext;
     }
 
+    /**
+     * @return The cache used for queries with caching enabled, or null if query caching is disabled
+     */
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    /**
+     * Sets the cache used for queries with caching enabled
+     *
+     * @param queryResultCache The cache, or null to disable query caching
+     */
+    public void setQueryResultCache(QueryResultCache queryResultCache) {
+        this.queryResultCache = queryResultCache;
+    }
+
+    /**
+     * Obtains the generator of the entities mapped with the {@link SnowflakeIdentityGenerator#GENERATOR} identity generator,
+     * creating it from the {@link #SNOWFLAKE_WORKER_ID} and {@link #SNOWFLAKE_MAX_CLOCK_BACKWARDS_MILLIS} connection details
+     *
+     * @return The generator shared by all sessions of this datastore
+     */
+    public SnowflakeIdentityGenerator getSnowflakeIdentityGenerator() {
+        SnowflakeIdentityGenerator generator = snowflakeIdentityGenerator;
+        if (generator == null) {
+            synchronized (this) {
+                generator = snowflakeIdentityGenerator;
+                if (generator == null) {
+                    Long workerId = readLongConnectionDetail(SNOWFLAKE_WORKER_ID);
+                    Long maxClockBackwards = readLongConnectionDetail(SNOWFLAKE_MAX_CLOCK_BACKWARDS_MILLIS);
+                    generator = new SnowflakeIdentityGenerator(
+                            workerId != null ? workerId : SnowflakeIdentityGenerator.defaultWorkerId(),
+                            maxClockBackwards != null ? maxClockBackwards : SnowflakeIdentityGenerator.DEFAULT_MAX_CLOCK_BACKWARDS_MILLIS);
+                    snowflakeIdentityGenerator = generator;
+                }
+            }
+        }
+        return generator;
+    }
+
+    /**
+     * Reads a numeric connection detail. Datastores configured from a ConfigObject pass numbers rather than strings,
+     * despite the declared type of the connection details.
+     */
+    private Long readLongConnectionDetail(String name) {
+        Object value = ((Map<String, ?>) connectionDetails).get(name);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.valueOf(String.valueOf(value).trim());
+    }
+
+    /**
+     * Sets the generator of the entities mapped with the {@link SnowflakeIdentityGenerator#GENERATOR} identity generator
+     *
+     * @param snowflakeIdentityGenerator The generator
+     */
+    public void setSnowflakeIdentityGenerator(SnowflakeIdentityGenerator snowflakeIdentityGenerator) {
+        this.snowflakeIdentityGenerator = snowflakeIdentityGenerator;
+    }
+
     public ConfigurableApplicationContext getApplicationContext() {
         return (ConfigurableApplicationContext)applicationContext;
     }
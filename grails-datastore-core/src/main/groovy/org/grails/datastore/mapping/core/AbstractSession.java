@@ -21,6 +21,9 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.persistence.FlushModeType;
 
+import org.grails.datastore.mapping.cache.QueryResultCache;
+import org.grails.datastore.mapping.cache.EvictableTPCacheAdapter;
+import org.grails.datastore.mapping.cache.TPCacheAdapter;
 import org.grails.datastore.mapping.cache.TPCacheAdapterRepository;
 import org.grails.datastore.mapping.collection.PersistentCollection;
 import org.grails.datastore.mapping.config.Entity;
@@ -39,16 +42,14 @@ import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.core.convert.ConversionService;
-import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
 import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap.Builder;
-import com.googlecode.concurrentlinkedhashmap.EvictionListener;
-
 /**
  * Abstract implementation of the {@link org.grails.datastore.mapping.core.Session} interface that uses
  * a list of {@link org.grails.datastore.mapping.engine.Persister} instances
@@ -62,27 +63,10 @@ import com.googlecode.concurrentlinkedhashmap.EvictionListener;
 public abstract class AbstractSession<N> extends AbstractAttributeStoringSession implements SessionImplementor {
 
     public static final String ENTITY_ACCESS = "org.grails.gorm.ENTITY_ACCESS";
+    public static final int DEFAULT_FLUSH_BATCH_SIZE = 500;
 
-    private static final EvictionListener<PersistentEntity, Collection<PendingInsert>> EXCEPTION_THROWING_INSERT_LISTENER =
-            new EvictionListener<PersistentEntity, Collection<PendingInsert>>() {
-        public void onEviction(PersistentEntity key, Collection<PendingInsert> value) {
-            throw new DataAccessResourceFailureException("Maximum number (5000) of insert operations to flush() exceeded. Flush the session periodically to avoid this error for batch operations.");
-        }
-    };
-
-    private static final EvictionListener<PersistentEntity, Collection<PendingUpdate>> EXCEPTION_THROWING_UPDATE_LISTENER =
-            new EvictionListener<PersistentEntity, Collection<PendingUpdate>>() {
-        public void onEviction(PersistentEntity key, Collection<PendingUpdate> value) {
-            throw new DataAccessResourceFailureException("Maximum number (5000) of update operations to flush() exceeded. Flush the session periodically to avoid this error for batch operations.");
-        }
-    };
-
-    private static final EvictionListener<PersistentEntity, Collection<PendingDelete>> EXCEPTION_THROWING_DELETE_LISTENER =
-            new EvictionListener<PersistentEntity, Collection<PendingDelete>>() {
-                public void onEviction(PersistentEntity key, Collection<PendingDelete> value) {
-                    throw new DataAccessResourceFailureException("Maximum number (5000) of delete operations to flush() exceeded. Flush the session periodically to avoid this error for batch operations.");
-                }
-            };
+    private static final long PENDING_OPERATION_OVERHEAD = 128;
+    private static final long ESTIMATED_PROPERTY_SIZE = 64;
 
     protected Map<Class, Persister> persisters = new ConcurrentHashMap<Class,Persister>();
     protected boolean isSynchronizedWithTransaction = false;
@@ -98,27 +82,32 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
     protected TPCacheAdapterRepository cacheAdapterRepository;
 
-    private Collection<Integer> objectsPendingOperations = new ConcurrentLinkedQueue<Integer>();
-    private Map<PersistentEntity, Collection<PendingInsert>> pendingInserts =
-        new Builder<PersistentEntity, Collection<PendingInsert>>()
-           .listener(EXCEPTION_THROWING_INSERT_LISTENER)
-           .maximumWeightedCapacity(5000).build();
-
-    private Map<PersistentEntity, Collection<PendingUpdate>> pendingUpdates =
-        new Builder<PersistentEntity, Collection<PendingUpdate>>()
-           .listener(EXCEPTION_THROWING_UPDATE_LISTENER)
-           .maximumWeightedCapacity(5000).build();
-
-    private Map<PersistentEntity, Collection<PendingDelete>> pendingDeletes =
-            new Builder<PersistentEntity, Collection<PendingDelete>>()
-                    .listener(EXCEPTION_THROWING_DELETE_LISTENER)
-                    .maximumWeightedCapacity(5000).build();
+    private Collection<Integer> objectsPendingOperations = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    private Map<PersistentEntity, Collection<PendingInsert>> pendingInserts = new ConcurrentHashMap<PersistentEntity, Collection<PendingInsert>>();
+    private Map<PersistentEntity, Collection<PendingUpdate>> pendingUpdates = new ConcurrentHashMap<PersistentEntity, Collection<PendingUpdate>>();
+    private Map<PersistentEntity, Collection<PendingDelete>> pendingDeletes = new ConcurrentHashMap<PersistentEntity, Collection<PendingDelete>>();
+
+    private int pendingOperationCount;
+    private long estimatedPendingOperationSize;
+    private int autoFlushThreshold;
+    private long autoFlushSizeThreshold;
+    private int autoFlushCount;
+    private int persistDepth;
+    private boolean autoFlushing;
+    private boolean flushing;
+    private int firstLevelCacheMaxSize;
+    // evicted instances stay weakly reachable, so that changes made to them while the application holds on to them are still flushed
+    private final WeakIdentitySet<Object> evictedInstances = new WeakIdentitySet<Object>();
+    // the root entities written within the current transaction, whose cached query results are invalidated again once it completes
+    private final Set<PersistentEntity> entitiesWrittenInTransaction = Collections.newSetFromMap(new ConcurrentHashMap<PersistentEntity, Boolean>());
+    private Transaction writeTransaction;
 
     protected Collection<Runnable> postFlushOperations = new ConcurrentLinkedQueue<Runnable>();
     private boolean exceptionOccurred;
     protected ApplicationEventPublisher publisher;
 
     protected boolean stateless = false;
+    private int flushBatchSize = DEFAULT_FLUSH_BATCH_SIZE;
 
 
     public AbstractSession(Datastore datastore, MappingContext mappingContext,
@@ -169,6 +158,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         }
 
         inserts.add(insert);
+        pendingOperationAdded(insert);
     }
 
     @Override
@@ -199,6 +189,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         }
 
         inserts.add(update);
+        pendingOperationAdded(update);
     }
 
     public void addPendingDelete(PendingDelete delete) {
@@ -214,6 +205,115 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         }
 
         deletes.add(delete);
+        pendingOperationAdded(delete);
+    }
+
+    private void pendingOperationAdded(PendingOperation operation) {
+        pendingOperationCount++;
+        estimatedPendingOperationSize += estimatePendingOperationSize(operation);
+    }
+
+    /**
+     * Estimates the number of bytes a pending operation holds on to until it is flushed. Used to evaluate
+     * the auto-flush size threshold. Subclasses can override to provide a more accurate estimate for the native entry type.
+     *
+     * @param operation The pending operation
+     * @return The estimated size in bytes
+     */
+    protected long estimatePendingOperationSize(PendingOperation operation) {
+        PersistentEntity entity = operation.getEntity();
+        int propertyCount = entity != null ? entity.getPersistentProperties().size() : 0;
+        return PENDING_OPERATION_OVERHEAD + propertyCount * ESTIMATED_PROPERTY_SIZE;
+    }
+
+    /**
+     * Sets the number of pending operations at which the session flushes before persisting further objects. A value of zero or less disables the threshold.
+     *
+     * @param autoFlushThreshold The operation count threshold
+     */
+    public void setAutoFlushThreshold(int autoFlushThreshold) {
+        this.autoFlushThreshold = autoFlushThreshold;
+    }
+
+    public int getAutoFlushThreshold() {
+        return autoFlushThreshold;
+    }
+
+    /**
+     * Sets the estimated size in bytes of the pending operations at which the session flushes before persisting
+     * further objects. A value of zero or less disables the threshold.
+     *
+     * @param autoFlushSizeThreshold The size threshold in bytes
+     * @see #estimatePendingOperationSize(PendingOperation)
+     */
+    public void setAutoFlushSizeThreshold(long autoFlushSizeThreshold) {
+        this.autoFlushSizeThreshold = autoFlushSizeThreshold;
+    }
+
+    public long getAutoFlushSizeThreshold() {
+        return autoFlushSizeThreshold;
+    }
+
+    /**
+     * @return The number of flushes triggered by reaching an auto-flush threshold
+     */
+    public int getAutoFlushCount() {
+        return autoFlushCount;
+    }
+
+    /**
+     * @return The number of operations pending a flush
+     */
+    public int getPendingOperationCount() {
+        return pendingOperationCount;
+    }
+
+    /**
+     * @return The estimated size in bytes of the operations pending a flush
+     */
+    public long getEstimatedPendingOperationSize() {
+        return estimatedPendingOperationSize;
+    }
+
+    private boolean isAutoFlushThresholdReached() {
+        return (autoFlushThreshold > 0 && pendingOperationCount >= autoFlushThreshold) ||
+               (autoFlushSizeThreshold > 0 && estimatedPendingOperationSize >= autoFlushSizeThreshold);
+    }
+
+    /**
+     * Flushes the session once the pending operations reach one of the configured auto-flush thresholds. The flush
+     * goes through {@link #flush()}, so that sessions that write pending operations their own way, cascade or
+     * react to a flush in {@link #postFlush(boolean)} behave as if flushed by the caller. Only executed between
+     * top level persist and delete calls so that no native entry that is still being built gets written.
+     */
+    protected void autoFlushIfNecessary() {
+        if (autoFlushing || flushing || persistDepth > 0 || exceptionOccurred || !isAutoFlushThresholdReached()) {
+            return;
+        }
+
+        autoFlushing = true;
+        try {
+            int pendingBefore = pendingOperationCount;
+            flush();
+            if (pendingOperationCount < pendingBefore) {
+                autoFlushCount++;
+            }
+        } finally {
+            autoFlushing = false;
+        }
+    }
+
+    /**
+     * Marks the session as flushing, which suspends auto-flushes for objects persisted while the pending operations
+     * are written. Sessions that override {@link #flush()} without calling it should mark their flush.
+     *
+     * @param flushing Whether the session is flushing
+     * @return Whether the session was flushing before
+     */
+    protected boolean setFlushing(boolean flushing) {
+        boolean wasFlushing = this.flushing;
+        this.flushing = flushing;
+        return wasFlushing;
     }
 
     public Object getCachedEntry(PersistentEntity entity, Serializable key) {
@@ -283,6 +383,23 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         return pendingDeletes;
     }
 
+    /**
+     * @return The maximum number of pending operations per entity handed to a {@link BatchWriter} at once
+     */
+    public int getFlushBatchSize() {
+        return flushBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of pending operations per entity handed to a {@link BatchWriter} at once.
+     * A value of zero or less writes all the pending operations of an entity in a single batch.
+     *
+     * @param flushBatchSize The flush batch size
+     */
+    public void setFlushBatchSize(int flushBatchSize) {
+        this.flushBatchSize = flushBatchSize;
+    }
+
     public FlushModeType getFlushMode() {
         return flushMode;
     }
@@ -301,6 +418,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
     public void flush() {
         boolean hasInserts;
+        boolean wasFlushing = setFlushing(true);
         try {
             if (exceptionOccurred) {
                 throw new InvalidDataAccessResourceUsageException(
@@ -320,14 +438,20 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
         } finally {
             clearPendingOperations();
+            setFlushing(wasFlushing);
         }
         postFlush(hasInserts);
     }
 
+    /**
+     * The default implementation of flushPendingDeletes hands the delete operations of each entity to the
+     * {@link BatchWriter} of the entity's persister in chunks of {@link #getFlushBatchSize()}.
+     *
+     * @param pendingDeletes The delete operations
+     */
     protected void flushPendingDeletes(Map<PersistentEntity, Collection<PendingDelete>> pendingDeletes) {
-        final Collection<Collection<PendingDelete>> deletes = pendingDeletes.values();
-        for (Collection<PendingDelete> delete : deletes) {
-            flushPendingOperations(delete);
+        for (Map.Entry<PersistentEntity, Collection<PendingDelete>> entry : pendingDeletes.entrySet()) {
+            flushPendingOperations(entry.getKey(), entry.getValue(), PendingDelete.class);
         }
     }
 
@@ -373,41 +497,67 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
 
     /**
-     * The default implementation of flushPendingUpdates is to iterate over each update operation
-     * and execute them one by one. This may be suboptimal for stores that support batch update
-     * operations. Subclasses can override this method to implement batch update more efficiently.
+     * The default implementation of flushPendingUpdates hands the update operations of each entity to the
+     * {@link BatchWriter} of the entity's persister in chunks of {@link #getFlushBatchSize()}. Stores that
+     * support batch updates should provide a {@link BatchWriter} rather than override this method.
      *
-     * @param updates
+     * @param updates The update operations
      */
     protected void flushPendingUpdates(Map<PersistentEntity, Collection<PendingUpdate>> updates) {
-        for (Collection<PendingUpdate> pending : updates.values()) {
-            flushPendingOperations(pending);
+        for (Map.Entry<PersistentEntity, Collection<PendingUpdate>> entry : updates.entrySet()) {
+            flushPendingOperations(entry.getKey(), entry.getValue(), PendingUpdate.class);
         }
     }
 
     /**
-     * The default implementation of flushPendingInserts is to iterate over each insert operations
-     * and execute them one by one. This may be suboptimal for stores that support batch insert
-     * operations. Subclasses can override this method to implement batch insert more efficiently.
+     * The default implementation of flushPendingInserts hands the insert operations of each entity to the
+     * {@link BatchWriter} of the entity's persister in chunks of {@link #getFlushBatchSize()}. Stores that
+     * support batch inserts should provide a {@link BatchWriter} rather than override this method.
      *
      * @param inserts The insert operations
      */
     protected void flushPendingInserts(Map<PersistentEntity, Collection<PendingInsert>> inserts) {
-        for (Collection<PendingInsert> pending : inserts.values()) {
-            flushPendingOperations(pending);
+        for (Map.Entry<PersistentEntity, Collection<PendingInsert>> entry : inserts.entrySet()) {
+            flushPendingOperations(entry.getKey(), entry.getValue(), PendingInsert.class);
         }
     }
 
-    private void flushPendingOperations(Collection operations) {
-        for (Object o : operations) {
-            PendingOperation pendingOperation = (PendingOperation) o;
-            try {
-                PendingOperationExecution.executePendingOperation(pendingOperation);
-            } catch (RuntimeException e) {
-                setFlushMode(FlushModeType.COMMIT);
-                exceptionOccurred = true;
-                throw e;
+    private void flushPendingOperations(PersistentEntity entity, Collection operations, Class operationType) {
+        if (operations.isEmpty()) {
+            return;
+        }
+
+        Persister persister = getPersister(entity);
+        BatchWriter batchWriter = persister instanceof EntityPersister ? ((EntityPersister) persister).getBatchWriter() : DefaultBatchWriter.INSTANCE;
+        int chunkSize = flushBatchSize > 0 ? flushBatchSize : operations.size();
+        List chunk = new ArrayList(Math.min(chunkSize, operations.size()));
+        try {
+            for (Object o : operations) {
+                chunk.add(o);
+                if (chunk.size() == chunkSize) {
+                    writeChunk(batchWriter, entity, chunk, operationType);
+                    chunk = new ArrayList(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(batchWriter, entity, chunk, operationType);
             }
+        } catch (RuntimeException e) {
+            setFlushMode(FlushModeType.COMMIT);
+            exceptionOccurred = true;
+            throw e;
+        }
+    }
+
+    private void writeChunk(BatchWriter batchWriter, PersistentEntity entity, List chunk, Class operationType) {
+        if (operationType == PendingInsert.class) {
+            batchWriter.insert(entity, chunk);
+        }
+        else if (operationType == PendingUpdate.class) {
+            batchWriter.update(entity, chunk);
+        }
+        else {
+            batchWriter.delete(entity, chunk);
         }
     }
 
@@ -437,16 +587,45 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         clearMaps(firstLevelEntryCacheDirtyCheck);
         firstLevelCollectionCache.clear();
         clearPendingOperations();
+        evictedInstances.clear();
+        if (writeTransaction != null) {
+            // session only transactions are rolled back by clearing the session
+            completeTransactionalWrites();
+        }
         attributes.clear();
         exceptionOccurred = false;
     }
 
     protected void clearPendingOperations() {
+        invalidateQueryResultCache(pendingInserts.keySet());
+        invalidateQueryResultCache(pendingUpdates.keySet());
+        invalidateQueryResultCache(pendingDeletes.keySet());
+        for (Runnable operation : postFlushOperations) {
+            if (operation instanceof PendingOperation) {
+                invalidateQueryResultCache(((PendingOperation) operation).getEntity());
+            }
+        }
+        pendingOperationCount = 0;
+        estimatedPendingOperationSize = 0;
         objectsPendingOperations.clear();
         pendingInserts.clear();
         pendingUpdates.clear();
         pendingDeletes.clear();
         postFlushOperations.clear();
+        if (firstLevelCacheMaxSize > 0) {
+            // instances pinned by pending operations may be evicted again
+            releasePinned(firstLevelCache);
+            releasePinned(firstLevelEntryCache);
+            releasePinned(firstLevelEntryCacheDirtyCheck);
+        }
+    }
+
+    private void releasePinned(Map<Class, Map<Serializable, Object>> mapOfMaps) {
+        for (Map<Serializable, Object> cache : mapOfMaps.values()) {
+            if (cache instanceof BoundedIdentityMap) {
+                ((BoundedIdentityMap) cache).releasePinned();
+            }
+        }
     }
 
     private void clearMaps(Map<Class, Map<Serializable, Object>> mapOfMaps) {
@@ -471,8 +650,8 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         if (p == null) {
             p = createPersister(cls, getMappingContext());
             if (p != null) {
-                if(!isStateless(((EntityPersister)p).getPersistentEntity())) {
-                    firstLevelCache.put(cls, new ConcurrentHashMap<Serializable, Object>());
+                if(!isStateless(((EntityPersister)p).getPersistentEntity()) && !firstLevelCache.containsKey(cls)) {
+                    firstLevelCache.put(cls, createInstanceCache(cls));
                 }
                 persisters.put(cls, p);
             }
@@ -569,9 +748,15 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
                     "] cannot be persisted. It is not a known persistent type.");
         }
 
-        final Serializable key = persister.persist(o);
-        cacheObject(key, o);
-        return key;
+        autoFlushIfNecessary();
+        persistDepth++;
+        try {
+            final Serializable key = persister.persist(o);
+            cacheObject(key, o);
+            return key;
+        } finally {
+            persistDepth--;
+        }
     }
 
     @Override
@@ -583,9 +768,15 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
                     "] cannot be persisted. It is not a known persistent type.");
         }
 
-        final Serializable key = persister.insert(o);
-        cacheObject(key, o);
-        return key;
+        autoFlushIfNecessary();
+        persistDepth++;
+        try {
+            final Serializable key = persister.insert(o);
+            cacheObject(key, o);
+            return key;
+        } finally {
+            persistDepth--;
+        }
     }
 
     public void refresh(Object o) {
@@ -675,6 +866,101 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         }
     }
 
+    /**
+     * Clears the third party cache of the given entity and its subclasses. Should be called by bulk operations
+     * that modify the store without going through the persister, such as native deleteAll and updateAll implementations.
+     * Only adapters implementing {@link EvictableTPCacheAdapter} can be cleared.
+     *
+     * @param entity The entity
+     */
+    protected void clearTPCache(PersistentEntity entity) {
+        if (cacheAdapterRepository == null || entity == null) {
+            return;
+        }
+
+        for (PersistentEntity candidate : getMappingContext().getPersistentEntities()) {
+            if (entity.getJavaClass().isAssignableFrom(candidate.getJavaClass())) {
+                TPCacheAdapter cacheAdapter = cacheAdapterRepository.getTPCacheAdapter(candidate);
+                if (cacheAdapter instanceof EvictableTPCacheAdapter) {
+                    ((EvictableTPCacheAdapter) cacheAdapter).clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The query result cache of the datastore, or null if query caching is disabled
+     */
+    public QueryResultCache getQueryResultCache() {
+        return datastore instanceof AbstractDatastore ? ((AbstractDatastore) datastore).getQueryResultCache() : null;
+    }
+
+    /**
+     * Invalidates the cached query results of the family of the given entity. Called for every entity with pending
+     * operations when they are flushed, bulk operations that modify the store directly should call it as well.
+     *
+     * @param entity The entity
+     */
+    protected void invalidateQueryResultCache(PersistentEntity entity) {
+        QueryResultCache queryResultCache = getQueryResultCache();
+        if (queryResultCache != null && entity != null) {
+            queryResultCache.invalidate(entity);
+            registerTransactionalWrite(entity.getRootEntity());
+        }
+    }
+
+    /**
+     * Whether the family of the given entity was written within the current transaction of this session. Such
+     * writes are not visible to other sessions until the transaction commits, so queries on the family must
+     * neither use nor populate the query result cache, which is shared by all sessions of the datastore.
+     *
+     * @param entity The entity
+     * @return True if the family of the entity has uncommitted writes
+     */
+    public boolean hasUncommittedWrites(PersistentEntity entity) {
+        if (writeTransaction != null && (writeTransaction != transaction || !writeTransaction.isActive())) {
+            // the transaction completed without transaction synchronization
+            completeTransactionalWrites();
+        }
+        return entitiesWrittenInTransaction.contains(entity.getRootEntity());
+    }
+
+    private void registerTransactionalWrite(PersistentEntity rootEntity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive() && TransactionSynchronizationManager.isActualTransactionActive()) {
+            if (entitiesWrittenInTransaction.isEmpty()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        // other sessions may have cached results read while the transaction was in progress
+                        completeTransactionalWrites();
+                    }
+                });
+            }
+            entitiesWrittenInTransaction.add(rootEntity);
+        }
+        else if (transaction != null && transaction.isActive()) {
+            writeTransaction = transaction;
+            entitiesWrittenInTransaction.add(rootEntity);
+        }
+    }
+
+    private void completeTransactionalWrites() {
+        writeTransaction = null;
+        QueryResultCache queryResultCache = getQueryResultCache();
+        for (PersistentEntity entity : entitiesWrittenInTransaction) {
+            if (queryResultCache != null) {
+                queryResultCache.invalidate(entity);
+            }
+        }
+        entitiesWrittenInTransaction.clear();
+    }
+
+    private void invalidateQueryResultCache(Collection<PersistentEntity> entities) {
+        for (PersistentEntity entity : entities) {
+            invalidateQueryResultCache(entity);
+        }
+    }
+
     /**
      * This default implementation of the deleteAll method is unlikely to be optimal as it iterates and deletes each object.
      *
@@ -719,7 +1005,13 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         }
 
 
-        p.delete(obj);
+        autoFlushIfNecessary();
+        persistDepth++;
+        try {
+            p.delete(obj);
+        } finally {
+            persistDepth--;
+        }
         clear(obj);
     }
 
@@ -747,7 +1039,13 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         // for each type (usually only 1 type), set up a pendingDelete of that type
         for (Map.Entry<Persister, List> entry : toDelete.entrySet()) {
             final EntityPersister p = (EntityPersister) entry.getKey();
-            p.delete(entry.getValue());
+            autoFlushIfNecessary();
+            persistDepth++;
+            try {
+                p.delete(entry.getValue());
+            } finally {
+                persistDepth--;
+            }
         }
     }
 
@@ -769,7 +1067,13 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
                      obj.getClass().getName() + "] is not a known persistent type.");
         }
 
-        return p.persist(objects);
+        autoFlushIfNecessary();
+        persistDepth++;
+        try {
+            return p.persist(objects);
+        } finally {
+            persistDepth--;
+        }
     }
 
     public List retrieveAll(Class type, Iterable keys) {
@@ -840,6 +1144,9 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
 
     @Override
     public Transaction beginTransaction(TransactionDefinition definition) {
+        if (writeTransaction != null) {
+            completeTransactionalWrites();
+        }
         transaction = beginTransactionInternal();
         return transaction;
     }
@@ -861,7 +1168,7 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
     private Map<Serializable, Object> getInstanceCache(Class c) {
         Map<Serializable, Object> cache = firstLevelCache.get(c);
         if (cache == null) {
-            cache = new ConcurrentHashMap<Serializable, Object>();
+            cache = createInstanceCache(c);
             firstLevelCache.put(c, cache);
         }
         return cache;
@@ -871,12 +1178,95 @@ public abstract class AbstractSession<N> extends AbstractAttributeStoringSession
         Map<Class, Map<Serializable, Object>> caches = forDirtyCheck ? firstLevelEntryCacheDirtyCheck : firstLevelEntryCache;
         Map<Serializable, Object> cache = caches.get(c);
         if (cache == null) {
-            cache = new ConcurrentHashMap<Serializable, Object>();
+            cache = createEntryCache(c);
             caches.put(c, cache);
         }
         return cache;
     }
 
+    /**
+     * Limits the number of instances per entity held in the first level cache of this session. Once the limit
+     * is exceeded the least recently used instances, together with their cached native entries, are evicted
+     * unless they are pending a flush or report changes via {@link DirtyCheckable}. Evicted instances remain
+     * available to {@link #getEvictedInstances()} for as long as the application references them, so that
+     * sessions which flush changed but unsaved instances still find them. A value of zero or less (the default)
+     * keeps every instance until the session is cleared.
+     *
+     * @param firstLevelCacheMaxSize The maximum number of instances cached per entity
+     */
+    public void setFirstLevelCacheMaxSize(int firstLevelCacheMaxSize) {
+        this.firstLevelCacheMaxSize = firstLevelCacheMaxSize;
+        for (Map.Entry<Class, Map<Serializable, Object>> entry : firstLevelCache.entrySet()) {
+            Map<Serializable, Object> cache = createInstanceCache(entry.getKey());
+            cache.putAll(entry.getValue());
+            entry.setValue(cache);
+        }
+        for (Map<Class, Map<Serializable, Object>> caches : Arrays.asList(firstLevelEntryCache, firstLevelEntryCacheDirtyCheck)) {
+            for (Map.Entry<Class, Map<Serializable, Object>> entry : caches.entrySet()) {
+                Map<Serializable, Object> cache = createEntryCache(entry.getKey());
+                cache.putAll(entry.getValue());
+                entry.setValue(cache);
+            }
+        }
+    }
+
+    public int getFirstLevelCacheMaxSize() {
+        return firstLevelCacheMaxSize;
+    }
+
+    /**
+     * @return The instances evicted from the first level cache that are still referenced by the application
+     */
+    protected Collection<Object> getEvictedInstances() {
+        return evictedInstances.toList();
+    }
+
+    private Map<Serializable, Object> createInstanceCache(final Class c) {
+        if (firstLevelCacheMaxSize <= 0) {
+            return new ConcurrentHashMap<Serializable, Object>();
+        }
+
+        return new BoundedIdentityMap<Serializable, Object>(firstLevelCacheMaxSize, new BoundedIdentityMap.EvictionPolicy<Serializable, Object>() {
+            public boolean isPinned(Serializable key, Object instance) {
+                return isPinnedInstance(instance);
+            }
+
+            public void evicted(Serializable key, Object instance) {
+                evictedInstances.add(instance);
+                Map<Serializable, Object> entries = firstLevelEntryCache.get(c);
+                if (entries != null) {
+                    entries.remove(key);
+                }
+                entries = firstLevelEntryCacheDirtyCheck.get(c);
+                if (entries != null) {
+                    entries.remove(key);
+                }
+            }
+        });
+    }
+
+    private Map<Serializable, Object> createEntryCache(final Class c) {
+        if (firstLevelCacheMaxSize <= 0) {
+            return new ConcurrentHashMap<Serializable, Object>();
+        }
+
+        return new BoundedIdentityMap<Serializable, Object>(firstLevelCacheMaxSize, new BoundedIdentityMap.EvictionPolicy<Serializable, Object>() {
+            public boolean isPinned(Serializable key, Object entry) {
+                Map<Serializable, Object> instances = firstLevelCache.get(c);
+                return instances != null && isPinnedInstance(instances.get(key));
+            }
+
+            public void evicted(Serializable key, Object entry) {
+                // an instance without a cached entry is considered dirty, so at worst it is rewritten on its next save
+            }
+        });
+    }
+
+    private boolean isPinnedInstance(Object instance) {
+        return instance != null &&
+                (isPendingAlready(instance) || (instance instanceof DirtyCheckable && ((DirtyCheckable) instance).hasChanged()));
+    }
+
     @Override
     public EntityAccess createEntityAccess(PersistentEntity entity, Object instance) {
         if(isStateless()) {
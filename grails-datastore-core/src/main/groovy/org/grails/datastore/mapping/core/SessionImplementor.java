@@ -18,6 +18,7 @@ import java.io.Serializable;
 import java.util.Collection;
 import java.util.Map;
 
+import org.grails.datastore.mapping.cache.QueryResultCache;
 import org.grails.datastore.mapping.core.impl.PendingDelete;
 import org.grails.datastore.mapping.core.impl.PendingInsert;
 import org.grails.datastore.mapping.core.impl.PendingUpdate;
@@ -158,4 +159,15 @@ public interface SessionImplementor<T> {
     void registerPending(T obj);
 
     EntityAccess createEntityAccess(PersistentEntity entity, Object instance);
+
+    /**
+     * @return The cache for query results, or null if query caching is disabled
+     */
+    QueryResultCache getQueryResultCache();
+
+    /**
+     * @param entity The entity
+     * @return True if the family of the entity was written within the current transaction, which hasn't committed yet
+     */
+    boolean hasUncommittedWrites(PersistentEntity entity);
 }
@@ -0,0 +1,179 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.core.impl;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A size-capped map used for the first level cache of a session. Once the maximum size is exceeded the
+ * least recently used entries are evicted. An entry the {@link EvictionPolicy} reports as pinned (for example
+ * an instance that is dirty or pending a flush) is moved out of the eviction queue instead, so that it is only
+ * checked once, and stays in the map until {@link #releasePinned()} returns it to the queue. Pinned entries can
+ * therefore grow the map past its maximum size until they are released.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ *
+ * @since 5.0
+ */
+public class BoundedIdentityMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * Decides which entries may be evicted and is notified of evictions
+     */
+    public interface EvictionPolicy<K, V> {
+        /**
+         * @param key The key
+         * @param value The value
+         * @return True if the entry must not be evicted
+         */
+        boolean isPinned(K key, V value);
+
+        /**
+         * Called after an entry has been evicted, outside of the lock of the map
+         *
+         * @param key The key
+         * @param value The value
+         */
+        void evicted(K key, V value);
+    }
+
+    /** the eviction queue, from the least to the most recently used entry */
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<K, V>(16, 0.75f, true);
+    private final Map<K, V> pinned = new HashMap<K, V>();
+    private final int maxSize;
+    private final EvictionPolicy<K, V> evictionPolicy;
+
+    public BoundedIdentityMap(int maxSize, EvictionPolicy<K, V> evictionPolicy) {
+        this.maxSize = maxSize;
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public V get(Object key) {
+        synchronized (entries) {
+            V value = entries.get(key);
+            return value != null ? value : pinned.get(key);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        synchronized (entries) {
+            return entries.containsKey(key) || pinned.containsKey(key);
+        }
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        synchronized (entries) {
+            return entries.containsValue(value) || pinned.containsValue(value);
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (entries) {
+            return entries.size() + pinned.size();
+        }
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V previous;
+        List<Map.Entry<K, V>> evicted = null;
+        synchronized (entries) {
+            if (pinned.containsKey(key)) {
+                return pinned.put(key, value);
+            }
+            previous = entries.put(key, value);
+            while (entries.size() + pinned.size() > maxSize && entries.size() > 1) {
+                Iterator<Map.Entry<K, V>> i = entries.entrySet().iterator();
+                Map.Entry<K, V> eldest = i.next();
+                i.remove();
+                if (evictionPolicy.isPinned(eldest.getKey(), eldest.getValue())) {
+                    pinned.put(eldest.getKey(), eldest.getValue());
+                    continue;
+                }
+                if (evicted == null) {
+                    evicted = new ArrayList<Map.Entry<K, V>>();
+                }
+                evicted.add(new SimpleImmutableEntry<K, V>(eldest));
+            }
+        }
+        if (evicted != null) {
+            for (Map.Entry<K, V> entry : evicted) {
+                evictionPolicy.evicted(entry.getKey(), entry.getValue());
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the pinned entries to the head of the eviction queue, for example once the pending operations have
+     * been flushed. They are evicted first with the next put if they are no longer pinned by then.
+     */
+    public void releasePinned() {
+        synchronized (entries) {
+            if (!pinned.isEmpty()) {
+                Map<K, V> queued = new LinkedHashMap<K, V>(entries);
+                entries.clear();
+                entries.putAll(pinned);
+                entries.putAll(queued);
+                pinned.clear();
+            }
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        synchronized (entries) {
+            V value = entries.remove(key);
+            return value != null ? value : pinned.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            pinned.clear();
+        }
+    }
+
+    /**
+     * @return A snapshot of the entries of the map
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        synchronized (entries) {
+            Map<K, V> snapshot = new LinkedHashMap<K, V>(pinned);
+            snapshot.putAll(entries);
+            return Collections.unmodifiableMap(snapshot).entrySet();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.core.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out numeric identifiers from blocks reserved in a {@link BlockSource}, so that the backing store is only
+ * consulted once per block instead of once per identifier. Blocks are kept per entity family and shared by all
+ * sessions of a datastore; identifiers are taken from a block with an {@link AtomicLong} and a single thread
+ * reserves the next block once it is exhausted.
+ *
+ * @since 5.0
+ */
+public class IdentityBlockAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    /**
+     * Reserves blocks of identifiers, for example with an atomic increment of a counter in the backing store
+     */
+    public interface BlockSource {
+        /**
+         * Reserves the next block of identifiers of a family
+         *
+         * @param family The family
+         * @param blockSize The number of identifiers to reserve
+         * @return The last identifier of the reserved block
+         */
+        long reserve(String family, int blockSize);
+    }
+
+    private final BlockSource blockSource;
+    private final int blockSize;
+    private final ConcurrentMap<String, Block> blocks = new ConcurrentHashMap<String, Block>();
+
+    public IdentityBlockAllocator(BlockSource blockSource) {
+        this(blockSource, DEFAULT_BLOCK_SIZE);
+    }
+
+    public IdentityBlockAllocator(BlockSource blockSource, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSource = blockSource;
+        this.blockSize = blockSize;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Obtains the next identifier of a family, reserving a new block if the current one is exhausted
+     *
+     * @param family The family
+     * @return The identifier
+     */
+    public long nextId(String family) {
+        Block block = blocks.get(family);
+        if (block == null) {
+            Block empty = new Block(1, 0);
+            block = blocks.putIfAbsent(family, empty);
+            if (block == null) {
+                block = empty;
+            }
+        }
+
+        while (true) {
+            long id = block.next.getAndIncrement();
+            if (id <= block.last) {
+                return id;
+            }
+            block = reserveBlock(family, block);
+        }
+    }
+
+    /**
+     * Discards the blocks of all families, for example after the backing store has been cleared. Without a reset
+     * the identifiers left in the current blocks are still handed out, and a counter that went backwards is only
+     * detected when the next block is reserved.
+     */
+    public void reset() {
+        blocks.clear();
+    }
+
+    private Block reserveBlock(String family, Block exhausted) {
+        synchronized (exhausted) {
+            Block current = blocks.get(family);
+            if (current != null && current != exhausted) {
+                // another thread already reserved the next block
+                return current;
+            }
+            long last = blockSource.reserve(family, blockSize);
+            while (last < exhausted.last) {
+                // the counter went backwards, for example because the backing store was flushed without resetting
+                // the allocator. Move it past the identifiers already handed out, so that none is handed out again
+                long skip = exhausted.last - last + blockSize;
+                last = blockSource.reserve(family, (int) Math.min(skip, Integer.MAX_VALUE));
+            }
+            Block block = new Block(last - blockSize + 1, last);
+            blocks.put(family, block);
+            return block;
+        }
+    }
+
+    private static class Block {
+        final AtomicLong next;
+        final long last;
+
+        Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
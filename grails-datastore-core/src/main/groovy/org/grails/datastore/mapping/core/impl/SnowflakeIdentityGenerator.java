@@ -0,0 +1,246 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.core.impl;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.grails.datastore.mapping.config.Property;
+import org.grails.datastore.mapping.core.IdentityGenerationException;
+import org.grails.datastore.mapping.model.PersistentEntity;
+import org.grails.datastore.mapping.model.PersistentProperty;
+
+/**
+ * Generates unique numeric identifiers with the Twitter Snowflake algorithm, without a round trip to the
+ * backing store. An identifier is a positive long composed of a 41 bit timestamp, a 10 bit worker id and
+ * a 12 bit sequence number.
+ *
+ * The timestamp and the sequence number of the last identifier are packed into a single {@link AtomicLong}
+ * that is advanced with compare-and-set, so that concurrent callers never block each other. When the
+ * sequence of the current millisecond is exhausted, identifiers are taken from the next millisecond. When
+ * the clock moves backwards by up to {@link #getMaxClockBackwardsMillis()}, identifiers continue from the
+ * last timestamp; larger regressions are refused with an {@link IdentityGenerationException}.
+ *
+ * Entities opt in with the {@link #GENERATOR} identity generator, for example {@code id generator: 'snowflake'}.
+ *
+ * @since 5.0
+ */
+public class SnowflakeIdentityGenerator {
+
+    public static final String GENERATOR = "snowflake";
+    public static final long DEFAULT_EPOCH = 1288834974657L;
+    public static final long DEFAULT_MAX_CLOCK_BACKWARDS_MILLIS = 5;
+
+    public static final int WORKER_ID_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
+
+    private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
+    private static final int WORKER_ID_SHIFT = SEQUENCE_BITS;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
+
+    private final long workerId;
+    private final long epoch;
+    private final long maxClockBackwardsMillis;
+
+    /** the timestamp relative to the epoch and the sequence number of the last identifier */
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdentityGenerator() {
+        this(defaultWorkerId());
+    }
+
+    public SnowflakeIdentityGenerator(long workerId) {
+        this(workerId, DEFAULT_MAX_CLOCK_BACKWARDS_MILLIS);
+    }
+
+    public SnowflakeIdentityGenerator(long workerId, long maxClockBackwardsMillis) {
+        this(workerId, maxClockBackwardsMillis, DEFAULT_EPOCH);
+    }
+
+    public SnowflakeIdentityGenerator(long workerId, long maxClockBackwardsMillis, long epoch) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("Worker id must be between 0 and " + MAX_WORKER_ID + ": " + workerId);
+        }
+        if (maxClockBackwardsMillis < 0) {
+            throw new IllegalArgumentException("Clock backwards tolerance must not be negative: " + maxClockBackwardsMillis);
+        }
+        this.workerId = workerId;
+        this.maxClockBackwardsMillis = maxClockBackwardsMillis;
+        this.epoch = epoch;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    public long getMaxClockBackwardsMillis() {
+        return maxClockBackwardsMillis;
+    }
+
+    /**
+     * @return The next identifier
+     */
+    public long nextId() {
+        long next = reserve(1, null);
+        return toId(next >>> SEQUENCE_BITS, next & SEQUENCE_MASK);
+    }
+
+    /**
+     * Generates several identifiers, taking as many sequence numbers as possible per compare-and-set
+     *
+     * @param count The number of identifiers
+     * @return The identifiers in ascending order
+     */
+    public long[] nextIds(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        long[] ids = new long[count];
+        long[] firstSequence = new long[1];
+        int generated = 0;
+        while (generated < count) {
+            // the reserved range never spans two milliseconds, so it may be shorter than requested
+            long last = reserve(count - generated, firstSequence);
+            long timestamp = last >>> SEQUENCE_BITS;
+            for (long sequence = firstSequence[0]; sequence <= (last & SEQUENCE_MASK); sequence++) {
+                ids[generated++] = toId(timestamp, sequence);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Advances the state by up to the given number of sequence numbers within a single millisecond
+     *
+     * @param count The number of sequence numbers
+     * @param firstSequence Receives the first reserved sequence number, if not null
+     * @return The packed timestamp and sequence number of the last reserved identifier
+     */
+    private long reserve(int count, long[] firstSequence) {
+        while (true) {
+            final long current = state.get();
+            final long now = currentTimeMillis() - epoch;
+            final long lastTimestamp = current >>> SEQUENCE_BITS;
+
+            long next;
+            long first = 0;
+            if (now > lastTimestamp) {
+                next = (now << SEQUENCE_BITS) | (Math.min(count, SEQUENCE_MASK + 1) - 1);
+            }
+            else {
+                if (lastTimestamp - now > maxClockBackwardsMillis) {
+                    throw new IdentityGenerationException("Clock moved backwards. Refusing to generate identifiers for " +
+                            (lastTimestamp - now) + " milliseconds");
+                }
+                long sequence = current & SEQUENCE_MASK;
+                if (sequence < SEQUENCE_MASK) {
+                    first = sequence + 1;
+                    next = (lastTimestamp << SEQUENCE_BITS) | Math.min(sequence + count, SEQUENCE_MASK);
+                }
+                else if (lastTimestamp + 1 - now > maxClockBackwardsMillis) {
+                    // the sequence is exhausted and moving ahead of the clock would exceed the tolerance
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                    continue;
+                }
+                else {
+                    next = ((lastTimestamp + 1) << SEQUENCE_BITS) | (Math.min(count, SEQUENCE_MASK + 1) - 1);
+                }
+            }
+
+            if (state.compareAndSet(current, next)) {
+                if (firstSequence != null) {
+                    firstSequence[0] = first;
+                }
+                return next;
+            }
+        }
+    }
+
+    private long toId(long timestamp, long sequence) {
+        return (timestamp << TIMESTAMP_SHIFT) | (workerId << WORKER_ID_SHIFT) | sequence;
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Whether the identity of the given entity is generated by the {@link #GENERATOR} generator
+     *
+     * @param persistentEntity The entity
+     * @return True if it is
+     */
+    public static boolean isSnowflakeIdentity(PersistentEntity persistentEntity) {
+        PersistentProperty identity = persistentEntity.getRootEntity().getIdentity();
+        if (identity == null || identity.getMapping() == null) {
+            return false;
+        }
+        Object mappedForm = identity.getMapping().getMappedForm();
+        return mappedForm instanceof Property && GENERATOR.equals(((Property) mappedForm).getGenerator());
+    }
+
+    /**
+     * Generates the next identifier for the given entity, which must have an identity that can hold a long
+     *
+     * @param persistentEntity The entity
+     * @return The identifier
+     * @throws IdentityGenerationException If the identity of the entity is an integer
+     */
+    public long nextId(PersistentEntity persistentEntity) {
+        Class<?> type = persistentEntity.getRootEntity().getIdentity().getType();
+        if (type == Integer.class || type == int.class) {
+            throw new IdentityGenerationException("Cannot generate snowflake identity for entity " + persistentEntity + " with type " + type);
+        }
+        return nextId();
+    }
+
+    /**
+     * Derives a worker id from all bytes of the hardware addresses of the host, its name and the name of the
+     * running JVM, which includes its process id. Distinct worker ids should be configured wherever
+     * several processes generate identifiers for the same store.
+     *
+     * @return The worker id
+     */
+    public static long defaultWorkerId() {
+        int hash = 17;
+        try {
+            Enumeration<NetworkInterface> nics = NetworkInterface.getNetworkInterfaces();
+            while (nics != null && nics.hasMoreElements()) {
+                byte[] hardwareAddress = nics.nextElement().getHardwareAddress();
+                if (hardwareAddress != null) {
+                    hash = 31 * hash + Arrays.hashCode(hardwareAddress);
+                }
+            }
+        } catch (Exception e) {
+            // fall back to the host and process
+        }
+        try {
+            hash = 31 * hash + InetAddress.getLocalHost().getHostName().hashCode();
+        } catch (Exception e) {
+            // fall back to the process
+        }
+        hash = 31 * hash + ManagementFactory.getRuntimeMXBean().getName().hashCode();
+        // spread the bits of the hash before keeping the lowest bits
+        hash ^= (hash >>> 20) ^ (hash >>> 10);
+        return hash & MAX_WORKER_ID;
+    }
+}
@@ -0,0 +1,125 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.core.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A set that holds its elements weakly and compares them by identity rather than with equals() and hashCode(),
+ * so that distinct instances representing the same entity are tracked separately and an element is dropped once
+ * the application no longer references it. All methods are thread safe.
+ *
+ * @param <T> The element type
+ *
+ * @since 5.0
+ */
+public class WeakIdentitySet<T> {
+
+    private final Set<IdentityReference<T>> references = new HashSet<IdentityReference<T>>();
+    private final ReferenceQueue<T> queue = new ReferenceQueue<T>();
+
+    /**
+     * @param element The element to add
+     * @return True if the element was not already in the set
+     */
+    public synchronized boolean add(T element) {
+        purge();
+        return references.add(new IdentityReference<T>(element, queue));
+    }
+
+    /**
+     * @param element The element to look up
+     * @return True if this exact instance is in the set
+     */
+    public synchronized boolean contains(Object element) {
+        purge();
+        return references.contains(new IdentityReference<Object>(element, null));
+    }
+
+    /**
+     * @param element The element to remove
+     * @return True if this exact instance was in the set
+     */
+    public synchronized boolean remove(Object element) {
+        purge();
+        return references.remove(new IdentityReference<Object>(element, null));
+    }
+
+    public synchronized int size() {
+        purge();
+        return references.size();
+    }
+
+    public synchronized void clear() {
+        references.clear();
+    }
+
+    /**
+     * @return The elements that are still referenced, copied so that the set can be modified while they are processed
+     */
+    public synchronized List<T> toList() {
+        List<T> elements = new ArrayList<T>(references.size());
+        for (IdentityReference<T> reference : references) {
+            T element = reference.get();
+            if (element != null) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    private void purge() {
+        Reference<? extends T> reference;
+        while ((reference = queue.poll()) != null) {
+            references.remove(reference);
+        }
+    }
+
+    /**
+     * Hashes its referent by identity and equals another reference to the same instance. A cleared reference only
+     * equals itself, so that it can still be removed from the set once it has been enqueued.
+     */
+    private static class IdentityReference<T> extends WeakReference<T> {
+        private final int hash;
+
+        IdentityReference(T referent, ReferenceQueue<? super T> queue) {
+            super(referent, queue);
+            hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof IdentityReference)) {
+                return false;
+            }
+            Object referent = get();
+            return referent != null && referent == ((IdentityReference) o).get();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.engine;
+
+import java.util.List;
+
+import org.grails.datastore.mapping.core.impl.PendingDelete;
+import org.grails.datastore.mapping.core.impl.PendingInsert;
+import org.grails.datastore.mapping.core.impl.PendingUpdate;
+import org.grails.datastore.mapping.model.PersistentEntity;
+
+/**
+ * Writes the pending operations of a single {@link PersistentEntity} to the underlying store during a flush.
+ *
+ * The session groups pending operations by entity and hands them to the writer in chunks no larger
+ * than the configured flush batch size. Implementations can use the multi-write capabilities of the
+ * native store (pipelines, batch statements, bulk writes etc.), but must execute the pre and cascade
+ * operations of each pending operation and honour vetoes.
+ *
+ * @see DefaultBatchWriter
+ * @see org.grails.datastore.mapping.core.AbstractSession#setFlushBatchSize(int)
+ *
+ * @since 5.0
+ */
+@SuppressWarnings("rawtypes")
+public interface BatchWriter {
+
+    /**
+     * Writes a chunk of pending inserts
+     *
+     * @param entity The entity the inserts belong to
+     * @param inserts The inserts
+     */
+    void insert(PersistentEntity entity, List<PendingInsert> inserts);
+
+    /**
+     * Writes a chunk of pending updates
+     *
+     * @param entity The entity the updates belong to
+     * @param updates The updates
+     */
+    void update(PersistentEntity entity, List<PendingUpdate> updates);
+
+    /**
+     * Writes a chunk of pending deletes
+     *
+     * @param entity The entity the deletes belong to
+     * @param deletes The deletes
+     */
+    void delete(PersistentEntity entity, List<PendingDelete> deletes);
+}
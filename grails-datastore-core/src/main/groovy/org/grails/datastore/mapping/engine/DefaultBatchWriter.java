@@ -0,0 +1,57 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.engine;
+
+import java.util.List;
+
+import org.grails.datastore.mapping.core.impl.PendingDelete;
+import org.grails.datastore.mapping.core.impl.PendingInsert;
+import org.grails.datastore.mapping.core.impl.PendingOperation;
+import org.grails.datastore.mapping.core.impl.PendingOperationExecution;
+import org.grails.datastore.mapping.core.impl.PendingUpdate;
+import org.grails.datastore.mapping.model.PersistentEntity;
+
+/**
+ * A {@link BatchWriter} that executes each pending operation one by one. Used by persisters
+ * whose underlying store has no native support for multi-writes.
+ *
+ * @since 5.0
+ */
+@SuppressWarnings("rawtypes")
+public class DefaultBatchWriter implements BatchWriter {
+
+    public static final DefaultBatchWriter INSTANCE = new DefaultBatchWriter();
+
+    @Override
+    public void insert(PersistentEntity entity, List<PendingInsert> inserts) {
+        execute(inserts);
+    }
+
+    @Override
+    public void update(PersistentEntity entity, List<PendingUpdate> updates) {
+        execute(updates);
+    }
+
+    @Override
+    public void delete(PersistentEntity entity, List<PendingDelete> deletes) {
+        execute(deletes);
+    }
+
+    protected void execute(List<? extends PendingOperation> operations) {
+        for (PendingOperation operation : operations) {
+            PendingOperationExecution.executePendingOperation(operation);
+        }
+    }
+}
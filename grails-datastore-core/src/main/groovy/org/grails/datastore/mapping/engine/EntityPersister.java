@@ -49,6 +49,7 @@ public abstract class EntityPersister implements Persister {
     protected Session session;
     protected org.grails.datastore.mapping.proxy.ProxyFactory proxyFactory;
     protected ApplicationEventPublisher publisher;
+    private BatchWriter batchWriter = DefaultBatchWriter.INSTANCE;
 
     public EntityPersister(MappingContext mappingContext, PersistentEntity entity,
               Session session, ApplicationEventPublisher publisher) {
@@ -74,6 +75,25 @@ public abstract class EntityPersister implements Persister {
         return proxyFactory;
     }
 
+    /**
+     * Obtains the {@link BatchWriter} used to write the pending operations of this entity on flush. Subclasses
+     * should override to take advantage of the multi-write capabilities of the underlying store.
+     *
+     * @return The batch writer
+     */
+    public BatchWriter getBatchWriter() {
+        return batchWriter;
+    }
+
+    /**
+     * Replaces the {@link BatchWriter} of a persister that doesn't override {@link #getBatchWriter()}
+     *
+     * @param batchWriter The batch writer
+     */
+    public void setBatchWriter(BatchWriter batchWriter) {
+        this.batchWriter = batchWriter != null ? batchWriter : DefaultBatchWriter.INSTANCE;
+    }
+
     /**
      * @return The MappingContext instance
      */
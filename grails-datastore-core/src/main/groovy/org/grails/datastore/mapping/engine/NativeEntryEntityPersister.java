@@ -122,6 +122,7 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
             session.setFlushMode(FlushModeType.COMMIT);
             cascadeBeforeDelete(persistentEntity, entityAccess, key, obj);
             deleteEntry(getEntityFamily(), key, obj);
+            evictFromTPCache(persistentEntity, (Serializable) key);
             cascadeAfterDelete(persistentEntity, entityAccess, key, obj);
         }
         finally {
@@ -248,6 +249,9 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
 
             if (!keys.isEmpty()) {
                 deleteEntries(getEntityFamily(), new ArrayList<K>(keys));
+                for (K key : keys) {
+                    evictFromTPCache(persistentEntity, (Serializable) key);
+                }
                 for (Object object : deleteList) {
                     firePostDeleteEvent(persistentEntity, createEntityAccess(persistentEntity, object));
                 }
@@ -319,12 +323,13 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
     protected final Object retrieveEntity(PersistentEntity persistentEntity, Serializable nativeKey) {
 
         final Serializable key = convertToNativeKey(nativeKey);
-        T nativeEntry = getFromTPCache(persistentEntity, nativeKey);
+        T nativeEntry = getFromTPCache(persistentEntity, key);
         if (nativeEntry == null) {
             nativeEntry = retrieveEntry(persistentEntity, getEntityFamily(), key);
             if (nativeEntry == null) {
                 return null;
             }
+            updateTPCache(persistentEntity, nativeEntry, key);
         }
 
         return createObjectFromNativeEntry(persistentEntity, key, nativeEntry);
@@ -1493,37 +1498,64 @@ public abstract class NativeEntryEntityPersister<T, K> extends ThirdPartyCacheEn
     }
 
     /**
-     * Simplistic default implementation of retrieveAllEntities that iterates over each key and retrieves the entities
-     * one-by-one. Data stores that support batch retrieval can optimize this to retrieve all entities in one go.
+     * Default implementation of retrieveAllEntities that resolves as many entries as possible from the third party
+     * cache in a single call and then retrieves the remaining entries via {@link #retrieveEntries(PersistentEntity, String, List)}.
      *
      * @param persistentEntity The persist entity
      * @param keys The keys
-     * @return A list of entities
+     * @return A list of entities in the order of the keys, with null for keys that don't exist
      */
     @Override
     protected List<Object> retrieveAllEntities(PersistentEntity persistentEntity, Iterable<Serializable> keys) {
-        List<Object> results = new ArrayList<Object>();
+        List<Serializable> nativeKeys = new ArrayList<Serializable>();
         for (Serializable key : keys) {
-            results.add(retrieveEntity(persistentEntity, key));
+            nativeKeys.add(convertToNativeKey(key));
+        }
+
+        Map<Serializable, T> entries = getFromTPCache(persistentEntity, nativeKeys);
+        if (entries.size() < nativeKeys.size()) {
+            List<Serializable> missingKeys = new ArrayList<Serializable>();
+            for (Serializable key : nativeKeys) {
+                if (!entries.containsKey(key)) {
+                    missingKeys.add(key);
+                }
+            }
+            Map<Serializable, T> retrieved = retrieveEntries(persistentEntity, getEntityFamily(), missingKeys);
+            updateTPCache(persistentEntity, retrieved);
+            entries.putAll(retrieved);
+        }
+
+        List<Object> results = new ArrayList<Object>(nativeKeys.size());
+        for (Serializable key : nativeKeys) {
+            T nativeEntry = entries.get(key);
+            results.add(nativeEntry != null ? createObjectFromNativeEntry(persistentEntity, key, nativeEntry) : null);
         }
         return results;
     }
 
+    @Override
+    protected List<Object> retrieveAllEntities(PersistentEntity persistentEntity, Serializable[] keys) {
+        return retrieveAllEntities(persistentEntity, Arrays.asList(keys));
+    }
+
     /**
-     * Simplistic default implementation of retrieveAllEntities that iterates over each key and retrieves the entities
-     * one-by-one. Data stores that support batch retrieval can optimize this to retrieve all entities in one go.
+     * Simplistic default implementation of retrieveEntries that retrieves the entries one-by-one. Data stores that support
+     * batch retrieval should override this to retrieve all entries in one go.
      *
-     * @param persistentEntity The persist entity
-     * @param keys The keys
-     * @return A list of entities
+     * @param persistentEntity The persistent entity
+     * @param family The family
+     * @param keys The native keys
+     * @return The entries found keyed by native key
      */
-    @Override
-    protected List<Object> retrieveAllEntities(PersistentEntity persistentEntity, Serializable[] keys) {
-        List<Object> results = new ArrayList<Object>();
+    protected Map<Serializable, T> retrieveEntries(PersistentEntity persistentEntity, String family, List<Serializable> keys) {
+        Map<Serializable, T> entries = new HashMap<Serializable, T>();
         for (Serializable key : keys) {
-            results.add(retrieveEntity(persistentEntity, key));
+            T nativeEntry = retrieveEntry(persistentEntity, family, key);
+            if (nativeEntry != null) {
+                entries.put(key, nativeEntry);
+            }
         }
-        return results;
+        return entries;
     }
 
     /**
@@ -14,6 +14,8 @@
  */
 package org.grails.datastore.mapping.engine;
 
+import org.grails.datastore.mapping.cache.BulkTPCacheAdapter;
+import org.grails.datastore.mapping.cache.EvictableTPCacheAdapter;
 import org.grails.datastore.mapping.cache.TPCacheAdapter;
 import org.grails.datastore.mapping.cache.TPCacheAdapterRepository;
 import org.grails.datastore.mapping.core.Session;
@@ -22,6 +24,9 @@ import org.grails.datastore.mapping.model.PersistentEntity;
 import org.springframework.context.ApplicationEventPublisher;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  *
@@ -53,6 +58,40 @@ public abstract class ThirdPartyCacheEntityPersister<T> extends LockableEntityPe
         }
     }
 
+    protected void updateTPCache(PersistentEntity persistentEntity, Map<? extends Serializable, T> entries) {
+        if (cacheAdapterRepository == null || entries.isEmpty()) {
+            return;
+        }
+
+        TPCacheAdapter<T> cacheAdapter = cacheAdapterRepository.getTPCacheAdapter(persistentEntity);
+        if (cacheAdapter instanceof BulkTPCacheAdapter) {
+            ((BulkTPCacheAdapter<T>) cacheAdapter).cacheEntries(entries);
+        }
+        else if (cacheAdapter != null) {
+            for (Map.Entry<? extends Serializable, T> entry : entries.entrySet()) {
+                cacheAdapter.cacheEntry(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Evicts the cached entry of a deleted entity. Adapters that don't implement {@link EvictableTPCacheAdapter}
+     * are left to the expiry policy of the third party cache
+     *
+     * @param persistentEntity The entity
+     * @param id The identifier
+     */
+    protected void evictFromTPCache(PersistentEntity persistentEntity, Serializable id) {
+        if (cacheAdapterRepository == null || id == null) {
+            return;
+        }
+
+        TPCacheAdapter<T> cacheAdapter = cacheAdapterRepository.getTPCacheAdapter(persistentEntity);
+        if (cacheAdapter instanceof EvictableTPCacheAdapter) {
+            ((EvictableTPCacheAdapter<T>) cacheAdapter).evictEntry(id);
+        }
+    }
+
     protected T getFromTPCache(PersistentEntity persistentEntity, Serializable id) {
         if (cacheAdapterRepository == null) {
             return null;
@@ -64,4 +103,32 @@ public abstract class ThirdPartyCacheEntityPersister<T> extends LockableEntityPe
         }
         return null;
     }
+
+    /**
+     * Obtains the cached entries for multiple identifiers in a single cache operation
+     *
+     * @param persistentEntity The entity
+     * @param ids The identifiers
+     * @return A modifiable map of the cached entries found, keyed by identifier
+     */
+    protected Map<Serializable, T> getFromTPCache(PersistentEntity persistentEntity, Collection<? extends Serializable> ids) {
+        Map<Serializable, T> entries = new HashMap<Serializable, T>();
+        if (cacheAdapterRepository == null || ids.isEmpty()) {
+            return entries;
+        }
+
+        TPCacheAdapter<T> cacheAdapter = cacheAdapterRepository.getTPCacheAdapter(persistentEntity);
+        if (cacheAdapter instanceof BulkTPCacheAdapter) {
+            entries.putAll(((BulkTPCacheAdapter<T>) cacheAdapter).getCachedEntries(ids));
+        }
+        else if (cacheAdapter != null) {
+            for (Serializable id : ids) {
+                T entry = cacheAdapter.getCachedEntry(id);
+                if (entry != null) {
+                    entries.put(id, entry);
+                }
+            }
+        }
+        return entries;
+    }
 }
@@ -24,6 +24,9 @@ import org.grails.datastore.mapping.config.Property;
  */
 public class KeyValue extends Property {
 
+    private boolean lexIndex = false;
+    private boolean lexIndexIgnoreCase = false;
+
     public KeyValue() {
     }
 
@@ -38,4 +41,45 @@ public class KeyValue extends Property {
     public void setKey(String key) {
         setTargetName(key);
     }
+
+    /**
+     * @return Whether String values are also indexed in lexicographical order to support range and prefix queries
+     */
+    public boolean isLexIndex() {
+        return lexIndex;
+    }
+
+    /**
+     * Whether to also index String values in lexicographical order. Implies that the property is indexed.
+     * Values stored before the index was enabled are added to it when the datastore rebuilds its indices on
+     * startup. Range and prefix queries don't return them until then, or while the indices are rebuilt in the
+     * background.
+     *
+     * @param lexIndex True if String values should be indexed in lexicographical order
+     */
+    public void setLexIndex(boolean lexIndex) {
+        this.lexIndex = lexIndex;
+        if (lexIndex) {
+            setIndex(true);
+        }
+    }
+
+    /**
+     * @return Whether the lowercase String values are indexed in lexicographical order for case insensitive queries
+     */
+    public boolean isLexIndexIgnoreCase() {
+        return lexIndexIgnoreCase;
+    }
+
+    /**
+     * Whether to also index the lowercase String values in lexicographical order. Implies the lexicographical index.
+     *
+     * @param lexIndexIgnoreCase True if lowercase String values should be indexed in lexicographical order
+     */
+    public void setLexIndexIgnoreCase(boolean lexIndexIgnoreCase) {
+        this.lexIndexIgnoreCase = lexIndexIgnoreCase;
+        if (lexIndexIgnoreCase) {
+            setLexIndex(true);
+        }
+    }
 }
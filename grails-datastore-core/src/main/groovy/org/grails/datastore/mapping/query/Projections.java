@@ -51,6 +51,15 @@ public class Projections {
         return new Query.PropertyProjection(name);
     }
 
+    /**
+     * A projection that groups the results by the value of a property
+     * @param name The name of the property
+     * @return The GroupPropertyProjection instance
+     */
+    public static Query.GroupPropertyProjection groupProperty(String name) {
+        return new Query.GroupPropertyProjection(name);
+    }
+
     /**
      * Computes the sum of a property
      *
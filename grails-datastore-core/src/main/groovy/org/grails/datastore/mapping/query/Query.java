@@ -16,17 +16,22 @@ package org.grails.datastore.mapping.query;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import javax.persistence.FetchType;
 import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
 
+import org.grails.datastore.mapping.cache.QueryResultCache;
 import org.grails.datastore.mapping.core.Session;
 import org.grails.datastore.mapping.core.SessionImplementor;
 import org.grails.datastore.mapping.engine.EntityPersister;
@@ -563,7 +568,17 @@ public abstract class Query implements Cloneable{
             publisher.publishEvent(new PreQueryEvent(this));
         }
 
-        List results = executeQuery(entity, criteria);
+        QueryResultCache queryResultCache = getQueryResultCache();
+        Object cacheKey = queryResultCache != null ? createQueryCacheKey() : null;
+        List results = cacheKey != null ? getCachedResults(queryResultCache, cacheKey) : null;
+        if (results == null) {
+            long generation = cacheKey != null ? queryResultCache.getGeneration(entity) : 0;
+            results = executeQuery(entity, criteria);
+            // lazy results backed by a cursor are read entirely in order to be cached
+            if (cacheKey != null) {
+                cacheResults(queryResultCache, cacheKey, results, generation);
+            }
+        }
 
         if(publisher != null) {
             PostQueryEvent postQueryEvent = new PostQueryEvent(this, results);
@@ -596,6 +611,218 @@ public abstract class Query implements Cloneable{
         this.uniqueResult = uniqueResult;
     }
 
+    /**
+     * The query result cache is shared by all sessions of the datastore, so it is bypassed for entities written
+     * within the current transaction, whose uncommitted changes must not be visible to other sessions.
+     *
+     * @return The query result cache to use if caching is enabled for this query, otherwise null
+     */
+    protected QueryResultCache getQueryResultCache() {
+        if (queryCache == null || !queryCache || lockResult != null || !(session instanceof SessionImplementor)) {
+            return null;
+        }
+        SessionImplementor sessionImplementor = (SessionImplementor) session;
+        if (sessionImplementor.hasUncommittedWrites(entity)) {
+            return null;
+        }
+        return sessionImplementor.getQueryResultCache();
+    }
+
+    /**
+     * Creates the key under which the results of this query are cached, built from the criteria, projections,
+     * order and pagination of the query. Criteria are normalized so that the order of the criteria within a
+     * junction does not matter.
+     *
+     * @return The key or null if the query can't be cached, for example because it contains association
+     * queries or subqueries whose results depend on other entities
+     */
+    protected Object createQueryCacheKey() {
+        Object criteriaKey = createCacheKey(criteria);
+        if (criteriaKey == null) {
+            return null;
+        }
+
+        List<Object> key = new ArrayList<Object>();
+        key.add(getClass());
+        key.add(entity.getName());
+        key.add(criteriaKey);
+        for (Projection projection : projections.getProjectionList()) {
+            key.add(projection.getClass());
+            if (projection instanceof PropertyProjection) {
+                key.add(((PropertyProjection) projection).getPropertyName());
+            }
+        }
+        for (Order order : orderBy) {
+            key.add(order.getProperty());
+            key.add(order.getDirection());
+            key.add(order.isIgnoreCase());
+            key.add(order.getNullHandling());
+        }
+        key.add(max);
+        key.add(offset);
+        key.add(uniqueResult);
+        return addQueryCacheKeyArguments(key) ? key : null;
+    }
+
+    /**
+     * Adds the store specific state that affects the results of the query, such as query arguments, to the key
+     * created by {@link #createQueryCacheKey()}. Values should be added through {@link #createCacheKeyValue(Object)}.
+     *
+     * @param key The key
+     * @return false if the query can't be cached
+     */
+    protected boolean addQueryCacheKeyArguments(List<Object> key) {
+        return true;
+    }
+
+    private Object createCacheKey(Criterion criterion) {
+        if (criterion instanceof Junction) {
+            Set<Object> keys = new HashSet<Object>();
+            for (Criterion c : ((Junction) criterion).getCriteria()) {
+                Object k = createCacheKey(c);
+                if (k == null) {
+                    return null;
+                }
+                keys.add(k);
+            }
+            return Arrays.asList(criterion.getClass(), keys);
+        }
+        if (criterion instanceof SubqueryCriterion || !(criterion instanceof PropertyNameCriterion)) {
+            return null;
+        }
+
+        List<Object> key = new ArrayList<Object>();
+        key.add(criterion.getClass());
+        key.add(((PropertyNameCriterion) criterion).getProperty());
+        if (criterion instanceof PropertyComparisonCriterion) {
+            key.add(((PropertyComparisonCriterion) criterion).getOtherProperty());
+        }
+        else if (criterion instanceof In) {
+            if (((In) criterion).getSubquery() != null) {
+                return null;
+            }
+            key.add(createCacheKeyValue(((In) criterion).getValues()));
+        }
+        else if (criterion instanceof Between) {
+            key.add(createCacheKeyValue(((Between) criterion).getFrom()));
+            key.add(createCacheKeyValue(((Between) criterion).getTo()));
+        }
+        else if (criterion instanceof PropertyCriterion) {
+            key.add(createCacheKeyValue(((PropertyCriterion) criterion).getValue()));
+        }
+        return key;
+    }
+
+    /**
+     * Creates a value of a query cache key, copying mutable values so that later changes to them can't alter the key
+     *
+     * @param value The value
+     * @return The key value
+     */
+    protected Object createCacheKeyValue(Object value) {
+        if (value instanceof Date) {
+            return Arrays.asList(value.getClass(), ((Date) value).getTime());
+        }
+        if (value instanceof Collection) {
+            List<Object> values = new ArrayList<Object>();
+            for (Object o : (Collection) value) {
+                values.add(createCacheKeyValue(o));
+            }
+            return values;
+        }
+        if (value instanceof Object[]) {
+            return createCacheKeyValue(Arrays.asList((Object[]) value));
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> values = new HashMap<Object, Object>();
+            for (Object o : ((Map) value).entrySet()) {
+                Map.Entry entry = (Map.Entry) o;
+                values.put(createCacheKeyValue(entry.getKey()), createCacheKeyValue(entry.getValue()));
+            }
+            return values;
+        }
+        if (value instanceof CharSequence) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    private List getCachedResults(QueryResultCache queryResultCache, Object cacheKey) {
+        List cached = queryResultCache.get(entity, cacheKey);
+        if (cached == null) {
+            return null;
+        }
+        if (!projections.isEmpty()) {
+            List results = new ArrayList(cached.size());
+            for (Object result : cached) {
+                if (result instanceof Object[]) {
+                    results.add(((Object[]) result).clone());
+                }
+                else if (result instanceof List) {
+                    results.add(new ArrayList((List) result));
+                }
+                else {
+                    results.add(result);
+                }
+            }
+            return results;
+        }
+
+        List results = session.retrieveAll(entity.getJavaClass(), cached);
+        if (results.contains(null)) {
+            // an instance was removed without the cache being invalidated
+            return null;
+        }
+        return results;
+    }
+
+    private void cacheResults(QueryResultCache queryResultCache, Object cacheKey, List results, long generation) {
+        List cached = new ArrayList(results.size());
+        for (Object result : results) {
+            if (projections.isEmpty()) {
+                Serializable id = isEntity(result) ? session.getObjectIdentifier(result) : null;
+                if (id == null) {
+                    return;
+                }
+                cached.add(id);
+            }
+            else if (result instanceof Object[]) {
+                Object[] row = (Object[]) result;
+                for (Object value : row) {
+                    if (isEntity(value)) {
+                        return;
+                    }
+                }
+                cached.add(row.clone());
+            }
+            else if (result instanceof List) {
+                List row = (List) result;
+                for (Object value : row) {
+                    if (isEntity(value)) {
+                        return;
+                    }
+                }
+                cached.add(Collections.unmodifiableList(new ArrayList(row)));
+            }
+            else {
+                // projected entities have to be retrieved through the session, only plain values are cached
+                if (isEntity(result)) {
+                    return;
+                }
+                cached.add(result);
+            }
+        }
+        queryResultCache.put(entity, cacheKey, Collections.unmodifiableList(cached), generation);
+    }
+
+    private boolean isEntity(Object value) {
+        if (value == null) {
+            return false;
+        }
+        MappingContext mappingContext = session.getMappingContext();
+        return mappingContext.getProxyFactory().isProxy(value) || mappingContext.isPersistentEntity(value);
+    }
+
     /**
      * Obtain the fetch strategy for the given property
      *
@@ -745,6 +972,7 @@ public abstract class Query implements Cloneable{
         private Direction direction = Direction.ASC;
         private String property;
         private boolean ignoreCase = false;
+        private NullHandling nullHandling = NullHandling.DEFAULT;
 
         public Order(String property) {
             this.property = property;
@@ -769,6 +997,33 @@ public abstract class Query implements Cloneable{
             return ignoreCase;
         }
 
+        /**
+         * Orders null values before all other values, regardless of the direction (if supported by the underlying datastore)
+         *
+         * @return This order instance
+         */
+        public Order nullsFirst() {
+            this.nullHandling = NullHandling.NULLS_FIRST;
+            return this;
+        }
+
+        /**
+         * Orders null values after all other values, regardless of the direction (if supported by the underlying datastore)
+         *
+         * @return This order instance
+         */
+        public Order nullsLast() {
+            this.nullHandling = NullHandling.NULLS_LAST;
+            return this;
+        }
+
+        /**
+         * @return How null values are ordered
+         */
+        public NullHandling getNullHandling() {
+            return nullHandling;
+        }
+
         /**
          * @return The direction order by
          */
@@ -809,6 +1064,14 @@ public abstract class Query implements Cloneable{
         public static enum Direction {
             ASC, DESC
         }
+
+        /**
+         * Represents the position of null values in the ordering. By default the underlying datastore decides,
+         * in-memory ordering treats null as lower than any other value.
+         */
+        public static enum NullHandling {
+            DEFAULT, NULLS_FIRST, NULLS_LAST
+        }
     }
 
     /**
@@ -1410,6 +1673,15 @@ public abstract class Query implements Cloneable{
         }
     }
 
+    /**
+     * A projection that groups the results by the value of a property, and obtains that value
+     */
+    public static class GroupPropertyProjection extends PropertyProjection {
+        protected GroupPropertyProjection(String propertyName) {
+            super(propertyName);
+        }
+    }
+
     public static class DistinctPropertyProjection extends PropertyProjection{
         protected DistinctPropertyProjection(String propertyName) {
             super(propertyName);
@@ -1517,6 +1789,17 @@ public abstract class Query implements Cloneable{
             return this;
         }
 
+        /**
+         * A projection that groups the results by the value of a property
+         *
+         * @param name The name of the property
+         * @return The projection list
+         */
+        public org.grails.datastore.mapping.query.api.ProjectionList groupProperty(String name) {
+            add(Projections.groupProperty(name));
+            return this;
+        }
+
         /**
          * Computes the sum of a property
          *
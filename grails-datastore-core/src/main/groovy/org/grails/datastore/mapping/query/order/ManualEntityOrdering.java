@@ -17,18 +17,20 @@ package org.grails.datastore.mapping.query.order;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.grails.datastore.mapping.model.PersistentEntity;
-import org.grails.datastore.mapping.model.PersistentProperty;
 import org.grails.datastore.mapping.query.Query;
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.BeanUtils;
 import org.springframework.util.ReflectionUtils;
 
 /**
@@ -36,14 +38,22 @@ import org.springframework.util.ReflectionUtils;
  * NoSQL datastores support the SQL equivalent of ORDER BY, hence manual in-memory ordering is the
  * only way to simulate such queries.
  *
+ * The orders are compiled once per entity and order definition into a composite comparator. The sort keys of each
+ * element are read once before sorting, numbers and dates are compared as primitives. The first order is the primary
+ * one, elements that compare equal keep their original relative order.
+ *
  * @author Graeme Rocher
  * @since 1.0
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class ManualEntityOrdering {
 
+    // keyed by the entity of the mapping context, so that the orderings of an entity whose context was discarded,
+    // for example after its class was reloaded, can be collected
+    private static final Map<PersistentEntity, Map<List<Object>, CompiledOrdering>> compiledOrderings =
+            Collections.synchronizedMap(new WeakHashMap<PersistentEntity, Map<List<Object>, CompiledOrdering>>());
+
     PersistentEntity entity;
-    private static Map<String, Method> cachedReadMethods = new ConcurrentHashMap<String, Method>();
 
     public ManualEntityOrdering(PersistentEntity entity) {
         this.entity = entity;
@@ -54,88 +64,248 @@ public class ManualEntityOrdering {
     }
 
     public List applyOrder(List results, List<Query.Order> orderDefinition) {
+        return applyOrder(results, orderDefinition, -1);
+    }
+
+    /**
+     * Orders the results, returning at most maxResults elements. When maxResults is smaller than the number of
+     * results only the first maxResults elements are fully sorted.
+     *
+     * @param results The results
+     * @param orderDefinition The orders, the first one being the primary order
+     * @param maxResults The number of ordered results needed (typically offset + max) or -1 for all of them
+     * @return A new list with the ordered results
+     */
+    public List applyOrder(List results, List<Query.Order> orderDefinition, int maxResults) {
         if (results == null) return null;
-        if (orderDefinition == null) return results;
+        if (orderDefinition == null || orderDefinition.isEmpty()) return results;
+
+        CompiledOrdering ordering = getCompiledOrdering(orderDefinition);
+        if (ordering.columns.length == 0) return results;
+
+        final int size = results.size();
+        SortRow[] rows = new SortRow[size];
+        int i = 0;
+        for (Object o : results) {
+            rows[i] = ordering.createRow(o, i);
+            i++;
+        }
+
+        if (maxResults > -1 && maxResults < size) {
+            rows = selectFirst(rows, maxResults, ordering);
+        }
+        else {
+            Arrays.sort(rows, ordering);
+        }
+
+        List ordered = new ArrayList(rows.length);
+        for (SortRow row : rows) {
+            ordered.add(row.element);
+        }
+        return ordered;
+    }
+
+    public List applyOrder(List results, Query.Order order) {
+        return applyOrder(results, Collections.singletonList(order));
+    }
+
+    private static SortRow[] selectFirst(SortRow[] rows, int count, CompiledOrdering ordering) {
+        if (count == 0) {
+            return new SortRow[0];
+        }
+
+        // a max-heap of the smallest rows seen so far
+        PriorityQueue<SortRow> heap = new PriorityQueue<SortRow>(count, Collections.reverseOrder(ordering));
+        for (SortRow row : rows) {
+            if (heap.size() < count) {
+                heap.add(row);
+            }
+            else if (ordering.compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        }
+        SortRow[] first = heap.toArray(new SortRow[heap.size()]);
+        Arrays.sort(first, ordering);
+        return first;
+    }
+
+    private CompiledOrdering getCompiledOrdering(List<Query.Order> orderDefinition) {
+        Map<List<Object>, CompiledOrdering> entityOrderings = compiledOrderings.get(entity);
+        if (entityOrderings == null) {
+            entityOrderings = new ConcurrentHashMap<List<Object>, CompiledOrdering>();
+            compiledOrderings.put(entity, entityOrderings);
+        }
+
+        List<Object> key = new ArrayList<Object>();
         for (Query.Order order : orderDefinition) {
-            results = applyOrder(results, order);
+            key.add(order.getProperty());
+            key.add(order.getDirection());
+            key.add(order.isIgnoreCase());
+            key.add(order.getNullHandling());
         }
-        return results;
+
+        CompiledOrdering ordering = entityOrderings.get(key);
+        if (ordering == null) {
+            ordering = new CompiledOrdering(entity, orderDefinition);
+            entityOrderings.put(key, ordering);
+        }
+        return ordering;
     }
 
+    private static final int KIND_LONG = 0;
+    private static final int KIND_DOUBLE = 1;
+    private static final int KIND_OBJECT = 2;
+
     /**
-     * Reverses the list.  The result is a new List with the identical contents
-     * in reverse order.
-     *
-     * @param list a List
-     * @return a reversed List
+     * An element together with its sort keys. Numbers and dates are held in the primitive array, everything else
+     * in the object array.
      */
-    private static List reverse(List list) {
-        int size = list.size();
-        List answer = new ArrayList(size);
-        ListIterator iter = list.listIterator(size);
-        while (iter.hasPrevious()) {
-            answer.add(iter.previous());
-        }
-        return answer;
+    private static final class SortRow {
+        final Object element;
+        final int index;
+        final long[] primitives;
+        final Object[] objects;
+        final boolean[] nulls;
+
+        SortRow(Object element, int index, int columns) {
+            this.element = element;
+            this.index = index;
+            this.primitives = new long[columns];
+            this.objects = new Object[columns];
+            this.nulls = new boolean[columns];
+        }
     }
 
-    public List applyOrder(List results, Query.Order order) {
-       final String name = order.getProperty();
-
-        final PersistentEntity entity = getEntity();
-        PersistentProperty property = entity.getPropertyByName(name);
-        if (property == null) {
-            final PersistentProperty identity = entity.getIdentity();
-            if (name.equals(identity.getName())) {
-                property = identity;
+    private static final class Column {
+        final Method readMethod;
+        final int kind;
+        final int direction;
+        final Query.Order.NullHandling nullHandling;
+        final boolean ignoreCase;
+
+        Column(Method readMethod, Query.Order order) {
+            this.readMethod = readMethod;
+            this.kind = kindOf(readMethod.getReturnType());
+            this.direction = order.getDirection() == Query.Order.Direction.DESC ? -1 : 1;
+            this.nullHandling = order.getNullHandling();
+            this.ignoreCase = order.isIgnoreCase();
+        }
+
+        private static int kindOf(Class type) {
+            if (type == long.class || type == int.class || type == short.class || type == byte.class || type == char.class ||
+                    type == Long.class || type == Integer.class || type == Short.class || type == Byte.class || type == Character.class ||
+                    Date.class.isAssignableFrom(type) || Calendar.class.isAssignableFrom(type)) {
+                return KIND_LONG;
+            }
+            if (type == double.class || type == float.class || type == Double.class || type == Float.class) {
+                return KIND_DOUBLE;
             }
+            return KIND_OBJECT;
         }
 
-        if (property != null) {
-            final PersistentProperty finalProperty = property;
-            Collections.sort(results, new Comparator() {
-
-                public int compare(Object o1, Object o2) {
-
-                    if (entity.isInstance(o1) && entity.isInstance(o2)) {
-                        final String propertyName = finalProperty.getName();
-                        Method readMethod = cachedReadMethods.get(propertyName);
-                        if (readMethod == null) {
-                            BeanWrapper b = PropertyAccessorFactory.forBeanPropertyAccess(o1);
-                            final PropertyDescriptor pd = b.getPropertyDescriptor(propertyName);
-                            if (pd != null) {
-                                readMethod = pd.getReadMethod();
-                                if (readMethod != null) {
-                                    ReflectionUtils.makeAccessible(readMethod);
-                                    cachedReadMethods.put(propertyName, readMethod);
-                                }
-                            }
-                        }
-
-                        if (readMethod != null) {
-                            final Class<?> declaringClass = readMethod.getDeclaringClass();
-                            if (declaringClass.isInstance(o1) && declaringClass.isInstance(o2)) {
-                                Object left = ReflectionUtils.invokeMethod(readMethod, o1);
-                                Object right = ReflectionUtils.invokeMethod(readMethod, o2);
-
-                                if (left == null && right == null) return 0;
-                                if (left != null && right == null) return 1;
-                                if (left == null) return -1;
-                                if ((left instanceof Comparable) && (right instanceof Comparable)) {
-                                    return ((Comparable)left).compareTo(right);
-                                }
-                            }
-                        }
+        int compareNulls(boolean leftNull, boolean rightNull) {
+            if (leftNull && rightNull) return 0;
+            int nullFirst;
+            switch (nullHandling) {
+                case NULLS_FIRST: nullFirst = -1; break;
+                case NULLS_LAST: nullFirst = 1; break;
+                default: nullFirst = -direction; // null is the lowest value
+            }
+            return leftNull ? nullFirst : -nullFirst;
+        }
+    }
+
+    private static final class CompiledOrdering implements Comparator<SortRow> {
+        final Class entityClass;
+        final Column[] columns;
+
+        CompiledOrdering(PersistentEntity entity, List<Query.Order> orderDefinition) {
+            this.entityClass = entity.getJavaClass();
+            List<Column> columnList = new ArrayList<Column>();
+            for (Query.Order order : orderDefinition) {
+                PropertyDescriptor pd = BeanUtils.getPropertyDescriptor(entity.getJavaClass(), order.getProperty());
+                Method readMethod = pd != null ? pd.getReadMethod() : null;
+                if (readMethod != null) {
+                    ReflectionUtils.makeAccessible(readMethod);
+                    columnList.add(new Column(readMethod, order));
+                }
+            }
+            this.columns = columnList.toArray(new Column[columnList.size()]);
+        }
+
+        SortRow createRow(Object element, int index) {
+            SortRow row = new SortRow(element, index, columns.length);
+            boolean readable = entityClass.isInstance(element);
+            for (int i = 0; i < columns.length; i++) {
+                Column column = columns[i];
+                Object value = readable ? ReflectionUtils.invokeMethod(column.readMethod, element) : null;
+                if (value == null) {
+                    row.nulls[i] = true;
+                }
+                else if (column.kind == KIND_LONG) {
+                    if (value instanceof Date) {
+                        row.primitives[i] = ((Date) value).getTime();
                     }
-                    return 0;
+                    else if (value instanceof Calendar) {
+                        row.primitives[i] = ((Calendar) value).getTimeInMillis();
+                    }
+                    else if (value instanceof Character) {
+                        row.primitives[i] = (Character) value;
+                    }
+                    else {
+                        row.primitives[i] = ((Number) value).longValue();
+                    }
+                }
+                else if (column.kind == KIND_DOUBLE) {
+                    row.primitives[i] = Double.doubleToLongBits(((Number) value).doubleValue());
                 }
-            });
+                else {
+                    row.objects[i] = value;
+                }
+            }
+            return row;
         }
 
-        if (order.getDirection() == Query.Order.Direction.DESC) {
-            results = reverse(results);
+        public int compare(SortRow left, SortRow right) {
+            for (int i = 0; i < columns.length; i++) {
+                Column column = columns[i];
+                boolean leftNull = left.nulls[i];
+                boolean rightNull = right.nulls[i];
+                int cmp;
+                if (leftNull || rightNull) {
+                    cmp = column.compareNulls(leftNull, rightNull);
+                    if (cmp != 0) return cmp;
+                    continue;
+                }
+
+                if (column.kind == KIND_LONG) {
+                    long l = left.primitives[i];
+                    long r = right.primitives[i];
+                    cmp = l < r ? -1 : (l == r ? 0 : 1);
+                }
+                else if (column.kind == KIND_DOUBLE) {
+                    cmp = Double.compare(Double.longBitsToDouble(left.primitives[i]), Double.longBitsToDouble(right.primitives[i]));
+                }
+                else {
+                    cmp = compareObjects(column, left.objects[i], right.objects[i]);
+                }
+                if (cmp != 0) {
+                    return cmp * column.direction;
+                }
+            }
+            // keep the original order of equal elements
+            return left.index < right.index ? -1 : (left.index == right.index ? 0 : 1);
         }
 
-        return results;
+        private int compareObjects(Column column, Object left, Object right) {
+            if (column.ignoreCase && left instanceof String && right instanceof String) {
+                return String.CASE_INSENSITIVE_ORDER.compare((String) left, (String) right);
+            }
+            if (left instanceof Comparable && right instanceof Comparable) {
+                return ((Comparable) left).compareTo(right);
+            }
+            return 0;
+        }
     }
 }
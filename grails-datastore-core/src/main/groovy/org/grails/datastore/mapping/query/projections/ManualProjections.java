@@ -14,30 +14,40 @@
  */
 package org.grails.datastore.mapping.query.projections;
 
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.codehaus.groovy.runtime.DefaultGroovyMethods;
-import org.grails.datastore.mapping.engine.EntityAccess;
 import org.grails.datastore.mapping.model.PersistentEntity;
 import org.grails.datastore.mapping.query.Query;
-import org.grails.datastore.mapping.query.order.ManualEntityOrdering;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * Implements common projections in-memory given a set of results. Not all
  * NoSQL datastores support projections like SQL min(..), max(..) etc.
  * This class provides support for those that don't.
+ *
+ * All aggregates are computed in a single pass over an iterator, so results can be streamed from a cursor
+ * without being collected into a list first.
  */
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class ManualProjections {
 
     PersistentEntity entity;
-    private ManualEntityOrdering order;
+    private final Map<String, Member> readers = new ConcurrentHashMap<String, Member>();
 
     public ManualProjections(PersistentEntity entity) {
         this.entity = entity;
-        this.order = new ManualEntityOrdering(entity);
     }
 
     /**
@@ -51,13 +61,7 @@ public class ManualProjections {
         if (results == null || results.isEmpty()) {
             return null;
         }
-
-        final List sorted = order.applyOrder(new ArrayList(results), Query.Order.asc(property));
-        final Object o = sorted.get(0);
-        if (entity.isInstance(o)) {
-            return entity.getMappingContext().createEntityAccess(entity, o).getProperty(property);
-        }
-        return o;
+        return aggregate(results.iterator(), property, false).getMin();
     }
 
     /**
@@ -68,14 +72,14 @@ public class ManualProjections {
      * @return A count of the distinct values
      */
     public int countDistinct(Collection results, String property) {
-        Collection propertyValues = distinct(results, property);
-        return propertyValues.size();
+        return distinct(results, property).size();
     }
 
     public Collection distinct(Collection results, String property) {
-        List propertyValues = property(results, property);
-
-        return DefaultGroovyMethods.unique(propertyValues);
+        if (results == null || results.isEmpty()) {
+            return new ArrayList();
+        }
+        return new ArrayList(aggregate(results.iterator(), property, true).getDistinctValues());
     }
 
     /**
@@ -89,13 +93,7 @@ public class ManualProjections {
         if (results == null || results.isEmpty()) {
             return null;
         }
-
-        final List sorted = order.applyOrder(new ArrayList(results), Query.Order.asc(property));
-        final Object o = sorted.get(results.size()-1);
-        if (entity.isInstance(o)) {
-            return entity.getMappingContext().createEntityAccess(entity, o).getProperty(property);
-        }
-        return o;
+        return aggregate(results.iterator(), property, false).getMax();
     }
 
     /**
@@ -112,15 +110,126 @@ public class ManualProjections {
         }
 
         for (Object o : results) {
-            EntityAccess ea = entity.getMappingContext().createEntityAccess(entity, o);
-            if (entity.isInstance(o)) {
-                projectedResults.add(ea.getProperty(property));
+            projectedResults.add(readProperty(o, property));
+        }
+
+        return projectedResults;
+    }
+
+    /**
+     * Aggregates the values of a property in a single pass
+     *
+     * @param results An iterator over the results
+     * @param property The property
+     * @param collectDistinct Whether the distinct values should be collected
+     * @return The aggregator holding the aggregated values
+     */
+    public PropertyAggregator aggregate(Iterator results, String property, boolean collectDistinct) {
+        PropertyAggregator aggregator = new PropertyAggregator(collectDistinct);
+        while (results.hasNext()) {
+            aggregator.add(readProperty(results.next(), property));
+        }
+        return aggregator;
+    }
+
+    /**
+     * Computes the given aggregate projections in a single pass over the results. Supports count, countDistinct,
+     * sum, avg, min and max projections.
+     *
+     * @param results An iterator over the results
+     * @param projections The projections
+     * @return One value per projection, in the order of the projections
+     */
+    public List project(Iterator results, List<Query.Projection> projections) {
+        Map<String, Boolean> properties = new LinkedHashMap<String, Boolean>();
+        for (Query.Projection projection : projections) {
+            if (projection instanceof Query.PropertyProjection) {
+                String property = ((Query.PropertyProjection) projection).getPropertyName();
+                boolean collectDistinct = projection instanceof Query.CountDistinctProjection;
+                Boolean existing = properties.get(property);
+                properties.put(property, collectDistinct || (existing != null && existing));
+            }
+        }
+        Map<String, PropertyAggregator> aggregators = new LinkedHashMap<String, PropertyAggregator>();
+        for (Map.Entry<String, Boolean> property : properties.entrySet()) {
+            aggregators.put(property.getKey(), new PropertyAggregator(property.getValue()));
+        }
+
+        int count = 0;
+        List<Map.Entry<String, PropertyAggregator>> entries = new ArrayList<Map.Entry<String, PropertyAggregator>>(aggregators.entrySet());
+        while (results.hasNext()) {
+            Object o = results.next();
+            count++;
+            for (Map.Entry<String, PropertyAggregator> entry : entries) {
+                entry.getValue().add(readProperty(o, entry.getKey()));
+            }
+        }
+
+        List projected = new ArrayList(projections.size());
+        for (Query.Projection projection : projections) {
+            if (projection instanceof Query.CountProjection) {
+                projected.add(count);
+                continue;
+            }
+            if (!(projection instanceof Query.PropertyProjection)) {
+                throw new IllegalArgumentException("Projection [" + projection.getClass().getSimpleName() + "] can't be aggregated");
+            }
+
+            PropertyAggregator aggregator = aggregators.get(((Query.PropertyProjection) projection).getPropertyName());
+            if (projection instanceof Query.CountDistinctProjection) {
+                projected.add(aggregator.getDistinctValues().size());
+            }
+            else if (projection instanceof Query.SumProjection) {
+                projected.add(aggregator.getSum());
+            }
+            else if (projection instanceof Query.AvgProjection) {
+                projected.add(aggregator.getAverage());
+            }
+            else if (projection instanceof Query.MinProjection) {
+                projected.add(aggregator.getMin());
+            }
+            else if (projection instanceof Query.MaxProjection) {
+                projected.add(aggregator.getMax());
             }
             else {
-                projectedResults.add(null);
+                throw new IllegalArgumentException("Projection [" + projection.getClass().getSimpleName() + "] can't be aggregated");
             }
         }
+        return Collections.unmodifiableList(projected);
+    }
 
-        return projectedResults;
+    private Object readProperty(Object o, String property) {
+        if (!entity.isInstance(o)) {
+            return null;
+        }
+
+        Member reader = readers.get(property);
+        if (reader == null) {
+            reader = findReader(property);
+            if (reader == null) {
+                // not readable, let the entity access report it
+                return entity.getMappingContext().createEntityAccess(entity, o).getProperty(property);
+            }
+            readers.put(property, reader);
+        }
+        if (reader instanceof Method) {
+            return ReflectionUtils.invokeMethod((Method) reader, o);
+        }
+        return ReflectionUtils.getField((Field) reader, o);
+    }
+
+    private Member findReader(String property) {
+        PropertyDescriptor pd = BeanUtils.getPropertyDescriptor(entity.getJavaClass(), property);
+        if (pd != null && pd.getReadMethod() != null) {
+            Method readMethod = pd.getReadMethod();
+            ReflectionUtils.makeAccessible(readMethod);
+            return readMethod;
+        }
+
+        Field field = ReflectionUtils.findField(entity.getJavaClass(), property);
+        if (field != null) {
+            ReflectionUtils.makeAccessible(field);
+        }
+        return field;
     }
 }
@@ -0,0 +1,177 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.query.projections;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.codehaus.groovy.runtime.typehandling.NumberMath;
+
+/**
+ * Accumulates the values of a property in a single pass, computing the count, sum, average, minimum, maximum and
+ * optionally the distinct values. Integral numbers are summed and compared as longs and floating point numbers as
+ * doubles, other values are compared using {@link Comparable}. The sum and average have the types that summing and
+ * dividing the values in Groovy would produce.
+ *
+ * Null values are ignored by all aggregates except the distinct values.
+ *
+ * @since 5.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class PropertyAggregator {
+
+    // the type of the sum, following the Groovy rules for the result type of adding two numbers
+    private static final int SUM_NONE = 0;
+    private static final int SUM_INTEGER = 1;
+    private static final int SUM_LONG = 2;
+    private static final int SUM_BIG_INTEGER = 3;
+    private static final int SUM_DECIMAL = 4;
+    private static final int SUM_DOUBLE = 5;
+
+    private final Set<Object> distinctValues;
+
+    private long count;
+    private int sumKind = SUM_NONE;
+    private long longSum;
+    private double doubleSum;
+    private BigDecimal decimalSum;
+
+    private Object min;
+    private Object max;
+
+    /**
+     * @param collectDistinct Whether the distinct values should be collected
+     */
+    public PropertyAggregator(boolean collectDistinct) {
+        distinctValues = collectDistinct ? new LinkedHashSet<Object>() : null;
+    }
+
+    public void add(Object value) {
+        if (distinctValues != null) {
+            distinctValues.add(value);
+        }
+        if (value == null) {
+            return;
+        }
+
+        count++;
+        addToSum(value);
+        if (min == null || compare(value, min) < 0) {
+            min = value;
+        }
+        if (max == null || compare(value, max) > 0) {
+            max = value;
+        }
+    }
+
+    private void addToSum(Object value) {
+        if (isIntegral(value)) {
+            longSum += ((Number) value).longValue();
+            sumKind = Math.max(sumKind, value instanceof Long ? SUM_LONG : SUM_INTEGER);
+        }
+        else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            BigDecimal decimal = toBigDecimal((Number) value);
+            decimalSum = decimalSum == null ? decimal : decimalSum.add(decimal);
+            sumKind = Math.max(sumKind, value instanceof BigDecimal ? SUM_DECIMAL : SUM_BIG_INTEGER);
+        }
+        else if (value instanceof Number) {
+            doubleSum += ((Number) value).doubleValue();
+            sumKind = SUM_DOUBLE;
+        }
+    }
+
+    private static int compare(Object left, Object right) {
+        if (isIntegral(left) && isIntegral(right)) {
+            long l = ((Number) left).longValue();
+            long r = ((Number) right).longValue();
+            return l < r ? -1 : (l == r ? 0 : 1);
+        }
+        if ((left instanceof Double || left instanceof Float) && (right instanceof Double || right instanceof Float)) {
+            return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        }
+        if (left instanceof Comparable && left.getClass().isInstance(right)) {
+            return ((Comparable) left).compareTo(right);
+        }
+        if (left instanceof Number && right instanceof Number) {
+            return toBigDecimal((Number) left).compareTo(toBigDecimal((Number) right));
+        }
+        return 0;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (isIntegral(number)) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        return BigDecimal.valueOf(number.doubleValue());
+    }
+
+    /**
+     * @return The number of non-null values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The sum of the numeric values, of the same type as a Groovy sum of the values would be, or null if there are none
+     */
+    public Number getSum() {
+        switch (sumKind) {
+            case SUM_INTEGER: return (int) longSum;
+            case SUM_LONG: return longSum;
+            case SUM_BIG_INTEGER: return decimalSum.add(BigDecimal.valueOf(longSum)).toBigInteger();
+            case SUM_DECIMAL: return decimalSum.add(BigDecimal.valueOf(longSum));
+            case SUM_DOUBLE: return doubleSum + longSum + (decimalSum != null ? decimalSum.doubleValue() : 0d);
+            default: return null;
+        }
+    }
+
+    /**
+     * @return The sum divided by the number of non-null values using Groovy division, so a BigDecimal unless
+     * floating point values were summed, or null if there are none
+     */
+    public Number getAverage() {
+        Number sum = getSum();
+        return sum != null ? NumberMath.divide(sum, (int) count) : null;
+    }
+
+    public Object getMin() {
+        return min;
+    }
+
+    public Object getMax() {
+        return max;
+    }
+
+    /**
+     * @return The distinct values, including null, in the order they were first seen
+     */
+    public Set<Object> getDistinctValues() {
+        return distinctValues == null ? Collections.emptySet() : Collections.unmodifiableSet(distinctValues);
+    }
+}
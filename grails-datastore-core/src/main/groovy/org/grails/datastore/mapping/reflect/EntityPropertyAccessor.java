@@ -0,0 +1,44 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.reflect;
+
+/**
+ * Reads and writes the properties of an entity by index. The indices are those of {@link FastClassData#getPropertyIndex(String)}.
+ * Implementations are generated per entity by {@link EntityPropertyAccessorGenerator}.
+ *
+ * Primitive values are boxed when read. Setting null on a primitive property sets its default value.
+ *
+ * @since 5.0
+ */
+public abstract class EntityPropertyAccessor {
+
+    /**
+     * @param entity The entity
+     * @param index The index of the property
+     * @return The value of the property
+     */
+    public abstract Object get(Object entity, int index);
+
+    /**
+     * @param entity The entity
+     * @param index The index of the property
+     * @param value The new value, which must be an instance of the property type
+     */
+    public abstract void set(Object entity, int index, Object value);
+
+    protected IndexOutOfBoundsException unknownProperty(int index) {
+        return new IndexOutOfBoundsException("No property with index [" + index + "]");
+    }
+}
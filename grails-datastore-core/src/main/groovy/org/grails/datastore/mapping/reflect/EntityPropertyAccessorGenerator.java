@@ -0,0 +1,311 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.reflect;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.cglib.core.ReflectUtils;
+import org.springframework.cglib.reflect.FastMethod;
+
+/**
+ * Generates an {@link EntityPropertyAccessor} for an entity class. The generated class calls the getters and setters
+ * of the entity directly, dispatching on the property index with a switch, so no arguments array is allocated and no
+ * method is looked up per call.
+ *
+ * If the accessor can't be generated, for example because the entity class or one of its property types is not
+ * public, an accessor that invokes the cglib {@link FastMethod} instances is returned instead.
+ *
+ * @since 5.0
+ */
+public class EntityPropertyAccessorGenerator implements Opcodes {
+
+    private static final Log LOG = LogFactory.getLog(EntityPropertyAccessorGenerator.class);
+
+    private static final String ACCESSOR_SUFFIX = "$$EntityPropertyAccessor$$";
+    private static final String SUPER_NAME = Type.getInternalName(EntityPropertyAccessor.class);
+    private static final String OBJECT_DESCRIPTOR = Type.getDescriptor(Object.class);
+
+    /**
+     * Creates an accessor for the given getters and setters. The getter and setter of a property share the same index.
+     *
+     * @param entityClass The entity class
+     * @param getters The getters, indexed by property
+     * @param setters The setters, indexed by property
+     * @return The accessor
+     */
+    public static EntityPropertyAccessor createAccessor(Class entityClass, FastMethod[] getters, FastMethod[] setters) {
+        try {
+            if (canGenerate(entityClass, getters, setters)) {
+                return generate(entityClass, getters, setters);
+            }
+        } catch (Throwable e) {
+            LOG.debug("Unable to generate property accessor for class [" + entityClass.getName() + "], falling back to FastMethod: " + e.getMessage(), e);
+        }
+        return new FastMethodPropertyAccessor(getters, setters);
+    }
+
+    private static boolean canGenerate(Class entityClass, FastMethod[] getters, FastMethod[] setters) {
+        if (entityClass.getClassLoader() == null || !isPublic(entityClass) || entityClass.isInterface()) {
+            return false;
+        }
+        for (FastMethod getter : getters) {
+            Method method = getter.getJavaMethod();
+            if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers()) || !isPublic(method.getReturnType())) {
+                return false;
+            }
+        }
+        for (FastMethod setter : setters) {
+            Method method = setter.getJavaMethod();
+            if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers()) || !isPublic(method.getParameterTypes()[0])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPublic(Class type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        for (Class c = type; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static EntityPropertyAccessor generate(Class entityClass, FastMethod[] getters, FastMethod[] setters) throws Exception {
+        StringBuilder signature = new StringBuilder();
+        for (int i = 0; i < getters.length; i++) {
+            signature.append(getters[i].getJavaMethod()).append(setters[i].getJavaMethod());
+        }
+        String className = entityClass.getName() + ACCESSOR_SUFFIX + Integer.toHexString(signature.toString().hashCode());
+        ClassLoader classLoader = entityClass.getClassLoader();
+
+        Class accessorClass;
+        try {
+            accessorClass = Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            byte[] bytes = generateClass(className.replace('.', '/'), Type.getInternalName(entityClass), getters, setters);
+            try {
+                accessorClass = ReflectUtils.defineClass(className, bytes, classLoader);
+            } catch (LinkageError le) {
+                // defined concurrently by another mapping context
+                accessorClass = Class.forName(className, false, classLoader);
+            }
+        }
+        return (EntityPropertyAccessor) accessorClass.newInstance();
+    }
+
+    private static byte[] generateClass(String internalName, String entityName, FastMethod[] getters, FastMethod[] setters) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, internalName, null, SUPER_NAME, null);
+
+        MethodVisitor constructor = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "<init>", "()V", false);
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        generateGet(cw, entityName, getters);
+        generateSet(cw, entityName, setters);
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void generateGet(ClassWriter cw, String entityName, FastMethod[] getters) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "get", "(" + OBJECT_DESCRIPTOR + "I)" + OBJECT_DESCRIPTOR, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, entityName);
+        mv.visitVarInsn(ASTORE, 3);
+
+        Label unknown = new Label();
+        Label[] labels = visitSwitch(mv, getters.length, unknown);
+        for (int i = 0; i < getters.length; i++) {
+            Method getter = getters[i].getJavaMethod();
+            mv.visitLabel(labels[i]);
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitMethodInsn(INVOKEVIRTUAL, entityName, getter.getName(), Type.getMethodDescriptor(getter), false);
+            box(mv, Type.getType(getter.getReturnType()));
+            mv.visitInsn(ARETURN);
+        }
+        visitUnknownProperty(mv, unknown);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void generateSet(ClassWriter cw, String entityName, FastMethod[] setters) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "set", "(" + OBJECT_DESCRIPTOR + "I" + OBJECT_DESCRIPTOR + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, entityName);
+        mv.visitVarInsn(ASTORE, 4);
+
+        Label unknown = new Label();
+        Label[] labels = visitSwitch(mv, setters.length, unknown);
+        for (int i = 0; i < setters.length; i++) {
+            Method setter = setters[i].getJavaMethod();
+            mv.visitLabel(labels[i]);
+            mv.visitVarInsn(ALOAD, 4);
+            mv.visitVarInsn(ALOAD, 3);
+            unboxOrZero(mv, Type.getType(setter.getParameterTypes()[0]));
+            mv.visitMethodInsn(INVOKEVIRTUAL, entityName, setter.getName(), Type.getMethodDescriptor(setter), false);
+            int returnSize = Type.getReturnType(setter).getSize();
+            if (returnSize == 1) {
+                mv.visitInsn(POP);
+            }
+            else if (returnSize == 2) {
+                mv.visitInsn(POP2);
+            }
+            mv.visitInsn(RETURN);
+        }
+        visitUnknownProperty(mv, unknown);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static Label[] visitSwitch(MethodVisitor mv, int size, Label unknown) {
+        Label[] labels = new Label[size];
+        for (int i = 0; i < size; i++) {
+            labels[i] = new Label();
+        }
+        if (size > 0) {
+            mv.visitVarInsn(ILOAD, 2);
+            mv.visitTableSwitchInsn(0, size - 1, unknown, labels);
+        }
+        return labels;
+    }
+
+    private static void visitUnknownProperty(MethodVisitor mv, Label unknown) {
+        mv.visitLabel(unknown);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ILOAD, 2);
+        mv.visitMethodInsn(INVOKEVIRTUAL, SUPER_NAME, "unknownProperty", "(I)" + Type.getDescriptor(IndexOutOfBoundsException.class), false);
+        mv.visitInsn(ATHROW);
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        String wrapper = wrapperName(type);
+        if (wrapper != null) {
+            mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf", "(" + type.getDescriptor() + ")L" + wrapper + ";", false);
+        }
+    }
+
+    private static void unboxOrZero(MethodVisitor mv, Type type) {
+        String wrapper = wrapperName(type);
+        if (wrapper == null) {
+            if (!type.getDescriptor().equals(OBJECT_DESCRIPTOR)) {
+                mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+            }
+            return;
+        }
+
+        Label notNull = new Label();
+        Label end = new Label();
+        mv.visitInsn(DUP);
+        mv.visitJumpInsn(IFNONNULL, notNull);
+        mv.visitInsn(POP);
+        switch (type.getSort()) {
+            case Type.LONG: mv.visitInsn(LCONST_0); break;
+            case Type.FLOAT: mv.visitInsn(FCONST_0); break;
+            case Type.DOUBLE: mv.visitInsn(DCONST_0); break;
+            default: mv.visitInsn(ICONST_0);
+        }
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(notNull);
+        mv.visitTypeInsn(CHECKCAST, wrapper);
+        mv.visitMethodInsn(INVOKEVIRTUAL, wrapper, type.getClassName() + "Value", "()" + type.getDescriptor(), false);
+        mv.visitLabel(end);
+    }
+
+    private static String wrapperName(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN: return "java/lang/Boolean";
+            case Type.CHAR: return "java/lang/Character";
+            case Type.BYTE: return "java/lang/Byte";
+            case Type.SHORT: return "java/lang/Short";
+            case Type.INT: return "java/lang/Integer";
+            case Type.LONG: return "java/lang/Long";
+            case Type.FLOAT: return "java/lang/Float";
+            case Type.DOUBLE: return "java/lang/Double";
+            default: return null;
+        }
+    }
+
+    /**
+     * Used when an accessor can't be generated for an entity
+     */
+    private static class FastMethodPropertyAccessor extends EntityPropertyAccessor {
+        private final FastMethod[] getters;
+        private final FastMethod[] setters;
+
+        FastMethodPropertyAccessor(FastMethod[] getters, FastMethod[] setters) {
+            this.getters = getters;
+            this.setters = setters;
+        }
+
+        @Override
+        public Object get(Object entity, int index) {
+            if (index < 0 || index >= getters.length) {
+                throw unknownProperty(index);
+            }
+            try {
+                return getters[index].invoke(entity, null);
+            } catch (InvocationTargetException e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        public void set(Object entity, int index, Object value) {
+            if (index < 0 || index >= setters.length) {
+                throw unknownProperty(index);
+            }
+            try {
+                setters[index].invoke(entity, new Object[] { value });
+            } catch (InvocationTargetException e) {
+                throw rethrow(e);
+            }
+        }
+
+        private static RuntimeException rethrow(InvocationTargetException e) {
+            Throwable target = e.getTargetException();
+            if (target instanceof RuntimeException) {
+                return (RuntimeException) target;
+            }
+            if (target instanceof Error) {
+                throw (Error) target;
+            }
+            return new IllegalStateException(target.getMessage(), target);
+        }
+    }
+}
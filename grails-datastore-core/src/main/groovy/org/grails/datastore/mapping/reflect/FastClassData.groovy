@@ -24,7 +24,8 @@ import org.springframework.cglib.reflect.FastClass
 import org.springframework.cglib.reflect.FastMethod
 
 /**
- * Cached FastClass data
+ * Cached FastClass data. Each property of the entity is assigned an index, and a generated {@link EntityPropertyAccessor}
+ * reads and writes properties by index.
  *
  * @author Graeme Rocher
  * @since 4.1
@@ -39,6 +40,12 @@ class FastClassData {
     final Map<String, FastMethod> fastGetters = [:]
     final Map<String, FastMethod> fastSetters = [:]
     final PersistentEntity entity
+    final EntityPropertyAccessor propertyAccessor
+
+    private final Map<String, Integer> propertyIndices = [:]
+    private final Class[] propertyTypes
+    private final Class[] boxedPropertyTypes
+    private final int identifierIndex
 
     FastClassData(PersistentEntity entity) {
         this.entity = entity
@@ -77,16 +84,66 @@ class FastClassData {
             fastGetters[name] = fastClass.getMethod(getterName, ZERO_CLASS_ARRAY)
             fastSetters[name] = fastClass.getMethod(setterName, [prop.type] as Class[])
         }
+
+        int size = fastGetters.size()
+        FastMethod[] getters = new FastMethod[size]
+        FastMethod[] setters = new FastMethod[size]
+        this.propertyTypes = new Class[size]
+        this.boxedPropertyTypes = new Class[size]
+        int index = 0
+        for(String name in fastGetters.keySet()) {
+            propertyIndices[name] = index
+            getters[index] = fastGetters[name]
+            setters[index] = fastSetters[name]
+            propertyTypes[index] = getters[index].returnType
+            boxedPropertyTypes[index] = org.springframework.util.ClassUtils.resolvePrimitiveIfNecessary(propertyTypes[index])
+            index++
+        }
+        String identifierName = entity.identity != null ? getIdentifierName(entity.mapping) : null
+        this.identifierIndex = identifierName != null ? getPropertyIndex(identifierName) : -1
+        this.propertyAccessor = EntityPropertyAccessorGenerator.createAccessor(entity.javaClass, getters, setters)
     }
 
     Object getIdentifier(Object o) {
-        idReader?.invoke(o)
+        identifierIndex > -1 ? propertyAccessor.get(o, identifierIndex) : null
     }
 
     Class getPropertyType(String name) {
         fastGetters.get(name)?.returnType
     }
 
+    /**
+     * @param name The name of the property
+     * @return The index of the property for use with the {@link #getPropertyAccessor()}, or -1 if there is no such property
+     */
+    int getPropertyIndex(String name) {
+        Integer index = propertyIndices.get(name)
+        index != null ? index.intValue() : -1
+    }
+
+    /**
+     * @return The index of the identifier or -1 if the entity has no identity
+     */
+    int getIdentifierIndex() {
+        identifierIndex
+    }
+
+    /**
+     * @param index The index of the property
+     * @return The type of the property
+     */
+    Class getPropertyType(int index) {
+        propertyTypes[index]
+    }
+
+    /**
+     * @param index The index of the property
+     * @return The type of the property, with primitive types resolved to their wrapper type
+     */
+    Class getBoxedPropertyType(int index) {
+        boxedPropertyTypes[index]
+    }
+
     protected String getIdentifierName(ClassMapping cm) {
         final IdentityMapping identifier = cm.getIdentifier();
         if (identifier != null && identifier.getIdentifierName() != null) {
@@ -22,7 +22,11 @@ import org.springframework.cglib.reflect.FastMethod
 import org.springframework.core.convert.ConversionService
 
 /**
- * An implementation of {@link EntityAccess} that uses cglib and @CompileStatic for optimized performance
+ * An implementation of {@link EntityAccess} that uses a generated {@link EntityPropertyAccessor} and @CompileStatic for
+ * optimized performance. Values that are already instances of the property type are set without conversion. Since the
+ * generated accessor can only set instances of the property type, values of another type are converted even when
+ * set through the NoConversion methods.
+ *
  * @author Graeme Rocher
  * @since 4.1
  */
@@ -36,6 +40,7 @@ class FastEntityAccess implements EntityAccess {
     final Map<String, FastMethod> fastSetters
     final ConversionService conversionService
     final FastClassData fastClassData
+    final EntityPropertyAccessor propertyAccessor
 
     FastEntityAccess(Object entity, FastClassData fastClassData, ConversionService conversionService) {
         this.entity = entity
@@ -45,22 +50,23 @@ class FastEntityAccess implements EntityAccess {
         this.fastGetters = fastClassData.fastGetters
         this.fastSetters = fastClassData.fastSetters
         this.conversionService = conversionService
+        this.propertyAccessor = fastClassData.propertyAccessor
     }
 
     @Override
     void setProperty(String property, Object newValue) {
-        def converted = conversionService.convert(newValue, fastGetters[property].returnType)
-        fastSetters.get(property).invoke(entity, converted)
+        int index = indexOf(property)
+        propertyAccessor.set(entity, index, convertIfNecessary(newValue, index))
     }
 
     @Override
     Object getPropertyValue(String name) {
-        return fastGetters.get(name).invoke(entity)
+        return propertyAccessor.get(entity, indexOf(name))
     }
 
     @Override
     Object getProperty(String property) {
-        return fastGetters.get(property).invoke(entity)
+        return propertyAccessor.get(entity, indexOf(property))
     }
 
     @Override
@@ -75,16 +81,17 @@ class FastEntityAccess implements EntityAccess {
 
     @Override
     void setIdentifier(Object id) {
-        if(identifierName != null) {
-            def idType = fastClassData.idReader?.returnType
-            fastSetters.get(identifierName).invoke(entity, conversionService.convert(id, idType))
+        int index = fastClassData.identifierIndex
+        if(identifierName != null && index > -1) {
+            propertyAccessor.set(entity, index, convertIfNecessary(id, index))
         }
     }
 
     @Override
     void setIdentifierNoConversion(Object id) {
-        if(identifierName != null) {
-            fastSetters.get(identifierName).invoke(entity, id)
+        int index = fastClassData.identifierIndex
+        if(identifierName != null && index > -1) {
+            propertyAccessor.set(entity, index, convertIfNecessary(id, index))
         }
     }
 
@@ -95,6 +102,22 @@ class FastEntityAccess implements EntityAccess {
 
     @Override
     void setPropertyNoConversion(String name, Object value) {
-        fastSetters.get(name).invoke(entity, value)
+        int index = indexOf(name)
+        propertyAccessor.set(entity, index, convertIfNecessary(value, index))
+    }
+
+    protected int indexOf(String name) {
+        int index = fastClassData.getPropertyIndex(name)
+        if(index < 0) {
+            throw new IllegalArgumentException("Property [$name] is not a persistent property of class [${persistentEntity.name}]")
+        }
+        return index
+    }
+
+    protected Object convertIfNecessary(Object value, int index) {
+        if(value == null || fastClassData.getBoxedPropertyType(index).isInstance(value)) {
+            return value
+        }
+        return conversionService.convert(value, fastClassData.getPropertyType(index))
     }
 }
@@ -0,0 +1,64 @@
+package org.grails.datastore.mapping.cache
+
+import org.grails.datastore.mapping.model.PersistentEntity
+import spock.lang.Specification
+
+class QueryResultCacheSpec extends Specification {
+
+    def "results are cached per entity family and invalidated on writes"() {
+        given:
+        def cache = new QueryResultCache()
+        def parent = entity('Parent')
+        def child = entity('Child', parent)
+        def other = entity('Other')
+        cache.put(parent, 'parentQuery', [1L, 2L], cache.getGeneration(parent))
+        cache.put(other, 'otherQuery', [3L], cache.getGeneration(other))
+
+        expect:
+        cache.get(parent, 'parentQuery') == [1L, 2L]
+        cache.get(parent, 'unknown') == null
+        cache.hitCount == 1
+        cache.missCount == 1
+
+        when:"a subclass of the family is written"
+        cache.invalidate(child)
+
+        then:
+        cache.get(parent, 'parentQuery') == null
+        cache.get(other, 'otherQuery') == [3L]
+    }
+
+    def "results of a query that raced with a write are not cached"() {
+        given:
+        def cache = new QueryResultCache()
+        def person = entity('Person')
+        long generation = cache.getGeneration(person)
+
+        when:
+        cache.invalidate(person)
+        cache.put(person, 'query', [1L], generation)
+
+        then:
+        cache.get(person, 'query') == null
+    }
+
+    def "the number of results per family is bounded"() {
+        given:
+        def cache = new QueryResultCache(2)
+        def person = entity('Person')
+
+        when:
+        3.times { cache.put(person, "query$it".toString(), [it], cache.getGeneration(person)) }
+
+        then:
+        cache.get(person, 'query0') == null
+        cache.get(person, 'query2') == [2]
+    }
+
+    private PersistentEntity entity(String name, PersistentEntity root = null) {
+        PersistentEntity entity = Mock(PersistentEntity)
+        entity.getName() >> name
+        entity.getRootEntity() >> (root ?: entity)
+        entity
+    }
+}
@@ -0,0 +1,76 @@
+package org.grails.datastore.mapping.cache.impl
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class LruTPCacheAdapterSpec extends Specification {
+
+    def "entries are evicted once the maximum size is reached"() {
+        given:
+        def adapter = new LruTPCacheAdapter<String>(2)
+
+        when:
+        adapter.cacheEntry(1L, 'one')
+        adapter.cacheEntry(2L, 'two')
+        adapter.getCachedEntry(1L)
+        adapter.cacheEntry(3L, 'three')
+
+        then:
+        adapter.size == 2
+        adapter.evictionCount == 1
+        adapter.getCachedEntry(1L) == 'one'
+        adapter.getCachedEntry(2L) == null
+        adapter.getCachedEntry(3L) == 'three'
+        adapter.hitCount == 3
+        adapter.missCount == 1
+    }
+
+    def "entries expire after the time to live"() {
+        given:
+        def adapter = new LruTPCacheAdapter<String>(10, 1, TimeUnit.MILLISECONDS)
+
+        when:
+        adapter.cacheEntry(1L, 'one')
+        sleep 10
+
+        then:
+        adapter.getCachedEntry(1L) == null
+        adapter.expirationCount == 1
+        adapter.size == 0
+    }
+
+    def "entries can be evicted explicitly"() {
+        given:
+        def adapter = new LruTPCacheAdapter<String>()
+        adapter.cacheEntry(1L, 'one')
+        adapter.cacheEntry(2L, 'two')
+
+        when:
+        adapter.evictEntry(1L)
+
+        then:
+        adapter.getCachedEntry(1L) == null
+        adapter.getCachedEntry(2L) == 'two'
+
+        when:
+        adapter.clear()
+
+        then:
+        adapter.size == 0
+    }
+
+    def "multiple entries can be cached and retrieved at once"() {
+        given:
+        def adapter = new LruTPCacheAdapter<String>()
+
+        when:
+        adapter.cacheEntries([(1L): 'one', (2L): 'two'])
+        def entries = adapter.getCachedEntries([1L, 2L, 3L])
+
+        then:
+        entries == [(1L): 'one', (2L): 'two']
+        adapter.hitCount == 2
+        adapter.missCount == 1
+    }
+}
@@ -0,0 +1,71 @@
+package org.grails.datastore.mapping.core.impl
+
+import spock.lang.Specification
+
+class BoundedIdentityMapSpec extends Specification {
+
+    def "least recently used entries are evicted once the maximum size is exceeded"() {
+        given:
+        def evicted = []
+        def map = new BoundedIdentityMap<Long, String>(2, [isPinned: { k, v -> false }, evicted: { k, v -> evicted << k }] as BoundedIdentityMap.EvictionPolicy)
+
+        when:
+        map.put(1L, 'one')
+        map.put(2L, 'two')
+        map.get(1L)
+        map.put(3L, 'three')
+
+        then:
+        map.size() == 2
+        map.keySet() == [1L, 3L] as Set
+        evicted == [2L]
+    }
+
+    def "pinned entries are never evicted"() {
+        given:
+        def pinned = ['one', 'two'] as Set
+        def map = new BoundedIdentityMap<Long, String>(1, [isPinned: { k, v -> v in pinned }, evicted: { k, v -> }] as BoundedIdentityMap.EvictionPolicy)
+
+        when:
+        map.put(1L, 'one')
+        map.put(2L, 'two')
+        map.put(3L, 'three')
+
+        then:
+        map.size() == 3
+
+        when:
+        pinned.clear()
+        map.releasePinned()
+        map.put(4L, 'four')
+
+        then:
+        map.size() == 1
+        map.get(4L) == 'four'
+    }
+
+    def "pinned entries are taken out of the eviction queue until they are released"() {
+        given:
+        def pinned = [1L] as Set
+        def checks = 0
+        def evicted = []
+        def map = new BoundedIdentityMap<Long, String>(2, [isPinned: { k, v -> checks++; k in pinned }, evicted: { k, v -> evicted << k }] as BoundedIdentityMap.EvictionPolicy)
+
+        when:
+        (1L..100L).each { map.put(it, it.toString()) }
+
+        then: "the pinned entry was checked once and every other entry was checked once on eviction"
+        map.keySet() == [1L, 100L] as Set
+        evicted == (2L..99L).toList()
+        checks == 99
+
+        when:
+        pinned.clear()
+        map.releasePinned()
+        map.put(101L, '101')
+
+        then: "the released entry is evicted first"
+        map.keySet() == [100L, 101L] as Set
+        evicted.last() == 1L
+    }
+}
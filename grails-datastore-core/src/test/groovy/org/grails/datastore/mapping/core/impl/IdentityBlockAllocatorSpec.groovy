@@ -0,0 +1,91 @@
+package org.grails.datastore.mapping.core.impl
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+import spock.lang.Specification
+
+class IdentityBlockAllocatorSpec extends Specification {
+
+    def "identifiers are handed out from reserved blocks per family"() {
+        given:
+        def reservations = []
+        def counters = [:].withDefault { 0L }
+        def allocator = new IdentityBlockAllocator({ String family, int size ->
+            reservations << family
+            counters[family] += size
+        } as IdentityBlockAllocator.BlockSource, 3)
+
+        when:
+        def books = (1..7).collect { allocator.nextId('book') }
+        def authors = (1..2).collect { allocator.nextId('author') }
+
+        then:
+        books == [1L, 2L, 3L, 4L, 5L, 6L, 7L]
+        authors == [1L, 2L]
+        reservations == ['book', 'book', 'book', 'author']
+    }
+
+    def "identifiers are unique under concurrent allocation"() {
+        given:
+        def counter = new AtomicLong()
+        def reservations = new AtomicInteger()
+        def allocator = new IdentityBlockAllocator({ String family, int size ->
+            reservations.incrementAndGet()
+            counter.addAndGet(size)
+        } as IdentityBlockAllocator.BlockSource, 100)
+        def ids = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>())
+        def start = new CountDownLatch(1)
+
+        when:
+        def threads = (1..8).collect {
+            Thread.start {
+                start.await()
+                1000.times { ids << allocator.nextId('book') }
+            }
+        }
+        start.countDown()
+        threads*.join()
+
+        then:
+        ids.size() == 8000
+        ids.max() == 8000L
+        reservations.get() == 80
+    }
+
+    def "blocks are discarded when the allocator is reset"() {
+        given:
+        def counter = new AtomicLong()
+        def allocator = new IdentityBlockAllocator({ String family, int size ->
+            counter.addAndGet(size)
+        } as IdentityBlockAllocator.BlockSource, 10)
+
+        when:
+        allocator.nextId('book')
+        counter.set(0)
+        allocator.reset()
+
+        then:
+        allocator.nextId('book') == 1L
+    }
+
+    def "a counter that went backwards is moved past the identifiers already handed out"() {
+        given:
+        def counter = new AtomicLong()
+        def allocator = new IdentityBlockAllocator({ String family, int size ->
+            counter.addAndGet(size)
+        } as IdentityBlockAllocator.BlockSource, 10)
+
+        when: "the counter is cleared while a block is in use"
+        def before = (1..15).collect { allocator.nextId('book') }
+        counter.set(0)
+        def after = (1..10).collect { allocator.nextId('book') }
+
+        then: "the current block is used up and the next one starts after it"
+        before == (1L..15L).toList()
+        after == (16L..25L).toList()
+        counter.get() == 30L
+    }
+}
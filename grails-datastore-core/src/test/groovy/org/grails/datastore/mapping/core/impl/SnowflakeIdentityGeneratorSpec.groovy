@@ -0,0 +1,153 @@
+package org.grails.datastore.mapping.core.impl
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+
+import org.grails.datastore.mapping.core.AbstractDatastore
+import org.grails.datastore.mapping.core.IdentityGenerationException
+import org.grails.datastore.mapping.core.Session
+import org.grails.datastore.mapping.keyvalue.mapping.config.KeyValueMappingContext
+
+import spock.lang.Specification
+
+class SnowflakeIdentityGeneratorSpec extends Specification {
+
+    def "identifiers are ascending and carry the worker id"() {
+        given:
+        def generator = new SnowflakeIdentityGenerator(42)
+
+        when:
+        def ids = (1..10000).collect { generator.nextId() }
+
+        then:
+        ids == ids.sort(false)
+        ids.toSet().size() == 10000
+        ids.every { it > 0 && ((it >> 12) & 1023) == 42 }
+    }
+
+    def "identifiers are unique under concurrent generation"() {
+        given:
+        def generator = new SnowflakeIdentityGenerator(1)
+        def ids = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>())
+        def start = new CountDownLatch(1)
+
+        when:
+        def threads = (1..8).collect {
+            Thread.start {
+                start.await()
+                5000.times { ids << generator.nextId() }
+                ids.addAll(generator.nextIds(5000) as List)
+            }
+        }
+        start.countDown()
+        threads*.join()
+
+        then:
+        ids.size() == 80000
+    }
+
+    def "bulk identifiers span several milliseconds once a sequence is exhausted"() {
+        given:
+        def generator = new FixedClockGenerator(7, 5)
+
+        when:
+        def ids = generator.nextIds(10000) as List
+
+        then:
+        ids == ids.sort(false)
+        ids.toSet().size() == 10000
+        ids.collect { it >> 22 }.unique() == [1000L, 1001L, 1002L]
+    }
+
+    def "small clock regressions are tolerated"() {
+        given:
+        def generator = new FixedClockGenerator(7, 5)
+        def first = generator.nextId()
+
+        when:
+        generator.time -= 3
+        def second = generator.nextId()
+
+        then:
+        second > first
+
+        when:
+        generator.time -= 10
+        generator.nextId()
+
+        then:
+        thrown(IdentityGenerationException)
+    }
+
+    def "worker ids are validated"() {
+        when:
+        new SnowflakeIdentityGenerator(1024)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        expect:
+        SnowflakeIdentityGenerator.defaultWorkerId() in 0L..1023L
+    }
+
+    static class FixedClockGenerator extends SnowflakeIdentityGenerator {
+        long time = 1000
+
+        FixedClockGenerator(long workerId, long maxClockBackwardsMillis) {
+            super(workerId, maxClockBackwardsMillis, 0)
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return time
+        }
+    }
+
+    def "the shared generator reads numeric and string connection details"() {
+        when: "the connection details come from a ConfigObject with numeric values"
+        def generator = createDatastore((AbstractDatastore.SNOWFLAKE_WORKER_ID): 7, (AbstractDatastore.SNOWFLAKE_MAX_CLOCK_BACKWARDS_MILLIS): 20).snowflakeIdentityGenerator
+
+        then:
+        generator.workerId == 7
+        generator.maxClockBackwardsMillis == 20
+
+        when:
+        generator = createDatastore((AbstractDatastore.SNOWFLAKE_WORKER_ID): "9").snowflakeIdentityGenerator
+
+        then:
+        generator.workerId == 9
+        generator.maxClockBackwardsMillis == SnowflakeIdentityGenerator.DEFAULT_MAX_CLOCK_BACKWARDS_MILLIS
+    }
+
+    def "identities that cannot hold a snowflake identifier are rejected"() {
+        given:
+        def context = new KeyValueMappingContext("test")
+        def generator = new SnowflakeIdentityGenerator(1)
+
+        when:
+        generator.nextId(context.addPersistentEntity(IntegerIdentityEntity))
+
+        then:
+        thrown IdentityGenerationException
+
+        expect:
+        generator.nextId(context.addPersistentEntity(LongIdentityEntity)) > 0
+    }
+
+    private static AbstractDatastore createDatastore(Map connectionDetails) {
+        new AbstractDatastore(new KeyValueMappingContext("test"), connectionDetails, null) {
+            @Override
+            protected Session createSession(Map<String, String> details) {
+                null
+            }
+        }
+    }
+}
+
+class IntegerIdentityEntity {
+    Integer id
+}
+
+class LongIdentityEntity {
+    Long id
+}
@@ -0,0 +1,62 @@
+package org.grails.datastore.mapping.core.impl
+
+import spock.lang.Specification
+
+class WeakIdentitySetSpec extends Specification {
+
+    def "equal instances are tracked separately"() {
+        given:
+        def set = new WeakIdentitySet<String>()
+        def first = new String('book')
+        def second = new String('book')
+
+        when:
+        set.add(first)
+
+        then:
+        set.contains(first)
+        !set.contains(second)
+
+        when:
+        set.add(second)
+        set.remove(first)
+
+        then:
+        !set.contains(first)
+        set.contains(second)
+        set.toList().size() == 1
+        set.toList()[0].is(second)
+    }
+
+    def "elements no longer referenced are dropped"() {
+        given:
+        def set = new WeakIdentitySet<Object>()
+        def kept = new Object()
+        set.add(kept)
+        set.add(new Object())
+
+        when:
+        for (int i = 0; i < 10 && set.size() > 1; i++) {
+            System.gc()
+            Thread.sleep(50)
+        }
+
+        then:
+        set.size() == 1
+        set.toList() == [kept]
+    }
+
+    def "clear removes every element"() {
+        given:
+        def set = new WeakIdentitySet<Object>()
+        def element = new Object()
+        set.add(element)
+
+        when:
+        set.clear()
+
+        then:
+        set.size() == 0
+        !set.contains(element)
+    }
+}
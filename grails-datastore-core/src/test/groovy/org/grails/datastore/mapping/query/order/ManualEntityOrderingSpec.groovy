@@ -0,0 +1,83 @@
+package org.grails.datastore.mapping.query.order
+
+import org.grails.datastore.mapping.model.PersistentEntity
+import org.grails.datastore.mapping.query.Query
+import spock.lang.Specification
+
+class ManualEntityOrderingSpec extends Specification {
+
+    def "the first order is the primary order"() {
+        given:
+        def ordering = new ManualEntityOrdering(entity())
+        def people = [person('Bart', 'Simpson', 10), person('Homer', 'Simpson', 40), person('Ned', 'Flanders', 40)]
+
+        when:
+        def results = ordering.applyOrder(people, [Query.Order.desc('age'), Query.Order.asc('lastName')])
+
+        then:
+        results*.firstName == ['Ned', 'Homer', 'Bart']
+    }
+
+    def "nulls are ordered as the lowest value unless requested otherwise"() {
+        given:
+        def ordering = new ManualEntityOrdering(entity())
+        def people = [person('Bart', null, 10), person('Homer', 'Simpson', 40), person('Ned', 'Flanders', 40)]
+
+        expect:
+        ordering.applyOrder(people, [Query.Order.asc('lastName')])*.firstName == ['Bart', 'Ned', 'Homer']
+        ordering.applyOrder(people, [Query.Order.desc('lastName')])*.firstName == ['Homer', 'Ned', 'Bart']
+        ordering.applyOrder(people, [Query.Order.asc('lastName').nullsLast()])*.firstName == ['Ned', 'Homer', 'Bart']
+        ordering.applyOrder(people, [Query.Order.desc('lastName').nullsFirst()])*.firstName == ['Bart', 'Homer', 'Ned']
+    }
+
+    def "only the requested number of results is returned"() {
+        given:
+        def ordering = new ManualEntityOrdering(entity())
+        def people = (1..100).collect { person("Person$it", 'Doe', (it * 37) % 101) }.asImmutable()
+
+        when:
+        def results = ordering.applyOrder(people, [Query.Order.asc('age')], 5)
+
+        then:
+        results*.age == people*.age.sort().take(5)
+    }
+
+    def "strings can be ordered ignoring case"() {
+        given:
+        def ordering = new ManualEntityOrdering(entity())
+        def people = [person('bart', 'Simpson', 10), person('Homer', 'Simpson', 40)]
+
+        expect:
+        ordering.applyOrder(people, [Query.Order.asc('firstName')])*.firstName == ['Homer', 'bart']
+        ordering.applyOrder(people, [Query.Order.asc('firstName').ignoreCase()])*.firstName == ['bart', 'Homer']
+    }
+
+    def "values that can't be compared with each other are not treated as equal"() {
+        given:
+        def ordering = new ManualEntityOrdering(entity())
+        def people = [new OrderedPerson(code: 'a'), new OrderedPerson(code: 1)]
+
+        when:
+        ordering.applyOrder(people, [Query.Order.asc('code')])
+
+        then:
+        thrown(ClassCastException)
+    }
+
+    private PersistentEntity entity() {
+        PersistentEntity entity = Mock(PersistentEntity)
+        entity.getJavaClass() >> OrderedPerson
+        entity
+    }
+
+    private static OrderedPerson person(String firstName, String lastName, int age) {
+        new OrderedPerson(firstName: firstName, lastName: lastName, age: age)
+    }
+}
+
+class OrderedPerson {
+    String firstName
+    String lastName
+    int age
+    Object code
+}
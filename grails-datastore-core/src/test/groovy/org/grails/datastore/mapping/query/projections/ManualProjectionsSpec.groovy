@@ -0,0 +1,108 @@
+package org.grails.datastore.mapping.query.projections
+
+import org.grails.datastore.mapping.model.PersistentEntity
+import org.grails.datastore.mapping.query.Query
+import org.grails.datastore.mapping.query.Projections
+import spock.lang.Specification
+
+class ManualProjectionsSpec extends Specification {
+
+    def "all aggregates are computed in a single pass"() {
+        given:
+        def projections = new ManualProjections(entity())
+        def iterator = [
+            new ProjectedPerson(name: 'Bart', age: 10),
+            new ProjectedPerson(name: 'Lisa', age: 8),
+            new ProjectedPerson(name: 'Homer', age: 40),
+            new ProjectedPerson(name: 'Bart', age: null)
+        ].iterator()
+
+        when:
+        def results = projections.project(iterator, [
+            Projections.count(), Projections.countDistinct('name'), Projections.sum('age'),
+            Projections.avg('age'), Projections.min('age'), Projections.max('age')
+        ] as List<Query.Projection>)
+
+        then:
+        results == [4, 3, 58, 58 / 3, 8, 40]
+        results[2] instanceof Integer
+        results[3] instanceof BigDecimal
+        !iterator.hasNext()
+    }
+
+    def "aggregates of no values are null"() {
+        given:
+        def aggregator = new PropertyAggregator(true)
+        aggregator.add(null)
+
+        expect:
+        aggregator.count == 0
+        aggregator.sum == null
+        aggregator.average == null
+        aggregator.min == null
+        aggregator.max == null
+        aggregator.distinctValues == [null] as Set
+    }
+
+    def "the sum and average have the types of a Groovy sum and division"() {
+        given:
+        def aggregator = new PropertyAggregator(false)
+        values.each { aggregator.add(it) }
+
+        expect:
+        aggregator.sum == values.sum()
+        aggregator.sum.getClass() == values.sum().getClass()
+        aggregator.average == values.sum() / values.size()
+        aggregator.average.getClass() == (values.sum() / values.size()).getClass()
+
+        where:
+        values << [[1, 2], [1, 2L], [1, 2G], [1, 2L, 0.5G], [1, 2L, 0.5G, 1.25d], [1.5f, 2.5f]]
+    }
+
+    def "mixed numeric types are compared by value"() {
+        given:
+        def aggregator = new PropertyAggregator(false)
+        [1, 2L, 0.5G, 1.25d].each { aggregator.add(it) }
+
+        expect:
+        aggregator.min == 0.5G
+        aggregator.max == 2L
+    }
+
+    def "properties without a getter are read from their field"() {
+        given:
+        def projections = new ManualProjections(entity())
+        def people = [new ProjectedPerson(name: 'Bart', age: 10), new ProjectedPerson(name: 'Lisa', age: 8)]
+        people[0].@nickname = 'El Barto'
+
+        expect:
+        projections.property(people, 'nickname') == ['El Barto', null]
+    }
+
+    def "min, max and distinct work on collections"() {
+        given:
+        def projections = new ManualProjections(entity())
+        def people = [new ProjectedPerson(name: 'Marge', age: 38), new ProjectedPerson(name: 'Bart', age: 10), new ProjectedPerson(name: 'Bart', age: 11)]
+
+        expect:
+        projections.min(people, 'name') == 'Bart'
+        projections.max(people, 'age') == 38
+        projections.distinct(people, 'name') == ['Marge', 'Bart']
+        projections.countDistinct(people, 'name') == 2
+        projections.property(people, 'age') == [38, 10, 11]
+        projections.min([], 'age') == null
+    }
+
+    private PersistentEntity entity() {
+        PersistentEntity entity = Mock(PersistentEntity)
+        entity.getJavaClass() >> ProjectedPerson
+        entity.isInstance(_) >> { args -> args[0] instanceof ProjectedPerson }
+        entity
+    }
+}
+
+class ProjectedPerson {
+    String name
+    Integer age
+    private String nickname
+}
@@ -0,0 +1,70 @@
+package org.grails.datastore.mapping.reflect
+
+import org.grails.datastore.mapping.keyvalue.mapping.config.KeyValueMappingContext
+import spock.lang.Specification
+
+class FastEntityAccessSpec extends Specification {
+
+    def "properties are read and written through a generated accessor"() {
+        given:
+        def context = new KeyValueMappingContext("test")
+        def entity = context.addPersistentEntity(AccessedBook)
+        def book = new AccessedBook(id: 1L, title: 'The Stand', pages: 1153, available: true)
+        def access = context.createEntityAccess(entity, book)
+
+        expect:
+        context.getFastClassData(entity).propertyAccessor.class.name.contains('$$EntityPropertyAccessor$$')
+        access.getProperty('title') == 'The Stand'
+        access.getProperty('pages') == 1153
+        access.getProperty('available') == true
+        access.getIdentifier() == 1L
+
+        when:
+        access.setProperty('title', 'It')
+        access.setProperty('pages', '1138')
+        access.setPropertyNoConversion('available', null)
+        access.setIdentifier('2')
+
+        then:
+        book.title == 'It'
+        book.pages == 1138
+        !book.available
+        book.id == 2L
+    }
+
+    def "values of another type set without conversion are converted"() {
+        given:
+        def context = new KeyValueMappingContext("test")
+        def entity = context.addPersistentEntity(AccessedBook)
+        def book = new AccessedBook()
+        def access = context.createEntityAccess(entity, book)
+
+        when:
+        access.setPropertyNoConversion('pages', 42L)
+        access.setIdentifierNoConversion(3)
+
+        then:
+        book.pages == 42
+        book.id == 3L
+    }
+
+    def "unknown properties are rejected"() {
+        given:
+        def context = new KeyValueMappingContext("test")
+        def entity = context.addPersistentEntity(AccessedBook)
+
+        when:
+        context.createEntityAccess(entity, new AccessedBook()).getProperty('author')
+
+        then:
+        thrown IllegalArgumentException
+    }
+}
+
+class AccessedBook {
+    Long id
+    Long version
+    String title
+    int pages
+    boolean available
+}
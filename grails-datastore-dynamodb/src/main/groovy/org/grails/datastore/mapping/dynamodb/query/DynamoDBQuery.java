@@ -260,8 +260,7 @@ public class DynamoDBQuery extends Query {
             } else {
                 //since we sort in memory, if we have ordering we should get all matches, then sort, then cut to the maximum size
                 results = doGetItems(table, filters, Integer.MAX_VALUE).objects;
-                results = handleOrdering(entity, results);
-                results = resizeUpTo(results, maxToGet);
+                results = handleOrdering(entity, results, maxToGet);
             }
         } else {
             if (hasCountProjection) { //count is returned by AWS in a special way...
@@ -303,18 +302,10 @@ public class DynamoDBQuery extends Query {
         return results;
     }
 
-    private List<Object> resizeUpTo(List<Object> results, int max) {
-        if (results.size() > max) {
-            return results.subList(0, max);
-        } else {
-            return results;
-        }
-    }
-
-    private List<Object> handleOrdering(PersistentEntity entity, List<Object> results) {
+    private List<Object> handleOrdering(PersistentEntity entity, List<Object> results, int maxToGet) {
         ManualEntityOrdering ordering = new ManualEntityOrdering(entity);
         List<Order> orderBys = getOrderBy();
-        results = ordering.applyOrder(results, orderBys);
+        results = ordering.applyOrder(results, orderBys, maxToGet);
         return results;
     }
 
@@ -411,7 +411,8 @@ public class GemfireQuery extends Query {
                     }
                 }
 
-                finalResults = ordering.applyOrder(finalResults, getOrderBy());
+                int maxResults = projectionList.isEmpty() && max > -1 ? offset + max : -1;
+                finalResults = ordering.applyOrder(finalResults, getOrderBy(), maxResults);
 
                 if (offset > 0 ) {
 
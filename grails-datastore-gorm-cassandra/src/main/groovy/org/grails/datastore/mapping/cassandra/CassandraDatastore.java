@@ -32,6 +32,7 @@ import org.grails.datastore.gorm.cassandra.mapping.BasicCassandraMappingContext;
 import org.grails.datastore.gorm.cassandra.mapping.MappingCassandraConverter;
 import org.grails.datastore.gorm.cassandra.mapping.TimeZoneToStringConverter;
 import org.grails.datastore.mapping.cassandra.config.CassandraMappingContext;
+import org.grails.datastore.mapping.cassandra.engine.PreparedStatementCache;
 import org.grails.datastore.mapping.cassandra.utils.EnumUtil;
 import org.grails.datastore.mapping.core.AbstractDatastore;
 import org.grails.datastore.mapping.core.Session;
@@ -57,6 +58,7 @@ import org.springframework.data.cassandra.core.CassandraAdminTemplate;
 import org.springframework.data.cassandra.core.CassandraTemplate;
 import org.springframework.util.Assert;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.Cluster;
 
 /**
@@ -82,6 +84,19 @@ public class CassandraDatastore extends AbstractDatastore implements Initializin
 	public static final String KEYSPACE_REPLICATION_FACTOR = "replicationFactor";
 	public static final String KEYSPACE_REPLICATION_STRATEGY = "replicationStrategy";
 	public static final String KEYSPACE_NETWORK_TOPOLOGY = "networkTopology";
+	public static final String MAX_IN_FLIGHT_REQUESTS = "maxInFlightRequests";
+	public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 128;
+	/**
+	 * The type of the batches a flush sends the writes to the same partition in: "unlogged" (the default), "logged" or
+	 * "none" to disable batching. A flush never batches the writes to different partitions, and Cassandra applies a
+	 * single partition batch atomically and in isolation whatever its type, so "logged" only adds the cost of the batch
+	 * log. Writes to several partitions are not made atomic by either type.
+	 */
+	public static final String FLUSH_BATCH_TYPE = "flushBatchType";
+	public static final String FLUSH_BATCH_SIZE_LIMIT = "flushBatchSizeLimitInKb";
+	// the default batch_size_warn_threshold_in_kb of Cassandra
+	public static final int DEFAULT_FLUSH_BATCH_SIZE_LIMIT = 5;
+	public static final String PREPARED_STATEMENT_CACHE_SIZE = "preparedStatementCacheSize";
 
 	protected ConfigObject configuration = new ConfigObject();
 	protected Cluster nativeCluster;
@@ -94,6 +109,10 @@ public class CassandraDatastore extends AbstractDatastore implements Initializin
 	protected GormCassandraSessionFactoryBean cassandraSessionFactoryBean;
 	protected boolean stateless = false;
 	protected String keyspace;	
+	protected PreparedStatementCache preparedStatementCache;
+	protected int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+	protected BatchStatement.Type flushBatchType = BatchStatement.Type.UNLOGGED;
+	protected int flushBatchSizeLimit = DEFAULT_FLUSH_BATCH_SIZE_LIMIT * 1024;
 	
 	private static final SoftThreadLocalMap PERSISTENCE_OPTIONS_MAP = new SoftThreadLocalMap();
 
@@ -129,6 +148,10 @@ public class CassandraDatastore extends AbstractDatastore implements Initializin
 		}
 
 		initializeConverters(mappingContext);
+		maxInFlightRequests = read(Integer.class, MAX_IN_FLIGHT_REQUESTS, configuration, DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+		flushBatchType = readFlushBatchType();
+		flushBatchSizeLimit = read(Integer.class, FLUSH_BATCH_SIZE_LIMIT, configuration, DEFAULT_FLUSH_BATCH_SIZE_LIMIT) * 1024;
+		preparedStatementCache = new PreparedStatementCache(read(Integer.class, PREPARED_STATEMENT_CACHE_SIZE, configuration, PreparedStatementCache.DEFAULT_MAX_SIZE));
 
 		log.debug("Initializing Cassandra Datastore for keyspace: " + keyspace);
 	}
@@ -290,6 +313,34 @@ public class CassandraDatastore extends AbstractDatastore implements Initializin
 		return cassandraTemplate;
 	}
 
+	/**
+	 * @return The cache of the statements prepared by the sessions of this datastore
+	 */
+	public PreparedStatementCache getPreparedStatementCache() {
+		return preparedStatementCache;
+	}
+
+	/**
+	 * @return The maximum number of requests a session sends to Cassandra concurrently when flushing or reading several entries
+	 */
+	public int getMaxInFlightRequests() {
+		return maxInFlightRequests;
+	}
+
+	/**
+	 * @return The type of the batches a flush groups the writes to the same partition in, or null if writes are not batched
+	 */
+	public BatchStatement.Type getFlushBatchType() {
+		return flushBatchType;
+	}
+
+	/**
+	 * @return The approximate maximum size in bytes of the values of a batch written by a flush
+	 */
+	public int getFlushBatchSizeLimit() {
+		return flushBatchSizeLimit;
+	}
+
 	public void createTableDefinition(Class<?> cls) {
 		cassandraSessionFactoryBean.createTable(cls);
 	}
@@ -307,6 +358,7 @@ public class CassandraDatastore extends AbstractDatastore implements Initializin
 	@Override
 	public void destroy() throws Exception {
 		super.destroy();
+		preparedStatementCache.clear();
 		PERSISTENCE_OPTIONS_MAP.remove();
 		if (cassandraSessionFactoryBean != null) {
 			cassandraSessionFactoryBean.destroy();
@@ -337,6 +389,16 @@ public class CassandraDatastore extends AbstractDatastore implements Initializin
 		return EnumUtil.findMatchingEnum(KEYSPACE_ACTION, keyspaceConfiguration.get(KEYSPACE_ACTION), keyspaceActionMap, null);		
 	}
 	
+	private BatchStatement.Type readFlushBatchType() {
+		if ("none".equals(configuration.get(FLUSH_BATCH_TYPE))) {
+			return null;
+		}
+		Map<String, BatchStatement.Type> batchTypeMap = new HashMap<String, BatchStatement.Type>();
+		batchTypeMap.put("unlogged", BatchStatement.Type.UNLOGGED);
+		batchTypeMap.put("logged", BatchStatement.Type.LOGGED);
+		return EnumUtil.findMatchingEnum(FLUSH_BATCH_TYPE, configuration.get(FLUSH_BATCH_TYPE), batchTypeMap, BatchStatement.Type.UNLOGGED);
+	}
+
 	private SchemaAction readSchemaAction() {		
 		Map<String, SchemaAction> schemaActionMap = new HashMap<String, SchemaAction>();
 		schemaActionMap.put("none", SchemaAction.NONE);
@@ -15,7 +15,15 @@
 package org.grails.datastore.mapping.cassandra;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.grails.datastore.mapping.cassandra.config.Table;
 import org.grails.datastore.mapping.cassandra.engine.CassandraEntityPersister;
@@ -31,11 +39,19 @@ import org.grails.datastore.mapping.transactions.SessionOnlyTransaction;
 import org.grails.datastore.mapping.transactions.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cassandra.core.SessionCallback;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.cassandra.core.CassandraTemplate;
+import org.springframework.dao.DataAccessException;
 import org.springframework.util.Assert;
 
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 
 /**
  * @author Graeme Rocher
@@ -47,6 +63,15 @@ public class CassandraSession extends AbstractSession<Session> {
     private Session session;
     private ApplicationEventPublisher applicationEventPublisher;
     private CassandraTemplate cassandraTemplate;
+    private List<BufferedWrite> writeBuffer;
+    private Set<Object> bufferedRowKeys;
+
+    /**
+     * Receives the result of a statement written with {@link CassandraSession#write(Object, Statement, WriteCallback)}
+     */
+    public interface WriteCallback {
+        void afterWrite(ResultSet resultSet);
+    }
 
     public CassandraSession(Datastore ds, MappingContext context, Session session, ApplicationEventPublisher applicationEventPublisher, boolean stateless, CassandraTemplate cassandraTemplate) {
         super(ds, context, applicationEventPublisher, stateless);
@@ -67,6 +92,7 @@ public class CassandraSession extends AbstractSession<Session> {
 
     @Override
     public void disconnect() {
+        discardWriteBuffer();
         super.disconnect();
     }
 
@@ -100,8 +126,177 @@ public class CassandraSession extends AbstractSession<Session> {
         return key;
     }
     
+    /**
+     * Binds values to the cached prepared statement for the CQL of the given statement
+     *
+     * @param statement A statement built with bind markers
+     * @param values The values in the order of the bind markers
+     * @return The bound statement
+     */
+    public BoundStatement bind(RegularStatement statement, List<Object> values) {
+        return getCassandraDatastore().getPreparedStatementCache().bind(session, statement, values);
+    }
+
+    /**
+     * Executes a statement, translating driver exceptions
+     *
+     * @param statement The statement
+     * @return The result set
+     */
+    public ResultSet execute(final Statement statement) {
+        return cassandraTemplate.execute(new SessionCallback<ResultSet>() {
+            @Override
+            public ResultSet doInSession(Session s) throws DataAccessException {
+                if (log.isDebugEnabled()) {
+                    log.debug("executing [{}]", statement);
+                }
+                return s.execute(statement);
+            }
+        });
+    }
+
+    /**
+     * Executes statements concurrently, with no more than {@link CassandraDatastore#getMaxInFlightRequests()}
+     * of them in flight at a time
+     *
+     * @param statements The statements
+     * @return The result sets in the order of the statements
+     */
+    public List<ResultSet> executeAsync(final List<? extends Statement> statements) {
+        final int maxInFlight = Math.max(1, getCassandraDatastore().getMaxInFlightRequests());
+        return cassandraTemplate.execute(new SessionCallback<List<ResultSet>>() {
+            @Override
+            public List<ResultSet> doInSession(Session s) throws DataAccessException {
+                List<ResultSet> results = new ArrayList<ResultSet>(statements.size());
+                LinkedList<ResultSetFuture> inFlight = new LinkedList<ResultSetFuture>();
+                boolean completed = false;
+                try {
+                    for (Statement statement : statements) {
+                        if (inFlight.size() >= maxInFlight) {
+                            results.add(inFlight.removeFirst().getUninterruptibly());
+                        }
+                        if (log.isDebugEnabled()) {
+                            log.debug("executing [{}] asynchronously", statement);
+                        }
+                        inFlight.add(s.executeAsync(statement));
+                    }
+                    while (!inFlight.isEmpty()) {
+                        results.add(inFlight.removeFirst().getUninterruptibly());
+                    }
+                    completed = true;
+                    return results;
+                } finally {
+                    if (!completed) {
+                        for (ResultSetFuture future : inFlight) {
+                            future.cancel(true);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts buffering the statements passed to {@link #write(Object, Statement, WriteCallback)}, so that they
+     * are executed concurrently by {@link #flushWriteBuffer()}
+     *
+     * @return false if the session was already buffering writes, in which case the caller must not flush or
+     * discard the buffer
+     */
+    public boolean startWriteBuffer() {
+        if (writeBuffer != null) {
+            return false;
+        }
+        writeBuffer = new ArrayList<BufferedWrite>();
+        bufferedRowKeys = new HashSet<Object>();
+        return true;
+    }
+
+    /**
+     * Writes a statement, or buffers it if the session is buffering writes. The statement is never batched with
+     * the writes to other rows.
+     *
+     * @see #write(Object, Object, Statement, WriteCallback)
+     */
+    public void write(Object rowKey, Statement statement, WriteCallback callback) {
+        write(rowKey, rowKey, statement, callback);
+    }
+
+    /**
+     * Writes a statement, or buffers it if the session is buffering writes. Writes to the same row are never
+     * in flight at the same time: the buffer is flushed before a second write to a buffered row.
+     *
+     * @param rowKey Identifies the row written by the statement
+     * @param partitionKey Identifies the partition of the row, buffered writes to the same partition are sent in
+     * batches of the {@link CassandraDatastore#getFlushBatchType() flush batch type}
+     * @param statement The statement
+     * @param callback Receives the result of the statement, may be null. Writes with a callback are never batched,
+     * as a batch only has a single result.
+     */
+    public void write(Object rowKey, Object partitionKey, Statement statement, WriteCallback callback) {
+        if (writeBuffer == null) {
+            ResultSet resultSet = execute(statement);
+            if (callback != null) {
+                callback.afterWrite(resultSet);
+            }
+            return;
+        }
+
+        if (!bufferedRowKeys.add(rowKey)) {
+            flushWriteBuffer();
+            bufferedRowKeys.add(rowKey);
+        }
+        writeBuffer.add(new BufferedWrite(partitionKey, statement, callback));
+    }
+
+    /**
+     * Executes the buffered statements concurrently and hands their results to their callbacks. Writes to the same
+     * partition are grouped in batches no larger than {@link CassandraDatastore#getFlushBatchSizeLimit()}, so that each
+     * partition is written with as few requests as possible and every batch is routed to a replica of its partition.
+     */
+    public void flushWriteBuffer() {
+        if (writeBuffer == null || writeBuffer.isEmpty()) {
+            return;
+        }
+
+        List<BufferedWrite> writes = writeBuffer;
+        writeBuffer = new ArrayList<BufferedWrite>();
+        bufferedRowKeys.clear();
+
+        List<List<BufferedWrite>> groups = groupWrites(writes);
+        BatchStatement.Type batchType = getCassandraDatastore().getFlushBatchType();
+        List<Statement> statements = new ArrayList<Statement>(groups.size());
+        for (List<BufferedWrite> group : groups) {
+            if (group.size() == 1) {
+                statements.add(group.get(0).statement);
+            } else {
+                statements.add(createBatch(batchType, group));
+            }
+        }
+
+        List<ResultSet> results = executeAsync(statements);
+        for (int i = 0; i < groups.size(); i++) {
+            List<BufferedWrite> group = groups.get(i);
+            WriteCallback callback = group.get(0).callback;
+            if (callback != null) {
+                callback.afterWrite(results.get(i));
+            }
+        }
+    }
+
+    /**
+     * Stops buffering writes, dropping any statement that has not been flushed
+     */
+    public void discardWriteBuffer() {
+        writeBuffer = null;
+        bufferedRowKeys = null;
+    }
+
     public void deleteAll(Class type) {
         cassandraTemplate.truncate(cassandraTemplate.getTableName(type));
+        PersistentEntity entity = getMappingContext().getPersistentEntity(type.getName());
+        clearTPCache(entity);
+        invalidateQueryResultCache(entity);
     }
 
     @Override
@@ -115,4 +310,91 @@ public class CassandraSession extends AbstractSession<Session> {
             return super.convertIdentityIfNecessasry(identity, key);
         }
     }
+
+    /**
+     * Groups the writes to the same partition, starting a new group when a group would exceed the batch size limit.
+     * Writes with a callback, and all writes if batches are disabled, have a group of their own.
+     */
+    private List<List<BufferedWrite>> groupWrites(List<BufferedWrite> writes) {
+        List<List<BufferedWrite>> groups = new ArrayList<List<BufferedWrite>>();
+        if (getCassandraDatastore().getFlushBatchType() == null) {
+            for (BufferedWrite write : writes) {
+                groups.add(Collections.singletonList(write));
+            }
+            return groups;
+        }
+
+        int sizeLimit = getCassandraDatastore().getFlushBatchSizeLimit();
+        Map<Object, List<BufferedWrite>> openGroups = new LinkedHashMap<Object, List<BufferedWrite>>();
+        Map<Object, Integer> openGroupSizes = new LinkedHashMap<Object, Integer>();
+        for (BufferedWrite write : writes) {
+            if (write.callback != null) {
+                groups.add(Collections.singletonList(write));
+                continue;
+            }
+            int size = estimateSize(write.statement);
+            List<BufferedWrite> group = openGroups.get(write.partitionKey);
+            if (group != null && openGroupSizes.get(write.partitionKey) + size > sizeLimit) {
+                group = null;
+            }
+            if (group == null) {
+                group = new ArrayList<BufferedWrite>();
+                groups.add(group);
+                openGroups.put(write.partitionKey, group);
+                openGroupSizes.put(write.partitionKey, 0);
+            }
+            group.add(write);
+            openGroupSizes.put(write.partitionKey, openGroupSizes.get(write.partitionKey) + size);
+        }
+        return groups;
+    }
+
+    private BatchStatement createBatch(BatchStatement.Type batchType, List<BufferedWrite> group) {
+        BatchStatement batch = new BatchStatement(batchType);
+        for (BufferedWrite write : group) {
+            batch.add(write.statement);
+        }
+        Statement first = group.get(0).statement;
+        if (first.getConsistencyLevel() != null) {
+            batch.setConsistencyLevel(first.getConsistencyLevel());
+        }
+        if (first.getRetryPolicy() != null) {
+            batch.setRetryPolicy(first.getRetryPolicy());
+        }
+        return batch;
+    }
+
+    /**
+     * Estimates the size of a statement within a batch from the size of its values
+     */
+    private static int estimateSize(Statement statement) {
+        if (statement instanceof BoundStatement) {
+            BoundStatement bound = (BoundStatement) statement;
+            int size = 0;
+            int variables = bound.preparedStatement().getVariables().size();
+            for (int i = 0; i < variables; i++) {
+                ByteBuffer value = bound.getBytesUnsafe(i);
+                if (value != null) {
+                    size += value.remaining();
+                }
+            }
+            return size;
+        }
+        if (statement instanceof RegularStatement) {
+            return ((RegularStatement) statement).getQueryString().length();
+        }
+        return 0;
+    }
+
+    private static class BufferedWrite {
+        final Object partitionKey;
+        final Statement statement;
+        final WriteCallback callback;
+
+        BufferedWrite(Object partitionKey, Statement statement, WriteCallback callback) {
+            this.partitionKey = partitionKey;
+            this.statement = statement;
+            this.callback = callback;
+        }
+    }
 }
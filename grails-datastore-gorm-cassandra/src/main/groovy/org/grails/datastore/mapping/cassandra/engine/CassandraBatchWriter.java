@@ -0,0 +1,51 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.cassandra.engine;
+
+import java.util.List;
+
+import org.grails.datastore.mapping.cassandra.CassandraSession;
+import org.grails.datastore.mapping.core.impl.PendingOperation;
+import org.grails.datastore.mapping.engine.DefaultBatchWriter;
+
+/**
+ * Runs the pending operations of a chunk with the write buffer of the {@link CassandraSession} enabled, so that
+ * the statements they produce are sent to Cassandra concurrently once the whole chunk has been processed.
+ *
+ * @since 5.0
+ */
+@SuppressWarnings("rawtypes")
+public class CassandraBatchWriter extends DefaultBatchWriter {
+
+	private final CassandraSession session;
+
+	public CassandraBatchWriter(CassandraSession session) {
+		this.session = session;
+	}
+
+	@Override
+	protected void execute(List<? extends PendingOperation> operations) {
+		if (!session.startWriteBuffer()) {
+			super.execute(operations);
+			return;
+		}
+		try {
+			super.execute(operations);
+			session.flushWriteBuffer();
+		} finally {
+			session.discardWriteBuffer();
+		}
+	}
+}
@@ -14,6 +14,7 @@
  */
 package org.grails.datastore.mapping.cassandra.engine;
 
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
 import static org.springframework.data.cassandra.repository.support.BasicMapId.id;
@@ -21,6 +22,8 @@ import groovy.lang.MissingPropertyException;
 
 import java.io.Serializable;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Currency;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +35,7 @@ import java.util.TimeZone;
 import java.util.UUID;
 
 import org.grails.datastore.mapping.cassandra.CassandraSession;
+import org.grails.datastore.mapping.cassandra.CassandraSession.WriteCallback;
 import org.grails.datastore.mapping.cassandra.config.Column;
 import org.grails.datastore.mapping.cassandra.config.Table;
 import org.grails.datastore.mapping.cassandra.query.CassandraQuery;
@@ -40,6 +44,7 @@ import org.grails.datastore.mapping.core.OptimisticLockingException;
 import org.grails.datastore.mapping.core.SessionImplementor;
 import org.grails.datastore.mapping.core.impl.PendingUpdate;
 import org.grails.datastore.mapping.core.impl.PendingUpdateAdapter;
+import org.grails.datastore.mapping.core.impl.SnowflakeIdentityGenerator;
 import org.grails.datastore.mapping.engine.*;
 import org.grails.datastore.mapping.model.ClassMapping;
 import org.grails.datastore.mapping.model.MappingContext;
@@ -52,23 +57,26 @@ import org.grails.datastore.mapping.query.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cassandra.core.CqlTemplate;
-import org.springframework.cassandra.core.SessionCallback;
 import org.springframework.cassandra.core.WriteOptions;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.TypeDescriptor;
-import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.cassandra.core.CassandraTemplate;
 import org.springframework.data.cassandra.mapping.CassandraPersistentEntity;
 import org.springframework.data.cassandra.mapping.CassandraPersistentProperty;
 import org.springframework.data.mapping.PropertyHandler;
 
+import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
-import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
 import com.datastax.driver.core.querybuilder.Delete;
+import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
 import com.datastax.driver.core.querybuilder.Update;
 
 /**
@@ -82,12 +90,19 @@ public class CassandraEntityPersister extends NativeEntryEntityPersister<EntityA
 	private org.springframework.data.cassandra.mapping.CassandraPersistentEntity<?> springCassandraPersistentEntity;
 	private CassandraTemplate cassandraTemplate;
 	private ConversionService conversionService;
+	private BatchWriter batchWriter;
 
 	public CassandraEntityPersister(MappingContext context, PersistentEntity entity, CassandraSession cassandraSession, ApplicationEventPublisher applicationEventPublisher) {
 		super(context, entity, cassandraSession, applicationEventPublisher);
 		cassandraTemplate = getCassandraTemplate();
 		springCassandraPersistentEntity = cassandraTemplate.getCassandraMappingContext().getExistingPersistentEntity(entity.getJavaClass());
 		conversionService = context.getConversionService();
+		batchWriter = new CassandraBatchWriter(cassandraSession);
+	}
+
+	@Override
+	public BatchWriter getBatchWriter() {
+		return batchWriter;
 	}
 
 	protected CassandraTemplate getCassandraTemplate() {
@@ -194,21 +209,86 @@ public class CassandraEntityPersister extends NativeEntryEntityPersister<EntityA
 
 	@Override
 	protected EntityAccess retrieveEntry(PersistentEntity persistentEntity, String family, Serializable nativeKey) {
-		Map idMap = createIdMap(nativeKey, false);
-        try {
-            Object entity = cassandraTemplate.selectOneById(persistentEntity.getJavaClass(), idMap);
-            return entity == null ? null : new CassandraEntityAccess(persistentEntity, entity);
-        } catch (com.datastax.driver.core.exceptions.InvalidQueryException e) {
-            // this will happen if the identifier is invalid, return null in this case
-            return null;
-        }
-    }
+		try {
+			ResultSet resultSet = getCassandraSession().execute(bindSelect(nativeKey));
+			return createEntryFromRow(persistentEntity, readSingleRow(resultSet, nativeKey));
+		} catch (InvalidQueryException e) {
+			// this will happen if the identifier is invalid, return null in this case
+			return null;
+		} catch (InvalidTypeException e) {
+			return null;
+		}
+	}
+
+	@Override
+	protected Map<Serializable, EntityAccess> retrieveEntries(PersistentEntity persistentEntity, String family, List<Serializable> keys) {
+		List<Serializable> selectedKeys = new ArrayList<Serializable>(keys.size());
+		List<Statement> statements = new ArrayList<Statement>(keys.size());
+		for (Serializable key : keys) {
+			try {
+				statements.add(bindSelect(key));
+				selectedKeys.add(key);
+			} catch (InvalidQueryException e) {
+				// invalid identifiers are not found
+			} catch (InvalidTypeException e) {
+				// invalid identifiers are not found
+			}
+		}
+
+		Map<Serializable, EntityAccess> entries = new HashMap<Serializable, EntityAccess>();
+		List<ResultSet> resultSets = getCassandraSession().executeAsync(statements);
+		for (int i = 0; i < resultSets.size(); i++) {
+			EntityAccess entry = createEntryFromRow(persistentEntity, readSingleRow(resultSets.get(i), selectedKeys.get(i)));
+			if (entry != null) {
+				entries.put(selectedKeys.get(i), entry);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * A partial composite key may select several rows, which is treated as a duplicate key
+	 */
+	protected Row readSingleRow(ResultSet resultSet, Serializable key) {
+		Row row = resultSet.one();
+		if (row != null && !resultSet.isExhausted()) {
+			throw new DuplicateKeyException(String.format("More than one row found for key [%s] of entity [%s]", key, getPersistentEntity().getName()));
+		}
+		return row;
+	}
+
+	protected EntityAccess createEntryFromRow(PersistentEntity persistentEntity, Row row) {
+		if (row == null) {
+			return null;
+		}
+		Object entity = cassandraTemplate.getConverter().read(persistentEntity.getJavaClass(), row);
+		return new CassandraEntityAccess(persistentEntity, entity);
+	}
 
 	@Override
-	protected Object storeEntry(PersistentEntity persistentEntity, EntityAccess entityAccess, Object storeId, EntityAccess entry) {
+	protected Object storeEntry(PersistentEntity persistentEntity, final EntityAccess entityAccess, Object storeId, EntityAccess entry) {
 		Object entity = entityAccess.getEntity();
 		WriteOptions writeOptions = getWriteOptions(entity);
-		cassandraTemplate.insert(entity, writeOptions);
+		final Insert insert = QueryBuilder.insertInto(getTableName());
+		final List<Object> values = new ArrayList<Object>();
+		springCassandraPersistentEntity.doWithProperties(new PropertyHandler<CassandraPersistentProperty>() {
+			@Override
+			public void doWithPersistentProperty(CassandraPersistentProperty prop) {
+				Object value = entityAccess.getProperty(prop.getName());
+				value = convertPrimitiveToNative(value, prop, conversionService);
+				if (value != null) {
+					insert.value(prop.getColumnName().toCql(), bindMarker());
+					values.add(value);
+				}
+			}
+		});
+		// the USING clause follows the values of an INSERT
+		Integer ttl = applyWriteOptions(insert, writeOptions);
+		if (ttl != null) {
+			insert.using(QueryBuilder.ttl(bindMarker()));
+			values.add(ttl);
+		}
+		getCassandraSession().write(createRowKey(storeId), createPartitionKey(storeId), getCassandraSession().bind(insert, values), null);
 		return storeId;
 	}
 
@@ -221,12 +301,17 @@ public class CassandraEntityPersister extends NativeEntryEntityPersister<EntityA
 		Object entity = entityAccess.getEntity();
 		WriteOptions writeOptions = getWriteOptions(entity);
 		final Update update = createUpdate();
+		// bind markers are numbered in the order of the CQL: assignments, then the where clause, then the condition
+		final List<Object> assignmentValues = new ArrayList<Object>();
+		final List<Object> keyValues = new ArrayList<Object>();
+		final List<Object> conditionValues = new ArrayList<Object>();
 		final boolean versioned = isVersioned(entityAccess);
 		if (versioned) {
 			Object currentVersion = getCurrentVersion(entityAccess);
 			incrementVersion(entityAccess);
 			if (currentVersion != null) {
-				update.onlyIf(QueryBuilder.eq(GormProperties.VERSION, currentVersion));
+				update.onlyIf(QueryBuilder.eq(GormProperties.VERSION, bindMarker()));
+				conditionValues.add(currentVersion);
 			}
 		}
 		springCassandraPersistentEntity.doWithProperties(new PropertyHandler<CassandraPersistentProperty>() {
@@ -236,23 +321,32 @@ public class CassandraEntityPersister extends NativeEntryEntityPersister<EntityA
 				value = convertPrimitiveToNative(value, prop, conversionService);
 				if (value != null) {
 					if (prop.isIdProperty() || prop.isPrimaryKeyColumn()) {
-						update.where(QueryBuilder.eq(prop.getColumnName().toCql(), value));
+						update.where(QueryBuilder.eq(prop.getColumnName().toCql(), bindMarker()));
+						keyValues.add(value);
 					} else if (simpleTypesOnly == false || !(prop.isCollectionLike() || prop.isMap())) {
-						update.with(QueryBuilder.set(prop.getColumnName().toCql(), value));
+						update.with(QueryBuilder.set(prop.getColumnName().toCql(), bindMarker()));
+						assignmentValues.add(value);
 					}
 				}
 			}
 		});
-		CqlTemplate.addWriteOptions(update, writeOptions);
-		cassandraTemplate.execute(new SessionCallback<Object>() {
-			@Override
-			public Object doInSession(Session s) throws DataAccessException {
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("executing [{}]", update.toString());
-				}
-				ResultSet resultSet = s.execute(update);
+		List<Object> values = new ArrayList<Object>(assignmentValues.size() + keyValues.size() + conditionValues.size() + 1);
+		// the USING clause precedes the assignments of an UPDATE
+		Integer ttl = applyWriteOptions(update, writeOptions);
+		if (ttl != null) {
+			update.using(QueryBuilder.ttl(bindMarker()));
+			values.add(ttl);
+		}
+		values.addAll(assignmentValues);
+		values.addAll(keyValues);
+		values.addAll(conditionValues);
+		BoundStatement statement = getCassandraSession().bind(update, values);
 
-				if (versioned) {
+		WriteCallback callback = null;
+		if (versioned) {
+			callback = new WriteCallback() {
+				@Override
+				public void afterWrite(ResultSet resultSet) {
 					Row row = resultSet.one();
 					if (row != null && row.getBool("[applied]")) {
 						if (LOG.isDebugEnabled()) {
@@ -262,24 +356,21 @@ public class CassandraEntityPersister extends NativeEntryEntityPersister<EntityA
 						throw new OptimisticLockingException(persistentEntity, key);
 					}
 				}
-				return null;
-			}
-		});
+			};
+		}
+		getCassandraSession().write(createRowKey(key), createPartitionKey(key), statement, callback);
 	}
 
 	@Override
 	protected void deleteEntries(String family, List<Object> keys) {
 		for (Object key : keys) {
-			if (!(key instanceof Map)) {
-				key = id(getPersistentEntity().getIdentity().getName(), (Serializable) key);
-			}
-			cassandraTemplate.deleteById(getPersistentEntity().getJavaClass(), key);
+			getCassandraSession().write(createRowKey(key), createPartitionKey(key), bindDelete((Serializable) key), null);
 		}
 	}
 
 	@Override
 	protected void deleteEntry(String family, Object key, Object entry) {
-		cassandraTemplate.delete(entry);
+		getCassandraSession().write(createRowKey(key), createPartitionKey(key), bindDelete((Serializable) key), null);
 	}
 
 	@Override
@@ -288,6 +379,11 @@ public class CassandraEntityPersister extends NativeEntryEntityPersister<EntityA
 		if (identifier != null) {
 			return identifier;
 		}
+		if (SnowflakeIdentityGenerator.isSnowflakeIdentity(persistentEntity)) {
+			Long snowflakeId = getCassandraSession().getCassandraDatastore().getSnowflakeIdentityGenerator().nextId(persistentEntity);
+			entityAccess.setIdentifier(snowflakeId);
+			return snowflakeId;
+		}
 		UUID id = null;
 		Column idColumn = (Column) persistentEntity.getIdentity().getMapping().getMappedForm();
 		if (idColumn != null && "timeuuid".equals(idColumn.getType())) {
@@ -327,10 +423,90 @@ public class CassandraEntityPersister extends NativeEntryEntityPersister<EntityA
 		return idMap;
 	}
 
+	/**
+	 * Identifies the row of the given key, so that the session never has two writes to the same row in flight
+	 */
+	protected Object createRowKey(Object key) {
+		return Arrays.<Object>asList(getTableName(), createIdMap((Serializable) key, true));
+	}
+
+	/**
+	 * Identifies the partition of the row of the given key, writes to the same partition are batched by the session
+	 */
+	protected Object createPartitionKey(Object key) {
+		Table table = (Table) getPersistentEntity().getMapping().getMappedForm();
+		if (!table.hasCompositePrimaryKeys()) {
+			return createRowKey(key);
+		}
+		Map<String, Serializable> idMap = createIdMap((Serializable) key, false);
+		Map<String, Serializable> partitionKey = new HashMap<String, Serializable>();
+		for (Column column : table.getPrimaryKeys()) {
+			if (column.isPartitionKey()) {
+				partitionKey.put(column.getName(), idMap.get(column.getName()));
+			}
+		}
+		if (partitionKey.isEmpty()) {
+			return createRowKey(key);
+		}
+		return Arrays.<Object>asList(getTableName(), partitionKey);
+	}
+
+	protected BoundStatement bindSelect(Serializable id) {
+		Select select = QueryBuilder.select().all().from(getTableName());
+		List<Object> values = new ArrayList<Object>();
+		for (Entry<String, Serializable> entry : createIdMap(id, true).entrySet()) {
+			select.where(eq(entry.getKey(), bindMarker()));
+			values.add(entry.getValue());
+		}
+		return getCassandraSession().bind(select, values);
+	}
+
+	protected BoundStatement bindDelete(Serializable id) {
+		Delete delete = QueryBuilder.delete().all().from(getTableName());
+		List<Object> values = new ArrayList<Object>();
+		for (Entry<String, Serializable> entry : createIdMap(id, true).entrySet()) {
+			delete.where(eq(entry.getKey(), bindMarker()));
+			values.add(entry.getValue());
+		}
+		return getCassandraSession().bind(delete, values);
+	}
+
 	protected WriteOptions getWriteOptions(Object entity) {		
 		return getCassandraSession().getCassandraDatastore().getWriteOptions(entity);
 	}
 
+	/**
+	 * Applies the consistency level and retry policy of the write options to the insert. The TTL is returned
+	 * instead of being written into the CQL, so that the caller binds it and the prepared statement does not vary with it.
+	 *
+	 * @return The TTL to bind or null if there is none
+	 */
+	protected Integer applyWriteOptions(Insert insert, WriteOptions writeOptions) {
+		if (writeOptions == null) {
+			return null;
+		}
+		CqlTemplate.addWriteOptions(insert, withoutTtl(writeOptions));
+		return writeOptions.getTtl();
+	}
+
+	/**
+	 * @see #applyWriteOptions(Insert, WriteOptions)
+	 */
+	protected Integer applyWriteOptions(Update update, WriteOptions writeOptions) {
+		if (writeOptions == null) {
+			return null;
+		}
+		CqlTemplate.addWriteOptions(update, withoutTtl(writeOptions));
+		return writeOptions.getTtl();
+	}
+
+	private static WriteOptions withoutTtl(WriteOptions writeOptions) {
+		WriteOptions statementOptions = new WriteOptions();
+		statementOptions.setConsistencyLevel(writeOptions.getConsistencyLevel());
+		statementOptions.setRetryPolicy(writeOptions.getRetryPolicy());
+		return statementOptions;
+	}
+
 	protected String getTableName() {
 		return cassandraTemplate.getTableName(getPersistentEntity().getJavaClass()).toCql();
 	}
@@ -350,7 +526,7 @@ public class CassandraEntityPersister extends NativeEntryEntityPersister<EntityA
 	
 	protected void addPendingUpdate(Serializable id, Statement statement) {
 		if (id != null && statement != null) {
-			PendingUpdate<EntityAccess, Object> pendingUpdate = new CassandraPendingUpdateAdapter<EntityAccess, Object>(getPersistentEntity(), id, statement, cassandraTemplate);
+			PendingUpdate<EntityAccess, Object> pendingUpdate = new CassandraPendingUpdateAdapter<EntityAccess, Object>(getPersistentEntity(), id, statement, getCassandraSession(), createRowKey(id), createPartitionKey(id));
 			((SessionImplementor<Object>) session).addPendingUpdate(pendingUpdate);
 		}
 	}
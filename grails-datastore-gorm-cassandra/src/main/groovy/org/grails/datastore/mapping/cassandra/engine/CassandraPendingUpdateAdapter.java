@@ -15,6 +15,7 @@
 
 package org.grails.datastore.mapping.cassandra.engine;
 
+import org.grails.datastore.mapping.cassandra.CassandraSession;
 import org.grails.datastore.mapping.core.impl.PendingUpdate;
 import org.grails.datastore.mapping.core.impl.PendingUpdateAdapter;
 import org.grails.datastore.mapping.model.PersistentEntity;
@@ -34,6 +35,9 @@ public class CassandraPendingUpdateAdapter<E, K> extends PendingUpdateAdapter<E,
 	
 	private Statement statement;
 	private CassandraTemplate cassandraTemplate;
+	private CassandraSession session;
+	private Object rowKey;
+	private Object partitionKey;
 	
     public CassandraPendingUpdateAdapter(PersistentEntity entity, K nativeKey, Statement statement, CassandraTemplate cassandraTemplate) {
         super(entity, nativeKey, null, null);
@@ -41,9 +45,28 @@ public class CassandraPendingUpdateAdapter<E, K> extends PendingUpdateAdapter<E,
         this.cassandraTemplate = cassandraTemplate;
     }
 
+    /**
+     * Creates an update that is written through the session, so that it is sent concurrently with the other
+     * writes of a flush
+     *
+     * @param rowKey Identifies the row the statement writes to
+     * @param partitionKey Identifies the partition of the row
+     */
+    public CassandraPendingUpdateAdapter(PersistentEntity entity, K nativeKey, Statement statement, CassandraSession session, Object rowKey, Object partitionKey) {
+        super(entity, nativeKey, null, null);
+        this.statement = statement;
+        this.session = session;
+        this.rowKey = rowKey;
+        this.partitionKey = partitionKey;
+    }
+
     @Override
     public void run() {    	
-    	cassandraTemplate.execute(statement);
+    	if (session != null) {
+    		session.write(rowKey, partitionKey, statement, null);
+    	} else {
+    		cassandraTemplate.execute(statement);
+    	}
     }
 
 	public Statement getStatement() {
@@ -0,0 +1,144 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.cassandra.engine;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+
+/**
+ * Caches a {@link PreparedStatement} per statement shape, so that Cassandra parses the CQL of the statements
+ * built by the persisters and queries once instead of on every execution. Statements are built with
+ * {@link com.datastax.driver.core.querybuilder.QueryBuilder#bindMarker()} in place of values, so that their
+ * CQL only depends on the table and the columns they touch, and the values are bound to the cached statement.
+ * Some shapes still vary with the arguments of a query, such as the number of values of an IN restriction, so the
+ * cache holds at most a maximum number of statements and evicts the least recently used one beyond that.
+ *
+ * @since 5.0
+ */
+public class PreparedStatementCache {
+
+	public static final int DEFAULT_MAX_SIZE = 500;
+
+	private final Map<String, PreparedStatement> statements;
+
+	public PreparedStatementCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxSize The maximum number of prepared statements to hold
+	 */
+	public PreparedStatementCache(final int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("The maximum size of the prepared statement cache must be positive: " + maxSize);
+		}
+		statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Obtains the prepared statement for the CQL of the given statement, preparing it the first time
+	 *
+	 * @param session The native session
+	 * @param statement The statement built with bind markers
+	 * @return The prepared statement
+	 */
+	public PreparedStatement prepare(Session session, RegularStatement statement) {
+		final String cql = statement.getQueryString();
+		PreparedStatement prepared;
+		synchronized (statements) {
+			prepared = statements.get(cql);
+		}
+		if (prepared == null) {
+			// prepared outside the lock, a concurrent preparation of the same CQL is harmless
+			prepared = session.prepare(statement);
+			synchronized (statements) {
+				PreparedStatement existing = statements.get(cql);
+				if (existing != null) {
+					prepared = existing;
+				} else {
+					statements.put(cql, prepared);
+				}
+			}
+		}
+		return prepared;
+	}
+
+	/**
+	 * Binds values to the prepared statement for the given statement. The options of the statement, such as the
+	 * consistency level, are not part of its CQL and are copied to the bound statement.
+	 *
+	 * @param session The native session
+	 * @param statement The statement built with bind markers
+	 * @param values The values in the order of the bind markers
+	 * @return The bound statement
+	 */
+	public BoundStatement bind(Session session, RegularStatement statement, List<Object> values) {
+		Object[] boundValues = new Object[values.size()];
+		for (int i = 0; i < boundValues.length; i++) {
+			boundValues[i] = toBindValue(values.get(i));
+		}
+		BoundStatement bound = prepare(session, statement).bind(boundValues);
+		if (statement.getConsistencyLevel() != null) {
+			bound.setConsistencyLevel(statement.getConsistencyLevel());
+		}
+		if (statement.getRetryPolicy() != null) {
+			bound.setRetryPolicy(statement.getRetryPolicy());
+		}
+		if (statement.getFetchSize() > 0) {
+			bound.setFetchSize(statement.getFetchSize());
+		}
+		return bound;
+	}
+
+	public int size() {
+		synchronized (statements) {
+			return statements.size();
+		}
+	}
+
+	public void clear() {
+		synchronized (statements) {
+			statements.clear();
+		}
+	}
+
+	/**
+	 * Bound values must have the exact Java type of their column, whereas the query builder formats any value
+	 */
+	private static Object toBindValue(Object value) {
+		if (value instanceof byte[]) {
+			return ByteBuffer.wrap((byte[]) value);
+		}
+		if (value instanceof Short || value instanceof Byte) {
+			return ((Number) value).intValue();
+		}
+		if (value instanceof Character) {
+			return value.toString();
+		}
+		return value;
+	}
+}
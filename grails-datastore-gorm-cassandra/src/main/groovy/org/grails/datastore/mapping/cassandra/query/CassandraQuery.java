@@ -18,18 +18,15 @@ import org.grails.datastore.mapping.model.PersistentProperty;
 import org.grails.datastore.mapping.query.Query;
 import org.grails.datastore.mapping.query.Query.Order.Direction;
 import org.grails.datastore.mapping.query.api.QueryArgumentsAware;
-import org.springframework.cassandra.core.ResultSetExtractor;
-import org.springframework.cassandra.core.RowMapper;
 import org.springframework.core.convert.ConversionService;
-import org.springframework.dao.DataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.cassandra.core.CassandraTemplate;
 import org.springframework.data.cassandra.mapping.CassandraPersistentEntity;
 import org.springframework.data.cassandra.mapping.CassandraPersistentProperty;
 
-import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.Row;
-import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Ordering;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
@@ -57,6 +54,7 @@ public class CassandraQuery extends Query implements QueryArgumentsAware {
 	private Map arguments = new HashMap();
 	private boolean allowFiltering;
 	private int fetchSize;
+	private List<Object> boundValues = new ArrayList<Object>();
 
 	public Query allowFiltering(boolean allowFiltering) {
 		this.allowFiltering = allowFiltering;
@@ -77,7 +75,7 @@ public class CassandraQuery extends Query implements QueryArgumentsAware {
 			public void handle(CassandraQuery cassandraQuery, IdEquals criterion, Where where) {
 				CassandraPersistentProperty idProperty = cassandraQuery.cassandraPersistentEntity.getIdProperty();
 				if (idProperty != null) {
-					where.and(QueryBuilder.eq(CassandraEntityPersister.getPropertyName(idProperty), CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), idProperty, cassandraQuery.conversionService)));
+					where.and(QueryBuilder.eq(CassandraEntityPersister.getPropertyName(idProperty), cassandraQuery.bindValue(CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), idProperty, cassandraQuery.conversionService))));
 				}
 			}
 		});
@@ -85,38 +83,38 @@ public class CassandraQuery extends Query implements QueryArgumentsAware {
 		queryHandlers.put(Equals.class, new QueryHandler<Equals>() {
 			public void handle(CassandraQuery cassandraQuery, Equals criterion, Where where) {
 				CassandraPersistentProperty cassandraPersistentProperty = CassandraEntityPersister.getPersistentProperty(cassandraQuery.cassandraPersistentEntity, criterion.getProperty());
-				where.and(QueryBuilder.eq(CassandraEntityPersister.getPropertyName(cassandraPersistentProperty), CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), cassandraPersistentProperty, cassandraQuery.conversionService)));
+				where.and(QueryBuilder.eq(CassandraEntityPersister.getPropertyName(cassandraPersistentProperty), cassandraQuery.bindValue(CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), cassandraPersistentProperty, cassandraQuery.conversionService))));
 			}
 		});
 		queryHandlers.put(GreaterThan.class, new QueryHandler<GreaterThan>() {
 			public void handle(CassandraQuery cassandraQuery, GreaterThan criterion, Where where) {
 				CassandraPersistentProperty cassandraPersistentProperty = CassandraEntityPersister.getPersistentProperty(cassandraQuery.cassandraPersistentEntity, criterion.getProperty());
-				where.and(QueryBuilder.gt(CassandraEntityPersister.getPropertyName(cassandraQuery.cassandraPersistentEntity, criterion.getProperty()), CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), cassandraPersistentProperty, cassandraQuery.conversionService)));
+				where.and(QueryBuilder.gt(CassandraEntityPersister.getPropertyName(cassandraQuery.cassandraPersistentEntity, criterion.getProperty()), cassandraQuery.bindValue(CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), cassandraPersistentProperty, cassandraQuery.conversionService))));
 			}
 		});
 		queryHandlers.put(GreaterThanEquals.class, new QueryHandler<GreaterThanEquals>() {
 			public void handle(CassandraQuery cassandraQuery, GreaterThanEquals criterion, Where where) {
 				CassandraPersistentProperty cassandraPersistentProperty = CassandraEntityPersister.getPersistentProperty(cassandraQuery.cassandraPersistentEntity, criterion.getProperty());
-				where.and(QueryBuilder.gte(CassandraEntityPersister.getPropertyName(cassandraQuery.cassandraPersistentEntity, criterion.getProperty()), CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), cassandraPersistentProperty, cassandraQuery.conversionService)));
+				where.and(QueryBuilder.gte(CassandraEntityPersister.getPropertyName(cassandraQuery.cassandraPersistentEntity, criterion.getProperty()), cassandraQuery.bindValue(CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), cassandraPersistentProperty, cassandraQuery.conversionService))));
 			}
 		});
 		queryHandlers.put(LessThan.class, new QueryHandler<LessThan>() {
 			public void handle(CassandraQuery cassandraQuery, LessThan criterion, Where where) {
 				CassandraPersistentProperty cassandraPersistentProperty = CassandraEntityPersister.getPersistentProperty(cassandraQuery.cassandraPersistentEntity, criterion.getProperty());
-				where.and(QueryBuilder.lt(CassandraEntityPersister.getPropertyName(cassandraQuery.cassandraPersistentEntity, criterion.getProperty()), CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), cassandraPersistentProperty, cassandraQuery.conversionService)));
+				where.and(QueryBuilder.lt(CassandraEntityPersister.getPropertyName(cassandraQuery.cassandraPersistentEntity, criterion.getProperty()), cassandraQuery.bindValue(CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), cassandraPersistentProperty, cassandraQuery.conversionService))));
 			}
 		});
 		queryHandlers.put(LessThanEquals.class, new QueryHandler<LessThanEquals>() {
 			public void handle(CassandraQuery cassandraQuery, LessThanEquals criterion, Where where) {
 				CassandraPersistentProperty cassandraPersistentProperty = CassandraEntityPersister.getPersistentProperty(cassandraQuery.cassandraPersistentEntity, criterion.getProperty());
-				where.and(QueryBuilder.lte(CassandraEntityPersister.getPropertyName(cassandraQuery.cassandraPersistentEntity, criterion.getProperty()), CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), cassandraPersistentProperty, cassandraQuery.conversionService)));
+				where.and(QueryBuilder.lte(CassandraEntityPersister.getPropertyName(cassandraQuery.cassandraPersistentEntity, criterion.getProperty()), cassandraQuery.bindValue(CassandraEntityPersister.convertPrimitiveToNative(criterion.getValue(), cassandraPersistentProperty, cassandraQuery.conversionService))));
 			}
 		});
 		queryHandlers.put(Between.class, new QueryHandler<Between>() {
 			public void handle(CassandraQuery cassandraQuery, Between criterion, Where where) {
 				CassandraPersistentProperty cassandraPersistentProperty = CassandraEntityPersister.getPersistentProperty(cassandraQuery.cassandraPersistentEntity, criterion.getProperty());
-				where.and(QueryBuilder.gte(CassandraEntityPersister.getPropertyName(cassandraPersistentProperty), CassandraEntityPersister.convertPrimitiveToNative(criterion.getFrom(), cassandraPersistentProperty, cassandraQuery.conversionService)));
-				where.and(QueryBuilder.lte(CassandraEntityPersister.getPropertyName(cassandraPersistentProperty), CassandraEntityPersister.convertPrimitiveToNative(criterion.getTo(), cassandraPersistentProperty, cassandraQuery.conversionService)));
+				where.and(QueryBuilder.gte(CassandraEntityPersister.getPropertyName(cassandraPersistentProperty), cassandraQuery.bindValue(CassandraEntityPersister.convertPrimitiveToNative(criterion.getFrom(), cassandraPersistentProperty, cassandraQuery.conversionService))));
+				where.and(QueryBuilder.lte(CassandraEntityPersister.getPropertyName(cassandraPersistentProperty), cassandraQuery.bindValue(CassandraEntityPersister.convertPrimitiveToNative(criterion.getTo(), cassandraPersistentProperty, cassandraQuery.conversionService))));
 			}
 		});
 		queryHandlers.put(In.class, new QueryHandler<In>() {
@@ -125,7 +123,7 @@ public class CassandraQuery extends Query implements QueryArgumentsAware {
 				List<Object> values = new ArrayList<Object>(criterion.getValues().size());
 				for (Object value : criterion.getValues()) {
 					value = CassandraEntityPersister.convertPrimitiveToNative(value, cassandraPersistentProperty, cassandraQuery.conversionService);
-					values.add(value);
+					values.add(cassandraQuery.bindValue(value));
 				}
 				where.and(QueryBuilder.in(CassandraEntityPersister.getPropertyName(cassandraPersistentProperty), values.toArray()));
 			}
@@ -150,12 +148,21 @@ public class CassandraQuery extends Query implements QueryArgumentsAware {
 		this.arguments = arguments;
 	}
 
+	@Override
+	protected boolean addQueryCacheKeyArguments(List<Object> key) {
+		key.add(createCacheKeyValue(arguments));
+		key.add(allowFiltering);
+		key.add(fetchSize);
+		return true;
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	protected List executeQuery(final PersistentEntity entity, Junction criteria) {
 		// TODO: validate criteria values not map or array, or rethrow driver
 		// exception with more information
 		List<Object> results = new ArrayList<Object>();
+		boundValues.clear();
 		if (criteria instanceof Disjunction) {
 			throw new UnsupportedOperationException("Queries of type Disjunction (OR) are not supported by this implementation");
 		} else if (criteria instanceof Conjunction) {
@@ -196,7 +203,8 @@ public class CassandraQuery extends Query implements QueryArgumentsAware {
 			}
 
 			if (max > 0) {
-				select.limit(max);
+				select.limit(QueryBuilder.bindMarker());
+				boundValues.add(max);
 			}
 
 			if (offset > 0) {
@@ -218,30 +226,28 @@ public class CassandraQuery extends Query implements QueryArgumentsAware {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("Built Cassandra query to execute: " + select.toString());
 			}
+			final BoundStatement statement = cassandraSession.bind(select, boundValues);
 			if (projectionList.isEmpty()) {
-				//results = cassandraTemplate.select(select, entity.getJavaClass());
-				results = cassandraTemplate.query(select, new RowMapper() {
-					public Object mapRow(Row row, int rowNum) throws DriverException {
-						Object object = cassandraTemplate.getConverter().read(entity.getJavaClass(), row);
-						return convertObject(object);
-					}
-				});
+				for (Row row : cassandraSession.execute(statement)) {
+					Object object = cassandraTemplate.getConverter().read(entity.getJavaClass(), row);
+					results.add(convertObject(object));
+				}
 			} else {
 				for (Projection projection : projectionList) {
 					if (projection instanceof CountProjection) {
-						long count = getCountResult(select);
+						long count = getCountResult(statement);
 						results.add(count);
 					} else if (projection instanceof IdProjection) {
 						PersistentProperty persistentProperty = entity.getIdentity();
 						if (persistentProperty != null) {
 							Class type = persistentProperty.getType();
-							results = cassandraTemplate.queryForList(select, type);
+							results = getFirstColumnResults(statement, type);
 						}
 					} else if (projection instanceof PropertyProjection) {
 						PropertyProjection propertyProjection = (PropertyProjection) projection;
 						CassandraPersistentProperty persistentProperty = CassandraEntityPersister.getPersistentProperty(cassandraPersistentEntity, propertyProjection.getPropertyName());
 						Class type = persistentProperty.getActualType();
-						results = cassandraTemplate.queryForList(select, type);
+						results = getFirstColumnResults(statement, type);
 					} else {
 						throwUnsupportedOperationException(projection.getClass().getSimpleName());
 					}
@@ -335,19 +341,36 @@ public class CassandraQuery extends Query implements QueryArgumentsAware {
 		}
 	}
 
-	private long getCountResult(Select select) {
-		return cassandraTemplate.query(select, new ResultSetExtractor<Long>() {
-			@Override
-			public Long extractData(ResultSet rs) throws DriverException, DataAccessException {
-
-				Row row = rs.one();
-				if (row == null) {
-					throw new InvalidDataAccessApiUsageException(String.format("count query did not return any results"));
-				}
+	private long getCountResult(Statement statement) {
+		Row row = cassandraSession.execute(statement).one();
+		if (row == null) {
+			throw new InvalidDataAccessApiUsageException(String.format("count query did not return any results"));
+		}
+		return row.getLong(0);
+	}
 
-				return row.getLong(0);
+	private List<Object> getFirstColumnResults(Statement statement, Class<?> type) {
+		List<Object> results = new ArrayList<Object>();
+		for (Row row : cassandraSession.execute(statement)) {
+			Object value = row.getColumnDefinitions().getType(0).deserialize(row.getBytesUnsafe(0));
+			if (value != null && !type.isInstance(value) && conversionService.canConvert(value.getClass(), type)) {
+				value = conversionService.convert(value, type);
 			}
-		});
+			results.add(value);
+		}
+		return results;
+	}
+
+	/**
+	 * Records a value of the query, which is bound to the prepared statement for the query instead of being part
+	 * of its CQL
+	 *
+	 * @param value The value
+	 * @return The bind marker to put in place of the value
+	 */
+	protected Object bindValue(Object value) {
+		boundValues.add(value);
+		return QueryBuilder.bindMarker();
 	}
 
 	private String getKeyspace(ClassMapping<Family> cm, String defaultValue) {
@@ -10,6 +10,7 @@ import org.springframework.data.cassandra.config.SchemaAction
 
 import spock.lang.Specification
 
+import com.datastax.driver.core.BatchStatement
 import com.datastax.driver.core.Cluster
 import com.datastax.driver.core.Session
 
@@ -285,4 +286,38 @@ class CassandraDatastoreSpec extends Specification {
 			def e = thrown(IllegalArgumentException)
 			e.message.startsWith("Invalid option [recreate-invalid-unused] for property [dbCreate], allowable values are")
 	}
-}
\ No newline at end of file
+
+	void "Test flush batch options"() {
+		when:
+			CassandraDatastore cassandraDatastore = new CassandraDatastore(new CassandraMappingContext("new"), config, null)
+		then:
+			cassandraDatastore.flushBatchType == BatchStatement.Type.UNLOGGED
+			cassandraDatastore.flushBatchSizeLimit == 5 * 1024
+			cassandraDatastore.maxInFlightRequests == CassandraDatastore.DEFAULT_MAX_IN_FLIGHT_REQUESTS
+
+		when:
+			config = new ConfigSlurper().parse('''
+				grails.cassandra.flushBatchType="logged"
+				grails.cassandra.flushBatchSizeLimitInKb=50
+				grails.cassandra.maxInFlightRequests=16
+			''')?.grails.cassandra
+			cassandraDatastore = new CassandraDatastore(new CassandraMappingContext("new"), config, null)
+		then:
+			cassandraDatastore.flushBatchType == BatchStatement.Type.LOGGED
+			cassandraDatastore.flushBatchSizeLimit == 50 * 1024
+			cassandraDatastore.maxInFlightRequests == 16
+
+		when:
+			config = new ConfigSlurper().parse('''grails.cassandra.flushBatchType="none"''')?.grails.cassandra
+			cassandraDatastore = new CassandraDatastore(new CassandraMappingContext("new"), config, null)
+		then:
+			cassandraDatastore.flushBatchType == null
+
+		when:
+			config = new ConfigSlurper().parse('''grails.cassandra.flushBatchType="counter"''')?.grails.cassandra
+			new CassandraDatastore(new CassandraMappingContext("new"), config, null)
+		then:
+			def e = thrown(IllegalArgumentException)
+			e.message.startsWith("Invalid option [counter] for property [flushBatchType], allowable values are")
+	}
+}
@@ -0,0 +1,140 @@
+package org.grails.datastore.mapping.cassandra
+
+import org.grails.datastore.mapping.cassandra.CassandraSession.WriteCallback
+import org.grails.datastore.mapping.cassandra.config.CassandraMappingContext
+
+import spock.lang.Specification
+
+import com.datastax.driver.core.BatchStatement
+import com.datastax.driver.core.ResultSet
+import com.datastax.driver.core.Session
+import com.datastax.driver.core.SimpleStatement
+import com.datastax.driver.core.Statement
+
+/**
+ * Tests how a flush groups the buffered writes of a session in batches
+ */
+class CassandraSessionSpec extends Specification {
+
+	List<Statement> executed = []
+
+	private CassandraSession createSession(String configText = '') {
+		ConfigObject config = new ConfigSlurper().parse(configText).grails.cassandra
+		CassandraDatastore datastore = new CassandraDatastore(new CassandraMappingContext("new"), config, null)
+		new CassandraSession(datastore, datastore.mappingContext, Mock(Session), null, false, null) {
+			@Override
+			List<ResultSet> executeAsync(List<? extends Statement> statements) {
+				executed.addAll(statements)
+				statements.collect { null }
+			}
+		}
+	}
+
+	private static Statement insert(int partition, int row, int valueSize = 10) {
+		new SimpleStatement("INSERT INTO test (p, r, v) VALUES ($partition, $row, '${'x' * valueSize}')")
+	}
+
+	void "Test writes to the same partition are sent as one batch"() {
+		given:
+			CassandraSession session = createSession()
+			def first = insert(1, 1)
+			def second = insert(1, 2)
+			def other = insert(2, 1)
+
+		when:
+			session.startWriteBuffer()
+			session.write([1, 1], 1, first, null)
+			session.write([2, 1], 2, other, null)
+			session.write([1, 2], 1, second, null)
+			session.flushWriteBuffer()
+
+		then:
+			executed.size() == 2
+			executed[0] instanceof BatchStatement
+			executed[0].batchType == BatchStatement.Type.UNLOGGED
+			executed[0].statements as List == [first, second]
+			executed[1].is(other)
+	}
+
+	void "Test writes are not batched when the flush batch type is none"() {
+		given:
+			CassandraSession session = createSession('grails.cassandra.flushBatchType="none"')
+
+		when:
+			session.startWriteBuffer()
+			session.write([1, 1], 1, insert(1, 1), null)
+			session.write([1, 2], 1, insert(1, 2), null)
+			session.flushWriteBuffer()
+
+		then:
+			executed.size() == 2
+			!executed.any { it instanceof BatchStatement }
+	}
+
+	void "Test the batch size limit splits the writes to a partition"() {
+		given: "writes of about 600 bytes and a limit of 1 KB"
+			CassandraSession session = createSession('grails.cassandra.flushBatchSizeLimitInKb=1')
+
+		when:
+			session.startWriteBuffer()
+			(1..3).each { session.write([1, it], 1, insert(1, it, 550), null) }
+			session.flushWriteBuffer()
+
+		then: "each batch stays below the limit"
+			executed.size() == 3
+			!executed.any { it instanceof BatchStatement }
+
+		when: "the writes are small enough for two of them to fit in the limit"
+			executed.clear()
+			session.startWriteBuffer()
+			(1..3).each { session.write([1, it], 1, insert(1, it, 350), null) }
+			session.flushWriteBuffer()
+
+		then:
+			executed.size() == 2
+			executed[0] instanceof BatchStatement
+			executed[0].statements.size() == 2
+			!(executed[1] instanceof BatchStatement)
+	}
+
+	void "Test writes with a callback are never batched"() {
+		given:
+			CassandraSession session = createSession()
+			def versioned = insert(1, 2)
+			List<Statement> called = []
+			WriteCallback callback = { ResultSet resultSet -> called << versioned } as WriteCallback
+
+		when:
+			session.startWriteBuffer()
+			session.write([1, 1], 1, insert(1, 1), null)
+			session.write([1, 2], 1, versioned, callback)
+			session.write([1, 3], 1, insert(1, 3), null)
+			session.flushWriteBuffer()
+
+		then: "the versioned write is sent on its own and receives its own result"
+			executed.size() == 2
+			executed[0] instanceof BatchStatement
+			executed[0].statements.size() == 2
+			executed[1].is(versioned)
+			called == [versioned]
+	}
+
+	void "Test a second write to a buffered row flushes the buffer first"() {
+		given:
+			CassandraSession session = createSession()
+
+		when:
+			session.startWriteBuffer()
+			session.write([1, 1], 1, insert(1, 1), null)
+			session.write([1, 1], 1, insert(1, 1), null)
+
+		then:
+			executed.size() == 1
+
+		when:
+			session.flushWriteBuffer()
+
+		then:
+			executed.size() == 2
+	}
+}
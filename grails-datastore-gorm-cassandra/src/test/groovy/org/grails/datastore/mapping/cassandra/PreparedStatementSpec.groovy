@@ -0,0 +1,101 @@
+package org.grails.datastore.mapping.cassandra
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.gorm.tests.TestEntity
+
+import org.grails.datastore.mapping.cassandra.engine.PreparedStatementCache
+
+import com.datastax.driver.core.querybuilder.QueryBuilder
+
+/**
+ * Tests that statements are prepared once per shape and that flushes and getAll run through them
+ */
+class PreparedStatementSpec extends GormDatastoreSpec {
+
+    void "Test statements are prepared once and reused"() {
+        given:
+            def cache = session.datastore.preparedStatementCache
+
+        when: "several entities are inserted, read and updated"
+            def entities = (1..20).collect { new TestEntity(name: "Bob $it", age: it) }
+            entities.each { session.persist(it) }
+            session.flush()
+            session.clear()
+            def found = session.retrieveAll(TestEntity, entities*.id)
+            found.each { it.age = it.age + 1 }
+            found.each { session.persist(it) }
+            session.flush()
+            session.clear()
+            int prepared = cache.size()
+
+        and: "the same operations are repeated"
+            def others = (1..20).collect { new TestEntity(name: "Fred $it", age: it) }
+            others.each { session.persist(it) }
+            session.flush()
+            session.clear()
+            found = session.retrieveAll(TestEntity, others*.id)
+            found.each { it.age = it.age + 1 }
+            found.each { session.persist(it) }
+            session.flush()
+            session.clear()
+
+        then: "no new statement is prepared and the writes are visible"
+            cache.size() == prepared
+            session.retrieveAll(TestEntity, entities*.id)*.age == (2..21).toList()
+            session.retrieveAll(TestEntity, others*.id)*.age == (2..21).toList()
+    }
+
+    void "Test getAll returns null for missing keys"() {
+        given:
+            def te = new TestEntity(name: "Bob", age: 45)
+            session.persist(te)
+            session.flush()
+            session.clear()
+
+        when:
+            def found = session.retrieveAll(TestEntity, [te.id, UUID.randomUUID()])
+
+        then:
+            found.size() == 2
+            found[0].name == "Bob"
+            found[1] == null
+    }
+
+    void "Test the query limit and the TTL are bound rather than written into the statement"() {
+        given:
+            def cache = session.datastore.preparedStatementCache
+            (1..5).each { session.persist(new TestEntity(name: "Bob", age: it)) }
+            session.flush()
+            session.clear()
+            TestEntity.list(max: 1)
+            new TestEntity(name: "Fred", age: 1).save(flush: true, writeOptions: [ttl: 100])
+            int prepared = cache.size()
+
+        when:
+            def results = TestEntity.list(max: 3)
+            new TestEntity(name: "Fred", age: 2).save(flush: true, writeOptions: [ttl: 200])
+
+        then:
+            results.size() == 3
+            cache.size() == prepared
+    }
+
+    void "Test the least recently used statement is evicted beyond the maximum size"() {
+        given:
+            def nativeSession = session.datastore.nativeSession
+            def cache = new PreparedStatementCache(2)
+            def byName = QueryBuilder.select().all().from("testentity").where(QueryBuilder.eq("name", QueryBuilder.bindMarker())).allowFiltering()
+            def byAge = QueryBuilder.select().all().from("testentity").where(QueryBuilder.eq("age", QueryBuilder.bindMarker())).allowFiltering()
+            def all = QueryBuilder.select().all().from("testentity")
+
+        when:
+            def first = cache.prepare(nativeSession, byName)
+            cache.prepare(nativeSession, byAge)
+            cache.prepare(nativeSession, byName)
+            cache.prepare(nativeSession, all)
+
+        then: "the statement used last is kept"
+            cache.size() == 2
+            cache.prepare(nativeSession, byName).is(first)
+    }
+}
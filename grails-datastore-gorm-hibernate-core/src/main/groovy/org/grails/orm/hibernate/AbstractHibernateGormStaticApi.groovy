@@ -2,6 +2,7 @@ package org.grails.orm.hibernate
 
 import grails.core.support.proxy.ProxyHandler
 import grails.util.GrailsClassUtils
+import groovy.transform.CompileDynamic
 import groovy.transform.CompileStatic
 import org.grails.orm.hibernate.cfg.AbstractGrailsDomainBinder
 import org.grails.orm.hibernate.cfg.CompositeIdentity
@@ -13,17 +14,31 @@ import org.grails.datastore.gorm.GormStaticApi
 import org.grails.datastore.gorm.finders.DynamicFinder
 import org.grails.datastore.gorm.finders.FinderMethod
 import org.grails.datastore.mapping.core.Datastore
+import org.hibernate.Cache
 import org.hibernate.Criteria
 import org.hibernate.FlushMode
 import org.hibernate.Query
+import org.hibernate.LockOptions
 import org.hibernate.Session
+import org.hibernate.SessionFactory
 import org.hibernate.criterion.Example
 import org.hibernate.criterion.Projections
 import org.hibernate.criterion.Restrictions
 import org.hibernate.transform.DistinctRootEntityResultTransformer
 import org.springframework.core.convert.ConversionService
 import org.springframework.transaction.PlatformTransactionManager
-
+import org.springframework.transaction.support.TransactionSynchronizationManager
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Future
+import java.util.concurrent.SynchronousQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.regex.Pattern
 
 /**
@@ -40,6 +55,17 @@ abstract class AbstractHibernateGormStaticApi<D> extends GormStaticApi<D> {
     protected IHibernateTemplate hibernateTemplate
     protected ConversionService conversionService
 
+    /** The number of identifiers per query of getAll, which is within the IN restriction limit of every common database */
+    static final int DEFAULT_IN_EXPRESSION_LIMIT = 1000
+    static final String ARGUMENT_CHUNK_SIZE = 'chunkSize'
+    static final String ARGUMENT_PARALLEL = 'parallel'
+
+    /**
+     * Runs the sessions of getAll with the parallel argument for all domain classes. Its threads are daemons, and
+     * when they are all busy the caller loads the chunks itself
+     */
+    private static final ExecutorService PARALLEL_LOAD_EXECUTOR = createParallelLoadExecutor()
+
     AbstractHibernateGormStaticApi(Class<D> persistentClass, Datastore datastore, List<FinderMethod> finders, IHibernateTemplate hibernateTemplate) {
         this(persistentClass, datastore, finders, null, hibernateTemplate)
     }
@@ -351,41 +377,210 @@ abstract class AbstractHibernateGormStaticApi<D> extends GormStaticApi<D> {
 
 
     List<D> getAll(List ids) {
-        getAllInternal(ids)
+        getAllInternal(Collections.emptyMap(), ids)
     }
 
     List<D> getAll(Long... ids) {
-        getAllInternal(ids as List)
+        getAllInternal(Collections.emptyMap(), ids as List)
     }
 
     @Override
     List<D> getAll(Serializable... ids) {
-        getAllInternal(ids as List)
+        getAllInternal(Collections.emptyMap(), ids as List)
     }
 
-    private List getAllInternal(List ids) {
+    /**
+     * Retrieves the instances for the given identifiers in the order of the identifiers, with null in place of the
+     * identifiers that don't exist. Supports the following arguments:
+     *
+     * <ul>
+     *     <li>chunkSize - The maximum number of identifiers per query, which is capped by the limit of the dialect</li>
+     *     <li>parallel - The number of new read-only sessions that load the chunks concurrently. The instances they
+     *     load are then attached to the current session, along with their lazy collections. Their uninitialized lazy
+     *     single-ended associations still belong to the closed sessions and can't be initialized. The new sessions
+     *     can't see the changes the current session has not committed, so the chunks are loaded by the current session
+     *     instead when it has pending changes or is within a transaction that is not read-only.</li>
+     * </ul>
+     *
+     * @param args The arguments
+     * @param ids The identifiers
+     * @return The instances
+     */
+    List<D> getAll(Map args, List ids) {
+        getAllInternal(args, ids)
+    }
+
+    private List getAllInternal(Map args, List ids) {
         if (!ids) return []
 
         (List)hibernateTemplate.execute { Session session ->
             def identityType = persistentEntity.identity.type
-            ids = ids.collect { HibernateRuntimeUtils.convertValueToType((Serializable)it, identityType, conversionService) }
-            def criteria = session.createCriteria(persistentClass)
-            hibernateTemplate.applySettings(criteria)
-            def identityName = persistentEntity.identity.name
-            criteria.add(Restrictions.'in'(identityName, ids))
-            def results = criteria.list()
-            def idsMap = [:]
-            for (object in results) {
-                idsMap[object[identityName]] = object
-            }
-            results.clear()
+            List<Serializable> convertedIds = new ArrayList<Serializable>(ids.size())
             for (id in ids) {
-                results << idsMap[id]
+                convertedIds << (Serializable)HibernateRuntimeUtils.convertValueToType((Serializable)id, identityType, conversionService)
+            }
+
+            // instances already in the session or the second-level cache are resolved without a query
+            Map<Serializable, Object> loaded = new HashMap<Serializable, Object>((int) (convertedIds.size() / 0.75f) + 1)
+            List<Serializable> remaining = new ArrayList<Serializable>()
+            Cache cache = session.sessionFactory.cache
+            for (id in convertedIds) {
+                if (id == null || loaded.containsKey(id)) continue
+
+                if (isInSession(session, id) || (cache != null && cache.containsEntity(persistentClass, id))) {
+                    loaded.put(id, proxyHandler.unwrapIfProxy(session.get(persistentClass, id)))
+                }
+                else {
+                    loaded.put(id, null)
+                    remaining << id
+                }
+            }
+
+            int chunkSize = getInExpressionLimit(session)
+            Integer requestedChunkSize = intValue(args, ARGUMENT_CHUNK_SIZE)
+            if (requestedChunkSize != null && requestedChunkSize > 0) {
+                chunkSize = Math.min(chunkSize, requestedChunkSize)
+            }
+            List<List<Serializable>> chunks = remaining.collate(chunkSize)
+
+            Integer parallel = intValue(args, ARGUMENT_PARALLEL)
+            if (parallel != null && parallel > 1 && chunks.size() > 1 && canLoadInParallel(session)) {
+                Map<Serializable, Object> loadedInParallel = loadChunksInParallel(chunks, Math.min(parallel, chunks.size()))
+                for (object in loadedInParallel.values()) {
+                    // attach the instances loaded by the other sessions, unchanged, like those loaded by this one
+                    session.buildLockRequest(LockOptions.NONE).lock(object)
+                }
+                loaded.putAll(loadedInParallel)
+            }
+            else {
+                for (chunk in chunks) {
+                    loaded.putAll(loadChunk(session, chunk))
+                }
+            }
+
+            List results = new ArrayList(convertedIds.size())
+            for (id in convertedIds) {
+                results << (id == null ? null : loaded.get(id))
             }
             results
         }
     }
 
+    /**
+     * Loads the instances for the given identifiers with a single query
+     *
+     * @return The instances by identifier
+     */
+    protected Map<Serializable, Object> loadChunk(Session session, List<Serializable> ids) {
+        Criteria criteria = session.createCriteria(persistentClass)
+        hibernateTemplate.applySettings(criteria)
+        criteria.add(Restrictions.'in'(persistentEntity.identity.name, ids))
+        List results = criteria.list()
+        Map<Serializable, Object> instances = new HashMap<Serializable, Object>((int) (results.size() / 0.75f) + 1)
+        for (object in results) {
+            instances.put(session.getIdentifier(object), object)
+        }
+        instances
+    }
+
+    /**
+     * Whether other sessions see the same rows as the given session, which is not the case once it has changes
+     * that are not committed
+     */
+    protected boolean canLoadInParallel(Session session) {
+        if (session.isDirty()) {
+            return false
+        }
+        !TransactionSynchronizationManager.isActualTransactionActive() || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+    }
+
+    /**
+     * Loads the chunks of identifiers concurrently in the given number of new read-only sessions, each of which
+     * loads chunks until none is left
+     */
+    protected Map<Serializable, Object> loadChunksInParallel(List<List<Serializable>> chunks, int sessions) {
+        final Queue<List<Serializable>> pending = new ConcurrentLinkedQueue<List<Serializable>>(chunks)
+        List<Future<Map<Serializable, Object>>> futures = []
+        try {
+            for (int i = 0; i < sessions; i++) {
+                futures << PARALLEL_LOAD_EXECUTOR.submit(new Callable<Map<Serializable, Object>>() {
+                    Map<Serializable, Object> call() throws Exception {
+                        Map<Serializable, Object> instances = [:]
+                        Session readOnlySession = openSession()
+                        try {
+                            readOnlySession.defaultReadOnly = true
+                            readOnlySession.flushMode = FlushMode.MANUAL
+                            List<Serializable> ids
+                            while ((ids = pending.poll()) != null) {
+                                instances.putAll(loadChunk(readOnlySession, ids))
+                            }
+                            return instances
+                        }
+                        finally {
+                            readOnlySession.close()
+                        }
+                    }
+                })
+            }
+
+            Map<Serializable, Object> loaded = [:]
+            for (future in futures) {
+                try {
+                    loaded.putAll(future.get())
+                } catch (ExecutionException e) {
+                    if (e.cause instanceof RuntimeException) {
+                        throw (RuntimeException)e.cause
+                    }
+                    throw new GrailsQueryException("Error loading instances of ${persistentClass.name}: ${e.cause.message}", e.cause)
+                }
+            }
+            return loaded
+        }
+        finally {
+            // stop the other sessions once one of them has failed
+            pending.clear()
+            for (future in futures) {
+                future.cancel(true)
+            }
+        }
+    }
+
+    private static ExecutorService createParallelLoadExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger()
+        ThreadFactory threadFactory = new ThreadFactory() {
+            Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "gorm-hibernate-getAll-" + threadNumber.incrementAndGet())
+                thread.daemon = true
+                thread
+            }
+        }
+        int maxThreads = Math.max(2, Runtime.runtime.availableProcessors())
+        new ThreadPoolExecutor(0, maxThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy())
+    }
+
+    /**
+     * Opens a new session. The return type of {@link SessionFactory#openSession()} differs between Hibernate versions
+     */
+    @CompileDynamic
+    protected Session openSession() {
+        (Session)hibernateTemplate.sessionFactory.openSession()
+    }
+
+    /**
+     * Whether the instance with the given identifier is associated with the given session, so that it can be
+     * retrieved without a query. Implemented by the version specific subclasses
+     */
+    protected boolean isInSession(Session session, Serializable id) {
+        false
+    }
+
+    /**
+     * @return The maximum number of identifiers the dialect supports in an IN restriction
+     */
+    protected int getInExpressionLimit(Session session) {
+        DEFAULT_IN_EXPRESSION_LIMIT
+    }
+
     protected Map filterQueryArgumentMap(Map query) {
         def queryArgs = [:]
         for (entry in query.entrySet()) {
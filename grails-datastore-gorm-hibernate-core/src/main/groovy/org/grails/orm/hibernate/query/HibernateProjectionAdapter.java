@@ -61,6 +61,12 @@ public class HibernateProjectionAdapter {
                 return Projections.property(avg.getPropertyName());
             }
         });
+        adapterMap.put(Query.GroupPropertyProjection.class, new ProjectionAdapter() {
+            public Projection toHibernateProjection(Query.Projection gormProjection) {
+                Query.GroupPropertyProjection gp = (Query.GroupPropertyProjection) gormProjection;
+                return Projections.groupProperty(gp.getPropertyName());
+            }
+        });
         adapterMap.put(Query.CountDistinctProjection.class, new ProjectionAdapter() {
             public Projection toHibernateProjection(Query.Projection gormProjection) {
                 Query.CountDistinctProjection cd = (Query.CountDistinctProjection) gormProjection;
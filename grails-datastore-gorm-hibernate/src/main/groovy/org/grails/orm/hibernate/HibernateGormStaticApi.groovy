@@ -27,9 +27,13 @@ import org.grails.datastore.gorm.finders.DynamicFinder
 import org.grails.datastore.gorm.finders.FinderMethod
 import org.grails.datastore.mapping.query.api.BuildableCriteria as GrailsCriteria
 import org.hibernate.Criteria
+import org.hibernate.EntityMode
 import org.hibernate.LockMode
 import org.hibernate.Session
 import org.hibernate.SessionFactory
+import org.hibernate.engine.EntityKey
+import org.hibernate.engine.SessionImplementor
+import org.hibernate.persister.entity.EntityPersister
 import org.springframework.core.convert.ConversionService
 import org.springframework.orm.hibernate3.HibernateCallback
 import org.springframework.orm.hibernate3.HibernateTemplate
@@ -121,6 +125,16 @@ class HibernateGormStaticApi<D> extends AbstractHibernateGormStaticApi<D> {
         (D)hibernateTemplate.get((Class)persistentClass, id, LockMode.UPGRADE)
     }
 
+    @Override
+    protected boolean isInSession(Session session, Serializable id) {
+        if (!(session instanceof SessionImplementor)) {
+            return false
+        }
+        SessionImplementor sessionImplementor = (SessionImplementor)session
+        EntityPersister persister = sessionImplementor.factory.getEntityPersister(persistentClass.name)
+        sessionImplementor.persistenceContext.getEntity(new EntityKey(id, persister, EntityMode.POJO)) != null
+    }
+
     @Override
     Object withSession(Closure callable) {
         GrailsHibernateTemplate template = new GrailsHibernateTemplate(sessionFactory, grailsApplication, defaultFlushMode)
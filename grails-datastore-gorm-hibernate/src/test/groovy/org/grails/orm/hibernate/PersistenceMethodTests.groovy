@@ -6,6 +6,7 @@ import grails.persistence.Entity
 import org.grails.orm.hibernate.exceptions.GrailsQueryException
 import org.codehaus.groovy.runtime.metaclass.MethodSelectionException
 import org.grails.core.artefact.DomainClassArtefactHandler
+import org.hibernate.Session
 import org.springframework.validation.Errors
 
 import static junit.framework.Assert.*
@@ -466,6 +467,94 @@ class PersistenceMethodTests extends AbstractGrailsHibernateTests {
         assertNull returnList[2]
     }
 
+    @Test
+    void testGetAllInChunksPersistentMethod() {
+        def domainClass = ga.getDomainClass(PersistentMethodTests.name).clazz
+
+        def ids = (1..5).collect { i ->
+            def obj = domainClass.newInstance()
+            obj.setProperty("firstName", "fred $i")
+            obj.setProperty("lastName", "flintstone")
+            obj.invokeMethod("save", [flush: true] as Object[])
+            obj.id
+        }
+        session.clear()
+        def inSession = domainClass.get(ids[2])
+
+        def returnList = domainClass.getAll([chunkSize: 2], [ids[4], ids[2], 999L, ids[0], ids[3], ids[1], ids[4]])
+
+        assertEquals 7, returnList.size()
+        assertEquals([ids[4], ids[2], null, ids[0], ids[3], ids[1], ids[4]], returnList.collect { it?.id })
+        assertSame inSession, returnList[1]
+        assertSame returnList[0], returnList[6]
+    }
+
+    @Test
+    void testGetAllInParallelSeesUncommittedChanges() {
+        def domainClass = ga.getDomainClass(PersistentMethodTests.name).clazz
+
+        def ids = (1..5).collect { i ->
+            def obj = domainClass.newInstance()
+            obj.setProperty("firstName", "fred $i")
+            obj.setProperty("lastName", "flintstone")
+            obj.invokeMethod("save", [flush: true] as Object[])
+            obj.id
+        }
+        session.clear()
+
+        // the rows are not committed, so they are loaded by the current session rather than by new ones
+        def returnList = domainClass.getAll([chunkSize: 2, parallel: 2], ids)
+
+        assertEquals ids, returnList.collect { it?.id }
+        assertTrue returnList.every { session.contains(it) }
+    }
+
+    @Test
+    void testGetAllInParallelLoadsCommittedRows() {
+        def domainClass = ga.getDomainClass(PersistentMethodTests.name).clazz
+
+        def ids = (1..5).collect { i ->
+            def obj = domainClass.newInstance()
+            obj.setProperty("firstName", "fred $i")
+            obj.setProperty("lastName", "flintstone")
+            obj.invokeMethod("save", [flush: true] as Object[])
+            obj.id
+        }
+        session.clear()
+        transactionManager.commit(transactionStatus)
+        setupClass.transactionStatus = null
+
+        def threads = Collections.synchronizedSet(new HashSet<String>())
+        def failingIds = []
+        def staticApi = new HibernateGormStaticApi(domainClass, hibernateDatastore, [], ga.classLoader, transactionManager) {
+            @Override
+            protected Map<Serializable, Object> loadChunk(Session session, List<Serializable> chunk) {
+                threads << Thread.currentThread().name
+                if (chunk.any { it in failingIds }) {
+                    throw new IllegalStateException("chunk failed")
+                }
+                super.loadChunk(session, chunk)
+            }
+        }
+
+        domainClass.withNewSession { s ->
+            def requested = [ids[4], ids[2], ids[0], ids[3], ids[1]]
+            def returnList = staticApi.getAll([chunkSize: 2, parallel: 2], requested)
+
+            // the rows are committed, so the chunks are loaded by new sessions and attached to this one
+            assertEquals requested, returnList.collect { it?.id }
+            assertTrue returnList.every { s.contains(it) }
+            assertTrue threads.any { it.startsWith("gorm-hibernate-getAll-") }
+
+            s.clear()
+            failingIds << ids[3]
+            def message = shouldFail(IllegalStateException) {
+                staticApi.getAll([chunkSize: 2, parallel: 2], requested)
+            }
+            assertEquals "chunk failed", message
+        }
+    }
+
     @Test
     void testDiscardMethod() {
         def domainClass = ga.getDomainClass(PersistentMethodTests.name).clazz
@@ -31,6 +31,9 @@ import org.hibernate.Criteria
 import org.hibernate.LockMode
 import org.hibernate.Session
 import org.hibernate.SessionFactory
+import org.hibernate.engine.spi.SessionFactoryImplementor
+import org.hibernate.engine.spi.SessionImplementor
+import org.hibernate.persister.entity.EntityPersister
 import org.springframework.core.convert.ConversionService
 import org.springframework.orm.hibernate4.SessionFactoryUtils
 import org.springframework.orm.hibernate4.SessionHolder
@@ -119,6 +122,22 @@ class HibernateGormStaticApi<D> extends AbstractHibernateGormStaticApi<D> {
         (D)hibernateTemplate.lock((Class)persistentClass, convertIdentifier(id), LockMode.PESSIMISTIC_WRITE)
     }
 
+    @Override
+    protected boolean isInSession(Session session, Serializable id) {
+        if (!(session instanceof SessionImplementor)) {
+            return false
+        }
+        SessionImplementor sessionImplementor = (SessionImplementor)session
+        EntityPersister persister = sessionImplementor.factory.getEntityPersister(persistentClass.name)
+        sessionImplementor.persistenceContext.getEntity(sessionImplementor.generateEntityKey(id, persister)) != null
+    }
+
+    @Override
+    protected int getInExpressionLimit(Session session) {
+        int limit = ((SessionFactoryImplementor)sessionFactory).dialect.inExpressionCountLimit
+        limit > 0 ? Math.min(limit, DEFAULT_IN_EXPRESSION_LIMIT) : DEFAULT_IN_EXPRESSION_LIMIT
+    }
+
     @Override
     Integer executeUpdate(String query, Map params, Map args) {
         def template = hibernateTemplate
@@ -17,6 +17,7 @@ package org.grails.datastore.gorm.mongo;
 
 import grails.gorm.CriteriaBuilder;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -281,4 +282,59 @@ public class MongoCriteriaBuilder extends CriteriaBuilder {
         ((QueryArgumentsAware)this.query).setArguments(arguments);
         return this;
     }
+
+    /**
+     * Sets the number of documents fetched from the server per round trip
+     *
+     * @param batchSize The batch size
+     * @return The criteria instance
+     */
+    public Criteria batchSize(int batchSize) {
+        ((MongoQuery)this.query).batchSize(batchSize);
+        return this;
+    }
+
+    /**
+     * Sets whether the server should keep the cursor open however long it is idle
+     *
+     * @param noCursorTimeout True if the cursor shouldn't time out
+     * @return The criteria instance
+     */
+    public Criteria noCursorTimeout(boolean noCursorTimeout) {
+        ((MongoQuery)this.query).noCursorTimeout(noCursorTimeout);
+        return this;
+    }
+
+    /**
+     * Sets the maximum time the server may spend processing the query
+     *
+     * @param maxTimeMS The maximum time in milliseconds
+     * @return The criteria instance
+     */
+    public Criteria maxTimeMS(long maxTimeMS) {
+        ((MongoQuery)this.query).maxTimeMS(maxTimeMS);
+        return this;
+    }
+
+    /**
+     * Restricts the fields read from the server to those of the given properties
+     *
+     * @param properties The names of the properties to read
+     * @return The criteria instance
+     */
+    public Criteria fields(String... properties) {
+        ((MongoQuery)this.query).fields(Arrays.asList(properties));
+        return this;
+    }
+
+    /**
+     * Sets whether the results can only be iterated over, once, without being held on to
+     *
+     * @param iterateOnly True if the results can only be iterated over
+     * @return The criteria instance
+     */
+    public Criteria iterateOnly(boolean iterateOnly) {
+        ((MongoQuery)this.query).iterateOnly(iterateOnly);
+        return this;
+    }
 }
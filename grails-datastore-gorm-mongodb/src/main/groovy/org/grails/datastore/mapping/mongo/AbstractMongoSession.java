@@ -19,12 +19,15 @@ import com.mongodb.WriteConcern;
 import org.bson.Document;
 import org.grails.datastore.mapping.core.AbstractSession;
 import org.grails.datastore.mapping.core.impl.PendingOperation;
+import org.grails.datastore.mapping.core.impl.WeakIdentitySet;
 import org.grails.datastore.mapping.document.config.DocumentMappingContext;
 import org.grails.datastore.mapping.engine.EntityAccess;
 import org.grails.datastore.mapping.model.MappingContext;
 import org.grails.datastore.mapping.model.PersistentEntity;
 import org.grails.datastore.mapping.mongo.config.MongoCollection;
+import org.grails.datastore.mapping.mongo.engine.InverseToOneBatchLoader;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 
 import java.util.List;
 import java.util.Map;
@@ -47,6 +50,8 @@ public abstract class AbstractMongoSession extends AbstractSession<MongoClient>
     protected boolean errorOccured = false;
     protected Map<PersistentEntity, String> mongoCollections = new ConcurrentHashMap<PersistentEntity, String>();
     protected Map<PersistentEntity, String> mongoDatabases = new ConcurrentHashMap<PersistentEntity, String>();
+    protected InverseToOneBatchLoader inverseToOneBatchLoader;
+    private final WeakIdentitySet<Object> partiallyLoadedInstances = new WeakIdentitySet<Object>();
 
     public AbstractMongoSession(MongoDatastore datastore, MappingContext mappingContext, ApplicationEventPublisher publisher) {
         this(datastore, mappingContext, publisher, false);
@@ -64,11 +69,48 @@ public abstract class AbstractMongoSession extends AbstractSession<MongoClient>
 
     @Override
     public void flush() {
-        flush(this.getWriteConcern());
+        boolean wasFlushing = setFlushing(true);
+        try {
+            flush(this.getWriteConcern());
+        } finally {
+            setFlushing(wasFlushing);
+        }
     }
 
     public abstract void flush(WriteConcern writeConcern);
 
+    /**
+     * Marks an instance that was loaded by a query restricted to some of its fields. Such instances are not added to
+     * the session cache and can't be saved, since saving them would overwrite the fields that were not read.
+     *
+     * @param instance The instance
+     */
+    public void markPartiallyLoaded(Object instance) {
+        partiallyLoadedInstances.add(instance);
+    }
+
+    /**
+     * @param instance The instance
+     * @return Whether the instance was loaded by a query restricted to some of its fields
+     */
+    public boolean isPartiallyLoaded(Object instance) {
+        return partiallyLoadedInstances.contains(instance);
+    }
+
+    /**
+     * Rejects saving an instance that was loaded by a query restricted to some of its fields
+     *
+     * @param entity The entity
+     * @param instance The instance
+     * @throws InvalidDataAccessApiUsageException if the instance was partially loaded
+     */
+    public void assertNotPartiallyLoaded(PersistentEntity entity, Object instance) {
+        if (isPartiallyLoaded(instance)) {
+            throw new InvalidDataAccessApiUsageException("Cannot save an instance of [" + entity.getName() +
+                    "] loaded by a query restricted to some of its fields, it would overwrite the fields that were not read");
+        }
+    }
+
     /**
      * @return The name of the default database
      */
@@ -187,6 +229,25 @@ public abstract class AbstractMongoSession extends AbstractSession<MongoClient>
 
     public abstract <T> T decode(Class<T> type, Object nativeObject);
 
+    /**
+     * @return The loader that one-to-one associations whose foreign key is held by the child are deferred to while a batch of entities is decoded, or null if they are loaded as each entity is decoded
+     */
+    public InverseToOneBatchLoader getInverseToOneBatchLoader() {
+        return inverseToOneBatchLoader;
+    }
+
+    /**
+     * Sets the loader that one-to-one associations whose foreign key is held by the child are deferred to
+     *
+     * @param loader The loader or null to load the associations as each entity is decoded
+     * @return The previous loader
+     */
+    public InverseToOneBatchLoader setInverseToOneBatchLoader(InverseToOneBatchLoader loader) {
+        InverseToOneBatchLoader previous = this.inverseToOneBatchLoader;
+        this.inverseToOneBatchLoader = loader;
+        return previous;
+    }
+
     protected void addPostFlushOperations(List<PendingOperation> cascadeOperations) {
         for (PendingOperation cascadeOperation : cascadeOperations) {
             addPostFlushOperation(cascadeOperation);
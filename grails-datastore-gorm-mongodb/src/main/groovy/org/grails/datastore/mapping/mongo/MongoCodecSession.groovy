@@ -16,6 +16,7 @@ package org.grails.datastore.mapping.mongo
 import com.mongodb.MongoClient
 import com.mongodb.WriteConcern
 import com.mongodb.bulk.BulkWriteResult
+import com.mongodb.client.model.BulkWriteOptions
 import com.mongodb.client.FindIterable
 import com.mongodb.client.MongoCollection
 import com.mongodb.client.model.DeleteManyModel
@@ -27,7 +28,9 @@ import com.mongodb.client.model.WriteModel
 import com.mongodb.client.result.DeleteResult
 import com.mongodb.client.result.UpdateResult
 import groovy.transform.CompileStatic
+import org.bson.BsonDocument
 import org.bson.BsonDocumentReader
+import org.bson.BsonDocumentWriter
 import org.bson.BsonDocumentWrapper
 import org.bson.Document
 import org.bson.codecs.Codec
@@ -62,7 +65,11 @@ import org.springframework.context.ApplicationEventPublisher
 import org.springframework.dao.DataIntegrityViolationException
 
 import javax.persistence.FlushModeType
+import java.util.concurrent.Callable
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
 /**
  * A MongoDB session for codec mapping style
  *
@@ -79,12 +86,30 @@ class MongoCodecSession extends AbstractMongoSession {
         }
         throw new IllegalArgumentException("Type [$type] is not an entity")
     }
+    protected boolean unorderedBulkWrites
 
     public MongoCodecSession(MongoDatastore datastore, MappingContext mappingContext, ApplicationEventPublisher publisher) {
         this(datastore, mappingContext, publisher, false);
     }
+
     public MongoCodecSession(MongoDatastore datastore, MappingContext mappingContext, ApplicationEventPublisher publisher, boolean stateless) {
         super(datastore, mappingContext, publisher, stateless);
+        this.unorderedBulkWrites = datastore.isUnorderedBulkWrites()
+    }
+
+    /**
+     * Sets whether this session flushes with unordered bulk writes, split into batches of the maximum size
+     * accepted by the server and dispatched to the collections concurrently
+     *
+     * @param unorderedBulkWrites True if bulk writes should be unordered
+     * @see MongoDatastore#setUnorderedBulkWrites(boolean)
+     */
+    void setUnorderedBulkWrites(boolean unorderedBulkWrites) {
+        this.unorderedBulkWrites = unorderedBulkWrites
+    }
+
+    boolean isUnorderedBulkWrites() {
+        return unorderedBulkWrites
     }
 
     @Override
@@ -109,6 +134,7 @@ class MongoCodecSession extends AbstractMongoSession {
 
             Map<String,Integer> numberOfOptimisticUpdates = [:].withDefault { 0 }
             Map<String,Integer> numberOfPessimisticUpdates = [:].withDefault { 0 }
+            final boolean unordered = unorderedBulkWrites
 
             Map<PersistentEntity, List<WriteModel<Document>>> writeModels = [:]
             for (PersistentEntity persistentEntity in pendingInserts.keySet()) {
@@ -122,7 +148,8 @@ class MongoCodecSession extends AbstractMongoSession {
 
 
                         def object = insert.nativeEntry
-                        entityWrites << new InsertOneModel<?>(object)
+                        // unordered writes may be sent from other threads, so the entity is encoded while the session is bound
+                        entityWrites << new InsertOneModel<?>(unordered ? encodeInsert(object) : object)
 
                         final List<PendingOperation> cascadeOperations = insert.cascadeOperations
                         addPostFlushOperations cascadeOperations
@@ -213,33 +240,31 @@ class MongoCodecSession extends AbstractMongoSession {
             }
 
 
-            for (PersistentEntity persistentEntity : writeModels.keySet()) {
-                MongoCollection collection = getCollection(persistentEntity)
-                                                .withDocumentClass(persistentEntity.javaClass)
-
-                collection = collection.withCodecRegistry( mongoDatastore.codecRegistry )
-                final WriteConcern wc = writeConcern
-                if(wc) {
-                    collection = collection.withWriteConcern(wc)
-                }
-                final List<WriteModel<?>> writes = writeModels[persistentEntity]
-                if(writes) {
+            if(unordered) {
+                writeUnordered(writeModels, numberOfOptimisticUpdates, numberOfPessimisticUpdates)
+            }
+            else {
+                for (PersistentEntity persistentEntity : writeModels.keySet()) {
+                    MongoCollection collection = getCollection(persistentEntity)
+                                                    .withDocumentClass(persistentEntity.javaClass)
+
+                    collection = collection.withCodecRegistry( mongoDatastore.codecRegistry )
+                    final WriteConcern wc = writeConcern
+                    if(wc) {
+                        collection = collection.withWriteConcern(wc)
+                    }
+                    final List<WriteModel<?>> writes = writeModels[persistentEntity]
+                    if(writes) {
 
-                    final BulkWriteResult bulkWriteResult = collection
-                                                                .bulkWrite(writes)
+                        final BulkWriteResult bulkWriteResult = collection
+                                                                    .bulkWrite(writes)
 
-                    if( !bulkWriteResult.wasAcknowledged() ) {
-                        errorOccured = true;
-                        throw new DataIntegrityViolationException("Write operation was not acknowledged");
-                    }
-                    else {
-                        final int matchedCount = bulkWriteResult.matchedCount
-                        final String name = persistentEntity.name
-                        final Integer numOptimistic = numberOfOptimisticUpdates[name]
-                        final Integer numPessimistic = numberOfPessimisticUpdates[name]
-                        if((matchedCount - numPessimistic) != numOptimistic) {
-                            setFlushMode(FlushModeType.COMMIT)
-                            throw new OptimisticLockingException(persistentEntity, null)
+                        if( !bulkWriteResult.wasAcknowledged() ) {
+                            errorOccured = true;
+                            throw new DataIntegrityViolationException("Write operation was not acknowledged");
+                        }
+                        else {
+                            checkOptimisticUpdates(persistentEntity, bulkWriteResult.matchedCount, numberOfOptimisticUpdates, numberOfPessimisticUpdates)
                         }
                     }
                 }
@@ -256,6 +281,96 @@ class MongoCodecSession extends AbstractMongoSession {
         }
     }
 
+    /**
+     * Writes to each collection with unordered bulk writes of at most {@link MongoDatastore#getMaxWriteBatchSize()}
+     * writes, dispatching the writes to different collections concurrently on the bulk write executor of the datastore
+     */
+    protected void writeUnordered(Map<PersistentEntity, List<WriteModel<?>>> writeModels, Map<String,Integer> numberOfOptimisticUpdates, Map<String,Integer> numberOfPessimisticUpdates) {
+        final int batchSize = mongoDatastore.maxWriteBatchSize
+        final BulkWriteOptions options = new BulkWriteOptions().ordered(false)
+        final WriteConcern wc = writeConcern
+
+        Map<PersistentEntity, Future<Integer>> matchedCounts = new LinkedHashMap<PersistentEntity, Future<Integer>>()
+        for (PersistentEntity persistentEntity : writeModels.keySet()) {
+            final List<WriteModel<?>> writes = writeModels[persistentEntity]
+            if(!writes) continue
+
+            MongoCollection collection = getCollection(persistentEntity)
+                                            .withDocumentClass(BsonDocument)
+                                            .withCodecRegistry(mongoDatastore.codecRegistry)
+            if(wc) {
+                collection = collection.withWriteConcern(wc)
+            }
+            final MongoCollection target = collection
+            Callable<Integer> bulkWrite = new Callable<Integer>() {
+                @Override
+                Integer call() throws Exception {
+                    int matchedCount = 0
+                    for(int i = 0; i < writes.size(); i += batchSize) {
+                        final BulkWriteResult bulkWriteResult = target.bulkWrite(writes.subList(i, Math.min(i + batchSize, writes.size())), options)
+                        if( !bulkWriteResult.wasAcknowledged() ) {
+                            throw new DataIntegrityViolationException("Write operation was not acknowledged")
+                        }
+                        matchedCount += bulkWriteResult.matchedCount
+                    }
+                    return matchedCount
+                }
+            }
+            matchedCounts[persistentEntity] = new FutureTask<Integer>(bulkWrite)
+        }
+
+        if(matchedCounts.size() == 1) {
+            ((FutureTask)matchedCounts.values().first()).run()
+        }
+        else {
+            def executor = mongoDatastore.bulkWriteExecutor
+            for (Future<Integer> task in matchedCounts.values()) {
+                executor.execute((FutureTask)task)
+            }
+        }
+
+        RuntimeException failure = null
+        for (PersistentEntity persistentEntity : matchedCounts.keySet()) {
+            try {
+                final int matchedCount = matchedCounts[persistentEntity].get()
+                if(failure == null) {
+                    checkOptimisticUpdates(persistentEntity, matchedCount, numberOfOptimisticUpdates, numberOfPessimisticUpdates)
+                }
+            } catch (ExecutionException e) {
+                if(failure == null) {
+                    failure = e.cause instanceof RuntimeException ? (RuntimeException)e.cause : new DataIntegrityViolationException(e.cause.message, e.cause)
+                }
+            } catch (RuntimeException e) {
+                if(failure == null) {
+                    failure = e
+                }
+            }
+        }
+        if(failure != null) {
+            if(!(failure instanceof OptimisticLockingException)) {
+                errorOccured = true
+            }
+            throw failure
+        }
+    }
+
+    protected void checkOptimisticUpdates(PersistentEntity persistentEntity, int matchedCount, Map<String,Integer> numberOfOptimisticUpdates, Map<String,Integer> numberOfPessimisticUpdates) {
+        final String name = persistentEntity.name
+        final Integer numOptimistic = numberOfOptimisticUpdates[name]
+        final Integer numPessimistic = numberOfPessimisticUpdates[name]
+        if((matchedCount - numPessimistic) != numOptimistic) {
+            setFlushMode(FlushModeType.COMMIT)
+            throw new OptimisticLockingException(persistentEntity, null)
+        }
+    }
+
+    protected BsonDocument encodeInsert(Object object) {
+        final BsonDocument document = new BsonDocument()
+        final Codec codec = datastore.codecRegistry.get(object.getClass())
+        codec.encode(new BsonDocumentWriter(document), object, PersistentEntityCodec.DEFAULT_ENCODER_CONTEXT)
+        return document
+    }
+
     @Override
     MongoClient getNativeInterface() {
         return mongoDatastore.mongoClient
@@ -292,6 +407,8 @@ class MongoCodecSession extends AbstractMongoSession {
 
         final MongoCollection collection = getCollection(entity)
         final DeleteResult deleteResult = collection.deleteMany((Bson)nativeQuery)
+        clearTPCache(entity)
+        invalidateQueryResultCache(entity)
         if( deleteResult.wasAcknowledged() ) {
             return deleteResult.deletedCount
         }
@@ -308,6 +425,8 @@ class MongoCodecSession extends AbstractMongoSession {
         final updateOptions = new UpdateOptions()
         updateOptions.upsert(false)
         final UpdateResult updateResult = collection.updateMany(nativeQuery, new Document(MONGO_SET_OPERATOR, properties), updateOptions)
+        clearTPCache(entity)
+        invalidateQueryResultCache(entity)
         if(updateResult.wasAcknowledged()) {
             try {
                 return updateResult.modifiedCount
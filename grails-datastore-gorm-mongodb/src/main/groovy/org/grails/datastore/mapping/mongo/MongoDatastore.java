@@ -19,6 +19,12 @@ import static org.grails.datastore.mapping.config.utils.ConfigUtils.read;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.mongodb.*;
 import com.mongodb.client.model.IndexOptions;
@@ -65,6 +71,10 @@ public class MongoDatastore extends AbstractDatastore implements InitializingBea
     public static final String MONGO_ENGINE = "engine";
     public static final String INDEX_ATTRIBUTES = "indexAttributes";
     public static final String CODEC_ENGINE = "codec";
+    public static final String UNORDERED_BULK_WRITES = "unorderedBulkWrites";
+    public static final String BULK_WRITE_THREADS = "bulkWriteThreads";
+    public static final int DEFAULT_BULK_WRITE_THREADS = 4;
+    public static final int DEFAULT_MAX_WRITE_BATCH_SIZE = 1000;
 
     protected MongoClient mongo;
     protected MongoClientOptions mongoOptions;
@@ -74,6 +84,10 @@ public class MongoDatastore extends AbstractDatastore implements InitializingBea
     protected boolean stateless = false;
     protected boolean codecEngine = false;
     protected CodecRegistry codecRegistry;
+    protected boolean unorderedBulkWrites = false;
+    protected int bulkWriteThreads = DEFAULT_BULK_WRITE_THREADS;
+    protected volatile Integer maxWriteBatchSize;
+    private ExecutorService bulkWriteExecutor;
 
 
 
@@ -280,6 +294,82 @@ public class MongoDatastore extends AbstractDatastore implements InitializingBea
         return (PersistentEntityCodec) getCodecRegistry().get(entity.getJavaClass());
     }
 
+    /**
+     * Whether sessions created by this datastore flush with unordered bulk writes, split into batches of
+     * {@link #getMaxWriteBatchSize()} and dispatched to the collections concurrently. Unordered writes to a collection
+     * may be applied in any order, so a single flush should not insert and delete the same document.
+     *
+     * @param unorderedBulkWrites True if bulk writes should be unordered
+     */
+    public void setUnorderedBulkWrites(boolean unorderedBulkWrites) {
+        this.unorderedBulkWrites = unorderedBulkWrites;
+    }
+
+    public boolean isUnorderedBulkWrites() {
+        return unorderedBulkWrites;
+    }
+
+    /**
+     * @param bulkWriteThreads The maximum number of collections written to concurrently by unordered flushes
+     */
+    public void setBulkWriteThreads(int bulkWriteThreads) {
+        this.bulkWriteThreads = bulkWriteThreads;
+    }
+
+    public int getBulkWriteThreads() {
+        return bulkWriteThreads;
+    }
+
+    /**
+     * @param maxWriteBatchSize The maximum number of writes sent in a single bulk write
+     */
+    public void setMaxWriteBatchSize(int maxWriteBatchSize) {
+        this.maxWriteBatchSize = maxWriteBatchSize;
+    }
+
+    /**
+     * @return The maximum number of writes the server accepts in a single bulk write, as reported by the isMaster command
+     */
+    public int getMaxWriteBatchSize() {
+        Integer size = maxWriteBatchSize;
+        if (size == null) {
+            size = DEFAULT_MAX_WRITE_BATCH_SIZE;
+            try {
+                Document isMaster = getMongoClient().getDatabase("admin").runCommand(new Document("isMaster", 1));
+                Object reported = isMaster.get("maxWriteBatchSize");
+                if (reported instanceof Number && ((Number) reported).intValue() > 0) {
+                    size = ((Number) reported).intValue();
+                }
+            } catch (MongoException e) {
+                // use the default batch size
+            }
+            maxWriteBatchSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * @return The bounded executor unordered flushes dispatch the writes to each collection to
+     */
+    public synchronized ExecutorService getBulkWriteExecutor() {
+        if (bulkWriteExecutor == null) {
+            int threads = Math.max(1, bulkWriteThreads);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "gorm-mongo-bulk-write-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            bulkWriteExecutor = executor;
+        }
+        return bulkWriteExecutor;
+    }
+
     /**
      * @deprecated Use {@link #getMongoClient()} instead
      */
@@ -346,6 +436,8 @@ public class MongoDatastore extends AbstractDatastore implements InitializingBea
             );
             this.stateless = read(Boolean.class, MONGO_STATELESS, connectionDetails, false);
             this.codecEngine = read(String.class, MONGO_ENGINE, connectionDetails, CODEC_ENGINE).equals(CODEC_ENGINE);
+            this.unorderedBulkWrites = read(Boolean.class, UNORDERED_BULK_WRITES, connectionDetails, unorderedBulkWrites);
+            this.bulkWriteThreads = read(Integer.class, BULK_WRITE_THREADS, connectionDetails, bulkWriteThreads);
             if (mongoOptions != null) {
                 mongo = new MongoClient(serverAddress, credentials, mongoOptions);
             } else {
@@ -476,6 +568,12 @@ public class MongoDatastore extends AbstractDatastore implements InitializingBea
 
     public void destroy() throws Exception {
         super.destroy();
+        synchronized (this) {
+            if (bulkWriteExecutor != null) {
+                bulkWriteExecutor.shutdown();
+                bulkWriteExecutor = null;
+            }
+        }
         if (mongo != null) {
             mongo.close();
         }
@@ -333,6 +333,8 @@ public class MongoSession extends AbstractMongoSession {
 
         final com.mongodb.client.MongoCollection collection = getCollection(entity);
         final DeleteResult deleteResult = collection.deleteMany(nativeQuery);
+        clearTPCache(entity);
+        invalidateQueryResultCache(entity);
         if( deleteResult.wasAcknowledged() ) {
             return deleteResult.getDeletedCount();
         }
@@ -351,6 +353,8 @@ public class MongoSession extends AbstractMongoSession {
         final UpdateOptions updateOptions = new UpdateOptions();
         updateOptions.upsert(false);
         final UpdateResult updateResult = collection.updateMany(nativeQuery, new Document("$set", properties), updateOptions);
+        clearTPCache(entity);
+        invalidateQueryResultCache(entity);
         if(updateResult.wasAcknowledged()) {
             try {
                 return updateResult.getModifiedCount();
@@ -63,6 +63,12 @@ public abstract class AbstractMongoObectEntityPersister<T> extends NativeEntryEn
         return (MongoSession) getSession();
     }
 
+    @Override
+    protected Serializable persistEntity(PersistentEntity persistentEntity, Object obj, boolean isInsert) {
+        getMongoSession().assertNotPartiallyLoaded(persistentEntity, obj);
+        return super.persistEntity(persistentEntity, obj, isInsert);
+    }
+
     public String getCollectionName(PersistentEntity persistentEntity) {
         return getCollectionName(persistentEntity, null);
     }
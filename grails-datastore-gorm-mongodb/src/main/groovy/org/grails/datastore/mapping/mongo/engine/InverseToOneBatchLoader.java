@@ -0,0 +1,175 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.mongo.engine;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.grails.datastore.mapping.config.Property;
+import org.grails.datastore.mapping.engine.EntityAccess;
+import org.grails.datastore.mapping.engine.internal.MappingUtils;
+import org.grails.datastore.mapping.model.PersistentEntity;
+import org.grails.datastore.mapping.model.types.Association;
+import org.grails.datastore.mapping.model.types.ToOne;
+import org.grails.datastore.mapping.mongo.AbstractMongoSession;
+import org.grails.datastore.mapping.mongo.query.MongoQuery;
+
+import javax.persistence.FetchType;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the one-to-one associations whose foreign key is held by the child for a batch of decoded entities. Instead of
+ * querying the child collection once per decoded entity, the owners are collected with {@link #defer(ToOne, EntityAccess)}
+ * while a batch is decoded and {@link #resolve()} issues a single $in query per association for the whole batch.
+ *
+ * Lazy associations are set to proxies, eager associations are retrieved with a single query per association.
+ *
+ * @since 5.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class InverseToOneBatchLoader {
+
+    private static final String DB_REF_ID_FIELD = "$id";
+
+    private final AbstractMongoSession session;
+    private final Map<ToOne, Map<String, List<EntityAccess>>> pendingOwners = new LinkedHashMap<ToOne, Map<String, List<EntityAccess>>>();
+    private final Map<ToOne, List<Object>> pendingOwnerIds = new LinkedHashMap<ToOne, List<Object>>();
+
+    public InverseToOneBatchLoader(AbstractMongoSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Defers loading the given association of an owner until {@link #resolve()} is called
+     *
+     * @param association The association, whose foreign key is held by the child
+     * @param owner The entity access of the decoded owner
+     */
+    public void defer(ToOne association, EntityAccess owner) {
+        Object ownerId = owner.getIdentifier();
+        if (ownerId == null) {
+            return;
+        }
+
+        Map<String, List<EntityAccess>> owners = pendingOwners.get(association);
+        if (owners == null) {
+            owners = new HashMap<String, List<EntityAccess>>();
+            pendingOwners.put(association, owners);
+            pendingOwnerIds.put(association, new ArrayList<Object>());
+        }
+        String key = ownerId.toString();
+        List<EntityAccess> accesses = owners.get(key);
+        if (accesses == null) {
+            accesses = new ArrayList<EntityAccess>(1);
+            owners.put(key, accesses);
+            pendingOwnerIds.get(association).add(ownerId);
+        }
+        accesses.add(owner);
+    }
+
+    /**
+     * @return Whether there are associations waiting to be loaded
+     */
+    public boolean isEmpty() {
+        return pendingOwners.isEmpty();
+    }
+
+    /**
+     * Loads the deferred associations, issuing one query per association, and sets them on their owners
+     */
+    public void resolve() {
+        if (pendingOwners.isEmpty()) {
+            return;
+        }
+
+        Map<ToOne, Map<String, List<EntityAccess>>> owners = new LinkedHashMap<ToOne, Map<String, List<EntityAccess>>>(pendingOwners);
+        Map<ToOne, List<Object>> ownerIds = new LinkedHashMap<ToOne, List<Object>>(pendingOwnerIds);
+        pendingOwners.clear();
+        pendingOwnerIds.clear();
+
+        for (Map.Entry<ToOne, Map<String, List<EntityAccess>>> entry : owners.entrySet()) {
+            resolve(entry.getKey(), ownerIds.get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    protected void resolve(ToOne association, List<Object> ownerIds, Map<String, List<EntityAccess>> owners) {
+        PersistentEntity associatedEntity = association.getAssociatedEntity();
+        Association inverseSide = association.getInverseSide();
+        Class associatedClass = associatedEntity.getJavaClass();
+
+        MongoQuery query = (MongoQuery) session.createQuery(associatedClass);
+        query.in(inverseSide.getName(), ownerIds);
+        String inverseKey = MappingUtils.getTargetKey(inverseSide);
+
+        Map<String, Serializable> associatedIds = new LinkedHashMap<String, Serializable>();
+        MongoCursor<Document> cursor = session.getCollection(associatedEntity)
+                .find(query.getMongoQuery())
+                .projection(new Document(inverseKey, 1))
+                .iterator();
+        try {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                Object ownerId = getReferencedId(document.get(inverseKey));
+                if (ownerId != null && !associatedIds.containsKey(ownerId.toString())) {
+                    associatedIds.put(ownerId.toString(), (Serializable) document.get(MongoEntityPersister.MONGO_ID_FIELD));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (associatedIds.isEmpty()) {
+            return;
+        }
+
+        Property mappedForm = (Property) association.getMapping().getMappedForm();
+        boolean lazy = mappedForm != null && mappedForm.getFetchStrategy() == FetchType.LAZY;
+        Map<String, Object> associated = new HashMap<String, Object>();
+        if (!lazy) {
+            List<Serializable> ids = new ArrayList<Serializable>(associatedIds.values());
+            List retrieved = session.retrieveAll(associatedClass, ids);
+            for (int i = 0; i < ids.size(); i++) {
+                associated.put(ids.get(i).toString(), retrieved.get(i));
+            }
+        }
+
+        for (Map.Entry<String, Serializable> entry : associatedIds.entrySet()) {
+            List<EntityAccess> accesses = owners.get(entry.getKey());
+            if (accesses == null) {
+                continue;
+            }
+            Serializable associatedId = entry.getValue();
+            Object value = lazy ? session.proxy(associatedClass, associatedId) : associated.get(associatedId.toString());
+            for (EntityAccess access : accesses) {
+                access.setPropertyNoConversion(association.getName(), value);
+            }
+        }
+    }
+
+    private Object getReferencedId(Object reference) {
+        if (reference instanceof DBRef) {
+            return ((DBRef) reference).getId();
+        }
+        if (reference instanceof Document) {
+            return ((Document) reference).get(DB_REF_ID_FIELD);
+        }
+        return reference;
+    }
+}
@@ -25,12 +25,14 @@ import org.bson.Document
 import org.bson.types.ObjectId
 import org.grails.datastore.mapping.cache.TPCacheAdapterRepository
 import org.grails.datastore.mapping.config.Property
+import org.grails.datastore.mapping.core.AbstractDatastore
 import org.grails.datastore.mapping.core.IdentityGenerationException
 import org.grails.datastore.mapping.core.SessionImplementor
 import org.grails.datastore.mapping.core.impl.PendingDeleteAdapter
 import org.grails.datastore.mapping.core.impl.PendingInsertAdapter
 import org.grails.datastore.mapping.core.impl.PendingOperationAdapter
 import org.grails.datastore.mapping.core.impl.PendingUpdateAdapter
+import org.grails.datastore.mapping.core.impl.SnowflakeIdentityGenerator
 import org.grails.datastore.mapping.dirty.checking.DirtyCheckable
 import org.grails.datastore.mapping.dirty.checking.DirtyCheckableCollection
 import org.grails.datastore.mapping.dirty.checking.DirtyCheckingSupport
@@ -177,6 +179,7 @@ class MongoCodecEntityPersister extends ThirdPartyCacheEntityPersister<Object> {
         ProxyFactory proxyFactory = getProxyFactory()
         // if called internally, obj can potentially be a proxy, which won't work.
         obj = proxyFactory.unwrap(obj)
+        mongoSession.assertNotPartiallyLoaded(entity, obj)
 
         Serializable id = getObjectIdentifier(obj)
 
@@ -394,10 +397,17 @@ class MongoCodecEntityPersister extends ThirdPartyCacheEntityPersister<Object> {
         updateTPCache(persistentEntity, e, id)
     }
 
+    protected void evictCaches(PersistentEntity persistentEntity, Serializable id) {
+        evictFromTPCache(persistentEntity, id)
+    }
+
     public Serializable generateIdentifier(final PersistentEntity persistentEntity) {
         // If there is a numeric identifier then we need to rely on optimistic concurrency controls to obtain a unique identifer
         // sequence. If the identifier is not numeric then we assume BSON ObjectIds.
         if (hasNumericalIdentifier) {
+            if (SnowflakeIdentityGenerator.isSnowflakeIdentity(persistentEntity)) {
+                return ((AbstractDatastore)mongoSession.datastore).snowflakeIdentityGenerator.nextId(persistentEntity)
+            }
             final String collectionName = getCollectionName(persistentEntity)
             final MongoClient client = (MongoClient)mongoSession.nativeInterface
 
@@ -455,6 +465,7 @@ class MongoCodecEntityPersister extends ThirdPartyCacheEntityPersister<Object> {
                     def entityAccess = self.createEntityAccess(pe, obj)
                     if( !self.cancelDelete( pe, entityAccess) ) {
                         mongoSession.clear(obj)
+                        evictCaches(pe, id)
                         addCascadeOperation(new PendingOperationAdapter(pe, id, obj) {
                             @Override
                             void run() {
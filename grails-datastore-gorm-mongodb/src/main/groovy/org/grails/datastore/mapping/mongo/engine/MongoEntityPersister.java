@@ -29,9 +29,11 @@ import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.ReturnDocument;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.grails.datastore.mapping.core.AbstractDatastore;
 import org.grails.datastore.mapping.core.IdentityGenerationException;
 import org.grails.datastore.mapping.core.SessionImplementor;
 import org.grails.datastore.mapping.core.impl.PendingDeleteAdapter;
+import org.grails.datastore.mapping.core.impl.SnowflakeIdentityGenerator;
 import org.grails.datastore.mapping.engine.EntityAccess;
 import org.grails.datastore.mapping.engine.internal.MappingUtils;
 import org.grails.datastore.mapping.model.MappingContext;
@@ -125,6 +127,23 @@ public class MongoEntityPersister extends AbstractMongoObectEntityPersister<Docu
         return new MongoQuery((MongoSession) getSession(), getPersistentEntity());
     }
 
+    /**
+     * Creates an instance from a document that holds only some of its fields. Unlike
+     * {@link #createObjectFromNativeEntry(PersistentEntity, Serializable, Object)} the document is not cached by the session,
+     * since a later update of the fully loaded instance would otherwise be compared against it.
+     *
+     * @param persistentEntity The entity
+     * @param nativeKey The identifier
+     * @param nativeEntry The document
+     * @return The instance
+     */
+    public Object createObjectFromPartialNativeEntry(PersistentEntity persistentEntity, Serializable nativeKey, Document nativeEntry) {
+        persistentEntity = discriminatePersistentEntity(persistentEntity, nativeEntry);
+        Object obj = newEntityInstance(persistentEntity);
+        refreshObjectStateFromNativeEntry(persistentEntity, obj, nativeKey, nativeEntry, false);
+        return obj;
+    }
+
 
     @Override
     protected void deleteEntry(String family, final Object key, final Object entry) {
@@ -145,6 +164,11 @@ public class MongoEntityPersister extends AbstractMongoObectEntityPersister<Docu
         final boolean hasNumericalIdentifier = this.hasNumericalIdentifier;
         // If there is a numeric identifier then we need to rely on optimistic concurrency controls to obtain a unique identifer
         // sequence. If the identifier is not numeric then we assume BSON ObjectIds.
+        if (hasNumericalIdentifier && SnowflakeIdentityGenerator.isSnowflakeIdentity(persistentEntity)) {
+            long nextId = ((AbstractDatastore) getSession().getDatastore()).getSnowflakeIdentityGenerator().nextId(persistentEntity);
+            nativeEntry.put(MONGO_ID_FIELD, nextId);
+            return nextId;
+        }
         if (hasNumericalIdentifier) {
             final String collectionName = getCollectionName(persistentEntity, nativeEntry);
             final MongoSession mongoSession = getMongoSession();
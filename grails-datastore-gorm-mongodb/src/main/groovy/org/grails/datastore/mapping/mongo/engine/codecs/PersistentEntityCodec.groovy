@@ -193,6 +193,11 @@ class PersistentEntityCodec implements Codec {
             }
             else if(association instanceof OneToOne) {
                 if(((ToOne)association).isForeignKeyInChild()) {
+                    def batchLoader = session.inverseToOneBatchLoader
+                    if(batchLoader != null) {
+                        batchLoader.defer((ToOne)association, access)
+                        continue
+                    }
                     def associatedClass = association.associatedEntity.javaClass
                     Query query = session.createQuery(associatedClass)
                     query.eq(association.inverseSide.name, access.identifier)
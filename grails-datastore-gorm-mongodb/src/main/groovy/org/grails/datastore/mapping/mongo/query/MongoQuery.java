@@ -15,18 +15,22 @@
 package org.grails.datastore.mapping.mongo.query;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBRef;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCursor;
 import grails.mongodb.geo.*;
-import groovy.lang.Closure;
 import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
 import org.bson.BsonDocumentWriter;
 import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
 import org.bson.codecs.EncoderContext;
-import org.codehaus.groovy.runtime.DefaultGroovyMethods;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.grails.datastore.gorm.mongo.geo.GeoJSONType;
 import org.grails.datastore.gorm.query.AbstractResultList;
+import org.grails.datastore.mapping.cache.QueryResultCache;
 import org.grails.datastore.mapping.core.Session;
 import org.grails.datastore.mapping.core.SessionImplementor;
 import org.grails.datastore.mapping.engine.EntityAccess;
@@ -42,6 +46,7 @@ import org.grails.datastore.mapping.mongo.MongoCodecSession;
 import org.grails.datastore.mapping.mongo.MongoDatastore;
 import org.grails.datastore.mapping.mongo.config.MongoAttribute;
 import org.grails.datastore.mapping.mongo.config.MongoCollection;
+import org.grails.datastore.mapping.mongo.engine.InverseToOneBatchLoader;
 import org.grails.datastore.mapping.mongo.engine.MongoCodecEntityPersister;
 import org.grails.datastore.mapping.mongo.engine.MongoEntityPersister;
 import org.grails.datastore.mapping.mongo.engine.codecs.PersistentEntityCodec;
@@ -57,6 +62,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
@@ -70,10 +76,13 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
 
     public static final String PROJECT_OPERATOR = "$project";
     public static final String SORT_OPERATOR = "$sort";
+    public static final String SKIP_OPERATOR = "$skip";
+    public static final String LIMIT_OPERATOR = "$limit";
+    public static final String LOOKUP_OPERATOR = "$lookup";
+    public static final String ADD_TO_SET_OPERATOR = "$addToSet";
+    public static final String ELEM_MATCH_OPERATOR = "$elemMatch";
     private static Map<Class, QueryHandler> queryHandlers = new HashMap<Class, QueryHandler>();
     private static Map<Class, QueryHandler> negatedHandlers = new HashMap<Class, QueryHandler>();
-    private static Map<Class, ProjectionHandler> groupByProjectionHandlers = new HashMap<Class, ProjectionHandler>();
-    private static Map<Class, ProjectionHandler> projectProjectionHandlers = new HashMap<Class, ProjectionHandler>();
 
 
     public static final String MONGO_IN_OPERATOR = "$in";
@@ -90,6 +99,11 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
 
     private static final String MONGO_THIS_PREFIX = "this.";
     public static final String HINT_ARGUMENT = "hint";
+    public static final String BATCH_SIZE_ARGUMENT = "batchSize";
+    public static final String NO_CURSOR_TIMEOUT_ARGUMENT = "noCursorTimeout";
+    public static final String MAX_TIME_MS_ARGUMENT = "maxTimeMS";
+    public static final String FIELDS_ARGUMENT = "fields";
+    public static final String ITERATE_ONLY_ARGUMENT = "iterateOnly";
 
     private Map queryArguments = Collections.emptyMap();
 
@@ -151,7 +165,7 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
                 if (association instanceof EmbeddedCollection) {
                     Document associationCollectionQuery = new Document();
                     populateMongoQuery((AbstractMongoSession) session, associationCollectionQuery, criterion.getCriteria(), associatedEntity);
-                    Document collectionQuery = new Document("$elemMatch", associationCollectionQuery);
+                    Document collectionQuery = new Document(ELEM_MATCH_OPERATOR, associationCollectionQuery);
                     String propertyKey = getPropertyName(entity, association.getName());
                     query.put(propertyKey, collectionQuery);
                 } else if (associatedEntity instanceof EmbeddedPersistentEntity || association instanceof Embedded) {
@@ -162,7 +176,7 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
                         query.put(propertyKey + '.' + property, associatedEntityQuery.get(property));
                     }
                 } else {
-                    throw new UnsupportedOperationException("Join queries are not supported by MongoDB");
+                    throw new UnsupportedOperationException("Join queries are only supported by MongoDB as top level criteria");
                 }
             }
         });
@@ -627,90 +641,6 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
                 queryHandlers.get(GreaterThanEquals.class).handle(session, Restrictions.gte(criterion.getProperty(), criterion.getValue()), query, entity);
             }
         });
-
-        groupByProjectionHandlers.put(AvgProjection.class, new ProjectionHandler<AvgProjection>() {
-            @Override
-            public String handle(PersistentEntity entity, Document projectObject, Document groupBy, AvgProjection projection) {
-                return addProjectionToGroupBy(projectObject, groupBy, projection, AVERAGE_OPERATOR, "avg_");
-            }
-        });
-        groupByProjectionHandlers.put(CountProjection.class, new ProjectionHandler<CountProjection>() {
-            @Override
-            public String handle(PersistentEntity entity, Document projectObject, Document groupBy, CountProjection projection) {
-                projectObject.put(MongoEntityPersister.MONGO_ID_FIELD, 1);
-                String projectionKey = "count";
-                groupBy.put(projectionKey, new Document(SUM_OPERATOR, 1));
-                return projectionKey;
-            }
-        });
-        groupByProjectionHandlers.put(CountDistinctProjection.class, new ProjectionHandler<CountDistinctProjection>() {
-            @Override
-            // equivalent of "select count (distinct fieldName) from someTable". Example:
-            // db.someCollection.aggregate([{ $group: { _id: "$fieldName"}  },{ $group: { _id: 1, count: { $sum: 1 } } } ])
-            public String handle(PersistentEntity entity, Document projectObject, Document groupBy, CountDistinctProjection projection) {
-                projectObject.put(projection.getPropertyName(), 1);
-                String property = projection.getPropertyName();
-                String projectionValueKey = "countDistinct_" + property;
-                Document id = getIdObjectForGroupBy(groupBy);
-                id.put(property, "$" + property);
-                return projectionValueKey;
-            }
-        });
-
-        groupByProjectionHandlers.put(MinProjection.class, new ProjectionHandler<MinProjection>() {
-            @Override
-            public String handle(PersistentEntity entity, Document projectObject, Document groupBy, MinProjection projection) {
-                return addProjectionToGroupBy(projectObject, groupBy, projection, MIN_OPERATOR, "min_");
-            }
-        });
-        groupByProjectionHandlers.put(MaxProjection.class, new ProjectionHandler<MaxProjection>() {
-            @Override
-            public String handle(PersistentEntity entity, Document projectObject, Document groupBy, MaxProjection projection) {
-                return addProjectionToGroupBy(projectObject, groupBy, projection, MAX_OPERATOR, "max_");
-            }
-        });
-        groupByProjectionHandlers.put(SumProjection.class, new ProjectionHandler<SumProjection>() {
-            @Override
-            public String handle(PersistentEntity entity, Document projectObject, Document groupBy, SumProjection projection) {
-                return addProjectionToGroupBy(projectObject, groupBy, projection, SUM_OPERATOR, "sum_");
-            }
-        });
-
-        projectProjectionHandlers.put(DistinctPropertyProjection.class, new ProjectionHandler<DistinctPropertyProjection>() {
-            @Override
-            public String handle(PersistentEntity entity, Document projectObject, Document groupBy, DistinctPropertyProjection projection) {
-                String property = projection.getPropertyName();
-                projectObject.put(property, 1);
-                Document id = getIdObjectForGroupBy(groupBy);
-                id.put(property, "$" + property);
-                return property;
-            }
-        });
-
-        projectProjectionHandlers.put(PropertyProjection.class, new ProjectionHandler<PropertyProjection>() {
-            @Override
-            public String handle(PersistentEntity entity, Document projectObject, Document groupBy, PropertyProjection projection) {
-                String property = projection.getPropertyName();
-                projectObject.put(property, 1);
-                Document id = getIdObjectForGroupBy(groupBy);
-                id.put(property, "$" + property);
-                // we add the id to the grouping to make it not distinct
-                id.put(MongoEntityPersister.MONGO_ID_FIELD, "$" + MongoEntityPersister.MONGO_ID_FIELD);
-                return property;
-            }
-        });
-
-        projectProjectionHandlers.put(IdProjection.class, new ProjectionHandler<IdProjection>() {
-            @Override
-            public String handle(PersistentEntity entity, Document projectObject, Document groupBy, IdProjection projection) {
-                projectObject.put(MongoEntityPersister.MONGO_ID_FIELD, 1);
-                Document id = getIdObjectForGroupBy(groupBy);
-                id.put(MongoEntityPersister.MONGO_ID_FIELD, "$_id");
-
-                return MongoEntityPersister.MONGO_ID_FIELD;
-            }
-        });
-
     }
 
     private static Integer getNumber(PropertyCriterion criterion) {
@@ -721,27 +651,6 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
         throw new IllegalArgumentException("Argument to size constraint must be a number");
     }
 
-    private static Document getIdObjectForGroupBy(Document groupBy) {
-        Object value = groupBy.get(MongoEntityPersister.MONGO_ID_FIELD);
-        Document id;
-        if (value instanceof Document) {
-            id = (Document) value;
-        } else {
-            id = new Document();
-            groupBy.put(MongoEntityPersister.MONGO_ID_FIELD, id);
-        }
-        return id;
-    }
-
-    private static String addProjectionToGroupBy(Document projectObject, Document groupBy, PropertyProjection projection, String operator, String prefix) {
-        projectObject.put(projection.getPropertyName(), 1);
-        String property = projection.getPropertyName();
-        String projectionValueKey = prefix + property;
-        Document averageProjection = new Document(operator, "$" + property);
-        groupBy.put(projectionValueKey, averageProjection);
-        return projectionValueKey;
-    }
-
     private static Document getOrCreatePropertyQuery(Document query, String propertyName) {
         Object existing = query.get(propertyName);
         Document queryObject = existing instanceof Document ? (Document) existing : null;
@@ -791,6 +700,11 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
     private EntityPersister mongoEntityPersister;
     private ManualProjections manualProjections;
     private boolean isCodecPersister = false;
+    private Integer batchSize;
+    private Boolean noCursorTimeout;
+    private Long maxTimeMS;
+    private List<String> fields;
+    private boolean iterateOnly = false;
 
     public MongoQuery(AbstractMongoSession session, PersistentEntity entity) {
         super(session, entity);
@@ -826,8 +740,11 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
         final AbstractMongoSession mongoSession = this.mongoSession;
         com.mongodb.client.MongoCollection<Document> collection = mongoSession.getCollection(entity);
 
+        final List<Projection> projectionList = projections().getProjectionList();
+        final List<AssociationQuery> joinCriteria = new ArrayList<AssociationQuery>();
+        final Junction ownCriteria = splitJoinCriteria(criteria, joinCriteria);
 
-        if (uniqueResult) {
+        if (uniqueResult && projectionList.isEmpty() && joinCriteria.isEmpty()) {
             if(isCodecPersister) {
                 collection = collection
                         .withDocumentClass(entity.getJavaClass())
@@ -836,24 +753,29 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
             final Object dbObject;
             if (criteria.isEmpty()) {
                 if (entity.isRoot()) {
-                    dbObject = collection
-                            .find()
+                    dbObject = applyCursorOptions(collection
+                            .find())
                             .limit(1)
                             .first();
                 } else {
-                    dbObject = collection.find(new Document(
-                            MongoEntityPersister.MONGO_CLASS_FIELD, entity.getDiscriminator()))
+                    dbObject = applyCursorOptions(collection.find(new Document(
+                            MongoEntityPersister.MONGO_CLASS_FIELD, entity.getDiscriminator())))
                             .limit(1)
                             .first();
                 }
             } else {
-                dbObject = collection.find(getMongoQuery())
+                dbObject = applyCursorOptions(collection.find(getMongoQuery()))
                         .limit(1)
                         .first();;
             }
             if(isCodecPersister) {
-                final EntityAccess entityAccess = mongoSession.createEntityAccess(entity, dbObject);
-                mongoSession.cacheInstance(dbObject.getClass(), (Serializable) entityAccess.getIdentifier(), dbObject);
+                if (dbObject != null && fields == null) {
+                    final EntityAccess entityAccess = mongoSession.createEntityAccess(entity, dbObject);
+                    mongoSession.cacheInstance(dbObject.getClass(), (Serializable) entityAccess.getIdentifier(), dbObject);
+                }
+                else if (dbObject != null) {
+                    mongoSession.markPartiallyLoaded(dbObject);
+                }
                 return wrapObjectResultInList(dbObject);
             }
             else {
@@ -861,134 +783,363 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
             }
         }
 
-        MongoCursor<Document> cursor;
-        Document query = createQueryObject(entity);
-
-
-        final List<Projection> projectionList = projections().getProjectionList();
         if (projectionList.isEmpty()) {
-            if(isCodecPersister) {
+            // entities decoded in batches are read as raw documents, since the driver decodes each batch it receives
+            // with the codec of the collection, outside of the window in which their associations are batched
+            if(isCodecPersister && !MongoResultList.isDecodedInBatches(mongoEntityPersister)) {
                 collection = collection
                         .withDocumentClass(entity.getJavaClass())
                         .withCodecRegistry( mongoSession.getDatastore().getCodecRegistry());
             }
-            cursor = executeQuery(entity, criteria, collection, query);
-            return new MongoResultList(cursor, offset, mongoEntityPersister);
+            MongoCursor<Document> cursor;
+            if (joinCriteria.isEmpty()) {
+                cursor = executeQuery(entity, criteria, collection, createQueryObject(entity));
+            } else {
+                cursor = executeJoinQuery(entity, ownCriteria, joinCriteria, collection);
+            }
+            MongoResultList resultList = new MongoResultList(cursor, offset, mongoEntityPersister,
+                    batchSize != null && batchSize > 0 ? batchSize : MongoResultList.DECODE_BATCH_SIZE,
+                    fields == null && !iterateOnly, iterateOnly);
+            resultList.setPartiallyLoaded(fields != null);
+            return resultList;
         }
 
-        populateMongoQuery((AbstractMongoSession) session, query, criteria, entity);
-        List projectedResults = new ArrayList();
         List<Document> aggregationPipeline = new ArrayList<Document>();
+        addMatchStages(entity, ownCriteria, joinCriteria, aggregationPipeline);
 
-        if (!query.keySet().isEmpty()) {
-            aggregationPipeline.add(new Document(MATCH_OPERATOR, query));
+        List<ProjectedProperty> projectedKeys = new ArrayList<ProjectedProperty>();
+        boolean singleResult = addProjectionStages(entity, projectionList, aggregationPipeline, projectedKeys);
+
+        AggregateIterable<Document> aggregatedResults = applyAggregateOptions(collection.aggregate(aggregationPipeline));
+        if (!singleResult && containsStage(aggregationPipeline, GROUP_OPERATOR)) {
+            // grouping many rows may exceed the memory limit of an aggregation stage
+            aggregatedResults.allowDiskUse(true);
         }
+        final MongoCursor<Document> aggregateCursor = aggregatedResults.iterator();
 
-        List<Order> orderBy = getOrderBy();
-        if (!orderBy.isEmpty()) {
-            Document sortBy = new Document();
-            Document sort = new Document(SORT_OPERATOR, sortBy);
-            for (Order order : orderBy) {
-                sortBy.put(order.getProperty(), order.getDirection() == Order.Direction.ASC ? 1 : -1);
+        List projectedResults = new ArrayList();
+        if (singleResult && aggregateCursor.hasNext()) {
+            Document dbo = aggregateCursor.next();
+            aggregateCursor.close();
+            for (ProjectedProperty projectedProperty : projectedKeys) {
+                Object value = dbo.get(projectedProperty.projectionKey);
+                PersistentProperty property = projectedProperty.property;
+                if (value != null) {
+                    if (property instanceof ToOne) {
+                        projectedResults.add(session.retrieve(property.getType(), getReferencedId(value)));
+                    } else {
+                        projectedResults.add(value);
+                    }
+                } else {
+                    if (projectedProperty.projection instanceof CountProjection) {
+                        projectedResults.add(0);
+                    }
+                }
             }
-
-            aggregationPipeline.add(sort);
+        } else {
+            return new AggregatedResultList(getSession(), aggregateCursor, projectedKeys);
         }
 
-        if (max > 0) {
-            aggregationPipeline.add(new Document("$limit", max));
+        return projectedResults;
+    }
+
+    /**
+     * Executes a query with criteria on non-embedded associations as an aggregation, joining the associated
+     * collections with $lookup
+     */
+    protected MongoCursor<Document> executeJoinQuery(PersistentEntity entity, Junction ownCriteria, List<AssociationQuery> joinCriteria, com.mongodb.client.MongoCollection<Document> collection) {
+        List<Document> aggregationPipeline = new ArrayList<Document>();
+        addMatchStages(entity, ownCriteria, joinCriteria, aggregationPipeline);
+
+        Document sortObject = createSortObject(entity);
+        if (sortObject != null) {
+            aggregationPipeline.add(new Document(SORT_OPERATOR, sortObject));
         }
-        if (offset > 0) {
-            aggregationPipeline.add(new Document("$skip", offset));
+        addPaginationStages(aggregationPipeline);
+
+        if (fields != null) {
+            aggregationPipeline.add(new Document(PROJECT_OPERATOR, createFieldsProjection()));
+        } else {
+            Document exclusions = new Document();
+            for (AssociationQuery joinCriterion : joinCriteria) {
+                exclusions.put(getLookupField(joinCriterion.getAssociation()), 0);
+            }
+            aggregationPipeline.add(new Document(PROJECT_OPERATOR, exclusions));
         }
 
+        return applyAggregateOptions(collection.aggregate(aggregationPipeline)).iterator();
+    }
 
-        List<ProjectedProperty> projectedKeys = new ArrayList<ProjectedProperty>();
-        boolean singleResult = true;
+    /**
+     * Adds the $match stage for the criteria on the queried entity, followed by a $lookup and a $match stage
+     * for each query on a non-embedded association
+     */
+    protected void addMatchStages(PersistentEntity entity, Junction ownCriteria, List<AssociationQuery> joinCriteria, List<Document> aggregationPipeline) {
+        Document query = createQueryObject(entity);
+        populateMongoQuery(mongoSession, query, ownCriteria, entity);
+        if (!query.keySet().isEmpty()) {
+            aggregationPipeline.add(new Document(MATCH_OPERATOR, query));
+        }
 
-        Document projectObject = new Document();
+        for (AssociationQuery joinCriterion : joinCriteria) {
+            Association association = joinCriterion.getAssociation();
+            PersistentEntity associatedEntity = association.getAssociatedEntity();
+            String lookupField = getLookupField(association);
 
+            Document lookup = new Document("from", mongoSession.getCollectionName(associatedEntity.getRootEntity()));
+            if (isForeignKeyInAssociatedEntity(association)) {
+                Association inverseSide = association.getInverseSide();
+                assertNotReference(inverseSide);
+                lookup.put("localField", MongoEntityPersister.MONGO_ID_FIELD);
+                lookup.put("foreignField", MappingUtils.getTargetKey(inverseSide));
+            } else {
+                assertNotReference(association);
+                lookup.put("localField", MappingUtils.getTargetKey(association));
+                lookup.put("foreignField", MongoEntityPersister.MONGO_ID_FIELD);
+            }
+            lookup.put("as", lookupField);
+            aggregationPipeline.add(new Document(LOOKUP_OPERATOR, lookup));
 
-        Document groupByObject = new Document();
-        groupByObject.put(MongoEntityPersister.MONGO_ID_FIELD, 0);
-        Document additionalGroupBy = null;
+            // an entity matches if any of its associated entities matches all of the association criteria
+            Document associationQuery = createQueryObject(associatedEntity);
+            populateMongoQuery(mongoSession, associationQuery, joinCriterion.getCriteria(), associatedEntity);
+            aggregationPipeline.add(new Document(MATCH_OPERATOR,
+                    new Document(lookupField, new Document(ELEM_MATCH_OPERATOR, associationQuery))));
+        }
+    }
 
+    /**
+     * Adds the $group stage for the given projections, followed by the $project, $sort, $skip and $limit stages
+     *
+     * @return Whether the projections produce a single result
+     */
+    private boolean addProjectionStages(PersistentEntity entity, List<Projection> projectionList, List<Document> aggregationPipeline, List<ProjectedProperty> projectedKeys) {
+        Document groupKeys = new Document();
+        Document accumulators = new Document();
+        List<String> countDistinctKeys = new ArrayList<String>();
+        // plain property and id projections produce a row for each document, other projections are grouped
+        boolean rowPerDocument = false;
 
         for (Projection projection : projectionList) {
-            ProjectionHandler projectionHandler = projectProjectionHandlers.get(projection.getClass());
             ProjectedProperty projectedProperty = new ProjectedProperty();
             projectedProperty.projection = projection;
-            if (projection instanceof PropertyProjection) {
-                PropertyProjection propertyProjection = (PropertyProjection) projection;
-                PersistentProperty property = entity.getPropertyByName(propertyProjection.getPropertyName());
-                if (property != null) {
-                    projectedProperty.property = property;
+
+            if (projection instanceof IdProjection) {
+                groupKeys.put(MongoEntityPersister.MONGO_ID_FIELD, "$" + MongoEntityPersister.MONGO_ID_FIELD);
+                projectedProperty.projectionKey = "id." + MongoEntityPersister.MONGO_ID_FIELD;
+                rowPerDocument = true;
+            } else if (projection instanceof CountProjection) {
+                projectedProperty.projectionKey = "count";
+                accumulators.put(projectedProperty.projectionKey, new Document(SUM_OPERATOR, 1));
+            } else if (projection instanceof PropertyProjection) {
+                String propertyName = ((PropertyProjection) projection).getPropertyName();
+                PersistentProperty property = entity.isIdentityName(propertyName) ? entity.getIdentity() : entity.getPropertyByName(propertyName);
+                if (property == null) {
+                    throw new InvalidDataAccessResourceUsageException("Attempt to project on a non-existent project [" + propertyName + "]");
+                }
+                projectedProperty.property = property;
+                String field = "$" + getProjectedFieldName(entity, propertyName);
+                String key = getProjectionKey(entity, propertyName);
+
+                if (projection instanceof CountDistinctProjection) {
+                    projectedProperty.projectionKey = "countDistinct_" + key;
+                    accumulators.put(projectedProperty.projectionKey, new Document(ADD_TO_SET_OPERATOR, field));
+                    countDistinctKeys.add(projectedProperty.projectionKey);
+                } else if (projection instanceof AvgProjection) {
+                    projectedProperty.projectionKey = "avg_" + key;
+                    accumulators.put(projectedProperty.projectionKey, new Document(AVERAGE_OPERATOR, field));
+                } else if (projection instanceof SumProjection) {
+                    projectedProperty.projectionKey = "sum_" + key;
+                    accumulators.put(projectedProperty.projectionKey, new Document(SUM_OPERATOR, field));
+                } else if (projection instanceof MinProjection) {
+                    projectedProperty.projectionKey = "min_" + key;
+                    accumulators.put(projectedProperty.projectionKey, new Document(MIN_OPERATOR, field));
+                } else if (projection instanceof MaxProjection) {
+                    projectedProperty.projectionKey = "max_" + key;
+                    accumulators.put(projectedProperty.projectionKey, new Document(MAX_OPERATOR, field));
                 } else {
-                    throw new InvalidDataAccessResourceUsageException("Attempt to project on a non-existent project [" + propertyProjection.getPropertyName() + "]");
+                    projectedProperty.projectionKey = "id." + key;
+                    groupKeys.put(key, field);
+                    if (!(projection instanceof GroupPropertyProjection) && !(projection instanceof DistinctPropertyProjection)) {
+                        rowPerDocument = true;
+                    }
                 }
+            } else {
+                continue;
             }
-            if (projectionHandler != null) {
-                singleResult = false;
+            projectedKeys.add(projectedProperty);
+        }
 
-                String aggregationKey = projectionHandler.handle(entity, projectObject, groupByObject, projection);
-                aggregationKey = "id." + aggregationKey;
-                projectedProperty.projectionKey = aggregationKey;
-                projectedKeys.add(projectedProperty);
-            } else {
+        if (rowPerDocument && accumulators.isEmpty()) {
+            addRowProjectionStages(entity, groupKeys, aggregationPipeline, projectedKeys);
+            return false;
+        }
 
-                projectionHandler = groupByProjectionHandlers.get(projection.getClass());
-                if (projectionHandler != null) {
-                    projectedProperty.projectionKey = projectionHandler.handle(entity, projectObject, groupByObject, projection);
-                    projectedKeys.add(projectedProperty);
+        if (rowPerDocument) {
+            // grouping by the id keeps a row for each document
+            groupKeys.put(MongoEntityPersister.MONGO_ID_FIELD, "$" + MongoEntityPersister.MONGO_ID_FIELD);
+        }
 
-                    if (projection instanceof CountDistinctProjection) {
-                        Document finalCount = new Document(MongoEntityPersister.MONGO_ID_FIELD, 1);
-                        finalCount.put(projectedProperty.projectionKey, new Document(SUM_OPERATOR, 1));
-                        additionalGroupBy = new Document(GROUP_OPERATOR, finalCount);
-                    }
+        Document sortObject = new Document();
+        for (Order order : orderBy) {
+            String propertyName = order.getProperty();
+            String key = getProjectionKey(entity, propertyName);
+            if (!groupKeys.containsKey(key)) {
+                if (groupKeys.isEmpty()) {
+                    // a single aggregated row, such as the total count of a paged result list, has nothing to sort
+                    continue;
                 }
+                if (!rowPerDocument) {
+                    // grouped rows can only be sorted by the properties they are grouped by
+                    throw new InvalidDataAccessResourceUsageException("Cannot sort the results of a grouped projection query on [" +
+                            propertyName + "], it is not one of the properties the results are grouped by");
+                }
+                groupKeys.put(key, "$" + getProjectedFieldName(entity, propertyName));
+            }
+            sortObject.put(MongoEntityPersister.MONGO_ID_FIELD + '.' + key, order.getDirection() == Order.Direction.DESC ? -1 : 1);
+        }
 
+        Document group = new Document(MongoEntityPersister.MONGO_ID_FIELD, groupKeys.isEmpty() ? null : groupKeys);
+        group.putAll(accumulators);
+        aggregationPipeline.add(new Document(GROUP_OPERATOR, group));
+
+        if (!countDistinctKeys.isEmpty()) {
+            Document project = new Document(MongoEntityPersister.MONGO_ID_FIELD, 1);
+            for (String key : accumulators.keySet()) {
+                project.put(key, countDistinctKeys.contains(key) ? new Document(SIZE_OPERATOR, "$" + key) : 1);
             }
+            aggregationPipeline.add(new Document(PROJECT_OPERATOR, project));
         }
 
-        if (!projectObject.isEmpty()) {
-            aggregationPipeline.add(new Document(PROJECT_OPERATOR, projectObject));
+        if (sortObject.isEmpty() && !groupKeys.isEmpty()) {
+            // groups are returned in no particular order, sorting them keeps the pages of the results stable
+            sortObject.put(MongoEntityPersister.MONGO_ID_FIELD, 1);
+        }
+        if (!sortObject.isEmpty()) {
+            aggregationPipeline.add(new Document(SORT_OPERATOR, sortObject));
         }
+        addPaginationStages(aggregationPipeline);
 
-        aggregationPipeline.add(new Document(GROUP_OPERATOR, groupByObject));
+        return groupKeys.isEmpty();
+    }
 
-        if (additionalGroupBy != null) {
-            aggregationPipeline.add(additionalGroupBy);
+    /**
+     * Adds the stages of a projection that returns a row for each document, such as a property or id projection.
+     * The documents are sorted and paginated as by a find and then reshaped by a $project stage, so that the rows
+     * are streamed in a defined order instead of being grouped in memory.
+     */
+    private void addRowProjectionStages(PersistentEntity entity, Document projectedFields, List<Document> aggregationPipeline, List<ProjectedProperty> projectedKeys) {
+        Document sortObject = createSortObject(entity);
+        if (sortObject != null) {
+            aggregationPipeline.add(new Document(SORT_OPERATOR, sortObject));
         }
+        addPaginationStages(aggregationPipeline);
 
+        Document project = new Document(projectedFields);
+        if (!project.containsKey(MongoEntityPersister.MONGO_ID_FIELD)) {
+            project.put(MongoEntityPersister.MONGO_ID_FIELD, 0);
+        }
+        aggregationPipeline.add(new Document(PROJECT_OPERATOR, project));
 
-        AggregateIterable<Document> aggregatedResults = collection.aggregate(aggregationPipeline);
-        final MongoCursor<Document> aggregateCursor = aggregatedResults.iterator();
+        // the projected fields are top level fields of the rows rather than fields of a group key
+        for (ProjectedProperty projectedProperty : projectedKeys) {
+            if (projectedProperty.projectionKey.startsWith("id.")) {
+                projectedProperty.projectionKey = projectedProperty.projectionKey.substring(3);
+            }
+        }
+    }
 
-        if (singleResult && aggregateCursor.hasNext()) {
-            Document dbo = aggregateCursor.next();
-            for (ProjectedProperty projectedProperty : projectedKeys) {
-                Object value = dbo.get(projectedProperty.projectionKey);
-                PersistentProperty property = projectedProperty.property;
-                if (value != null) {
-                    if (property instanceof ToOne) {
-                        projectedResults.add(session.retrieve(property.getType(), (Serializable) value));
-                    } else {
-                        projectedResults.add(value);
-                    }
-                } else {
-                    if (projectedProperty.projection instanceof CountProjection) {
-                        projectedResults.add(0);
-                    }
-                }
+    private static boolean containsStage(List<Document> aggregationPipeline, String operator) {
+        for (Document stage : aggregationPipeline) {
+            if (stage.containsKey(operator)) {
+                return true;
             }
-        } else {
-            return new AggregatedResultList(getSession(), aggregateCursor, projectedKeys);
         }
+        return false;
+    }
 
-        return projectedResults;
+    private void addPaginationStages(List<Document> aggregationPipeline) {
+        if (offset > 0) {
+            aggregationPipeline.add(new Document(SKIP_OPERATOR, offset));
+        }
+        if (max > 0) {
+            aggregationPipeline.add(new Document(LIMIT_OPERATOR, max));
+        }
+    }
 
+    private <T> AggregateIterable<T> applyAggregateOptions(AggregateIterable<T> iterable) {
+        if (batchSize != null) {
+            iterable.batchSize(batchSize);
+        }
+        if (maxTimeMS != null) {
+            iterable.maxTime(maxTimeMS, TimeUnit.MILLISECONDS);
+        }
+        return iterable;
+    }
 
+    /**
+     * Splits the queries on non-embedded associations, which have to be joined with $lookup, from the top level criteria
+     *
+     * @param criteria The criteria
+     * @param joinCriteria The list to add the association queries to
+     * @return The remaining criteria
+     */
+    protected static Junction splitJoinCriteria(Junction criteria, List<AssociationQuery> joinCriteria) {
+        if (!(criteria instanceof Conjunction)) {
+            return criteria;
+        }
+        Conjunction ownCriteria = new Conjunction();
+        for (Criterion criterion : criteria.getCriteria()) {
+            if ((criterion instanceof AssociationQuery) && isJoin(((AssociationQuery) criterion).getAssociation())) {
+                joinCriteria.add((AssociationQuery) criterion);
+            } else {
+                ownCriteria.add(criterion);
+            }
+        }
+        return joinCriteria.isEmpty() ? criteria : ownCriteria;
+    }
+
+    private static boolean isJoin(Association association) {
+        return !(association instanceof EmbeddedCollection) &&
+                !(association instanceof Embedded) &&
+                !(association.getAssociatedEntity() instanceof EmbeddedPersistentEntity);
+    }
+
+    private static boolean isForeignKeyInAssociatedEntity(Association association) {
+        if (association instanceof ToOne) {
+            return ((ToOne) association).isForeignKeyInChild();
+        }
+        return (association instanceof OneToMany) && association.isBidirectional();
+    }
+
+    private static void assertNotReference(Association association) {
+        MongoAttribute attr = (MongoAttribute) association.getMapping().getMappedForm();
+        if (attr != null && attr.isReference()) {
+            throw new UnsupportedOperationException("Join queries on association [" + association.getName() + "] are not supported by MongoDB, because it is mapped as a reference");
+        }
+    }
+
+    private static String getLookupField(Association association) {
+        return "__lookup_" + association.getName();
+    }
+
+    private static String getProjectedFieldName(PersistentEntity entity, String propertyName) {
+        if (entity.isIdentityName(propertyName)) {
+            return MongoEntityPersister.MONGO_ID_FIELD;
+        }
+        PersistentProperty property = entity.getPropertyByName(propertyName);
+        return property != null ? MappingUtils.getTargetKey(property) : propertyName;
+    }
+
+    private static String getProjectionKey(PersistentEntity entity, String propertyName) {
+        return getProjectedFieldName(entity, propertyName).replace('.', '_');
+    }
+
+    private static Serializable getReferencedId(Object value) {
+        if (value instanceof DBRef) {
+            return (Serializable) ((DBRef) value).getId();
+        }
+        return (Serializable) value;
     }
 
     protected MongoCursor<Document> executeQuery(final PersistentEntity entity,
@@ -1007,7 +1158,7 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
                 cursor = cursor.modifiers(new Document("$hint", hint));
             }
         }
-        return cursor.iterator();
+        return applyCursorOptions(cursor).iterator();
     }
 
     protected FindIterable<Document> executeQueryAndApplyPagination(final com.mongodb.client.MongoCollection<Document> collection, Document query) {
@@ -1019,6 +1170,21 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
             iterable.limit(max);
         }
 
+        Document orderObject = createSortObject(entity);
+        if (orderObject != null) {
+            iterable.sort(orderObject);
+        }
+
+        return iterable;
+    }
+
+    /**
+     * Creates the sort object for the order of this query, or for the default sort order of the entity
+     *
+     * @param entity The entity
+     * @return The sort object or null if the results are not sorted
+     */
+    protected Document createSortObject(PersistentEntity entity) {
         if (!orderBy.isEmpty()) {
             Document orderObject = new Document();
             for (Order order : orderBy) {
@@ -1026,20 +1192,18 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
                 property = getPropertyName(entity, property);
                 orderObject.put(property, order.getDirection() == Order.Direction.DESC ? -1 : 1);
             }
-            iterable.sort(orderObject);
-        } else {
-            MongoCollection coll = (MongoCollection) entity.getMapping().getMappedForm();
-            if (coll != null && coll.getSort() != null) {
-                Document orderObject = new Document();
-                Order order = coll.getSort();
-                String property = order.getProperty();
-                property = getPropertyName(entity, property);
-                orderObject.put(property, order.getDirection() == Order.Direction.DESC ? -1 : 1);
-                iterable.sort(orderObject);
-            }
+            return orderObject;
         }
-
-        return iterable;
+        MongoCollection coll = (MongoCollection) entity.getMapping().getMappedForm();
+        if (coll != null && coll.getSort() != null) {
+            Document orderObject = new Document();
+            Order order = coll.getSort();
+            String property = order.getProperty();
+            property = getPropertyName(entity, property);
+            orderObject.put(property, order.getDirection() == Order.Direction.DESC ? -1 : 1);
+            return orderObject;
+        }
+        return null;
     }
 
     private Document createQueryObject(PersistentEntity persistentEntity) {
@@ -1123,6 +1287,12 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
         // we always use the session cached version where available.
         final Object id = dbObject.get(MongoEntityPersister.MONGO_ID_FIELD);
         Class type = mongoEntityPersister.getPersistentEntity().getJavaClass();
+        if (fields != null) {
+            Object instance = ((MongoEntityPersister)mongoEntityPersister).createObjectFromPartialNativeEntry(
+                    mongoEntityPersister.getPersistentEntity(), (Serializable) id, dbObject);
+            mongoSession.markPartiallyLoaded(instance);
+            return instance;
+        }
         Object instance = mongoSession.getCachedInstance(type, (Serializable) id);
         if (instance == null) {
             instance = ((MongoEntityPersister)mongoEntityPersister).createObjectFromNativeEntry(
@@ -1356,6 +1526,150 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
      */
     public void setArguments(Map arguments) {
         this.queryArguments = arguments;
+        if (arguments == null) {
+            return;
+        }
+        if (arguments.containsKey(BATCH_SIZE_ARGUMENT)) {
+            batchSize(((Number) arguments.get(BATCH_SIZE_ARGUMENT)).intValue());
+        }
+        if (arguments.containsKey(NO_CURSOR_TIMEOUT_ARGUMENT)) {
+            noCursorTimeout(Boolean.valueOf(String.valueOf(arguments.get(NO_CURSOR_TIMEOUT_ARGUMENT))));
+        }
+        if (arguments.containsKey(MAX_TIME_MS_ARGUMENT)) {
+            maxTimeMS(((Number) arguments.get(MAX_TIME_MS_ARGUMENT)).longValue());
+        }
+        if (arguments.containsKey(FIELDS_ARGUMENT)) {
+            Object value = arguments.get(FIELDS_ARGUMENT);
+            if (value instanceof Collection) {
+                List<String> names = new ArrayList<String>();
+                for (Object name : (Collection) value) {
+                    names.add(name.toString());
+                }
+                fields(names);
+            } else if (value != null) {
+                fields(Arrays.asList(value.toString().split("\\s*,\\s*")));
+            }
+        }
+        if (arguments.containsKey(ITERATE_ONLY_ARGUMENT)) {
+            iterateOnly(Boolean.valueOf(String.valueOf(arguments.get(ITERATE_ONLY_ARGUMENT))));
+        }
+    }
+
+    /**
+     * Sets the number of documents fetched from the server per round trip
+     *
+     * @param batchSize The batch size
+     * @return This query
+     */
+    public MongoQuery batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets whether the server should keep the cursor open however long it is idle, for queries that walk large collections
+     *
+     * @param noCursorTimeout True if the cursor shouldn't time out
+     * @return This query
+     */
+    public MongoQuery noCursorTimeout(boolean noCursorTimeout) {
+        this.noCursorTimeout = noCursorTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time the server may spend processing the query
+     *
+     * @param maxTimeMS The maximum time in milliseconds
+     * @return This query
+     */
+    public MongoQuery maxTimeMS(long maxTimeMS) {
+        this.maxTimeMS = maxTimeMS;
+        return this;
+    }
+
+    /**
+     * Restricts the fields read from the server to those of the given properties. The identifier, version and discriminator
+     * are always read. Only the selected properties of the returned entities are populated, so the entities are not
+     * added to the session cache and are read-only: saving one throws an InvalidDataAccessApiUsageException, since it
+     * would overwrite the fields that were not read. Load the entity with get() to change it.
+     *
+     * @param properties The names of the properties to read
+     * @return This query
+     */
+    public MongoQuery fields(List<String> properties) {
+        this.fields = properties == null || properties.isEmpty() ? null : new ArrayList<String>(properties);
+        return this;
+    }
+
+    /**
+     * Sets whether the results of the query can only be iterated over, once. The returned list then holds on to
+     * neither the entities it has returned nor adds them to the session cache, so that a query can walk a collection of
+     * any size in constant memory. Such entities are not dirty checked when the session is flushed.
+     *
+     * @param iterateOnly True if the results can only be iterated over
+     * @return This query
+     */
+    public MongoQuery iterateOnly(boolean iterateOnly) {
+        this.iterateOnly = iterateOnly;
+        return this;
+    }
+
+    @Override
+    protected QueryResultCache getQueryResultCache() {
+        // results that are partially populated or not held on to can't be shared
+        if (fields != null || iterateOnly) {
+            return null;
+        }
+        return super.getQueryResultCache();
+    }
+
+    @Override
+    protected boolean addQueryCacheKeyArguments(List<Object> key) {
+        // arguments such as the hint change the results returned
+        key.add(createCacheKeyValue(queryArguments));
+        return true;
+    }
+
+    /**
+     * Applies the batch size, cursor timeout, maximum time and field projection of this query to the given iterable
+     *
+     * @param iterable The iterable
+     * @return The iterable
+     */
+    protected <T> FindIterable<T> applyCursorOptions(FindIterable<T> iterable) {
+        if (batchSize != null) {
+            iterable.batchSize(batchSize);
+        }
+        if (noCursorTimeout != null) {
+            iterable.noCursorTimeout(noCursorTimeout);
+        }
+        if (maxTimeMS != null) {
+            iterable.maxTime(maxTimeMS, TimeUnit.MILLISECONDS);
+        }
+        if (fields != null) {
+            iterable.projection(createFieldsProjection());
+        }
+        return iterable;
+    }
+
+    private Document createFieldsProjection() {
+        Document projection = new Document(MongoEntityPersister.MONGO_ID_FIELD, 1);
+        projection.put(MongoEntityPersister.MONGO_CLASS_FIELD, 1);
+        if (entity.isVersioned() && entity.getVersion() != null) {
+            projection.put(MappingUtils.getTargetKey(entity.getVersion()), 1);
+        }
+        for (String field : fields) {
+            if (entity.isIdentityName(field)) {
+                continue;
+            }
+            PersistentProperty property = entity.getPropertyByName(field);
+            if (property == null) {
+                throw new InvalidDataAccessResourceUsageException("Cannot select non-existent property [" + field + "] of entity [" + entity.getName() + "]");
+            }
+            projection.put(MappingUtils.getTargetKey(property), 1);
+        }
+        return projection;
     }
 
     /**
@@ -1494,19 +1808,6 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
         public void handle(Session session, T criterion, Document query, PersistentEntity entity);
     }
 
-    private static interface ProjectionHandler<T extends Projection> {
-        /**
-         * Handles a projection modifying the aggregation pipeline appropriately
-         *
-         * @param entity        The entity
-         * @param groupByObject The group by object
-         * @param projection    The projection
-         * @return The key to be used to obtain the projected value from the pipeline results
-         */
-        public String handle(PersistentEntity entity, Document projectObject, Document groupByObject, T projection);
-    }
-
-
     public static class AggregatedResultList extends AbstractList implements Closeable {
 
         private MongoCursor cursor;
@@ -1585,7 +1886,7 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
                         hasResults = true;
                         Document dbo = (Document) cursor.next();
                         Object id = getProjectedValue(dbo, projectedProperty.projectionKey);
-                        identifiers.add((Serializable) id);
+                        identifiers.add(getReferencedId(id));
                     }
                     if (!hasResults) {
                         handleNoResults();
@@ -1593,26 +1894,14 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
                         this.initializedObjects = session.retrieveAll(property.getType(), identifiers);
                     }
                 } else {
-                    Map<Integer, Map<Class, List<Serializable>>> associationMap = createAssociationMap();
-
                     boolean hasResults = false;
                     while (cursor.hasNext()) {
                         hasResults = true;
                         Document dbo = (Document) cursor.next();
                         List<Object> projectedResult = new ArrayList<Object>();
-                        int index = 0;
                         for (ProjectedProperty projectedProperty : projectedProperties) {
-                            PersistentProperty property = projectedProperty.property;
-                            Object value = getProjectedValue(dbo, projectedProperty.projectionKey);
-                            if (property instanceof Association) {
-                                Map<Class, List<Serializable>> identifierMap = associationMap.get(index);
-                                Class type = ((Association) property).getAssociatedEntity().getJavaClass();
-                                identifierMap.get(type).add((Serializable) value);
-                            }
-                            projectedResult.add(value);
-                            index++;
+                            projectedResult.add(getProjectedValue(dbo, projectedProperty.projectionKey));
                         }
-
                         initializedObjects.add(projectedResult);
                     }
 
@@ -1621,26 +1910,26 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
                         return;
                     }
 
-                    Map<Integer, List> finalResults = new HashMap<Integer, List>();
-                    for (Integer index : associationMap.keySet()) {
-                        Map<Class, List<Serializable>> associatedEntityIdentifiers = associationMap.get(index);
-                        for (Class associationClass : associatedEntityIdentifiers.keySet()) {
-                            List<Serializable> identifiers = associatedEntityIdentifiers.get(associationClass);
-                            finalResults.put(index, session.retrieveAll(associationClass, identifiers));
+                    // retrieve the associated entities of each projected association with a single query
+                    for (int index = 0; index < projectedProperties.size(); index++) {
+                        PersistentProperty property = projectedProperties.get(index).property;
+                        if (!(property instanceof Association)) {
+                            continue;
                         }
-                    }
-
-                    for (Object initializedObject : initializedObjects) {
-                        List projected = (List) initializedObject;
-                        for (Integer index : finalResults.keySet()) {
-                            List resultsByIndex = finalResults.get(index);
-                            if (index < resultsByIndex.size()) {
-                                projected.set(index, resultsByIndex.get(index));
-                            } else {
-                                projected.set(index, null);
+                        List<Integer> rows = new ArrayList<Integer>();
+                        List<Serializable> identifiers = new ArrayList<Serializable>();
+                        for (int row = 0; row < initializedObjects.size(); row++) {
+                            Object value = ((List) initializedObjects.get(row)).get(index);
+                            if (value != null) {
+                                rows.add(row);
+                                identifiers.add(getReferencedId(value));
                             }
                         }
-
+                        Class type = ((Association) property).getAssociatedEntity().getJavaClass();
+                        List associated = identifiers.isEmpty() ? Collections.emptyList() : session.retrieveAll(type, identifiers);
+                        for (int i = 0; i < rows.size(); i++) {
+                            ((List) initializedObjects.get(rows.get(i))).set(index, i < associated.size() ? associated.get(i) : null);
+                        }
                     }
                 }
             } else {
@@ -1664,22 +1953,6 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
             }
         }
 
-        private Map<Integer, Map<Class, List<Serializable>>> createAssociationMap() {
-            Map<Integer, Map<Class, List<Serializable>>> associationMap = new HashMap<Integer, Map<Class, List<Serializable>>>();
-            associationMap = DefaultGroovyMethods.withDefault(associationMap, new Closure(this) {
-                public Object doCall(Object o) {
-                    Map<Class, List<Serializable>> subMap = new HashMap<Class, List<Serializable>>();
-                    subMap = DefaultGroovyMethods.withDefault(subMap, new Closure(this) {
-                        public Object doCall(Object o) {
-                            return new ArrayList<Serializable>();
-                        }
-                    });
-                    return subMap;
-                }
-            });
-            return associationMap;
-        }
-
         @Override
         public Iterator iterator() {
             if (initialized || containsAssociations || internalIndex > 0) {
@@ -1764,16 +2037,78 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
     @SuppressWarnings("serial")
     public static class MongoResultList extends AbstractResultList {
 
+        /**
+         * The number of entities decoded at a time when their one-to-one associations are loaded in batches
+         */
+        public static final int DECODE_BATCH_SIZE = 100;
+
         private EntityPersister mongoEntityPersister;
         private MongoCursor cursor;
         private boolean isCodecPersister;
+        private boolean cacheInstances = true;
+        private boolean iterateOnly = false;
+        private boolean iterated = false;
+        private boolean returnedAny = false;
+        private boolean partiallyLoaded = false;
 
         @SuppressWarnings("unchecked")
         public MongoResultList(MongoCursor cursor, int offset, EntityPersister mongoEntityPersister) {
-            super(offset, cursor);
+            this(cursor, offset, mongoEntityPersister, DECODE_BATCH_SIZE, true, false);
+        }
+
+        /**
+         * @param cursor The cursor
+         * @param offset The offset
+         * @param mongoEntityPersister The persister
+         * @param decodeBatchSize The number of entities decoded at a time when their one-to-one associations are loaded in batches
+         * @param cacheInstances Whether the entities are added to the session cache
+         * @param iterateOnly Whether the list can only be iterated over once, without holding on to the entities it returns
+         */
+        @SuppressWarnings("unchecked")
+        public MongoResultList(MongoCursor cursor, int offset, EntityPersister mongoEntityPersister, int decodeBatchSize, boolean cacheInstances, boolean iterateOnly) {
+            super(offset, createDecodingIterator(cursor, mongoEntityPersister, decodeBatchSize, cacheInstances));
             this.cursor = cursor;
             this.mongoEntityPersister = mongoEntityPersister;
             this.isCodecPersister = mongoEntityPersister instanceof MongoCodecEntityPersister;
+            this.cacheInstances = cacheInstances;
+            this.iterateOnly = iterateOnly;
+        }
+
+        private static Iterator<Object> createDecodingIterator(MongoCursor cursor, EntityPersister mongoEntityPersister, int decodeBatchSize, boolean cacheInstances) {
+            if (isDecodedInBatches(mongoEntityPersister)) {
+                return new BatchDecodingIterator(cursor, mongoEntityPersister, decodeBatchSize, cacheInstances);
+            }
+            return cursor;
+        }
+
+        /**
+         * @param mongoEntityPersister The persister
+         * @return Whether the entities are decoded in batches, in which case the cursor should return raw documents
+         */
+        static boolean isDecodedInBatches(EntityPersister mongoEntityPersister) {
+            if (mongoEntityPersister instanceof MongoCodecEntityPersister) {
+                for (Association association : mongoEntityPersister.getPersistentEntity().getAssociations()) {
+                    if (association instanceof OneToOne && ((ToOne) association).isForeignKeyInChild()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param partiallyLoaded Whether the cursor reads only some of the fields of the entities, which are then marked
+         * as partially loaded with {@link AbstractMongoSession#markPartiallyLoaded(Object)}
+         */
+        public void setPartiallyLoaded(boolean partiallyLoaded) {
+            this.partiallyLoaded = partiallyLoaded;
+        }
+
+        /**
+         * @return Whether the list can only be iterated over once, without holding on to the entities it returns
+         */
+        public boolean isIterateOnly() {
+            return iterateOnly;
         }
 
         @Override
@@ -1783,6 +2118,9 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
 
         @Override
         public String toString() {
+            if (iterateOnly) {
+                return getClass().getSimpleName() + "[iterateOnly]";
+            }
             initializeFully();
             return initializedObjects.toString();
         }
@@ -1794,17 +2132,75 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
             return cursor;
         }
 
+        @Override
+        public Iterator iterator() {
+            if (!iterateOnly) {
+                return super.iterator();
+            }
+            if (iterated) {
+                throw new IllegalStateException("The results of an iterate only query can only be iterated over once");
+            }
+            iterated = true;
+            final Iterator<Object> decoding = super.cursor;
+            return new Iterator() {
+                public boolean hasNext() {
+                    boolean hasMore = decoding.hasNext();
+                    if (!hasMore) {
+                        initialized = true;
+                        cursor.close();
+                    }
+                    return hasMore;
+                }
+
+                public Object next() {
+                    returnedAny = true;
+                    return convertObject(nextDecoded());
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException("The results of an iterate only query cannot be modified");
+                }
+            };
+        }
+
+        @Override
+        protected void initializeFully() {
+            if (iterateOnly) {
+                throw new UnsupportedOperationException("The results of an iterate only query can only be accessed through its iterator");
+            }
+            super.initializeFully();
+        }
+
+        @Override
+        public Object get(int index) {
+            if (iterateOnly) {
+                throw new UnsupportedOperationException("The results of an iterate only query can only be accessed through its iterator");
+            }
+            return super.get(index);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            if (iterateOnly) {
+                return !returnedAny && !super.cursor.hasNext();
+            }
+            return super.isEmpty();
+        }
+
         @Override
         protected Object nextDecoded() {
-            final Object o = cursor.next();
+            final Object o = super.cursor.next();
             if(isCodecPersister) {
                 final AbstractMongoSession session = (AbstractMongoSession) mongoEntityPersister.getSession();
                 final PersistentEntity entity = mongoEntityPersister.getPersistentEntity();
                 final EntityAccess entityAccess = session.createEntityAccess(entity, o);
                 final Object id = entityAccess.getIdentifier();
-                if(id != null) {
+                if(id != null && cacheInstances) {
                     session.cacheInstance(entity.getJavaClass(), (Serializable) id, o);
                 }
+                if(partiallyLoaded) {
+                    session.markPartiallyLoaded(o);
+                }
                 mongoEntityPersister.firePostLoadEvent(entity, entityAccess);
             }
             return o;
@@ -1823,12 +2219,21 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
                 Object id = dbObject.get(MongoEntityPersister.MONGO_ID_FIELD);
                 SessionImplementor session = (SessionImplementor) mongoEntityPersister.getSession();
                 Class type = mongoEntityPersister.getPersistentEntity().getJavaClass();
-                Object instance = session.getCachedInstance(type, (Serializable) id);
+                Object instance = cacheInstances ? session.getCachedInstance(type, (Serializable) id) : null;
                 if (instance == null) {
                     final MongoEntityPersister mep = (MongoEntityPersister) this.mongoEntityPersister;
-                    instance = mep.createObjectFromNativeEntry(
-                            this.mongoEntityPersister.getPersistentEntity(), (Serializable) id, dbObject);
-                    session.cacheInstance(type, (Serializable) id, instance);
+                    if (partiallyLoaded) {
+                        instance = mep.createObjectFromPartialNativeEntry(
+                                this.mongoEntityPersister.getPersistentEntity(), (Serializable) id, dbObject);
+                        ((AbstractMongoSession) session).markPartiallyLoaded(instance);
+                    }
+                    else {
+                        instance = mep.createObjectFromNativeEntry(
+                                this.mongoEntityPersister.getPersistentEntity(), (Serializable) id, dbObject);
+                        if (cacheInstances) {
+                            session.cacheInstance(type, (Serializable) id, instance);
+                        }
+                    }
                 }
                 return instance;
             }
@@ -1838,6 +2243,82 @@ public class MongoQuery extends Query implements QueryArgumentsAware {
 
 
 
+    /**
+     * Decodes the entities of a cursor a batch at a time, loading the one-to-one associations whose foreign key is
+     * held by the child with a single query per association for the whole batch rather than one query per entity.
+     * The cursor returns raw documents, which are decoded with the codec of the entity once the batch loader is
+     * installed on the session.
+     */
+    private static class BatchDecodingIterator implements Iterator<Object> {
+        private final MongoCursor cursor;
+        private final EntityPersister mongoEntityPersister;
+        private final int batchSize;
+        private final boolean cacheInstances;
+        private final Deque<Object> decoded = new ArrayDeque<Object>();
+        private final CodecRegistry codecRegistry;
+        private final Codec codec;
+
+        BatchDecodingIterator(MongoCursor cursor, EntityPersister mongoEntityPersister, int batchSize, boolean cacheInstances) {
+            this.cursor = cursor;
+            this.mongoEntityPersister = mongoEntityPersister;
+            this.batchSize = batchSize;
+            this.cacheInstances = cacheInstances;
+            AbstractMongoSession session = (AbstractMongoSession) mongoEntityPersister.getSession();
+            this.codecRegistry = session.getDatastore().getCodecRegistry();
+            this.codec = codecRegistry.get(mongoEntityPersister.getPersistentEntity().getJavaClass());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !decoded.isEmpty() || cursor.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            if (decoded.isEmpty()) {
+                decodeBatch();
+            }
+            return decoded.removeFirst();
+        }
+
+        private void decodeBatch() {
+            final AbstractMongoSession session = (AbstractMongoSession) mongoEntityPersister.getSession();
+            final PersistentEntity entity = mongoEntityPersister.getPersistentEntity();
+            final InverseToOneBatchLoader loader = new InverseToOneBatchLoader(session);
+            final InverseToOneBatchLoader previous = session.setInverseToOneBatchLoader(loader);
+            try {
+                while (decoded.size() < batchSize && cursor.hasNext()) {
+                    final Object o = decode(cursor.next());
+                    if (cacheInstances) {
+                        // cache the owners so that associations referring back to them don't load them again
+                        final Object id = session.createEntityAccess(entity, o).getIdentifier();
+                        if (id != null) {
+                            session.cacheInstance(entity.getJavaClass(), (Serializable) id, o);
+                        }
+                    }
+                    decoded.add(o);
+                }
+            } finally {
+                session.setInverseToOneBatchLoader(previous);
+            }
+            loader.resolve();
+        }
+
+        private Object decode(Object document) {
+            if (!(document instanceof Document)) {
+                // already decoded by the cursor
+                return document;
+            }
+            BsonDocument bsonDocument = ((Document) document).toBsonDocument(Document.class, codecRegistry);
+            return codec.decode(new BsonDocumentReader(bsonDocument), DecoderContext.builder().build());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Cannot remove from a cursor");
+        }
+    }
+
     private static class ProjectedProperty {
         Projection projection;
         String projectionKey;
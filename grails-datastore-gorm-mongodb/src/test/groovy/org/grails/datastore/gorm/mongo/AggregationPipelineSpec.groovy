@@ -0,0 +1,195 @@
+package org.grails.datastore.gorm.mongo
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.gorm.tests.Person
+import grails.persistence.Entity
+import org.springframework.dao.InvalidDataAccessResourceUsageException
+
+/**
+ * Tests the aggregation pipeline built for projections and join queries
+ */
+class AggregationPipelineSpec extends GormDatastoreSpec {
+
+    void "Test that projections are paginated after they are sorted"() {
+        given:"Some people"
+            createPeople()
+
+        when:"A paginated projection is sorted"
+            def results = Person.createCriteria().list(max: 2, offset: 1) {
+                projections {
+                    property 'firstName'
+                }
+                order 'age'
+            }
+
+        then:"The page of sorted results is returned"
+            results == ['Bart', 'Betty']
+    }
+
+    void "Test that the pages of an unsorted projection return every document once"() {
+        given:"Some people"
+            createPeople()
+
+        when:"The pages of a property projection and of a projection grouped by document are read"
+            def names = (0..2).collectMany { page ->
+                Person.createCriteria().list(max: 2, offset: page * 2) {
+                    projections {
+                        property 'firstName'
+                    }
+                }
+            }
+            def rows = (0..2).collectMany { page ->
+                Person.createCriteria().list(max: 2, offset: page * 2) {
+                    projections {
+                        property 'firstName'
+                        count()
+                    }
+                }
+            }
+
+        then:"Each document is returned on exactly one page"
+            names.sort() == ['Barney', 'Bart', 'Betty', 'Homer', 'Lisa', 'Marge']
+            rows.collect { it[0] }.sort() == ['Barney', 'Bart', 'Betty', 'Homer', 'Lisa', 'Marge']
+            rows.every { it[1] == 1 }
+    }
+
+    void "Test that projections can be grouped by several properties"() {
+        given:"Some people"
+            createPeople()
+
+        when:"The people are grouped by last name"
+            def results = Person.createCriteria().list {
+                projections {
+                    groupProperty 'lastName'
+                    count()
+                    max 'age'
+                }
+                order 'lastName'
+            }
+
+        then:"A row is returned for each last name"
+            results == [['Rubble', 2, 35], ['Simpson', 4, 45]]
+
+        when:"The people are grouped by several properties"
+            results = Person.createCriteria().list {
+                projections {
+                    groupProperty 'lastName'
+                    groupProperty 'age'
+                    count()
+                }
+                gt 'age', 30
+                order 'lastName'
+                order 'age', 'desc'
+            }
+
+        then:"A row is returned for each combination"
+            results == [['Rubble', 35, 1], ['Rubble', 32, 1], ['Simpson', 45, 1], ['Simpson', 40, 1]]
+    }
+
+    void "Test that grouped projections can't be sorted by properties they are not grouped by"() {
+        given:"Some people"
+            createPeople()
+
+        when:"The people grouped by last name are sorted by age"
+            Person.createCriteria().list {
+                projections {
+                    groupProperty 'lastName'
+                    count()
+                }
+                order 'age'
+            }
+
+        then:"The query is rejected"
+            thrown(InvalidDataAccessResourceUsageException)
+
+        when:"An aggregate without group keys is sorted"
+            def result = Person.createCriteria().get {
+                projections {
+                    count()
+                }
+                order 'age'
+            }
+
+        then:"The order is ignored"
+            result == 6
+    }
+
+    void "Test that a count distinct projection is computed server side"() {
+        given:"Some people"
+            createPeople()
+
+        when:"The distinct last names are counted"
+            def result = Person.createCriteria().get {
+                projections {
+                    countDistinct 'lastName'
+                }
+            }
+
+        then:"The count is correct"
+            result == 2
+    }
+
+    void "Test that criteria on an association are joined with lookup"() {
+        given:"Some books and authors"
+            def stephen = new LookupAuthor(name: "Stephen").save()
+            def terry = new LookupAuthor(name: "Terry").save()
+            new LookupBook(title: "It", pages: 1100, author: stephen).save()
+            new LookupBook(title: "Carrie", pages: 200, author: stephen).save()
+            new LookupBook(title: "Mort", pages: 300, author: terry).save(flush: true)
+            session.clear()
+
+        when:"The books are queried by author"
+            def results = LookupBook.createCriteria().list {
+                author {
+                    eq 'name', 'Stephen'
+                }
+                order 'title'
+            }
+
+        then:"The books of the author are returned"
+            results*.title == ['Carrie', 'It']
+            results.every { it.author.name == 'Stephen' }
+
+        when:"A projection is combined with criteria on the association"
+            def pages = LookupBook.createCriteria().get {
+                author {
+                    eq 'name', 'Stephen'
+                }
+                projections {
+                    sum 'pages'
+                }
+            }
+
+        then:"The projection only includes the matching books"
+            pages == 1300
+    }
+
+    private void createPeople() {
+        new Person(firstName: "Homer", lastName: "Simpson", age: 45).save()
+        new Person(firstName: "Marge", lastName: "Simpson", age: 40).save()
+        new Person(firstName: "Bart", lastName: "Simpson", age: 9).save()
+        new Person(firstName: "Lisa", lastName: "Simpson", age: 7).save()
+        new Person(firstName: "Barney", lastName: "Rubble", age: 35).save()
+        new Person(firstName: "Betty", lastName: "Rubble", age: 32).save(flush: true)
+        session.clear()
+    }
+
+    @Override
+    List getDomainClasses() {
+        [LookupAuthor, LookupBook]
+    }
+}
+
+@Entity
+class LookupAuthor {
+    Long id
+    String name
+}
+
+@Entity
+class LookupBook {
+    Long id
+    String title
+    Integer pages
+    LookupAuthor author
+}
@@ -0,0 +1,63 @@
+package org.grails.datastore.gorm.mongo
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+
+/**
+ * Tests that the session flushes automatically once the auto-flush threshold is reached
+ */
+class AutoFlushThresholdSpec extends GormDatastoreSpec {
+
+    void "Test that inserts past the auto-flush threshold are written"() {
+        given:"A session with an auto-flush threshold"
+            session.autoFlushThreshold = 4
+
+        when:"More entities than the threshold are saved without flushing"
+            10.times { new AutoFlushedItem(name: "Item $it").save() }
+
+        then:"The session was flushed automatically"
+            session.autoFlushCount == 2
+            session.pendingOperationCount == 2
+
+        when:"The session is flushed and cleared"
+            session.flush()
+            session.clear()
+
+        then:"All of the entities were written"
+            AutoFlushedItem.count() == 10
+            AutoFlushedItem.list()*.name.sort() == (0..9).collect { "Item $it".toString() }
+    }
+
+    void "Test that updates past the auto-flush threshold are written"() {
+        given:"Existing entities and a session with an auto-flush threshold"
+            10.times { new AutoFlushedItem(name: "Item $it").save() }
+            session.flush()
+            session.clear()
+            session.autoFlushThreshold = 4
+
+        when:"More entities than the threshold are updated without flushing"
+            AutoFlushedItem.list().each { it.name = it.name.toUpperCase(); it.save() }
+
+        then:"The session was flushed automatically"
+            session.autoFlushCount == 2
+
+        when:"The session is flushed and cleared"
+            session.flush()
+            session.clear()
+
+        then:"All of the updates were written"
+            AutoFlushedItem.findAllByNameLike("ITEM%").size() == 10
+    }
+
+    @Override
+    List getDomainClasses() {
+        [AutoFlushedItem]
+    }
+}
+
+@Entity
+class AutoFlushedItem {
+    Long id
+    Long version
+    String name
+}
@@ -0,0 +1,130 @@
+package org.grails.datastore.gorm.mongo
+
+import grails.gorm.CriteriaBuilder
+import grails.gorm.tests.GormDatastoreSpec
+import grails.gorm.tests.Person
+import org.grails.datastore.mapping.mongo.query.MongoQuery
+import org.springframework.dao.InvalidDataAccessApiUsageException
+
+class CursorQueryArgumentsSpec extends GormDatastoreSpec {
+
+    void "Test that cursor options can be set on criteria queries"() {
+        given:"Some people"
+            createPeople()
+
+        when:"A criteria query sets cursor options"
+            CriteriaBuilder c = Person.createCriteria()
+            def results = c.list {
+                eq 'lastName', 'Simpson'
+                batchSize 2
+                noCursorTimeout true
+                maxTimeMS 10000
+                order 'firstName'
+            }
+
+        then:"The options are applied and all results are returned"
+            c.query.@batchSize == 2
+            c.query.@noCursorTimeout == true
+            c.query.@maxTimeMS == 10000
+            results*.firstName == ['Bart', 'Homer', 'Lisa', 'Marge']
+
+        when:"A dynamic finder sets cursor options"
+            results = Person.findAllByLastName("Simpson", [batchSize: 1, maxTimeMS: 10000])
+
+        then:"All results are returned"
+            results.size() == 4
+    }
+
+    void "Test that only the selected fields are populated"() {
+        given:"Some people"
+            createPeople()
+
+        when:"A query selects some fields"
+            def results = Person.findAllByLastName("Simpson", [fields: ['firstName'], sort: 'firstName'])
+
+        then:"Only those fields are populated"
+            results*.firstName == ['Bart', 'Homer', 'Lisa', 'Marge']
+            results.every { it.id != null && it.lastName == null && it.age == 0 }
+
+        when:"The entities are then read"
+            def homer = Person.findByFirstName("Homer")
+
+        then:"The partially populated entities were not cached"
+            homer.lastName == 'Simpson'
+            homer.age == 45
+    }
+
+    void "Test that partially populated entities can't be saved"() {
+        given:"Some people"
+            createPeople()
+
+        when:"An entity loaded with only some of its fields is changed and saved"
+            def bart = Person.findByFirstName("Bart", [fields: ['firstName']])
+            bart.firstName = "Bartholomew"
+            bart.save(flush: true)
+
+        then:"An exception is thrown"
+            thrown(InvalidDataAccessApiUsageException)
+
+        when:"The entity is read again"
+            session.clear()
+            bart = Person.findByFirstName("Bart")
+
+        then:"The fields that were not selected are unchanged"
+            bart.lastName == 'Simpson'
+            bart.age == 9
+    }
+
+    void "Test that every partially populated instance of an entity is tracked"() {
+        given:"Some people"
+            createPeople()
+
+        when:"The same entity is loaded twice with only some of its fields and the first instance is saved"
+            def first = Person.findByFirstName("Bart", [fields: ['firstName']])
+            def second = Person.findByFirstName("Bart", [fields: ['firstName']])
+            first.firstName = "Bartholomew"
+            first.save(flush: true)
+
+        then:"The instances are distinct and the first one is still rejected"
+            !first.is(second)
+            thrown(InvalidDataAccessApiUsageException)
+    }
+
+    void "Test that iterate only queries can be iterated over once"() {
+        given:"Some people"
+            createPeople()
+
+        when:"An iterate only query is iterated over"
+            session.clear()
+            def results = Person.findAllByLastName("Simpson", [iterateOnly: true, batchSize: 2])
+            def names = []
+            for (p in results) {
+                names << p.firstName
+            }
+
+        then:"All results are returned without being cached"
+            results instanceof MongoQuery.MongoResultList
+            names.sort() == ['Bart', 'Homer', 'Lisa', 'Marge']
+
+        when:"It is iterated over again"
+            results.iterator()
+
+        then:"An exception is thrown"
+            thrown(IllegalStateException)
+
+        when:"An element is accessed by index"
+            Person.findAllByLastName("Simpson", [iterateOnly: true]).get(0)
+
+        then:"An exception is thrown"
+            thrown(UnsupportedOperationException)
+    }
+
+    private void createPeople() {
+        new Person(firstName: "Homer", lastName: "Simpson", age: 45).save()
+        new Person(firstName: "Marge", lastName: "Simpson", age: 40).save()
+        new Person(firstName: "Bart", lastName: "Simpson", age: 9).save()
+        new Person(firstName: "Lisa", lastName: "Simpson", age: 7).save()
+        new Person(firstName: "Barney", lastName: "Rubble", age: 35).save(flush: true)
+        session.clear()
+    }
+}
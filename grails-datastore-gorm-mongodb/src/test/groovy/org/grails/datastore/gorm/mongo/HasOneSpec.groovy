@@ -1,7 +1,10 @@
 package org.grails.datastore.gorm.mongo
 
+import com.mongodb.MongoClient
+import com.mongodb.client.MongoDatabase
 import grails.gorm.tests.GormDatastoreSpec
 import grails.persistence.Entity
+import org.bson.Document
 
 /**
  * Tests hasOne functionality with MongoDB.
@@ -50,6 +53,57 @@ class HasOneSpec extends GormDatastoreSpec {
             Nose.count() == 0
     }
 
+    void "Test that hasOne associations are loaded for every entity returned by a query"() {
+        when:"Several entities with a hasOne association are queried"
+            5.times { i ->
+                def nose = new Nose(isLong: i % 2 == 0)
+                def f = new Face(name: "Face $i", nose: nose)
+                nose.face = f
+                f.save()
+            }
+            new Face(name: "No Nose").save(flush:true)
+            session.clear()
+            def faces = Face.list(sort: "name")
+
+        then:"Each entity has its own association"
+            faces.size() == 6
+            faces.findAll { it.name.startsWith("Face") }.every { it.nose != null && it.nose.face.id == it.id }
+            faces.find { it.name == "Face 0" }.nose.isLong
+            !faces.find { it.name == "Face 1" }.nose.isLong
+            faces.find { it.name == "No Nose" }.nose == null
+    }
+
+    void "Test that the hasOne associations of the entities returned by a query are loaded with a query per batch"() {
+        given:"More entities with a hasOne association than are decoded in a batch"
+            150.times { i ->
+                def nose = new Nose(isLong: i % 2 == 0)
+                def f = new Face(name: "Face $i", nose: nose)
+                nose.face = f
+                f.save()
+            }
+            session.flush()
+            session.clear()
+
+        and:"The queries sent to the server are profiled"
+            MongoDatabase db = ((MongoClient) session.nativeInterface).getDatabase(session.getDatabase(session.mappingContext.getPersistentEntity(Nose.name)))
+            String noseNamespace = "${db.name}.${Nose.collection.namespace.collectionName}".toString()
+            db.runCommand(new Document('profile', 2))
+            long before = db.getCollection('system.profile').count(new Document('ns', noseNamespace))
+
+        when:"The entities are queried"
+            def faces = Face.list()
+
+        then:"Each entity has its association"
+            faces.size() == 150
+            faces.every { it.nose != null && it.nose.face.id == it.id }
+
+        and:"The associations were not loaded with a query per entity"
+            db.getCollection('system.profile').count(new Document('ns', noseNamespace)) - before < 10
+
+        cleanup:
+            db?.runCommand(new Document('profile', 0))
+    }
+
     @Override
     List getDomainClasses() {
         [Face, Nose]
@@ -0,0 +1,80 @@
+package org.grails.datastore.gorm.mongo
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+
+/**
+ * Tests that cached queries are served from the query result cache instead of the server
+ */
+class MongoQueryResultCacheSpec extends GormDatastoreSpec {
+
+    void "Test that the second execution of a cached query is not sent to the server"() {
+        given:"Some people"
+            createPeople()
+            def queryResultCache = session.datastore.queryResultCache
+            long hits = queryResultCache.hitCount
+
+        when:"A cached query is executed, a matching document is inserted directly and the query is executed again"
+            def first = CachedPerson.findAllByFamily("Simpson", [cache: true, sort: 'name'])
+            CachedPerson.collection.insert(_id: 100L, name: "Maggie", family: "Simpson")
+            def second = CachedPerson.findAllByFamily("Simpson", [cache: true, sort: 'name'])
+
+        then:"The second execution returns the cached results without reading the inserted document"
+            first*.name == ["Bart", "Lisa"]
+            second*.name == ["Bart", "Lisa"]
+            queryResultCache.hitCount == hits + 1
+
+        when:"The entity is written through the session and the query is executed again"
+            new CachedPerson(name: "Homer", family: "Simpson").save(flush: true)
+            def third = CachedPerson.findAllByFamily("Simpson", [cache: true, sort: 'name'])
+
+        then:"The query is sent to the server again"
+            third*.name == ["Bart", "Homer", "Lisa", "Maggie"]
+            queryResultCache.hitCount == hits + 1
+    }
+
+    void "Test that the second execution of a cached projection is not sent to the server"() {
+        given:"Some people"
+            createPeople()
+            def queryResultCache = session.datastore.queryResultCache
+            long hits = queryResultCache.hitCount
+
+        when:"A cached projection is executed, a matching document is inserted directly and the projection is executed again"
+            def first = CachedPerson.withCriteria {
+                eq 'family', 'Simpson'
+                projections { property 'name' }
+                cache true
+            }
+            CachedPerson.collection.insert(_id: 100L, name: "Maggie", family: "Simpson")
+            def second = CachedPerson.withCriteria {
+                eq 'family', 'Simpson'
+                projections { property 'name' }
+                cache true
+            }
+
+        then:"The second execution returns the cached values"
+            first.sort() == ["Bart", "Lisa"]
+            second.sort() == ["Bart", "Lisa"]
+            queryResultCache.hitCount == hits + 1
+    }
+
+    protected void createPeople() {
+        new CachedPerson(name: "Bart", family: "Simpson").save()
+        new CachedPerson(name: "Lisa", family: "Simpson").save()
+        new CachedPerson(name: "Ned", family: "Flanders").save(flush: true)
+        session.clear()
+        session.datastore.queryResultCache.clear()
+    }
+
+    @Override
+    List getDomainClasses() {
+        [CachedPerson]
+    }
+}
+
+@Entity
+class CachedPerson {
+    Long id
+    String name
+    String family
+}
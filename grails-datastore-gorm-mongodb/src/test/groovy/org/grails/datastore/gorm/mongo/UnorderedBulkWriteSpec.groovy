@@ -0,0 +1,93 @@
+package org.grails.datastore.gorm.mongo
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.persistence.Entity
+import org.grails.datastore.mapping.core.OptimisticLockingException
+import org.grails.datastore.mapping.mongo.MongoCodecSession
+import org.grails.datastore.mapping.mongo.MongoDatastore
+
+/**
+ * Tests flushing with unordered bulk writes
+ */
+class UnorderedBulkWriteSpec extends GormDatastoreSpec {
+
+    void "Test that inserts, updates and deletes to several collections are flushed with unordered bulk writes"() {
+        given:"A session that flushes with unordered bulk writes in batches smaller than the number of writes"
+            MongoDatastore datastore = (MongoDatastore) session.datastore
+            int maxWriteBatchSize = datastore.maxWriteBatchSize
+            datastore.maxWriteBatchSize = 3
+            ((MongoCodecSession) session).unorderedBulkWrites = true
+            int count = datastore.maxWriteBatchSize * 3 + 1
+
+        when:"More entities of several types than fit in a batch are saved"
+            count.times { i ->
+                new ImportedAuthor(name: "Author $i").save()
+                new ImportedBook(title: "Book $i").save()
+            }
+            session.flush()
+            session.clear()
+
+        then:"They are all written"
+            ImportedAuthor.count() == count
+            ImportedBook.count() == count
+
+        when:"Entities are updated and deleted"
+            ImportedAuthor.list().each { it.name = it.name.toUpperCase(); it.save() }
+            ImportedBook.list().findAll { it.title != "Book 0" }*.delete()
+            session.flush()
+            session.clear()
+
+        then:"The updates and deletes are written"
+            ImportedAuthor.findAllByNameLike("AUTHOR%").size() == count
+            ImportedBook.list()*.title == ["Book 0"]
+
+        cleanup:
+            datastore.maxWriteBatchSize = maxWriteBatchSize
+    }
+
+    void "Test that optimistic locking failures are detected with unordered bulk writes"() {
+        given:"A session that flushes with unordered bulk writes"
+            ((MongoCodecSession) session).unorderedBulkWrites = true
+            ImportedAuthor author = new ImportedAuthor(name: "Bob").save(flush: true)
+            new ImportedBook(title: "First").save(flush: true)
+            session.clear()
+
+        when:"An entity is updated concurrently"
+            author = ImportedAuthor.get(author.id)
+            ImportedBook book = ImportedBook.findByTitle("First")
+            Thread.start {
+                ImportedAuthor.withNewSession {
+                    ImportedAuthor other = ImportedAuthor.get(author.id)
+                    other.name = "Fred"
+                    other.save(flush: true)
+                }
+            }.join()
+            author.name = "Joe"
+            book.title = "Second"
+            author.save()
+            book.save()
+            session.flush()
+
+        then:"An optimistic locking exception is thrown"
+            thrown(OptimisticLockingException)
+    }
+
+    @Override
+    List getDomainClasses() {
+        [ImportedAuthor, ImportedBook]
+    }
+}
+
+@Entity
+class ImportedAuthor {
+    Long id
+    Long version
+    String name
+}
+
+@Entity
+class ImportedBook {
+    Long id
+    Long version
+    String title
+}
@@ -30,6 +30,13 @@ public class CypherBuilder {
     public static final String CYPHER_CREATE = "CREATE ";
     public static final String CYPHER_MATCH_ID = "MATCH (n%s) WHERE n."+IDENTIFIER+"={id}";
     public static final String CYPHER_MATCH_NATIVE_ID = "MATCH (n%s) WHERE ID(n) = {id}";
+    public static final String IDS = "ids";
+    public static final String ROWS = "rows";
+    public static final String ROW = "row";
+    public static final String CYPHER_UNWIND_CREATE = "UNWIND {"+ROWS+"} AS "+ROW+" CREATE (n%s) SET n = "+ROW;
+    public static final String CYPHER_UNWIND_MATCH_ID = "UNWIND {"+ROWS+"} AS "+ROW+" MATCH (n%s) WHERE n."+IDENTIFIER+" = "+ROW+".id";
+    public static final String CYPHER_UNWIND_MATCH_NATIVE_ID = "UNWIND {"+ROWS+"} AS "+ROW+" MATCH (n%s) WHERE ID(n) = "+ROW+".id";
+    public static final String CYPHER_RETURN_ROW_ID = " RETURN "+ROW+".id as id";
     public static final String NODE_LABELS = "labels";
     public static final String NODE_DATA = "data";
     public final static String NODE_VAR = "n";
@@ -79,6 +79,13 @@ public class GraphPersistentEntity extends AbstractPersistentEntity<Neo4jEntity>
         new GraphClassMapping(this, context);
     }
 
+    /**
+     * @return The number of lazy associations of the same property that are loaded with a single query
+     */
+    int getBatchSize() {
+        return mappedForm.batchSize
+    }
+
     /**
      * @return The ID generator to use
      */
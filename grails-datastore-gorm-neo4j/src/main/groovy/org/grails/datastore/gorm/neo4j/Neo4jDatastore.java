@@ -85,6 +85,7 @@ public class Neo4jDatastore extends AbstractDatastore implements InitializingBea
      */
     public Neo4jDatastore(MappingContext mappingContext, PropertyResolver configuration, ConfigurableApplicationContext applicationContext) {
         super(mappingContext, new PropertyResolverMap(configuration), applicationContext);
+        initializeIdGenerator(mappingContext);
         this.graphDatabaseService = createGraphDatabaseService(configuration);
     }
 
@@ -97,6 +98,7 @@ public class Neo4jDatastore extends AbstractDatastore implements InitializingBea
      */
     public Neo4jDatastore(MappingContext mappingContext, PropertyResolver configuration, ConfigurableApplicationContext applicationContext, GraphDatabaseService graphDatabaseService) {
         super(mappingContext, new PropertyResolverMap(configuration), applicationContext);
+        initializeIdGenerator(mappingContext);
         this.graphDatabaseService = graphDatabaseService;
     }
 
@@ -114,6 +116,19 @@ public class Neo4jDatastore extends AbstractDatastore implements InitializingBea
         this(mappingContext, applicationContext.getEnvironment(), applicationContext, graphDatabaseService);
     }
 
+    /**
+     * Makes the snowflake identifiers of the mapping context come from the generator shared by this datastore, which is
+     * configured with the snowflakeWorkerId and snowflakeMaxClockBackwardsMillis settings
+     */
+    protected void initializeIdGenerator(MappingContext mappingContext) {
+        if (mappingContext instanceof Neo4jMappingContext) {
+            IdGenerator idGenerator = ((Neo4jMappingContext) mappingContext).getIdGenerator();
+            if (idGenerator instanceof SnowflakeIdGenerator) {
+                ((SnowflakeIdGenerator) idGenerator).setGenerator(getSnowflakeIdentityGenerator());
+            }
+        }
+    }
+
     protected GraphDatabaseService createGraphDatabaseService(PropertyResolver configuration) {
         this.defaultFlushMode = configuration.getProperty(SETTING_NEO4J_FLUSH_MODE, FlushModeType.class, FlushModeType.AUTO);
         final String type = configuration.getProperty(SETTING_NEO4J_TYPE, DEFAULT_DATABASE_TYPE);
@@ -3,12 +3,14 @@ package org.grails.datastore.gorm.neo4j;
 import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import com.googlecode.concurrentlinkedhashmap.EvictionListener;
 import org.grails.datastore.gorm.neo4j.engine.*;
+import org.grails.datastore.mapping.collection.PersistentCollection;
 import org.grails.datastore.mapping.core.AbstractSession;
 import org.grails.datastore.mapping.core.Datastore;
 import org.grails.datastore.mapping.core.OptimisticLockingException;
 import org.grails.datastore.mapping.core.impl.*;
 import org.grails.datastore.mapping.dirty.checking.DirtyCheckable;
 import org.grails.datastore.mapping.engine.EntityAccess;
+import org.grails.datastore.mapping.engine.EntityPersister;
 import org.grails.datastore.mapping.engine.Persister;
 import org.grails.datastore.mapping.engine.types.CustomTypeMarshaller;
 import org.grails.datastore.mapping.model.MappingContext;
@@ -18,6 +20,7 @@ import org.grails.datastore.mapping.model.config.GormProperties;
 import org.grails.datastore.mapping.model.types.Association;
 import org.grails.datastore.mapping.model.types.Custom;
 import org.grails.datastore.mapping.model.types.Simple;
+import org.grails.datastore.mapping.proxy.ProxyFactory;
 import org.grails.datastore.mapping.query.Query;
 import org.grails.datastore.mapping.query.Restrictions;
 import org.grails.datastore.mapping.query.api.QueryableCriteria;
@@ -80,6 +83,12 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
                     .maximumWeightedCapacity(5000).build();
 
 
+    /** the ids of the entities whose lazy associations have not been initialized, for entities with a batch size */
+    protected Map<Association, Set<Serializable>> uninitializedAssociations = new HashMap<Association, Set<Serializable>>();
+
+    /** the results of lazy associations loaded with the batch of another entity, but not yet initialized */
+    protected Map<RelationshipUpdateKey, List<Object>> associationBatchResults = new HashMap<RelationshipUpdateKey, List<Object>>();
+
     /** map node id -> hashmap of relationship types showing startNode id and endNode id */
     protected final GraphDatabaseService graphDatabaseService;
 
@@ -126,6 +135,133 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
         inserts.add(id);
     }
 
+    /**
+     * Registers a lazy association that has not been initialized, so that it can be loaded with the batch of another entity
+     *
+     * @param association The association
+     * @param id The id of the entity that owns the association
+     * @see org.grails.datastore.gorm.neo4j.mapping.config.Neo4jEntity#getBatchSize()
+     */
+    public void addUninitializedAssociation(Association association, Serializable id) {
+        Set<Serializable> ids = uninitializedAssociations.get(association);
+        if (ids == null) {
+            ids = new LinkedHashSet<Serializable>();
+            uninitializedAssociations.put(association, ids);
+        }
+        ids.add(id);
+    }
+
+    /**
+     * Obtains the ids of the entities whose association should be loaded together with the association of the given entity
+     *
+     * @param association The association
+     * @param id The id of the entity whose association is initialized
+     * @param batchSize The maximum number of ids
+     * @return The given id followed by the ids of other entities whose association has not been initialized
+     */
+    public List<Serializable> nextAssociationBatch(Association association, Serializable id, int batchSize) {
+        List<Serializable> batch = new ArrayList<Serializable>(batchSize);
+        batch.add(id);
+        Set<Serializable> ids = uninitializedAssociations.get(association);
+        if (ids != null) {
+            ids.remove(id);
+            final Iterator<Serializable> iterator = ids.iterator();
+            while (batch.size() < batchSize && iterator.hasNext()) {
+                Serializable other = iterator.next();
+                iterator.remove();
+                if (isUninitializedAssociation(association, other)) {
+                    batch.add(other);
+                }
+            }
+            if (ids.isEmpty()) {
+                uninitializedAssociations.remove(association);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Stops tracking the association of the given entity, once it has been replaced or the entity has been evicted
+     *
+     * @param association The association
+     * @param id The id of the entity that owns the association
+     */
+    public void removeUninitializedAssociation(Association association, Serializable id) {
+        if (id == null) {
+            return;
+        }
+        Set<Serializable> ids = uninitializedAssociations.get(association);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                uninitializedAssociations.remove(association);
+            }
+        }
+        associationBatchResults.remove(new RelationshipUpdateKey(id, association));
+    }
+
+    /**
+     * Whether the owner of the association is still in the session and its association is still the uninitialized
+     * lazy collection or proxy created when it was loaded
+     */
+    protected boolean isUninitializedAssociation(Association association, Serializable id) {
+        PersistentEntity owner = association.getOwner();
+        Object instance = getCachedInstance(owner.getJavaClass(), id);
+        if (instance == null) {
+            return false;
+        }
+        Object value = getMappingContext().createEntityAccess(owner, instance).getProperty(association.getName());
+        if (value instanceof PersistentCollection) {
+            return !((PersistentCollection) value).isInitialized();
+        }
+        ProxyFactory proxyFactory = getMappingContext().getProxyFactory();
+        return value != null && proxyFactory.isProxy(value) && !proxyFactory.isInitialized(value);
+    }
+
+    /**
+     * Stores the result of a lazy association that was loaded with the batch of another entity
+     *
+     * @param association The association
+     * @param id The id of the entity that owns the association
+     * @param result The associated entities
+     */
+    public void addAssociationBatchResult(Association association, Serializable id, List<Object> result) {
+        associationBatchResults.put(new RelationshipUpdateKey(id, association), result);
+    }
+
+    /**
+     * Removes the result of a lazy association that was loaded with the batch of another entity
+     *
+     * @param association The association
+     * @param id The id of the entity that owns the association
+     * @return The associated entities or null if the association was not loaded with a batch
+     */
+    public List<Object> removeAssociationBatchResult(Association association, Serializable id) {
+        return associationBatchResults.remove(new RelationshipUpdateKey(id, association));
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        uninitializedAssociations.clear();
+        associationBatchResults.clear();
+    }
+
+    @Override
+    public void clear(Object o) {
+        if (o == null || isStateless()) {
+            return;
+        }
+        Persister persister = getPersister(o);
+        Serializable id = persister != null ? persister.getObjectIdentifier(o) : null;
+        super.clear(o);
+        if (id != null && persister instanceof EntityPersister && (!uninitializedAssociations.isEmpty() || !associationBatchResults.isEmpty())) {
+            for (Association association : ((EntityPersister) persister).getPersistentEntity().getAssociations()) {
+                removeUninitializedAssociation(association, id);
+            }
+        }
+    }
+
     @Override
     protected void clearPendingOperations() {
         try {
@@ -220,7 +356,8 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
     @Override
     protected void flushPendingUpdates(Map<PersistentEntity, Collection<PendingUpdate>> updates) {
 
-        // UPDATE statements cannot be batched, but optimise statements for dirty checking
+        // updates are grouped by labels and nulled properties, so that each group is executed with
+        // a single UNWIND statement whose text does not depend on the number of updates
         final Set<PersistentEntity> entities = updates.keySet();
         final Neo4jMappingContext mappingContext = (Neo4jMappingContext) getMappingContext();
 
@@ -230,6 +367,7 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
             GraphPersistentEntity graphPersistentEntity = (GraphPersistentEntity) entity;
             final boolean isNativeId = graphPersistentEntity.getIdGenerator() == null;
             final boolean isVersioned = entity.hasProperty(GormProperties.VERSION, Long.class) && entity.isVersioned();
+            final Map<String, UnwindGroup> groups = new LinkedHashMap<String, UnwindGroup>();
 
             for (PendingUpdate pendingUpdate : pendingUpdates) {
                 final List<PendingOperation> preOperations = pendingUpdate.getPreOperations();
@@ -243,20 +381,10 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
                 final List<PendingOperation<Object, Serializable>> cascadingOperations = new ArrayList<PendingOperation<Object, Serializable>>(pendingUpdate.getCascadeOperations());
 
                 final String labels = ((GraphPersistentEntity)entity).getLabelsWithInheritance(access.getEntity());
-                final StringBuilder cypherStringBuilder = new StringBuilder();
 
-                final Map<String,Object> params =  new LinkedHashMap<String, Object>(2);
                 final Serializable id = (Serializable)pendingUpdate.getNativeKey();
-                params.put(GormProperties.IDENTITY, id);
                 final Map<String, Object> simpleProps = new HashMap<String, Object>();
 
-                if(isNativeId) {
-                    cypherStringBuilder.append(CypherBuilder.CYPHER_MATCH_NATIVE_ID);
-                }
-                else {
-                    cypherStringBuilder.append(CypherBuilder.CYPHER_MATCH_ID);
-                }
-
                 final Object object = pendingUpdate.getObject();
                 final DirtyCheckable dirtyCheckable = (DirtyCheckable) object;
                 final List<String> dirtyPropertyNames = dirtyCheckable.listDirtyPropertyNames();
@@ -296,44 +424,79 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
 
                 }
                 else {
-                    params.put(CypherBuilder.PROPS, simpleProps);
+                    final Map<String,Object> row =  new LinkedHashMap<String, Object>(3);
+                    row.put(GormProperties.IDENTITY, id);
+                    row.put(CypherBuilder.PROPS, simpleProps);
                     if(isVersioned) {
                         Long version = (Long) access.getProperty(GormProperties.VERSION);
                         if (version == null) {
                             version = 0l;
                         }
-                        params.put(GormProperties.VERSION, version);
-                        cypherStringBuilder.append(" AND n.version={version}");
+                        row.put(GormProperties.VERSION, version);
                         long newVersion = version + 1;
                         simpleProps.put(GormProperties.VERSION, newVersion);
                         access.setProperty(GormProperties.VERSION, newVersion);
                     }
-                    cypherStringBuilder.append(" SET n+={props}");
-                    if(!nulls.isEmpty()) {
+
+                    Collections.sort(nulls);
+                    final String groupKey = labels + nulls;
+                    UnwindGroup group = groups.get(groupKey);
+                    if(group == null) {
+                        final StringBuilder cypherStringBuilder = new StringBuilder(isNativeId ? CypherBuilder.CYPHER_UNWIND_MATCH_NATIVE_ID : CypherBuilder.CYPHER_UNWIND_MATCH_ID);
+                        if(isVersioned) {
+                            cypherStringBuilder.append(" AND n.version = row.version");
+                        }
+                        cypherStringBuilder.append(" SET n += row.props");
                         for (String aNull : nulls) {
                             cypherStringBuilder.append(",n.").append(aNull).append(" = NULL");
                         }
+                        cypherStringBuilder.append(CypherBuilder.CYPHER_RETURN_ROW_ID);
+                        group = new UnwindGroup(String.format(cypherStringBuilder.toString(), labels));
+                        groups.put(groupKey, group);
                     }
-                    cypherStringBuilder.append(Neo4jEntityPersister.RETURN_NODE_ID);
-                    String cypher = String.format(cypherStringBuilder.toString(), labels);
-                    if( log.isDebugEnabled() ) {
-                        log.debug("UPDATE Cypher [{}] for parameters [{}]", cypher, params);
-                    }
+                    group.add(row, id, dirtyCheckable, cascadingOperations);
+                }
+            }
 
-                    final Result executionResult = graphDatabaseService.execute(cypher, params);
-                    Map<String, Object> result = IteratorUtil.singleOrNull(executionResult);
-                    if (result == null && isVersioned) {
-                        throw new OptimisticLockingException(entity, id);
-                    }
-                    else {
-                        // reset track changes
-                        dirtyCheckable.trackChanges();
-                        executePendings(cascadingOperations);
-                    }
+            for (UnwindGroup group : groups.values()) {
+                executeUpdateGroup(entity, group, isVersioned);
+            }
+        }
+
+    }
+
+    private void executeUpdateGroup(PersistentEntity entity, UnwindGroup group, boolean isVersioned) {
+        final int size = group.rows.size();
+        final int chunkSize = getFlushBatchSize() > 0 ? getFlushBatchSize() : size;
+        for (int from = 0; from < size; from += chunkSize) {
+            final int to = Math.min(size, from + chunkSize);
+            final Map<String, Object> params = Collections.<String, Object>singletonMap(CypherBuilder.ROWS, group.rows.subList(from, to));
+            if( log.isDebugEnabled() ) {
+                log.debug("UPDATE Cypher [{}] for parameters [{}]", group.cypher, params);
+            }
+
+            final Result executionResult = graphDatabaseService.execute(group.cypher, params);
+            final Set<Object> updatedIds = new HashSet<Object>();
+            while (executionResult.hasNext()) {
+                updatedIds.add(normalizeId(executionResult.next().get(GormProperties.IDENTITY)));
+            }
+
+            for (int i = from; i < to; i++) {
+                final Serializable id = group.ids.get(i);
+                if (isVersioned && !updatedIds.contains(normalizeId(id))) {
+                    throw new OptimisticLockingException(entity, id);
+                }
+                else {
+                    // reset track changes
+                    group.dirtyCheckables.get(i).trackChanges();
+                    executePendings(group.cascadingOperations.get(i));
                 }
             }
         }
+    }
 
+    private static Object normalizeId(Object id) {
+        return id instanceof Number ? ((Number) id).longValue() : id;
     }
 
     private void processPendingRelationshipUpdates(EntityAccess parent, Serializable parentId, Association association, List<PendingOperation<Object, Serializable>> cascadingOperations) {
@@ -351,14 +514,10 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
     @Override
     protected void flushPendingInserts(Map<PersistentEntity, Collection<PendingInsert>> inserts) {
 
-        // batch up all inserts into a single CREATE statement
+        // batch up the inserts of each set of labels into a single UNWIND ... CREATE statement
         final Set<PersistentEntity> entities = inserts.keySet();
         final Neo4jMappingContext mappingContext = (Neo4jMappingContext) getMappingContext();
-        int i = 0;
-        boolean first = true;
-        boolean hasInserts = false;
-        StringBuilder createCypher = new StringBuilder(CypherBuilder.CYPHER_CREATE);
-        final Map<String, Object> params = new HashMap<String, Object>(inserts.size());
+        final Map<String, List<Map<String, Object>>> rowsByLabels = new LinkedHashMap<String, List<Map<String, Object>>>();
         List<PendingOperation<Object, Serializable>> cascadingOperations = new ArrayList<PendingOperation<Object, Serializable>>();
         for (PersistentEntity entity : entities) {
             final Collection<PendingInsert> entityInserts = inserts.get(entity);
@@ -386,31 +545,30 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
 
                     cascadingOperations.addAll(entityInsert.getCascadeOperations());
 
-                    hasInserts = true;
-                    i++;
-                    if(!first) {
-                        createCypher.append(',');
-                        createCypher.append('\n');
-                    }
-                    else {
-                        first = false;
+                    final String labels = ((GraphPersistentEntity) entity).getLabelsWithInheritance(entityInsert.getObject());
+                    List<Map<String, Object>> rows = rowsByLabels.get(labels);
+                    if(rows == null) {
+                        rows = new ArrayList<Map<String, Object>>();
+                        rowsByLabels.put(labels, rows);
                     }
-
-                    buildEntityCreateOperation(createCypher, String.valueOf(i), entity, entityInsert, params, cascadingOperations, mappingContext);
+                    rows.add(buildEntityCreateProperties(entity, entityInsert, cascadingOperations, mappingContext));
                 }
             }
 
         }
 
 
-        if(hasInserts) {
-
-            final String finalCypher = createCypher.toString();
-            if(log.isDebugEnabled()) {
-                log.debug("CREATE Cypher [{}] for parameters [{}]", finalCypher, params);
+        for (Map.Entry<String, List<Map<String, Object>>> entry : rowsByLabels.entrySet()) {
+            final String cypher = String.format(CypherBuilder.CYPHER_UNWIND_CREATE, entry.getKey());
+            final List<Map<String, Object>> rows = entry.getValue();
+            final int chunkSize = getFlushBatchSize() > 0 ? getFlushBatchSize() : rows.size();
+            for (int from = 0; from < rows.size(); from += chunkSize) {
+                final Map<String, Object> params = Collections.<String, Object>singletonMap(CypherBuilder.ROWS, rows.subList(from, Math.min(rows.size(), from + chunkSize)));
+                if(log.isDebugEnabled()) {
+                    log.debug("CREATE Cypher [{}] for parameters [{}]", cypher, params);
+                }
+                graphDatabaseService.execute(cypher, params);
             }
-            graphDatabaseService.execute(finalCypher, params);
-
         }
         executePendings(cascadingOperations);
 
@@ -423,6 +581,20 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
     }
 
     public void buildEntityCreateOperation(StringBuilder createCypher, String index, PersistentEntity entity, PendingInsert entityInsert, Map<String, Object> params, List<PendingOperation<Object, Serializable>> cascadingOperations, Neo4jMappingContext mappingContext) {
+        final String labels = ((GraphPersistentEntity) entity).getLabelsWithInheritance(entityInsert.getObject());
+
+        String cypher = String.format("(n"+ index +"%s {props"+ index +"})", labels);
+        createCypher.append(cypher);
+        params.put("props" + index, buildEntityCreateProperties(entity, entityInsert, cascadingOperations, mappingContext));
+    }
+
+    /**
+     * Builds the properties of the node created for a pending insert and adds the operations that create its
+     * relationships to the cascading operations
+     *
+     * @return The properties of the node
+     */
+    public Map<String, Object> buildEntityCreateProperties(PersistentEntity entity, PendingInsert entityInsert, List<PendingOperation<Object, Serializable>> cascadingOperations, Neo4jMappingContext mappingContext) {
         GraphPersistentEntity graphPersistentEntity = (GraphPersistentEntity) entity;
         final List<PersistentProperty> persistentProperties = entity.getPersistentProperties();
         Map<String, Object> simpleProps = new HashMap<String, Object>(persistentProperties.size());
@@ -436,10 +608,6 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
         final GraphPersistentEntity graphEntity = (GraphPersistentEntity) entity;
         final String labels = graphEntity.getLabelsWithInheritance(obj);
 
-        String cypher = String.format("(n"+ index +"%s {props"+ index +"})", labels);
-        createCypher.append(cypher);
-        params.put("props" + index, simpleProps);
-
         Map<String, List<Object>> dynamicRelProps = amendMapWithUndeclaredProperties(simpleProps, obj, mappingContext);
         final EntityAccess access = entityInsert.getEntityAccess();
         // build a properties map for each CREATE statement
@@ -505,6 +673,7 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
                 }
             }
         }
+        return simpleProps;
     }
 
 
@@ -615,8 +784,13 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
             if( transaction.getTransactionDefinition().isReadOnly() ) {
                 return;
             }
-            persistDirtyButUnsavedInstances();
-            super.flush();
+            boolean wasFlushing = setFlushing(true);
+            try {
+                persistDirtyButUnsavedInstances();
+                super.flush();
+            } finally {
+                setFlushing(wasFlushing);
+            }
         }
     }
 
@@ -632,6 +806,13 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
     @Override
     protected void postFlush(boolean hasUpdates) {
         super.postFlush(hasUpdates);
+        if (hasUpdates && !associationBatchResults.isEmpty()) {
+            // the relationships may have changed since the batch was loaded, so load them again with the next batch
+            for (RelationshipUpdateKey key : associationBatchResults.keySet()) {
+                addUninitializedAssociation(key.association, key.id);
+            }
+            associationBatchResults.clear();
+        }
         if (publisher!=null) {
             publisher.publishEvent(new SessionFlushedEvent(this));
         }
@@ -659,12 +840,19 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
     private void persistDirtyButUnsavedInstances() {
         for (Map<Serializable, Object> cache : firstLevelCache.values()) {
             for (Object obj: cache.values()) {
-                if (obj instanceof DirtyCheckable) {
-                    boolean isDirty = ((DirtyCheckable)obj).hasChanged();
-                    if (isDirty) {
-                        persist(obj);
-                    }
-                }
+                persistIfDirty(obj);
+            }
+        }
+        for (Object obj : getEvictedInstances()) {
+            persistIfDirty(obj);
+        }
+    }
+
+    private void persistIfDirty(Object obj) {
+        if (obj instanceof DirtyCheckable) {
+            boolean isDirty = ((DirtyCheckable)obj).hasChanged();
+            if (isDirty) {
+                persist(obj);
             }
         }
     }
@@ -691,6 +879,14 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
         }
         Number count = (Number) query.singleResult();
         graphDatabaseService.execute(cypher, params);
+        clearTPCache(entity);
+        invalidateQueryResultCache(entity);
+        for (Association association : entity.getAssociations()) {
+            if(association.doesCascade(CascadeType.REMOVE)) {
+                clearTPCache(association.getAssociatedEntity());
+                invalidateQueryResultCache(association.getAssociatedEntity());
+            }
+        }
         return count.longValue();
     }
 
@@ -728,6 +924,8 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
             log.debug("UPDATE Cypher [{}] for parameters [{}]", cypher, params);
         }
         final Result execute = graphDatabaseService.execute(cypher, params);
+        clearTPCache(entity);
+        invalidateQueryResultCache(entity);
         if(execute.hasNext()) {
             final Map<String, Object> result = IteratorUtil.single(execute);
             return ((Number) result.get(TOTAL_COUNT)).longValue();
@@ -737,6 +935,28 @@ public class Neo4jSession extends AbstractSession<GraphDatabaseService> {
         }
     }
 
+    /**
+     * The rows of the updates executed with the same UNWIND statement
+     */
+    private static class UnwindGroup {
+        private final String cypher;
+        private final List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+        private final List<Serializable> ids = new ArrayList<Serializable>();
+        private final List<DirtyCheckable> dirtyCheckables = new ArrayList<DirtyCheckable>();
+        private final List<List<PendingOperation<Object, Serializable>>> cascadingOperations = new ArrayList<List<PendingOperation<Object, Serializable>>>();
+
+        UnwindGroup(String cypher) {
+            this.cypher = cypher;
+        }
+
+        void add(Map<String, Object> row, Serializable id, DirtyCheckable dirtyCheckable, List<PendingOperation<Object, Serializable>> cascades) {
+            rows.add(row);
+            ids.add(id);
+            dirtyCheckables.add(dirtyCheckable);
+            cascadingOperations.add(cascades);
+        }
+    }
+
     private static class RelationshipUpdateKey {
         private final Serializable id;
         private final Association association;
@@ -17,6 +17,8 @@ package org.grails.datastore.gorm.neo4j.collection
 
 import groovy.transform.CompileStatic
 import org.grails.datastore.gorm.neo4j.CypherBuilder
+import org.grails.datastore.gorm.neo4j.GraphPersistentEntity
+import org.grails.datastore.gorm.neo4j.TypeDirectionPair
 import org.grails.datastore.gorm.neo4j.engine.Neo4jEntityPersister
 import org.grails.datastore.gorm.query.AbstractResultList
 import org.grails.datastore.mapping.model.types.Association
@@ -39,6 +41,11 @@ class Neo4jResultList extends AbstractResultList {
     private static final Map<Association, Object> EMPTY_ASSOCIATIONS = Collections.<Association, Object> emptyMap()
     private static final Map<String, Object> EMPTY_RESULT_DATA = Collections.<String, Object> emptyMap()
 
+    /**
+     * The number of rows read ahead to load the dynamic associations of their nodes with a single query
+     */
+    public static final int DYNAMIC_ASSOCIATIONS_PAGE_SIZE = 500
+
     final protected transient  Neo4jEntityPersister entityPersister;
 
     protected transient Map<Association, Object> initializedAssociations = EMPTY_ASSOCIATIONS
@@ -46,23 +53,34 @@ class Neo4jResultList extends AbstractResultList {
     protected final LockModeType lockMode
 
     Neo4jResultList(int offset, Result cursor, Neo4jEntityPersister entityPersister, LockModeType lockMode = LockModeType.NONE) {
-        super(offset, (Iterator<Object>)cursor)
+        super(offset, pageCursor((Iterator<Object>)cursor, entityPersister))
         this.entityPersister = entityPersister
         this.lockMode = lockMode;
     }
 
     Neo4jResultList(int offset, Iterator<Object> cursor, Neo4jEntityPersister entityPersister) {
-        super(offset, cursor)
+        super(offset, pageCursor(cursor, entityPersister))
         this.entityPersister = entityPersister
         this.lockMode = LockModeType.NONE;
     }
 
     Neo4jResultList(int offset, Integer size, Iterator<Object> cursor, Neo4jEntityPersister entityPersister) {
-        super(offset, size, cursor)
+        super(offset, size, pageCursor(cursor, entityPersister))
         this.entityPersister = entityPersister
         this.lockMode = LockModeType.NONE;
     }
 
+    /**
+     * For entities with dynamic associations the rows are read a page at a time, so that the dynamic
+     * relationships of all nodes of a page are loaded with one query instead of one query per node
+     */
+    private static Iterator<Object> pageCursor(Iterator<Object> cursor, Neo4jEntityPersister entityPersister) {
+        if (((GraphPersistentEntity) entityPersister.getPersistentEntity()).hasDynamicAssociations()) {
+            return new DynamicAssociationsPageCursor(cursor, entityPersister, DYNAMIC_ASSOCIATIONS_PAGE_SIZE)
+        }
+        return cursor
+    }
+
     /**
      * Set any already initialized associations to avoid extra proxy queries
      *
@@ -79,18 +97,26 @@ class Neo4jResultList extends AbstractResultList {
 
     private Object nextDecodedInternal() {
         def next = cursor.next()
-        if (next instanceof Node) {
-            Node node = (Node) next
-            return entityPersister.unmarshallOrFromCache(entityPersister.getPersistentEntity(), node, EMPTY_RESULT_DATA, initializedAssociations, lockMode)
+        Node node = nodeOf(next)
+        Map<TypeDirectionPair, Map<String, Collection>> dynamicAssociations = null
+        if (cursor instanceof DynamicAssociationsPageCursor) {
+            dynamicAssociations = ((DynamicAssociationsPageCursor) cursor).dynamicAssociationsFor(node)
+        }
+        Map<String, Object> resultData = next instanceof Node ? EMPTY_RESULT_DATA : (Map<String, Object>) next
+        return entityPersister.unmarshallOrFromCache(entityPersister.getPersistentEntity(), node, resultData, initializedAssociations, lockMode, dynamicAssociations)
+    }
+
+    protected static Node nodeOf(Object row) {
+        if (row instanceof Node) {
+            return (Node) row
         } else {
-            Map<String, Object> map = (Map<String, Object>) next
+            Map<String, Object> map = (Map<String, Object>) row
             if (map.containsKey(CypherBuilder.NODE_DATA)) {
-                Node data = (Node) map.get(CypherBuilder.NODE_DATA);
-                return entityPersister.unmarshallOrFromCache(entityPersister.getPersistentEntity(), data, map, initializedAssociations, lockMode)
+                return (Node) map.get(CypherBuilder.NODE_DATA)
             } else {
                 Node node = (Node) map.values().find() { it instanceof Node }
                 if (node != null) {
-                    return entityPersister.unmarshallOrFromCache(entityPersister.getPersistentEntity(), node, map, initializedAssociations, lockMode)
+                    return node
                 } else {
                     throw new QueryException("Query must return a node as the first column of the RETURN statement")
                 }
@@ -101,8 +127,63 @@ class Neo4jResultList extends AbstractResultList {
 
     @Override
     void close() throws IOException {
-        if(cursor instanceof Result) {
-            ((Result)cursor).close()
+        def target = cursor instanceof DynamicAssociationsPageCursor ? ((DynamicAssociationsPageCursor) cursor).rows : cursor
+        if(target instanceof Result) {
+            ((Result)target).close()
+        }
+    }
+
+    /**
+     * Reads the rows of the underlying cursor a page at a time and loads the dynamic associations of the nodes of each page
+     */
+    @CompileStatic
+    private static class DynamicAssociationsPageCursor implements Iterator<Object> {
+
+        final Iterator<Object> rows
+        private final Neo4jEntityPersister entityPersister
+        private final int pageSize
+        private final Deque<Object> page = new ArrayDeque<Object>()
+        private Map<Serializable, Map<TypeDirectionPair, Map<String, Collection>>> dynamicAssociations = Collections.emptyMap()
+
+        DynamicAssociationsPageCursor(Iterator<Object> rows, Neo4jEntityPersister entityPersister, int pageSize) {
+            this.rows = rows
+            this.entityPersister = entityPersister
+            this.pageSize = pageSize
+        }
+
+        @Override
+        boolean hasNext() {
+            return !page.isEmpty() || rows.hasNext()
+        }
+
+        @Override
+        Object next() {
+            if (page.isEmpty()) {
+                readPage()
+            }
+            return page.removeFirst()
+        }
+
+        /**
+         * @return The dynamic relationships of the node, or null if they have not been loaded with its page
+         */
+        Map<TypeDirectionPair, Map<String, Collection>> dynamicAssociationsFor(Node node) {
+            return dynamicAssociations.get(entityPersister.readIdentifier(entityPersister.getPersistentEntity(), node))
+        }
+
+        @Override
+        void remove() {
+            throw new UnsupportedOperationException("remove")
+        }
+
+        private void readPage() {
+            List<Serializable> ids = new ArrayList<Serializable>()
+            while (page.size() < pageSize && rows.hasNext()) {
+                def row = rows.next()
+                page.add(row)
+                ids.add(entityPersister.readIdentifier(entityPersister.getPersistentEntity(), nodeOf(row)))
+            }
+            dynamicAssociations = entityPersister.loadDynamicAssociations(entityPersister.getPersistentEntity(), ids)
         }
     }
 }
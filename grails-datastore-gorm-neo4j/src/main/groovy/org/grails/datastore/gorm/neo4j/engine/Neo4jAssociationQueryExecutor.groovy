@@ -40,6 +40,8 @@ import org.neo4j.graphdb.Result
 @Slf4j
 class Neo4jAssociationQueryExecutor implements AssociationQueryExecutor<Serializable, Object> {
 
+    private static final String OWNER_ID = "ownerId"
+
     final Neo4jSession session
     final PersistentEntity indexedEntity
     final Association association
@@ -61,6 +63,17 @@ class Neo4jAssociationQueryExecutor implements AssociationQueryExecutor<Serializ
 
     @Override
     List<Object> query(Serializable primaryKey) {
+        int batchSize = ((GraphPersistentEntity)association.owner).batchSize
+        if(batchSize > 1) {
+            List<Object> batchResult = session.removeAssociationBatchResult(association, primaryKey)
+            if(batchResult != null) {
+                return batchResult
+            }
+            List<Serializable> batch = session.nextAssociationBatch(association, primaryKey, batchSize)
+            if(batch.size() > 1) {
+                return queryBatch(primaryKey, batch)
+            }
+        }
 
         GraphDatabaseService graphDatabaseService = (GraphDatabaseService)session.nativeInterface
         def relType = Neo4jQuery.matchForAssociation(association)
@@ -123,4 +136,88 @@ class Neo4jAssociationQueryExecutor implements AssociationQueryExecutor<Serializ
         }
     }
 
+    /**
+     * Loads the association of several entities with a single query. The results of the other entities are
+     * stored in the session until their association is initialized
+     *
+     * @param primaryKey The id of the entity whose association is initialized
+     * @param batch The ids of all entities of the batch
+     * @return The result for the given id
+     */
+    protected List<Object> queryBatch(Serializable primaryKey, List<Serializable> batch) {
+        GraphDatabaseService graphDatabaseService = (GraphDatabaseService)session.nativeInterface
+        def relType = Neo4jQuery.matchForAssociation(association)
+        GraphPersistentEntity parent = (GraphPersistentEntity)association.owner
+        GraphPersistentEntity related = (GraphPersistentEntity)indexedEntity
+        String relationship = "(from${parent.labelsAsString})${relType}(to${related.labelsAsString})"
+        String fromId = parent.idGenerator == null ? "ID(from)" : "from.${CypherBuilder.IDENTIFIER}"
+
+        StringBuilder cypher = new StringBuilder("MATCH $relationship WHERE $fromId IN {${CypherBuilder.IDS}} RETURN $fromId as $OWNER_ID, ")
+        if(lazy) {
+            cypher.append(related.idGenerator == null ? "ID(to) as id" : "to.${CypherBuilder.IDENTIFIER} as id")
+        }
+        else {
+            cypher.append('to as data')
+        }
+
+        Map<String,Object> params = (Map<String,Object>)Collections.singletonMap(CypherBuilder.IDS, batch)
+
+        log.debug("Lazy loading association [${association}] for a batch of ${batch.size()} entities using relationship $relationship")
+        log.debug("QUERY Cypher [$cypher] for params [$params]")
+
+        Map<Serializable, List<Object>> rowsByOwner = new LinkedHashMap<Serializable, List<Object>>()
+        for(Serializable id in batch) {
+            rowsByOwner.put(id, new ArrayList<Object>())
+        }
+        Result result = graphDatabaseService.execute(cypher.toString(), params)
+        try {
+            while(result.hasNext()) {
+                def row = result.next()
+                def rows = rowsByOwner.get((Serializable)row.get(OWNER_ID))
+                if(rows == null) continue
+                if(lazy) {
+                    def id = row.get(GormProperties.IDENTITY)
+                    if(id instanceof Long) {
+                        rows.add( session.proxy(related.javaClass, id) )
+                    }
+                }
+                else {
+                    rows.add(row.get(CypherBuilder.NODE_DATA))
+                }
+            }
+        } finally {
+            result.close()
+        }
+
+        List<Object> primaryResult = null
+        for(Map.Entry<Serializable, List<Object>> entry in rowsByOwner.entrySet()) {
+            List<Object> rows = entry.value
+            if(singleResult && rows.size() > 1) {
+                rows = rows.subList(0, 1)
+            }
+            List<Object> ownerResult = lazy ? rows : createResultList(entry.key, rows, related)
+            if(entry.key == primaryKey) {
+                primaryResult = ownerResult
+            }
+            else {
+                session.addAssociationBatchResult(association, entry.key, ownerResult)
+            }
+        }
+        return primaryResult
+    }
+
+    private List<Object> createResultList(Serializable ownerId, List<Object> nodes, GraphPersistentEntity related) {
+        def resultList = new Neo4jResultList(0, nodes.size(), nodes.iterator(), session.getEntityPersister(related))
+        if(association.isBidirectional()) {
+            def inverseSide = association.inverseSide
+            if(inverseSide instanceof ToOne) {
+                def parentObject = session.getCachedInstance(association.getOwner().getJavaClass(), ownerId)
+                if(parentObject != null) {
+                    resultList.setInitializedAssociations(Collections.<Association,Object>singletonMap(inverseSide, parentObject))
+                }
+            }
+        }
+        return resultList
+    }
+
 }
@@ -40,6 +40,7 @@ import static org.grails.datastore.mapping.query.Query.*;
 public class Neo4jEntityPersister extends EntityPersister {
 
     public static final String DYNAMIC_ASSOCIATIONS_QUERY = "MATCH (m%s {"+CypherBuilder.IDENTIFIER+":{id}})-[r]-(o) RETURN type(r) as relType, startNode(r)=m as out, {ids: collect(o."+CypherBuilder.IDENTIFIER+"), labels: collect(labels(o))} as values";
+    public static final String DYNAMIC_ASSOCIATIONS_BATCH_QUERY = "MATCH (m%s)-[r]-(o) WHERE m."+CypherBuilder.IDENTIFIER+" IN {"+CypherBuilder.IDS+"} RETURN m."+CypherBuilder.IDENTIFIER+" as id, type(r) as relType, startNode(r)=m as out, {ids: collect(o."+CypherBuilder.IDENTIFIER+"), labels: collect(labels(o))} as values";
     public static final String RETURN_NODE_ID = " RETURN ID(n) as id";
 
     private static Logger log = LoggerFactory.getLogger(Neo4jEntityPersister.class);
@@ -236,6 +237,15 @@ public class Neo4jEntityPersister extends EntityPersister {
         return unmarshallOrFromCache(defaultPersistentEntity, data, resultData, initializedAssociations, LockModeType.NONE);
     }
     public Object unmarshallOrFromCache(PersistentEntity defaultPersistentEntity, Node data, Map<String, Object> resultData, Map<Association, Object> initializedAssociations, LockModeType lockModeType) {
+        return unmarshallOrFromCache(defaultPersistentEntity, data, resultData, initializedAssociations, lockModeType, null);
+    }
+
+    /**
+     * Unmarshalls the given node, or obtains the instance from the session cache
+     *
+     * @param dynamicAssociations The dynamic relationships of the node if already loaded with {@link #loadDynamicAssociations(PersistentEntity, Collection)}, null to query them for the node
+     */
+    public Object unmarshallOrFromCache(PersistentEntity defaultPersistentEntity, Node data, Map<String, Object> resultData, Map<Association, Object> initializedAssociations, LockModeType lockModeType, Map<TypeDirectionPair, Map<String, Collection>> dynamicAssociations) {
         final Neo4jSession session = getSession();
         final Neo4jTransaction neo4jTransaction = session.assertTransaction();
 
@@ -247,21 +257,73 @@ public class Neo4jEntityPersister extends EntityPersister {
         }
 
         final Iterable<Label> labels = data.getLabels();
-        GraphPersistentEntity graphPersistentEntity = (GraphPersistentEntity) defaultPersistentEntity;
         PersistentEntity persistentEntity = mostSpecificPersistentEntity(defaultPersistentEntity, labels);
-        final Serializable id;
+        final Serializable id = readIdentifier(defaultPersistentEntity, data);
+        Object instance = session.getCachedInstance(persistentEntity.getJavaClass(), id);
+
+        if (instance == null) {
+            instance = unmarshall(persistentEntity, id, data, resultData, initializedAssociations, dynamicAssociations);
+        }
+        return instance;
+    }
+
+    /**
+     * Reads the identifier of an entity from its node
+     *
+     * @param persistentEntity The entity
+     * @param data The node
+     * @return The identifier
+     */
+    public Serializable readIdentifier(PersistentEntity persistentEntity, Node data) {
+        GraphPersistentEntity graphPersistentEntity = (GraphPersistentEntity) persistentEntity;
         if(graphPersistentEntity.getIdGenerator() == null) {
-            id = data.getId();
+            return data.getId();
         }
         else {
-            id = (Serializable) data.getProperty(CypherBuilder.IDENTIFIER);
+            return (Serializable) data.getProperty(CypherBuilder.IDENTIFIER);
         }
-        Object instance = session.getCachedInstance(persistentEntity.getJavaClass(), id);
+    }
 
-        if (instance == null) {
-            instance = unmarshall(persistentEntity, id, data, resultData, initializedAssociations);
+    /**
+     * Loads the dynamic relationships of several nodes with a single query, instead of one query per node when each node is unmarshalled
+     *
+     * @param persistentEntity The entity
+     * @param ids The identifiers of the nodes
+     * @return The dynamic relationships of each node, keyed by identifier. Every requested identifier has an entry, which is empty if the node has no relationships
+     */
+    public Map<Serializable, Map<TypeDirectionPair, Map<String, Collection>>> loadDynamicAssociations(PersistentEntity persistentEntity, Collection<Serializable> ids) {
+        Map<Serializable, Map<TypeDirectionPair, Map<String, Collection>>> dynamicAssociations = new HashMap<Serializable, Map<TypeDirectionPair, Map<String, Collection>>>();
+        if(ids.isEmpty()) {
+            return dynamicAssociations;
         }
-        return instance;
+        for (Serializable id : ids) {
+            dynamicAssociations.put(id, new HashMap<TypeDirectionPair, Map<String, Collection>>());
+        }
+
+        final String cypher = String.format(DYNAMIC_ASSOCIATIONS_BATCH_QUERY, ((GraphPersistentEntity) persistentEntity).getLabelsAsString());
+        final Map<String, Object> params = Collections.<String, Object>singletonMap(CypherBuilder.IDS, new ArrayList<Serializable>(ids));
+
+        if(log.isDebugEnabled()) {
+            log.debug("QUERY Cypher [{}] for parameters [{}]", cypher, params);
+        }
+
+        final Result relationships = getSession().getNativeInterface().execute(cypher, params);
+        try {
+            while(relationships.hasNext()) {
+                final Map<String, Object> row = relationships.next();
+                Map<TypeDirectionPair, Map<String, Collection>> relationshipsMap = dynamicAssociations.get(row.get("id"));
+                if(relationshipsMap == null) {
+                    continue;
+                }
+                String relType = (String) row.get("relType");
+                Boolean outGoing = (Boolean) row.get("out");
+                Map<String, Collection> values = (Map<String, Collection>) row.get("values");
+                relationshipsMap.put(new TypeDirectionPair(relType, outGoing), values);
+            }
+        } finally {
+            relationships.close();
+        }
+        return dynamicAssociations;
     }
 
     private PersistentEntity mostSpecificPersistentEntity(PersistentEntity pe, Iterable<Label> labels) {
@@ -315,6 +377,10 @@ public class Neo4jEntityPersister extends EntityPersister {
 
 
     protected Object unmarshall(PersistentEntity persistentEntity, Serializable id, Node node, Map<String, Object> resultData, Map<Association, Object> initializedAssociations) {
+        return unmarshall(persistentEntity, id, node, resultData, initializedAssociations, null);
+    }
+
+    protected Object unmarshall(PersistentEntity persistentEntity, Serializable id, Node node, Map<String, Object> resultData, Map<Association, Object> initializedAssociations, Map<TypeDirectionPair, Map<String, Collection>> dynamicAssociations) {
 
         if(log.isDebugEnabled()) {
             log.debug( "unmarshalling entity [{}] with id [{}], props {}, {}", persistentEntity.getName(), id, node);
@@ -328,7 +394,10 @@ public class Neo4jEntityPersister extends EntityPersister {
 
         Map<TypeDirectionPair, Map<String, Collection>> relationshipsMap = new HashMap<TypeDirectionPair, Map<String, Collection>>();
         final boolean hasDynamicAssociations = graphPersistentEntity.hasDynamicAssociations();
-        if(hasDynamicAssociations) {
+        if(hasDynamicAssociations && dynamicAssociations != null) {
+            relationshipsMap.putAll(dynamicAssociations);
+        }
+        else if(hasDynamicAssociations) {
 
             final String cypher = String.format(DYNAMIC_ASSOCIATIONS_QUERY, ((GraphPersistentEntity) persistentEntity).getLabelsAsString());
             final Map<String, Object> isMap = Collections.<String, Object>singletonMap(GormProperties.IDENTITY, id);
@@ -483,6 +552,7 @@ public class Neo4jEntityPersister extends EntityPersister {
                             entityAccess.setPropertyNoConversion(propertyName,
                                     proxy
                             );
+                            addUninitializedAssociation(association, id);
                         }
                         else {
                             final List<Object> results = associationQueryExecutor.query(id);
@@ -504,6 +574,7 @@ public class Neo4jEntityPersister extends EntityPersister {
                             values = new Neo4jPersistentSet(id, session, entityAccess, (ToMany) association);
                         }
                         entityAccess.setPropertyNoConversion(propertyName, values);
+                        addUninitializedAssociation(association, id);
                     }
                 }
 
@@ -560,6 +631,15 @@ public class Neo4jEntityPersister extends EntityPersister {
         return obj;
     }
 
+    /**
+     * Registers a lazy association with the session if its owner loads associations in batches
+     */
+    private void addUninitializedAssociation(Association association, Serializable id) {
+        if(((GraphPersistentEntity) association.getOwner()).getBatchSize() > 1) {
+            getSession().addUninitializedAssociation(association, id);
+        }
+    }
+
     private Collection createCollection(Association association) {
         return association.isList() ? new ArrayList() : new HashSet();
     }
@@ -755,6 +835,10 @@ public class Neo4jEntityPersister extends EntityPersister {
                             PersistentCollection pc = (PersistentCollection) propertyValue;
                             if(!pc.isInitialized()) continue;
                         }
+                        else if(isUpdate) {
+                            // the lazy collection has been replaced, so it must no longer be loaded with a batch
+                            getSession().removeUninitializedAssociation(association, (Serializable) entityAccess.getIdentifier());
+                        }
 
                         if (association.isBidirectional()) {
                             // Populate other side of bidi
@@ -16,98 +16,70 @@
 package org.grails.datastore.gorm.neo4j.identity;
 
 import org.grails.datastore.gorm.neo4j.IdGenerator;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.grails.datastore.mapping.core.impl.SnowflakeIdentityGenerator;
 
 import java.io.Serializable;
-import java.net.NetworkInterface;
-import java.net.SocketException;
-import java.util.Enumeration;
-import java.util.Random;
 
 /**
  *
- * Generate unique IDs using the Twitter Snowflake algorithm (see https://github.com/twitter/snowflake). Snowflake IDs are 64 bit positive longs composed of: - 41 bits time stamp - 10 bits machine id - 12 bits sequence number
+ * Generate unique IDs using the Twitter Snowflake algorithm (see https://github.com/twitter/snowflake). Snowflake IDs are 64 bit longs composed of: - 10 bits worker id - 41 bits time stamp - 1 unused bit - 12 bits sequence number
  *
+ * Identifiers are taken from a {@link SnowflakeIdentityGenerator}, by default the one shared by the datastore, and
+ * rearranged into the layout this generator has always used, with the worker id in the highest bits. Identifiers
+ * therefore never collide with those already stored by earlier versions. This layout differs from the one of the
+ * {@link SnowflakeIdentityGenerator} used by the other datastores, and it makes the identifiers of workers above 511
+ * negative.
+ *
+ * @see SnowflakeIdentityGenerator
  * @author Stefan
  */
 
 public class SnowflakeIdGenerator implements IdGenerator {
 
-    private static Logger log = LoggerFactory.getLogger(SnowflakeIdGenerator.class);
-
-    private final long datacenterIdBits = 10L;
-    private final long maxDatacenterId = -1L ^ (-1L << datacenterIdBits);
-    private final long timestampBits = 41L;
+    private static final int LEGACY_WORKER_ID_SHIFT = 64 - SnowflakeIdentityGenerator.WORKER_ID_BITS;
+    private static final int LEGACY_TIMESTAMP_SHIFT = LEGACY_WORKER_ID_SHIFT - 41;
+    private static final int TIMESTAMP_SHIFT = SnowflakeIdentityGenerator.SEQUENCE_BITS + SnowflakeIdentityGenerator.WORKER_ID_BITS;
+    private static final long SEQUENCE_MASK = ~(-1L << SnowflakeIdentityGenerator.SEQUENCE_BITS);
 
-    private final long datacenterIdShift = 64L - datacenterIdBits;
-    private final long timestampLeftShift = 64L - datacenterIdBits - timestampBits;
-    private final long sequenceMax = 4096;
-    private final long twepoch = 1288834974657L;
-    private final long datacenterId;
-
-    private volatile long lastTimestamp = -1L;
-    private volatile long sequence = 0L;
+    private volatile SnowflakeIdentityGenerator generator;
 
     public SnowflakeIdGenerator() {
-        datacenterId = getDatacenterId();
-        if (datacenterId > maxDatacenterId || datacenterId < 0) {
-            throw new IllegalStateException("datacenterId > maxDatacenterId");
-        }
+        this(new SnowflakeIdentityGenerator());
     }
 
-    @Override
-    public synchronized Serializable nextId() {
-        long timestamp = System.currentTimeMillis();
-        if (timestamp < lastTimestamp) {
-            throw new IllegalArgumentException("Clock moved backwards.  Refusing to generate id for " + (
-                    lastTimestamp - timestamp) + " milliseconds.");
-        }
-        if (lastTimestamp == timestamp) {
-            sequence = (sequence + 1) % sequenceMax;
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
-            }
-        } else {
-            sequence = 0;
-        }
-        lastTimestamp = timestamp;
-        return ((timestamp - twepoch) << timestampLeftShift) |
-                (datacenterId << datacenterIdShift) |
-                sequence;
+    public SnowflakeIdGenerator(long workerId) {
+        this(new SnowflakeIdentityGenerator(workerId));
     }
 
-    protected long tilNextMillis(long lastTimestamp) {
-        long timestamp = System.currentTimeMillis();
-        while (timestamp <= lastTimestamp) {
-            timestamp = System.currentTimeMillis();
-        }
-        return timestamp;
+    public SnowflakeIdGenerator(SnowflakeIdentityGenerator generator) {
+        this.generator = generator;
     }
 
-    protected long getDatacenterId() { // TODO: unit test with empty array for nic.getHwAddress
-        byte[] hardwareAddress = null;
-        try {
-            Enumeration<NetworkInterface> nics = NetworkInterface.getNetworkInterfaces();
-            while (isInvalidHardwareAddress(hardwareAddress) && (nics.hasMoreElements())) {
-                NetworkInterface nic = nics.nextElement();
-                hardwareAddress = nic.getHardwareAddress();
-            }
-        } catch (SocketException e) {
-            log.error(e.getMessage(), e);
-        }
-        if (isInvalidHardwareAddress(hardwareAddress)) {
-            // no hardware address found, generate 6 random bytes
-            hardwareAddress = new byte[6];
-            new Random().nextBytes(hardwareAddress);
-        }
+    /**
+     * Sets the generator the identifiers are taken from, which is the one shared by the datastore once it is created
+     *
+     * @param generator The generator
+     */
+    public void setGenerator(SnowflakeIdentityGenerator generator) {
+        this.generator = generator;
+    }
 
-        long id = ((0x000000FF & (long) hardwareAddress[hardwareAddress.length - 1]) | (0x0000FF00 & (((long) hardwareAddress[hardwareAddress.length - 2]) << 8))) >> 6;
-        return id;
+    public SnowflakeIdentityGenerator getGenerator() {
+        return generator;
     }
 
-    private boolean isInvalidHardwareAddress(byte[] hardwareAddress) {
-        return ((hardwareAddress == null) || (hardwareAddress.length<6));
+    @Override
+    public Serializable nextId() {
+        return toLegacyLayout(generator.nextId());
     }
 
-}
\ No newline at end of file
+    /**
+     * Moves the worker id of an identifier generated by a {@link SnowflakeIdentityGenerator} to the highest bits
+     */
+    protected static long toLegacyLayout(long id) {
+        long timestamp = id >>> TIMESTAMP_SHIFT;
+        long workerId = (id >>> SnowflakeIdentityGenerator.SEQUENCE_BITS) & SnowflakeIdentityGenerator.MAX_WORKER_ID;
+        long sequence = id & SEQUENCE_MASK;
+        return (workerId << LEGACY_WORKER_ID_SHIFT) | (timestamp << LEGACY_TIMESTAMP_SHIFT) | sequence;
+    }
+}
@@ -26,6 +26,7 @@ public class Neo4jEntity extends Entity {
 
     private Object labels;
     private boolean dynamicAssociations;
+    private int batchSize;
 
     /**
      * @return The label definitions for the entity
@@ -59,4 +60,24 @@ public class Neo4jEntity extends Entity {
     public void setDynamicAssociations(boolean dynamicAssociations) {
         this.dynamicAssociations = dynamicAssociations;
     }
+
+    /**
+     * The number of lazy associations of the same property that are loaded with a single query. The default is 0, which loads each association
+     * with its own query. When set, initializing a lazy proxy or collection of an instance of this entity also loads the same association of up
+     * to batchSize - 1 other instances in the session whose association has not been initialized yet
+     *
+     * @return The batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of lazy associations of the same property that are loaded with a single query
+     *
+     * @see #getBatchSize()
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
 }
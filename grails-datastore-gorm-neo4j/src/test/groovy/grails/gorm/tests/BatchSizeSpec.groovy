@@ -0,0 +1,124 @@
+package grails.gorm.tests
+
+import grails.persistence.Entity
+
+/**
+ * Tests that lazy associations of entities with a batch size are loaded for several entities at once
+ */
+class BatchSizeSpec extends GormDatastoreSpec {
+
+    void "lazy collections are loaded in batches"() {
+        given:
+        createShelves()
+
+        when: "the collection of one shelf is initialized"
+        def shelves = Shelf.list(sort: 'name')
+        def volumes = shelves[0].volumes*.title.sort()
+
+        then: "the collections of the next shelves are loaded with the same query"
+        volumes == ["Shelf 1 Volume 1", "Shelf 1 Volume 2"]
+        session.associationBatchResults.size() == 2
+
+        and: "every shelf has its own volumes"
+        shelves.collect { it.volumes.size() } == [2, 2, 2, 2, 2]
+        shelves[4].volumes*.title.sort() == ["Shelf 5 Volume 1", "Shelf 5 Volume 2"]
+        session.associationBatchResults.isEmpty()
+    }
+
+    void "lazy proxies are loaded in batches"() {
+        given:
+        createShelves()
+
+        when: "the librarian of one shelf is initialized"
+        def shelves = Shelf.list(sort: 'name')
+        def name = shelves[0].librarian.name
+
+        then: "the librarians of the next shelves are loaded with the same query"
+        name == "Librarian 1"
+        session.associationBatchResults.size() == 2
+
+        and: "every shelf has its own librarian"
+        shelves.collect { it.librarian.name } == (1..5).collect { "Librarian $it".toString() }
+    }
+
+    void "evicted entities are neither tracked nor loaded with a batch"() {
+        given:
+        createShelves()
+
+        when: "a shelf is evicted before the collection of another one is initialized"
+        def shelves = Shelf.list(sort: 'name')
+        session.clear(shelves[1])
+        shelves[0].volumes.size()
+
+        then: "the evicted shelf is skipped"
+        session.associationBatchResults.size() == 2
+        !session.associationBatchResults.keySet().any { it.id == shelves[1].id }
+
+        when: "a shelf whose collection was loaded with the batch is evicted"
+        session.clear(shelves[2])
+
+        then: "its result is discarded"
+        session.associationBatchResults.size() == 1
+        !session.uninitializedAssociations.values().any { it.contains(shelves[2].id) }
+    }
+
+    void "replaced collections are not loaded with a batch"() {
+        given:
+        createShelves()
+
+        when: "the collection of a shelf is replaced and the shelf is saved"
+        def shelves = Shelf.list(sort: 'name')
+        shelves[1].volumes = [new Volume(title: "Replacement")] as Set
+        shelves[1].save(flush: true)
+        shelves[0].volumes.size()
+
+        then: "the replaced collection is no longer tracked"
+        !session.associationBatchResults.keySet().any { it.id == shelves[1].id }
+        shelves[1].volumes*.title == ["Replacement"]
+    }
+
+    private void createShelves() {
+        (1..5).each { i ->
+            def shelf = new Shelf(name: "Shelf $i", librarian: new Librarian(name: "Librarian $i").save())
+            (1..2).each { shelf.addToVolumes(new Volume(title: "Shelf $i Volume $it")) }
+            shelf.save()
+        }
+        session.flush()
+        session.clear()
+    }
+
+    @Override
+    List getDomainClasses() {
+        [Shelf, Volume, Librarian]
+    }
+}
+
+@Entity
+class Shelf {
+    Long id
+    Long version
+    String name
+    Librarian librarian
+    Set<Volume> volumes
+
+    static hasMany = [volumes: Volume]
+
+    static mapping = {
+        batchSize 3
+        librarian lazy: true
+    }
+}
+
+@Entity
+class Volume {
+    Long id
+    Long version
+    String title
+}
+
+@Entity
+class Librarian {
+    Long id
+    Long version
+    String name
+}
@@ -0,0 +1,45 @@
+package grails.gorm.tests
+
+import grails.persistence.Entity
+
+/**
+ * Tests that changes to instances evicted from a size-capped first level cache are still flushed
+ */
+class FirstLevelCacheMaxSizeSpec extends GormDatastoreSpec {
+
+    void "changes to evicted instances that were not saved are flushed"() {
+        given:
+        5.times { new Ledger(name: "Ledger $it").save() }
+        session.flush()
+        session.clear()
+
+        when: "instances are loaded by a session with a capped first level cache"
+        session.firstLevelCacheMaxSize = 2
+        def ledgers = Ledger.list(sort: 'name')
+
+        then: "the least recently loaded instances were evicted"
+        ledgers.size() == 5
+        !session.contains(ledgers[0])
+
+        when: "an evicted instance is changed without saving it and the session is flushed"
+        ledgers[0].name = "Changed"
+        session.flush()
+        session.clear()
+
+        then: "the change was written"
+        Ledger.findByName("Changed") != null
+        Ledger.count() == 5
+    }
+
+    @Override
+    List getDomainClasses() {
+        [Ledger]
+    }
+}
+
+@Entity
+class Ledger {
+    Long id
+    Long version
+    String name
+}
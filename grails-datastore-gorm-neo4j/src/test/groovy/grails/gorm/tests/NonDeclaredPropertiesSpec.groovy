@@ -190,6 +190,27 @@ class NonDeclaredPropertiesSpec extends GormDatastoreSpec {
         Pet.findByName("Cosima").buddies*.name.sort() == ["Lara", "Samira"]
     }
 
+    def "dynamic relationships are loaded for every instance of a result list"() {
+        setup:
+        def pets = (1..5).collect { new Pet(name: "Pet $it") }
+        pets.eachWithIndex { Pet pet, int i ->
+            pet.buddy = pets[(i + 1) % pets.size()]
+        }
+        pets[0].buddies = [pets[2], pets[3]]
+        pets*.save()
+        session.flush()
+        session.clear()
+
+        when:
+        def list = Pet.list(sort: 'name')
+
+        then:
+        list*.name == ["Pet 1", "Pet 2", "Pet 3", "Pet 4", "Pet 5"]
+        list.collect { it.buddy.name } == ["Pet 2", "Pet 3", "Pet 4", "Pet 5", "Pet 1"]
+        list[0].buddies*.name.sort() == ["Pet 3", "Pet 4"]
+        list[1].dynamicAttributes().keySet() == ["buddy"] as Set
+    }
+
 }
 
 
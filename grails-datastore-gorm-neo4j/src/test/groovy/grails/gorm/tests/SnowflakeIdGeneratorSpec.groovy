@@ -2,6 +2,7 @@ package grails.gorm.tests
 
 import org.grails.datastore.gorm.neo4j.IdGenerator
 import org.grails.datastore.gorm.neo4j.identity.SnowflakeIdGenerator
+import org.grails.datastore.mapping.core.impl.SnowflakeIdentityGenerator
 import spock.lang.Specification
 
 /**
@@ -28,4 +29,17 @@ class SnowflakeIdGeneratorSpec extends Specification {
             ids.size() == numberOfInvocations
 
     }
+
+    def "snowflake keeps the worker id in the highest bits"() {
+
+        setup:
+            IdGenerator generator = new SnowflakeIdGenerator(new SnowflakeIdentityGenerator(42))
+
+        when:
+            def ids = (1..1000).collect { generator.nextId() }
+
+        then:
+            ids.every { (it >>> 54) == 42 }
+            ids == ids.sort(false)
+    }
 }
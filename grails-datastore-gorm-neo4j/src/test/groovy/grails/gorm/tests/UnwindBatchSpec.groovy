@@ -0,0 +1,55 @@
+package grails.gorm.tests
+
+import org.grails.datastore.mapping.core.OptimisticLockingException
+import org.neo4j.helpers.collection.IteratorUtil
+
+/**
+ * Tests that the inserts and updates of a flush are executed in batches with UNWIND statements
+ */
+class UnwindBatchSpec extends GormDatastoreSpec {
+
+    void "inserts and updates of a flush are batched"() {
+        when: "entities are inserted in a single flush"
+        def entities = (1..25).collect { new TestEntity(name: "Bob $it", age: it).save() }
+        session.flush()
+        session.clear()
+
+        then:
+        TestEntity.count() == 25
+        TestEntity.findByName("Bob 13").age == 13
+
+        when: "some entities are updated and others have a property removed"
+        TestEntity.list().each {
+            if (it.age % 2) {
+                it.age = it.age * 10
+            }
+            else {
+                it.age = null
+            }
+            it.save()
+        }
+        session.flush()
+        session.clear()
+
+        then:
+        TestEntity.findByName("Bob 13").age == 130
+        TestEntity.findByName("Bob 12").age == null
+        IteratorUtil.single(session.nativeInterface.execute("MATCH (n:TestEntity) WHERE exists(n.age) RETURN count(n) as c")).c == 13
+    }
+
+    void "versions are checked for every update of a batch"() {
+        given:
+        def locked = (1..3).collect { new OptLockVersioned(name: "locked $it").save() }
+        session.flush()
+        session.clear()
+
+        when: "one of the nodes is modified behind the session's back"
+        def loaded = OptLockVersioned.list()
+        session.nativeInterface.execute("MATCH (n:OptLockVersioned) WHERE n.name = 'locked 2' SET n.version = 5")
+        loaded.each { it.name = it.name + " updated"; it.save() }
+        session.flush()
+
+        then:
+        thrown(OptimisticLockingException)
+    }
+}
@@ -17,6 +17,7 @@ package grails.datastore
 import org.grails.datastore.mapping.core.Datastore
 import org.grails.datastore.mapping.core.Session
 import org.grails.datastore.mapping.model.PersistentEntity
+import org.grails.datastore.mapping.redis.RedisDatastore
 import org.grails.datastore.mapping.redis.collection.RedisCollection
 import org.grails.datastore.mapping.redis.collection.RedisList
 import org.grails.datastore.mapping.redis.collection.RedisMap
@@ -57,6 +58,28 @@ class Redis {
         }
     }
 
+    /**
+     * Removes the keys of all databases and discards the blocks of identifiers reserved from them
+     */
+    void flushall() {
+        redisTemplate.flushall()
+        resetIdentityBlocks()
+    }
+
+    /**
+     * Removes the keys of the current database and discards the blocks of identifiers reserved from them
+     */
+    void flushdb() {
+        redisTemplate.flushdb()
+        resetIdentityBlocks()
+    }
+
+    private void resetIdentityBlocks() {
+        if (datastore instanceof RedisDatastore) {
+            ((RedisDatastore) datastore).resetIdentityBlocks()
+        }
+    }
+
     /**
      * Creates a Redis set for the given key.
      * @param key the key
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.grails.datastore.mapping.engine.EntityAccess;
 import org.springframework.beans.factory.DisposableBean;
@@ -29,6 +30,7 @@ import org.grails.datastore.mapping.config.Property;
 import org.grails.datastore.mapping.core.AbstractDatastore;
 import org.grails.datastore.mapping.core.DatastoreUtils;
 import org.grails.datastore.mapping.core.Session;
+import org.grails.datastore.mapping.core.impl.IdentityBlockAllocator;
 import org.grails.datastore.mapping.engine.PropertyValueIndexer;
 import org.grails.datastore.mapping.keyvalue.mapping.config.KeyValueMappingContext;
 import org.grails.datastore.mapping.model.MappingContext;
@@ -36,12 +38,14 @@ import org.grails.datastore.mapping.model.PersistentEntity;
 import org.grails.datastore.mapping.model.PersistentProperty;
 import org.grails.datastore.mapping.query.Query;
 import org.grails.datastore.mapping.redis.engine.RedisEntityPersister;
+import org.grails.datastore.mapping.redis.engine.RedisEntryWrite;
 import org.grails.datastore.mapping.redis.util.JedisTemplate;
 import org.grails.datastore.mapping.redis.util.RedisTemplate;
 import org.springframework.util.ClassUtils;
 
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 /**
  * A Datastore implementation for the Redis key/value datastore.
@@ -60,6 +64,7 @@ public class RedisDatastore extends AbstractDatastore implements InitializingBea
     private static final String CONFIG_RESOURCE_COUNT = "resources";
     public static final String CONFIG_PORT = "port";
     public static final String CONFIG_PASSWORD = "password";
+    public static final String CONFIG_IDENTITY_BLOCK_SIZE = "identityBlockSize";
 
     private static final String CONFIG_POOLED = "pooled";
 
@@ -73,6 +78,8 @@ public class RedisDatastore extends AbstractDatastore implements InitializingBea
     private boolean pooled = true;
     private boolean backgroundIndex;
     private JedisPool pool;
+    private final Map<String, String> scriptShas = new ConcurrentHashMap<String, String>();
+    private IdentityBlockAllocator identityBlockAllocator;
 
     public RedisDatastore() {
         this(new KeyValueMappingContext(""));
@@ -87,6 +94,7 @@ public class RedisDatastore extends AbstractDatastore implements InitializingBea
         super(mappingContext, connectionDetails, ctx);
 
         int resourceCount = 10;
+        int identityBlockSize = IdentityBlockAllocator.DEFAULT_BLOCK_SIZE;
         if (connectionDetails != null) {
             host = read(String.class, CONFIG_HOST, connectionDetails, DEFAULT_HOST);
             port = read(Integer.class, CONFIG_PORT, connectionDetails, DEFAULT_PORT);
@@ -94,10 +102,23 @@ public class RedisDatastore extends AbstractDatastore implements InitializingBea
             pooled = read(Boolean.class, CONFIG_POOLED, connectionDetails, true);
             password = read(String.class, CONFIG_PASSWORD, connectionDetails, null);
             resourceCount = read(Integer.class, CONFIG_RESOURCE_COUNT, connectionDetails, resourceCount);
+            identityBlockSize = read(Integer.class, CONFIG_IDENTITY_BLOCK_SIZE, connectionDetails, identityBlockSize);
         }
         if (pooled && useJedis()) {
             this.pool = JedisTemplateFactory.createPool(host, port, timeout, resourceCount, password);
         }
+        identityBlockAllocator = new IdentityBlockAllocator(new IdentityBlockAllocator.BlockSource() {
+            public long reserve(String family, int blockSize) {
+                // reserved with a connection of its own, as the connection of a session may be in a transaction
+                RedisTemplate template = JedisTemplateFactory.create(host, port, timeout, pooled, password);
+                try {
+                    return template.incrby(family + ".next_id", blockSize);
+                }
+                finally {
+                    template.close();
+                }
+            }
+        }, identityBlockSize);
 
         initializeConverters(mappingContext);
     }
@@ -157,6 +178,94 @@ public class RedisDatastore extends AbstractDatastore implements InitializingBea
         }
     }
 
+    /**
+     * @return The allocator of the identifiers of new entities, which reserves blocks of identifiers with INCRBY
+     */
+    public IdentityBlockAllocator getIdentityBlockAllocator() {
+        return identityBlockAllocator;
+    }
+
+    /**
+     * Discards the blocks of identifiers reserved from the counters of the database. Call it after flushing the
+     * database, so that identifiers are reserved again from the recreated counters.
+     */
+    public void resetIdentityBlocks() {
+        identityBlockAllocator.reset();
+    }
+
+    /**
+     * Obtains the SHA1 digest of a Lua script, loading the script the first time it is needed.
+     * The script is loaded with a connection of its own, because the connection of a session may be pipelined
+     * or in a transaction when it is flushed.
+     *
+     * @param script The script
+     * @return The SHA1 digest of the script
+     */
+    public String getScriptSha(String script) {
+        String sha = scriptShas.get(script);
+        if (sha == null) {
+            RedisTemplate template = JedisTemplateFactory.create(host, port, timeout, pooled, password);
+            try {
+                sha = template.scriptLoad(script);
+            }
+            finally {
+                template.close();
+            }
+            scriptShas.put(script, sha);
+        }
+        return sha;
+    }
+
+    /**
+     * Reloads a Lua script, for example after the script cache of the server was flushed
+     *
+     * @param script The script
+     * @return The SHA1 digest of the script
+     */
+    public String reloadScript(String script) {
+        scriptShas.remove(script);
+        return getScriptSha(script);
+    }
+
+    /**
+     * Evaluates a Lua script with EVALSHA, reloading the script if the script cache of the server was flushed.
+     * The template must not be pipelined or in a transaction, since the reply is needed to detect a missing script.
+     *
+     * @param template The template
+     * @param script The script
+     * @param keys The keys
+     * @param args The arguments
+     * @return The result of the script
+     */
+    public Object evalScript(RedisTemplate template, String script, List<String> keys, List<String> args) {
+        try {
+            return template.evalsha(getScriptSha(script), keys, args);
+        }
+        catch (JedisDataException e) {
+            if (!RedisEntryWrite.isScriptNotLoaded(e)) {
+                throw e;
+            }
+            return template.evalsha(reloadScript(script), keys, args);
+        }
+    }
+
+    /**
+     * @return The SHA1 digest of the script that writes entries
+     * @see #getScriptSha(String)
+     */
+    public String getEntryWriteScriptSha() {
+        return getScriptSha(RedisEntryWrite.SCRIPT);
+    }
+
+    /**
+     * Reloads the script that writes entries, for example after the script cache of the server was flushed
+     *
+     * @return The SHA1 digest of the script
+     */
+    public String reloadEntryWriteScript() {
+        return reloadScript(RedisEntryWrite.SCRIPT);
+    }
+
     /**
      * Sets whether the Redis datastore should create indices in the background instead of on startup
      *
@@ -17,10 +17,13 @@ package org.grails.datastore.mapping.redis;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 import javax.persistence.FlushModeType;
 
@@ -29,6 +32,7 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.CannotAcquireLockException;
 import org.grails.datastore.mapping.core.AbstractSession;
 import org.grails.datastore.mapping.core.Datastore;
+import org.grails.datastore.mapping.core.OptimisticLockingException;
 import org.grails.datastore.mapping.core.impl.PendingInsert;
 import org.grails.datastore.mapping.core.impl.PendingOperation;
 import org.grails.datastore.mapping.core.impl.PendingUpdate;
@@ -36,11 +40,14 @@ import org.grails.datastore.mapping.model.MappingContext;
 import org.grails.datastore.mapping.model.PersistentEntity;
 import org.grails.datastore.mapping.redis.collection.RedisSet;
 import org.grails.datastore.mapping.redis.engine.RedisEntityPersister;
+import org.grails.datastore.mapping.redis.engine.RedisEntryWrite;
 import org.grails.datastore.mapping.redis.util.RedisCallback;
 import org.grails.datastore.mapping.redis.util.RedisTemplate;
 import org.grails.datastore.mapping.transactions.Transaction;
 import org.springframework.transaction.CannotCreateTransactionException;
 
+import redis.clients.jedis.exceptions.JedisDataException;
+
 /**
  * @author Graeme Rocher
  * @since 1.0
@@ -48,7 +55,13 @@ import org.springframework.transaction.CannotCreateTransactionException;
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class RedisSession extends AbstractSession<RedisTemplate> {
 
+    /**
+     * The key of the set holding the keys of the results stored by queries, which are removed after a flush
+     */
+    public static final String TEMPORARY_QUERY_KEYS = "~temporary-query-keys";
+
     private RedisTemplate redisTemplate;
+    private Map<String, RedisEntryWrite> pendingEntryWrites;
 
     public RedisSession(Datastore ds, MappingContext mappingContext, RedisTemplate template,
             ApplicationEventPublisher publisher) {
@@ -58,76 +71,208 @@ public class RedisSession extends AbstractSession<RedisTemplate> {
 
     @Override
     protected void flushPendingInserts(final Map<PersistentEntity, Collection<PendingInsert>> inserts) {
-        // Optimizes saving multiple entities at once
-        for (final PersistentEntity entity : inserts.keySet()) {
-            final Collection<PendingInsert> pendingInserts = inserts.get(entity);
-
-            final List<PendingOperation<RedisEntry, Long>> postOperations = new LinkedList<PendingOperation<RedisEntry, Long>>();
-
-            final RedisEntityPersister persister = (RedisEntityPersister)getPersister(entity);
+        if (inserts.isEmpty()) {
+            return;
+        }
 
-            redisTemplate.pipeline(new RedisCallback<RedisTemplate>() {
+        // Optimizes saving multiple entities at once, writing all of them in a single pipeline
+        final String scriptSha = ((RedisDatastore) getDatastore()).getEntryWriteScriptSha();
+        final Map<String, RedisEntryWrite> entryWrites = new LinkedHashMap<String, RedisEntryWrite>();
+        pendingEntryWrites = entryWrites;
+        List<Object> results;
+        try {
+            results = redisTemplate.pipeline(new RedisCallback<RedisTemplate>() {
                 public Object doInRedis(RedisTemplate redis) throws IOException {
-                    for (PendingInsert<RedisEntry, Long> pendingInsert : pendingInserts) {
-                        final EntityAccess entityAccess = pendingInsert.getEntityAccess();
-                        if (persister.cancelInsert(entity, entityAccess)) {
-                            continue;
-                        }
-
-                        List<PendingOperation<RedisEntry, Long>> preOperations = pendingInsert.getPreOperations();
-                        for (PendingOperation<RedisEntry, Long> preOperation : preOperations) {
-                            preOperation.run();
+                    final List<PendingOperation<RedisEntry, Long>> postOperations = new LinkedList<PendingOperation<RedisEntry, Long>>();
+                    for (final PersistentEntity entity : inserts.keySet()) {
+                        final Collection<PendingInsert> pendingInserts = inserts.get(entity);
+                        final RedisEntityPersister persister = (RedisEntityPersister)getPersister(entity);
+
+                        for (PendingInsert<RedisEntry, Long> pendingInsert : pendingInserts) {
+                            final EntityAccess entityAccess = pendingInsert.getEntityAccess();
+                            if (persister.cancelInsert(entity, entityAccess)) {
+                                continue;
+                            }
+
+                            List<PendingOperation<RedisEntry, Long>> preOperations = pendingInsert.getPreOperations();
+                            for (PendingOperation<RedisEntry, Long> preOperation : preOperations) {
+                                preOperation.run();
+                            }
+
+                            persister.storeEntry(entity, entityAccess, pendingInsert.getNativeKey(),
+                                                 pendingInsert.getNativeEntry());
+                            persister.firePostInsertEvent(entity, entityAccess);
+                            postOperations.addAll(pendingInsert.getCascadeOperations());
                         }
-
-                        persister.storeEntry(entity, entityAccess, pendingInsert.getNativeKey(),
-                                             pendingInsert.getNativeEntry());
-                        persister.firePostInsertEvent(entity, entityAccess);
-                        postOperations.addAll(pendingInsert.getCascadeOperations());
                     }
                     for (PendingOperation<RedisEntry, Long> pendingOperation : postOperations) {
                         pendingOperation.run();
                     }
+                    executeEntryWrites(redis, entryWrites.values(), scriptSha);
                     return null;
                 }
             });
         }
+        finally {
+            pendingEntryWrites = null;
+        }
+        checkEntryWriteResults(results, entryWrites);
     }
 
     @Override
-    protected void flushPendingUpdates(Map<PersistentEntity, Collection<PendingUpdate>> updates) {
-        // Optimizes saving multiple entities at once
-        for (final PersistentEntity entity : updates.keySet()) {
-            final Collection<PendingUpdate> pendingInserts = updates.get(entity);
-
-            final List<PendingOperation<RedisEntry, Long>> postOperations = new LinkedList<PendingOperation<RedisEntry, Long>>();
-
-            final RedisEntityPersister persister = (RedisEntityPersister)getPersister(entity);
+    protected void flushPendingUpdates(final Map<PersistentEntity, Collection<PendingUpdate>> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
 
-            redisTemplate.pipeline(new RedisCallback<RedisTemplate>() {
+        // Optimizes saving multiple entities at once, writing all of them in a single pipeline
+        final String scriptSha = ((RedisDatastore) getDatastore()).getEntryWriteScriptSha();
+        final Map<String, RedisEntryWrite> entryWrites = new LinkedHashMap<String, RedisEntryWrite>();
+        pendingEntryWrites = entryWrites;
+        List<Object> results;
+        try {
+            results = redisTemplate.pipeline(new RedisCallback<RedisTemplate>() {
                 public Object doInRedis(RedisTemplate redis) throws IOException {
-                    for (PendingUpdate<RedisEntry, Long> pendingInsert : pendingInserts) {
-                        final EntityAccess entityAccess = pendingInsert.getEntityAccess();
-                        if (persister.cancelUpdate(entity, entityAccess)) {
-                            continue;
-                        }
-
-                        List<PendingOperation<RedisEntry, Long>> preOperations = pendingInsert.getPreOperations();
-                        for (PendingOperation<RedisEntry, Long> preOperation : preOperations) {
-                            preOperation.run();
+                    final List<PendingOperation<RedisEntry, Long>> postOperations = new LinkedList<PendingOperation<RedisEntry, Long>>();
+                    for (final PersistentEntity entity : updates.keySet()) {
+                        final Collection<PendingUpdate> pendingUpdates = updates.get(entity);
+                        final RedisEntityPersister persister = (RedisEntityPersister)getPersister(entity);
+
+                        for (PendingUpdate<RedisEntry, Long> pendingUpdate : pendingUpdates) {
+                            final EntityAccess entityAccess = pendingUpdate.getEntityAccess();
+                            if (persister.cancelUpdate(entity, entityAccess)) {
+                                continue;
+                            }
+
+                            List<PendingOperation<RedisEntry, Long>> preOperations = pendingUpdate.getPreOperations();
+                            for (PendingOperation<RedisEntry, Long> preOperation : preOperations) {
+                                preOperation.run();
+                            }
+
+                            persister.updateEntry(entity, entityAccess, pendingUpdate.getNativeKey(),
+                                                  pendingUpdate.getNativeEntry());
+                            persister.firePostUpdateEvent(entity, entityAccess);
+                            postOperations.addAll(pendingUpdate.getCascadeOperations());
                         }
-
-                        persister.updateEntry(entity, entityAccess, pendingInsert.getNativeKey(),
-                                              pendingInsert.getNativeEntry());
-                        persister.firePostUpdateEvent(entity, entityAccess);
-                        postOperations.addAll(pendingInsert.getCascadeOperations());
                     }
                     for (PendingOperation<RedisEntry, Long> pendingOperation : postOperations) {
                         pendingOperation.run();
                     }
+                    executeEntryWrites(redis, entryWrites.values(), scriptSha);
                     return null;
                 }
             });
         }
+        finally {
+            pendingEntryWrites = null;
+        }
+        checkEntryWriteResults(results, entryWrites);
+    }
+
+    /**
+     * Obtains the pending write of an entry. Writes are pending while the session is flushed, so that the
+     * changes to the property indices of an entry are applied by the same script that writes the entry.
+     *
+     * @param key The key of the entry
+     * @return The pending write or null if the entry is not written by the current flush
+     */
+    public RedisEntryWrite getPendingEntryWrite(String key) {
+        return pendingEntryWrites == null ? null : pendingEntryWrites.get(key);
+    }
+
+    /**
+     * Writes an entry, deferring the write until the end of the current flush if the session is being flushed
+     *
+     * @param entryWrite The write
+     */
+    public void writeEntry(RedisEntryWrite entryWrite) {
+        if (pendingEntryWrites != null) {
+            pendingEntryWrites.put(entryWrite.getKey(), entryWrite);
+            return;
+        }
+
+        final RedisDatastore datastore = (RedisDatastore) getDatastore();
+        try {
+            entryWrite.execute(redisTemplate, datastore.getEntryWriteScriptSha());
+        }
+        catch (JedisDataException e) {
+            if (RedisEntryWrite.isOptimisticLockingFailure(e)) {
+                throw new OptimisticLockingException(entryWrite.getPersistentEntity(), entryWrite.getId());
+            }
+            if (!RedisEntryWrite.isScriptNotLoaded(e)) {
+                throw e;
+            }
+            entryWrite.execute(redisTemplate, datastore.reloadEntryWriteScript());
+        }
+        entryWritten(entryWrite);
+    }
+
+    private void entryWritten(RedisEntryWrite entryWrite) {
+        if (redisTemplate.isInMulti() && transaction instanceof RedisTransaction) {
+            // the write is only checked once the transaction is executed
+            ((RedisTransaction) transaction).addEntryWrite(entryWrite);
+        }
+        else {
+            entryWrite.written();
+        }
+    }
+
+    private void executeEntryWrites(RedisTemplate redis, Collection<RedisEntryWrite> entryWrites, String scriptSha) {
+        for (RedisEntryWrite entryWrite : entryWrites) {
+            entryWrite.execute(redis, scriptSha);
+        }
+    }
+
+    private void checkEntryWriteResults(List<Object> results, Map<String, RedisEntryWrite> entryWrites) {
+        if (entryWrites.isEmpty()) {
+            return;
+        }
+        if (results == null) {
+            // in a transaction the results are only available once it is committed
+            for (RedisEntryWrite entryWrite : entryWrites.values()) {
+                entryWritten(entryWrite);
+            }
+            return;
+        }
+
+        boolean scriptNotLoaded = false;
+        RedisEntryWrite failedWrite = null;
+        Set<String> failedKeys = new HashSet<String>();
+        for (Object result : results) {
+            if (!(result instanceof JedisDataException)) {
+                continue;
+            }
+            JedisDataException error = (JedisDataException) result;
+            if (RedisEntryWrite.isOptimisticLockingFailure(error)) {
+                String key = RedisEntryWrite.getOptimisticLockingFailureKey(error);
+                failedKeys.add(key);
+                if (failedWrite == null) {
+                    failedWrite = entryWrites.get(key);
+                }
+            }
+            else if (RedisEntryWrite.isScriptNotLoaded(error)) {
+                scriptNotLoaded = true;
+            }
+        }
+
+        if (scriptNotLoaded) {
+            // the script cache of the server was flushed, none of the entries were written
+            ((RedisDatastore) getDatastore()).reloadEntryWriteScript();
+            for (RedisEntryWrite entryWrite : entryWrites.values()) {
+                writeEntry(entryWrite);
+            }
+            return;
+        }
+
+        // the entries that passed their version check were written by the pipeline, even if another one failed
+        for (RedisEntryWrite entryWrite : entryWrites.values()) {
+            if (!failedKeys.contains(entryWrite.getKey())) {
+                entryWrite.written();
+            }
+        }
+        if (failedWrite != null) {
+            throw new OptimisticLockingException(failedWrite.getPersistentEntity(), failedWrite.getId());
+        }
     }
 
     @Override
@@ -293,10 +438,42 @@ public class RedisSession extends AbstractSession<RedisTemplate> {
             return;
         }
 
-        final Set<String> keys = redisTemplate.keys("~*");
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.del(keys.toArray(new String[keys.size()]));
+        // remove the results stored by queries, which are registered in a set to avoid scanning the keyspace
+        deleteRegisteredKeys(TEMPORARY_QUERY_KEYS);
+    }
+
+    /**
+     * Deletes the keys registered in the given set, together with the set. The set is renamed before its members are
+     * read, so that keys registered concurrently go to a new set instead of being dropped from the registry while
+     * they still exist.
+     *
+     * @param registryKey The key of the set
+     */
+    public void deleteRegisteredKeys(String registryKey) {
+        if (!redisTemplate.exists(registryKey)) {
+            return;
+        }
+
+        final String clearingKey = registryKey + "~clearing-" + UUID.randomUUID();
+        try {
+            redisTemplate.rename(registryKey, clearingKey);
+        }
+        catch (JedisDataException e) {
+            if (e.getMessage() != null && e.getMessage().contains("no such key")) {
+                // cleared by another session in the meantime
+                return;
+            }
+            throw e;
+        }
+
+        final Set<String> keys = redisTemplate.smembers(clearingKey);
+        if (keys == null || keys.isEmpty()) {
+            redisTemplate.del(clearingKey);
+            return;
         }
+        String[] toDelete = keys.toArray(new String[keys.size() + 1]);
+        toDelete[keys.size()] = clearingKey;
+        redisTemplate.del(toDelete);
     }
 
     /**
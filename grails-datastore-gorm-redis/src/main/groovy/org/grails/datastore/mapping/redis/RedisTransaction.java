@@ -14,8 +14,15 @@
  */
 package org.grails.datastore.mapping.redis;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.grails.datastore.mapping.redis.engine.RedisEntryWrite;
 import org.grails.datastore.mapping.redis.util.RedisTemplate;
 import org.grails.datastore.mapping.transactions.Transaction;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.transaction.IllegalTransactionStateException;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.UnexpectedRollbackException;
@@ -31,21 +38,63 @@ public class RedisTransaction implements Transaction<RedisTemplate> {
     private RedisTemplate redisTemplate;
     private boolean rollbackCalled;
     private boolean commitCalled;
+    private final List<RedisEntryWrite> entryWrites = new ArrayList<RedisEntryWrite>();
 
     public RedisTransaction(RedisTemplate redisTemplate) {
         this.redisTemplate = redisTemplate;
     }
 
+    /**
+     * Registers an entry written in the transaction, whose entity is given its new version once the
+     * transaction is executed and the version check of the entry has passed
+     *
+     * @param entryWrite The write
+     */
+    public void addEntryWrite(RedisEntryWrite entryWrite) {
+        entryWrites.add(entryWrite);
+    }
+
+    /**
+     * Executes the transaction. Redis executes every queued command even if some of them fail, so this is not
+     * all-or-nothing: when the version check of an entry fails, the writes of the other entries and any other
+     * commands have already been applied by the time the {@link OptimisticLockingFailureException} is thrown.
+     * Only the entry that failed the check is left unchanged.
+     */
     public void commit() {
         if (rollbackCalled) {
             throw new IllegalTransactionStateException("Cannot call commit after rollback. Start another transaction first!");
         }
+        final Object[] results;
         try {
-            /*final Object[] objects =*/ redisTemplate.exec();
+            results = redisTemplate.exec();
             commitCalled = true;
         } catch (Exception e) {
             throw new TransactionSystemException("Exception occurred committing back Redis transaction: " + e.getMessage());
         }
+
+        // entries written in a transaction are only version checked once it is executed
+        Throwable failure = null;
+        Set<String> failedKeys = new HashSet<String>();
+        if (results != null) {
+            for (Object result : results) {
+                if (result instanceof Throwable && RedisEntryWrite.isOptimisticLockingFailure((Throwable) result)) {
+                    failedKeys.add(RedisEntryWrite.getOptimisticLockingFailureKey((Throwable) result));
+                    if (failure == null) {
+                        failure = (Throwable) result;
+                    }
+                }
+            }
+        }
+        for (RedisEntryWrite entryWrite : entryWrites) {
+            if (!failedKeys.contains(entryWrite.getKey())) {
+                entryWrite.written();
+            }
+        }
+        entryWrites.clear();
+
+        if (failure != null) {
+            throw new OptimisticLockingFailureException(failure.getMessage());
+        }
     }
 
     public boolean isActive() {
@@ -63,6 +112,7 @@ public class RedisTransaction implements Transaction<RedisTemplate> {
         try {
             redisTemplate.discard();
             rollbackCalled = true;
+            entryWrites.clear();
         } catch (Exception e) {
             throw new TransactionSystemException("Exception occurred rolling back Redis transaction: " + e.getMessage());
         }
@@ -18,13 +18,13 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-import org.grails.datastore.mapping.core.OptimisticLockingException;
-import org.grails.datastore.mapping.core.SessionImplementor;
+import org.grails.datastore.mapping.core.impl.SnowflakeIdentityGenerator;
 import org.grails.datastore.mapping.engine.AssociationIndexer;
 import org.grails.datastore.mapping.engine.EntityAccess;
 import org.grails.datastore.mapping.engine.PropertyValueIndexer;
@@ -35,6 +35,7 @@ import org.grails.datastore.mapping.model.PersistentProperty;
 import org.grails.datastore.mapping.model.types.Association;
 import org.grails.datastore.mapping.proxy.EntityProxy;
 import org.grails.datastore.mapping.query.Query;
+import org.grails.datastore.mapping.redis.RedisDatastore;
 import org.grails.datastore.mapping.redis.RedisEntry;
 import org.grails.datastore.mapping.redis.RedisSession;
 import org.grails.datastore.mapping.redis.collection.RedisCollection;
@@ -64,6 +65,12 @@ public class RedisEntityPersister extends AbstractKeyValueEntityPersister<Map, L
 
     public static final String DISCRIMINATOR = "discriminator";
 
+    /**
+     * The number of seconds after which results cached from a sorted property index expire, in case they are
+     * not removed when the indices change
+     */
+    public static final int CACHED_SORT_KEY_TIMEOUT = 3600;
+
     public RedisEntityPersister(MappingContext context, PersistentEntity entity, RedisSession conn,
            final RedisTemplate template, ApplicationEventPublisher publisher) {
         super(context, entity, conn, publisher);
@@ -196,6 +203,14 @@ public class RedisEntityPersister extends AbstractKeyValueEntityPersister<Map, L
         return map == null || map.isEmpty() ? null : map;
     }
 
+    /**
+     * @param key The identifier of an entry
+     * @return The key of the hash holding the entry
+     */
+    public String getEntryKey(Serializable key) {
+        return getEntryKey(getPersistentEntity(), getFamily(), key);
+    }
+
     private String getEntryKey(PersistentEntity persistentEntity, String family, Serializable key) {
         String hashKey;
         if (persistentEntity.isRoot()) {
@@ -209,55 +224,31 @@ public class RedisEntityPersister extends AbstractKeyValueEntityPersister<Map, L
     }
 
     @Override
-    protected List<Object> retrieveAllEntities(final PersistentEntity persistentEntity, Iterable<Serializable> keys) {
-
-        List<Object> entityResults = new ArrayList<Object>();
-
-        if (keys == null) {
-            return entityResults;
-        }
-
-        final List<Serializable> redisKeys;
-        if (keys instanceof List) {
-            redisKeys = (List<Serializable>) keys;
-        }
-        else {
-            redisKeys = new ArrayList<Serializable>();
-            for (Serializable key : keys) {
-                 redisKeys.add(key);
-            }
-        }
-
-        if (redisKeys.isEmpty()) {
-            return entityResults;
+    protected Map<Serializable, Map> retrieveEntries(final PersistentEntity persistentEntity, final String family, final List<Serializable> keys) {
+        Map<Serializable, Map> entries = new HashMap<Serializable, Map>();
+        if (keys.isEmpty()) {
+            return entries;
         }
 
         List<Object> results = redisTemplate.pipeline(new RedisCallback<RedisTemplate>() {
             public Object doInRedis(RedisTemplate redis) throws IOException {
-                for (Serializable key : redisKeys) {
-                    redis.hgetall(getEntryKey(persistentEntity, getFamily(), key));
+                for (Serializable key : keys) {
+                    redis.hgetall(getEntryKey(persistentEntity, family, key));
                 }
                 return null;
             }
         });
 
-        Iterator<Serializable> keyIter = redisKeys.iterator();
-        Iterator resultIter = results.iterator();
+        Iterator<Serializable> keyIter = keys.iterator();
+        Iterator<Object> resultIter = results.iterator();
         while (keyIter.hasNext() && resultIter.hasNext()) {
-            Serializable nativeKey = keyIter.next();
-            Object entity;
-            SessionImplementor sessionImplementor = (SessionImplementor)session;
-            if (sessionImplementor.isCached(persistentEntity.getJavaClass(), nativeKey)) {
-                entity = sessionImplementor.getCachedInstance(persistentEntity.getJavaClass(), nativeKey);
+            Serializable key = keyIter.next();
+            Map nativeEntry = (Map) resultIter.next();
+            if (nativeEntry != null && !nativeEntry.isEmpty()) {
+                entries.put(key, nativeEntry);
             }
-            else {
-                Map nativeEntry = (Map)resultIter.next();
-                entity = createObjectFromNativeEntry(persistentEntity, nativeKey, nativeEntry);
-                sessionImplementor.cacheInstance(persistentEntity.getJavaClass(), nativeKey, entity);
-            }
-            entityResults.add(entity);
         }
-        return entityResults;
+        return entries;
     }
 
     private String getRedisKey(String family, Serializable key) {
@@ -337,6 +328,9 @@ public class RedisEntityPersister extends AbstractKeyValueEntityPersister<Map, L
 
     @Override
     protected Long generateIdentifier(PersistentEntity persistentEntity, Map entry) {
+        if (SnowflakeIdentityGenerator.isSnowflakeIdentity(persistentEntity)) {
+            return ((RedisDatastore) getSession().getDatastore()).getSnowflakeIdentityGenerator().nextId(persistentEntity);
+        }
         // always use the root of an inheritance hierarchy to generate the identifier
         PersistentEntity root = persistentEntity.getRootEntity();
         RedisEntityPersister persister = (RedisEntityPersister) session.getPersister(root);
@@ -349,25 +343,33 @@ public class RedisEntityPersister extends AbstractKeyValueEntityPersister<Map, L
 
         final String key = family + ":" + id;
 
+        // the version is checked by the script that writes the entry, in the same round trip
+        String expectedVersion = null;
+        Object newVersion = null;
         if (update && isVersioned(entityAccess)) {
-            String oldVersion;
-            RedisSession newSession = (RedisSession)getSession().getDatastore().connect();
-            try {
-                oldVersion = newSession.getNativeInterface().hget(key, "version");
-            }
-            finally {
-                newSession.disconnect();
-            }
-
-            String version = (String)nativeEntry.get("version");
-            if (oldVersion != null && version != null && !version.equals(oldVersion)) {
-                throw new OptimisticLockingException(persistentEntity, id);
-            }
+            expectedVersion = (String)nativeEntry.get("version");
+            newVersion = getIncrementedVersion(entityAccess);
+            setEntryValue(nativeEntry, "version", newVersion);
+        }
 
-            incrementVersion(entityAccess);
+        RedisEntryWrite entryWrite = new RedisEntryWrite(persistentEntity, id, key, expectedVersion, nativeEntry);
+        if (newVersion != null) {
+            entryWrite.setNewVersion(entityAccess, newVersion);
         }
+        ((RedisSession) getSession()).writeEntry(entryWrite);
+    }
 
-        redisTemplate.hmset(key, nativeEntry);
+    /**
+     * Computes the next version of an entity without changing it, since the entity only gets its new version
+     * once the write has passed the version check
+     */
+    private Object getIncrementedVersion(EntityAccess entityAccess) {
+        final String versionName = entityAccess.getPersistentEntity().getVersion().getName();
+        final Object currentVersion = entityAccess.getProperty(versionName);
+        incrementVersion(entityAccess);
+        final Object newVersion = entityAccess.getProperty(versionName);
+        entityAccess.setProperty(versionName, currentVersion);
+        return newVersion;
     }
 
     public RedisCollection getAllEntityIndex() {
@@ -379,7 +381,8 @@ public class RedisEntityPersister extends AbstractKeyValueEntityPersister<Map, L
     }
 
     protected Long generateIdentifier(final String family) {
-        return (long) redisTemplate.incr(family + ".next_id");
+        // identifiers are handed out from blocks reserved with a single INCRBY
+        return ((RedisDatastore) getSession().getDatastore()).getIdentityBlockAllocator().nextId(family);
     }
 
     @Override
@@ -426,10 +429,43 @@ public class RedisEntityPersister extends AbstractKeyValueEntityPersister<Map, L
         return getEntityBaseKey() + ":" + property.getName() + ":sorted";
     }
 
+    /**
+     * @param property The property
+     * @param ignoreCase Whether to return the key of the index of the lowercase values
+     * @return The key of the sorted set that indexes the String values of the property in lexicographical order
+     */
+    public String getPropertyLexKey(PersistentProperty property, boolean ignoreCase) {
+        return getEntityBaseKey() + ":" + property.getName() + (ignoreCase ? ":lex-lowercase" : ":lex");
+    }
+
     public String getPropertySortKeyPattern() {
         return getEntityBaseKey() + ":*:sorted";
     }
 
+    /**
+     * @return The key of the set holding the keys of the results cached from the sorted property indices
+     */
+    public String getCachedSortKeysKey() {
+        return getEntityBaseKey() + ":cached-sort-keys";
+    }
+
+    /**
+     * Registers a key holding results cached from a sorted property index, so that it is removed
+     * by {@link #clearCachedSortKeys()} when the indices change
+     *
+     * @param key The key of the cached results
+     */
+    public void registerCachedSortKey(String key) {
+        redisTemplate.sadd(getCachedSortKeysKey(), key);
+    }
+
+    /**
+     * Removes the results cached from the sorted property indices
+     */
+    public void clearCachedSortKeys() {
+        ((RedisSession) getSession()).deleteRegisteredKeys(getCachedSortKeysKey());
+    }
+
     public String getRedisKey(Serializable key) {
         return getRedisKey(getFamily(), key);
     }
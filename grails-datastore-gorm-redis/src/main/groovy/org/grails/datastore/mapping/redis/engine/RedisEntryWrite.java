@@ -0,0 +1,218 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.redis.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.grails.datastore.mapping.engine.EntityAccess;
+import org.grails.datastore.mapping.model.PersistentEntity;
+import org.grails.datastore.mapping.redis.util.RedisTemplate;
+
+/**
+ * The write of an entry together with the changes to its property indices. The write is executed
+ * by a Lua script, which checks the version of the stored entry, writes the hash and updates the
+ * indices in a single atomic round trip.
+ *
+ * @since 5.0
+ */
+@SuppressWarnings("rawtypes")
+public class RedisEntryWrite {
+
+    /**
+     * The prefix of the error returned by the script when the version of the stored entry has changed
+     */
+    public static final String OPTIMISTIC_LOCKING_FAILURE = "OPTIMISTIC_LOCKING_FAILURE";
+
+    /**
+     * KEYS[1] is the hash of the entry, followed by a key for each index operation.
+     * ARGV holds the expected version, or an empty string, the number of fields, the field
+     * names and values, and then the command and arguments of each index operation.
+     */
+    public static final String SCRIPT =
+            "local version = ARGV[1]\n" +
+            "if version ~= '' then\n" +
+            "  local current = redis.call('HGET', KEYS[1], 'version')\n" +
+            "  if current and current ~= version then\n" +
+            "    return redis.error_reply('" + OPTIMISTIC_LOCKING_FAILURE + " ' .. KEYS[1])\n" +
+            "  end\n" +
+            "end\n" +
+            "local fieldCount = tonumber(ARGV[2])\n" +
+            "if fieldCount > 0 then\n" +
+            "  redis.call('HMSET', KEYS[1], unpack(ARGV, 3, 2 + fieldCount * 2))\n" +
+            "end\n" +
+            "local i = 3 + fieldCount * 2\n" +
+            "local k = 2\n" +
+            "while i <= #ARGV do\n" +
+            "  local command = ARGV[i]\n" +
+            "  if command == 'ZADD' then\n" +
+            "    redis.call(command, KEYS[k], ARGV[i + 1], ARGV[i + 2])\n" +
+            "    i = i + 3\n" +
+            "  else\n" +
+            "    redis.call(command, KEYS[k], ARGV[i + 1])\n" +
+            "    i = i + 2\n" +
+            "  end\n" +
+            "  k = k + 1\n" +
+            "end\n" +
+            "return 'OK'";
+
+    private final PersistentEntity persistentEntity;
+    private final Long id;
+    private final String key;
+    private final String expectedVersion;
+    private final Map nativeEntry;
+    private final List<String> indexKeys = new ArrayList<String>();
+    private final List<String> indexArgs = new ArrayList<String>();
+    private EntityAccess versionedEntity;
+    private Object newVersion;
+
+    /**
+     * @param persistentEntity The entity
+     * @param id The identifier of the entry
+     * @param key The key of the hash holding the entry
+     * @param expectedVersion The version the stored entry must have, or null if it is not checked
+     * @param nativeEntry The fields of the entry
+     */
+    public RedisEntryWrite(PersistentEntity persistentEntity, Long id, String key, String expectedVersion, Map nativeEntry) {
+        this.persistentEntity = persistentEntity;
+        this.id = id;
+        this.key = key;
+        this.expectedVersion = expectedVersion;
+        this.nativeEntry = nativeEntry;
+    }
+
+    public PersistentEntity getPersistentEntity() {
+        return persistentEntity;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Sets the version the entity is given once the script has checked the stored version and written the entry
+     *
+     * @param entityAccess The entity
+     * @param newVersion The new version
+     */
+    public void setNewVersion(EntityAccess entityAccess, Object newVersion) {
+        this.versionedEntity = entityAccess;
+        this.newVersion = newVersion;
+    }
+
+    /**
+     * Gives the entity its new version. Called once the entry is known to be written, so that an entity whose write
+     * failed the version check keeps the version it was read with.
+     */
+    public void written() {
+        if (versionedEntity != null) {
+            versionedEntity.setProperty(persistentEntity.getVersion().getName(), newVersion);
+        }
+    }
+
+    /**
+     * Adds the entry to a set index
+     */
+    public void sadd(String indexKey, Object member) {
+        indexKeys.add(indexKey);
+        indexArgs.add("SADD");
+        indexArgs.add(member.toString());
+    }
+
+    /**
+     * Removes the entry from a set index
+     */
+    public void srem(String indexKey, Object member) {
+        indexKeys.add(indexKey);
+        indexArgs.add("SREM");
+        indexArgs.add(member.toString());
+    }
+
+    /**
+     * Removes the entry from a sorted set index
+     */
+    public void zrem(String indexKey, Object member) {
+        indexKeys.add(indexKey);
+        indexArgs.add("ZREM");
+        indexArgs.add(member.toString());
+    }
+
+    /**
+     * Adds the entry to a sorted set index
+     */
+    public void zadd(String indexKey, double score, Object member) {
+        indexKeys.add(indexKey);
+        indexArgs.add("ZADD");
+        indexArgs.add(String.valueOf(score));
+        indexArgs.add(member.toString());
+    }
+
+    /**
+     * Executes the script, or queues it if the template is pipelined or in a transaction
+     *
+     * @param template The template
+     * @param scriptSha The SHA1 digest of the loaded script
+     * @return The result of the script, or null if it was queued
+     */
+    public Object execute(RedisTemplate template, String scriptSha) {
+        List<String> keys = new ArrayList<String>(indexKeys.size() + 1);
+        keys.add(key);
+        keys.addAll(indexKeys);
+
+        List<String> args = new ArrayList<String>(nativeEntry.size() * 2 + indexArgs.size() + 2);
+        args.add(expectedVersion == null ? "" : expectedVersion);
+        List<String> fields = new ArrayList<String>(nativeEntry.size() * 2);
+        for (Object o : nativeEntry.entrySet()) {
+            Map.Entry entry = (Map.Entry) o;
+            if (entry.getValue() != null) {
+                fields.add(entry.getKey().toString());
+                fields.add(entry.getValue().toString());
+            }
+        }
+        args.add(String.valueOf(fields.size() / 2));
+        args.addAll(fields);
+        args.addAll(indexArgs);
+
+        return template.evalsha(scriptSha, keys, args);
+    }
+
+    /**
+     * @return Whether the given error was returned by the script because the version of the stored entry has changed
+     */
+    public static boolean isOptimisticLockingFailure(Throwable error) {
+        return error.getMessage() != null && error.getMessage().contains(OPTIMISTIC_LOCKING_FAILURE);
+    }
+
+    /**
+     * @return The key of the entry whose version check failed, given an error for which
+     * {@link #isOptimisticLockingFailure(Throwable)} is true
+     */
+    public static String getOptimisticLockingFailureKey(Throwable error) {
+        String message = error.getMessage();
+        return message.substring(message.indexOf(OPTIMISTIC_LOCKING_FAILURE) + OPTIMISTIC_LOCKING_FAILURE.length()).trim();
+    }
+
+    /**
+     * @return Whether the given error was returned because the script is not loaded
+     */
+    public static boolean isScriptNotLoaded(Throwable error) {
+        return error.getMessage() != null && error.getMessage().startsWith("NOSCRIPT");
+    }
+}
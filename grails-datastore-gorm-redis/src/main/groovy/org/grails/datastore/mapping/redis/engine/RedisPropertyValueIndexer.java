@@ -16,16 +16,21 @@ package org.grails.datastore.mapping.redis.engine;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.Set;
 
 import org.grails.datastore.mapping.core.SessionImplementor;
 import org.grails.datastore.mapping.engine.PropertyValueIndexer;
+import org.grails.datastore.mapping.keyvalue.mapping.config.KeyValue;
 import org.grails.datastore.mapping.model.MappingContext;
 import org.grails.datastore.mapping.model.PersistentEntity;
 import org.grails.datastore.mapping.model.PersistentProperty;
+import org.grails.datastore.mapping.redis.RedisDatastore;
+import org.grails.datastore.mapping.redis.RedisSession;
 import org.grails.datastore.mapping.redis.collection.RedisSet;
 import org.grails.datastore.mapping.redis.query.RedisQueryUtils;
 import org.grails.datastore.mapping.redis.util.RedisTemplate;
@@ -42,6 +47,42 @@ import redis.clients.jedis.exceptions.JedisDataException;
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class RedisPropertyValueIndexer implements PropertyValueIndexer<Long> {
 
+    /**
+     * Separates the value from the identifier in the members of a lexicographical index. It sorts before any
+     * other character, so that the members of a value sort before those of any value it is a prefix of.
+     */
+    private static final char LEX_SEPARATOR = '\u0000';
+
+    /**
+     * Stores the identifiers of a lexicographical range of KEYS[1] in the set KEYS[2], which expires after ARGV[3]
+     * seconds and is registered in the set of cached sort keys KEYS[3]
+     */
+    private static final String LEX_RANGE_STORE_SCRIPT =
+            "local members = redis.call('ZRANGEBYLEX', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "redis.call('DEL', KEYS[2])\n" +
+            "for _, member in ipairs(members) do\n" +
+            "  redis.call('SADD', KEYS[2], string.match(member, '%z(%d+)$'))\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[2], ARGV[3])\n" +
+            "redis.call('SADD', KEYS[3], KEYS[2])\n" +
+            "return #members";
+
+    /**
+     * Returns the identifiers of a page of a lexicographical range of KEYS[1], in ascending or descending order
+     */
+    private static final String LEX_RANGE_SCRIPT =
+            "local members\n" +
+            "if ARGV[5] == 'desc' then\n" +
+            "  members = redis.call('ZREVRANGEBYLEX', KEYS[1], ARGV[2], ARGV[1], 'LIMIT', ARGV[3], ARGV[4])\n" +
+            "else\n" +
+            "  members = redis.call('ZRANGEBYLEX', KEYS[1], ARGV[1], ARGV[2], 'LIMIT', ARGV[3], ARGV[4])\n" +
+            "end\n" +
+            "local ids = {}\n" +
+            "for i, member in ipairs(members) do\n" +
+            "  ids[i] = string.match(member, '%z(%d+)$')\n" +
+            "end\n" +
+            "return ids";
+
     private RedisTemplate template;
     private PersistentProperty property;
     private RedisEntityPersister entityPersister;
@@ -61,7 +102,24 @@ public class RedisPropertyValueIndexer implements PropertyValueIndexer<Long> {
         }
 
         final String primaryIndex = createRedisKey(value);
+        RedisEntryWrite entryWrite = getPendingEntryWrite(primaryKey);
+        if (entryWrite != null) {
+            entryWrite.srem(primaryIndex, primaryKey);
+            if (value instanceof String && isLexIndexed()) {
+                entryWrite.zrem(getLexIndexName(false), createLexMember((String) value, primaryKey));
+                if (isLexIndexIgnoreCase()) {
+                    entryWrite.zrem(getLexIndexName(true), createLexMember(((String) value).toLowerCase(), primaryKey));
+                }
+            }
+            return;
+        }
         template.srem(primaryIndex, primaryKey);
+        if (value instanceof String && isLexIndexed()) {
+            template.zrem(getLexIndexName(false), createLexMember((String) value, primaryKey));
+            if (isLexIndexIgnoreCase()) {
+                template.zrem(getLexIndexName(true), createLexMember(((String) value).toLowerCase(), primaryKey));
+            }
+        }
     }
 
     public void index(final Object value, final Long primaryKey) {
@@ -70,8 +128,27 @@ public class RedisPropertyValueIndexer implements PropertyValueIndexer<Long> {
         }
 
         String propSortKey = entityPersister.getPropertySortKey(property);
-        clearCachedIndices(entityPersister.getPropertySortKeyPattern());
+        clearCachedIndices();
         final String primaryIndex = createRedisKey(value);
+        RedisEntryWrite entryWrite = getPendingEntryWrite(primaryKey);
+        if (entryWrite != null) {
+            // updated by the script that writes the entry
+            entryWrite.sadd(primaryIndex, primaryKey);
+            if (value instanceof Number) {
+                entryWrite.zadd(propSortKey, ((Number)value).doubleValue(), primaryKey);
+            }
+            else if (value instanceof Date) {
+                entryWrite.zadd(propSortKey, ((Date)value).getTime(), primaryKey);
+            }
+            else if (value instanceof String && isLexIndexed()) {
+                entryWrite.zadd(getLexIndexName(false), 0, createLexMember((String) value, primaryKey));
+                if (isLexIndexIgnoreCase()) {
+                    entryWrite.zadd(getLexIndexName(true), 0, createLexMember(((String) value).toLowerCase(), primaryKey));
+                }
+            }
+            return;
+        }
+
         try {
             template.sadd(primaryIndex, primaryKey);
         }
@@ -97,42 +174,56 @@ public class RedisPropertyValueIndexer implements PropertyValueIndexer<Long> {
         else if (value instanceof Date) {
             template.zadd(propSortKey, ((Date)value).getTime(), primaryKey);
         }
+        // for strings an optional lexicographical index supports prefix and range queries
+        else if (value instanceof String && isLexIndexed()) {
+            template.zadd(getLexIndexName(false), 0, createLexMember((String) value, primaryKey));
+            if (isLexIndexIgnoreCase()) {
+                template.zadd(getLexIndexName(true), 0, createLexMember(((String) value).toLowerCase(), primaryKey));
+            }
+        }
+    }
+
+    private RedisDatastore getDatastore() {
+        return (RedisDatastore) entityPersister.getSession().getDatastore();
+    }
+
+    private RedisEntryWrite getPendingEntryWrite(Long primaryKey) {
+        final RedisSession session = (RedisSession) entityPersister.getSession();
+        return session.getPendingEntryWrite(entityPersister.getEntryKey(primaryKey));
     }
 
-    private void clearCachedIndices(final String propSortKey) {
+    private void clearCachedIndices() {
         final SessionImplementor session = (SessionImplementor) entityPersister.getSession();
-        final String keyPattern = propSortKey + "~*";
-        session.addPostFlushOperation(new KeyPatternRunnable(keyPattern) {
-            public void run() {
-                deleteKeys(template.keys(keyPattern));
-            }
-        });
+        session.addPostFlushOperation(new ClearCachedSortKeysRunnable(entityPersister));
     }
 
-    private abstract class KeyPatternRunnable implements Runnable {
-        private String keyPattern;
+    /**
+     * Removes the results cached from the sorted indices of an entity once after a flush, without scanning the keyspace
+     */
+    private static class ClearCachedSortKeysRunnable implements Runnable {
+        private RedisEntityPersister entityPersister;
+        private String cachedSortKeysKey;
+
+        public ClearCachedSortKeysRunnable(RedisEntityPersister entityPersister) {
+            this.entityPersister = entityPersister;
+            this.cachedSortKeysKey = entityPersister.getCachedSortKeysKey();
+        }
 
-        public KeyPatternRunnable(String keyPattern) {
-            this.keyPattern = keyPattern;
+        public void run() {
+            entityPersister.clearCachedSortKeys();
         }
 
         @Override
         public boolean equals(Object obj) {
-            if (obj instanceof KeyPatternRunnable) {
-                return keyPattern.equals(((KeyPatternRunnable)obj).keyPattern);
+            if (obj instanceof ClearCachedSortKeysRunnable) {
+                return cachedSortKeysKey.equals(((ClearCachedSortKeysRunnable)obj).cachedSortKeysKey);
             }
             return super.equals(obj);
         }
 
         @Override
         public int hashCode() {
-            return keyPattern.hashCode();
-        }
-    }
-
-    private void deleteKeys(Set<String> toDelete) {
-        if (toDelete != null && !toDelete.isEmpty()) {
-            template.del(toDelete.toArray(new String[toDelete.size()]));
+            return cachedSortKeysKey.hashCode();
         }
     }
 
@@ -185,4 +276,102 @@ public class RedisPropertyValueIndexer implements PropertyValueIndexer<Long> {
     public String getIndexPattern(String pattern) {
         return getIndexRoot() + urlEncode(pattern.replaceAll("%", "*"));
     }
+
+    /**
+     * @return Whether the String values of the property are indexed in lexicographical order
+     */
+    public boolean isLexIndexed() {
+        Object mappedForm = property.getMapping() == null ? null : property.getMapping().getMappedForm();
+        return mappedForm instanceof KeyValue && ((KeyValue) mappedForm).isLexIndex();
+    }
+
+    /**
+     * @return Whether the lowercase String values of the property are indexed in lexicographical order
+     */
+    public boolean isLexIndexIgnoreCase() {
+        Object mappedForm = property.getMapping() == null ? null : property.getMapping().getMappedForm();
+        return mappedForm instanceof KeyValue && ((KeyValue) mappedForm).isLexIndexIgnoreCase();
+    }
+
+    /**
+     * @param ignoreCase Whether to return the name of the index of the lowercase values
+     * @return The key of the lexicographical index
+     */
+    public String getLexIndexName(boolean ignoreCase) {
+        return entityPersister.getPropertyLexKey(property, ignoreCase);
+    }
+
+    /**
+     * Stores the identifiers of the entities within a lexicographical range in a set, using ZRANGEBYLEX.
+     * The set is cached until the entity is next written. Entries written before the lexicographical index was
+     * enabled are only found once the datastore has rebuilt its indices on startup.
+     *
+     * @param from The lower bound in ZRANGEBYLEX syntax, see {@link #lexFrom(String, boolean)}
+     * @param to The upper bound in ZRANGEBYLEX syntax, see {@link #lexTo(String, boolean)}
+     * @param ignoreCase Whether to query the index of the lowercase values
+     * @return The key of the set
+     */
+    public String storeLexRange(String from, String to, boolean ignoreCase) {
+        final String lexKey = getLexIndexName(ignoreCase);
+        final String key = lexKey + "~range-" + urlEncode(from) + "-" + urlEncode(to);
+        if (!template.exists(key)) {
+            getDatastore().evalScript(template, LEX_RANGE_STORE_SCRIPT,
+                    Arrays.asList(lexKey, key, entityPersister.getCachedSortKeysKey()),
+                    Arrays.asList(from, to, String.valueOf(RedisEntityPersister.CACHED_SORT_KEY_TIMEOUT)));
+        }
+        return key;
+    }
+
+    /**
+     * Obtains the identifiers of a page of entities ordered by the lexicographical index, using ZRANGEBYLEX.
+     *
+     * @param offset The offset
+     * @param max The maximum number of results or -1 for all
+     * @param descending Whether to order descending
+     * @return The identifiers
+     */
+    public List<String> queryLexRange(int offset, int max, boolean descending) {
+        Object results = getDatastore().evalScript(template, LEX_RANGE_SCRIPT, Collections.singletonList(getLexIndexName(false)),
+                Arrays.asList("-", "+", String.valueOf(offset), String.valueOf(max), descending ? "desc" : "asc"));
+        return results == null ? Collections.<String>emptyList() : new ArrayList<String>((List<String>) results);
+    }
+
+    /**
+     * @param value The value
+     * @param inclusive Whether the value is included
+     * @return The lower bound of a lexicographical range starting at the value
+     */
+    public static String lexFrom(String value, boolean inclusive) {
+        return inclusive ? "[" + value : "(" + value + (char) (LEX_SEPARATOR + 1);
+    }
+
+    /**
+     * @param value The value
+     * @param inclusive Whether the value is included
+     * @return The upper bound of a lexicographical range ending at the value
+     */
+    public static String lexTo(String value, boolean inclusive) {
+        return inclusive ? "(" + value + (char) (LEX_SEPARATOR + 1) : "(" + value;
+    }
+
+    /**
+     * @param prefix The prefix
+     * @return The upper bound of the lexicographical range of the values starting with the prefix, or null
+     * if it cannot be expressed as a bound
+     */
+    public static String lexPrefixTo(String prefix) {
+        if (prefix.length() == 0) {
+            return "+";
+        }
+        // the values starting with the prefix sort before the prefix with its last character incremented
+        char last = prefix.charAt(prefix.length() - 1);
+        if (last == Character.MAX_VALUE || Character.isSurrogate(last)) {
+            return null;
+        }
+        return "(" + prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+    }
+
+    private String createLexMember(String value, Long primaryKey) {
+        return value + LEX_SEPARATOR + primaryKey;
+    }
 }
@@ -21,17 +21,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.codehaus.groovy.runtime.DefaultGroovyMethods;
 import org.grails.datastore.mapping.config.Property;
+import org.grails.datastore.mapping.engine.PropertyValueIndexer;
 import org.grails.datastore.mapping.model.PersistentEntity;
 import org.grails.datastore.mapping.model.PersistentProperty;
 import org.grails.datastore.mapping.model.types.Identity;
 import org.grails.datastore.mapping.query.Query;
 import org.grails.datastore.mapping.query.Restrictions;
+import org.grails.datastore.mapping.query.projections.PropertyAggregator;
 import org.grails.datastore.mapping.redis.RedisSession;
 import org.grails.datastore.mapping.redis.engine.RedisEntityPersister;
 import org.grails.datastore.mapping.redis.engine.RedisPropertyValueIndexer;
@@ -80,13 +82,17 @@ public class RedisQuery extends Query {
             final String childEntityResultsKey = finalKey + "-" + getEntity().getDecapitalizedName();
             template.sinterstore(childEntityResultsKey, finalKey,
                                  entityPersister.getAllEntityIndex().getRedisKey());
+            registerTemporaryKey(childEntityResultsKey);
             finalKey = childEntityResultsKey;
         }
 
         Collection<String> results;
         IdProjection idProjection = null;
         if (projectionList.isEmpty()) {
-            results = paginateResults(finalKey);
+            results = criteria.isEmpty() ? paginateLexIndex() : null;
+            if (results == null) {
+                results = paginateResults(finalKey);
+            }
         }
         else {
             List projectionResults = new ArrayList();
@@ -113,16 +119,19 @@ public class RedisQuery extends Query {
                 else {
                     final String projectionType = projection.getClass().getSimpleName();
                     if (projection instanceof SumProjection) {
-                        return unsupportedProjection(projectionType);
+                        projectionResults.add(aggregateProperty(finalKey, postSortAndPaginationKey, (PropertyProjection) projection).getSum());
                     }
                     else if (projection instanceof AvgProjection) {
-                        return unsupportedProjection(projectionType);
+                        projectionResults.add(aggregateProperty(finalKey, postSortAndPaginationKey, (PropertyProjection) projection).getAverage());
                     }
                     else if (projection instanceof CountDistinctProjection) {
                         PropertyProjection propertyProjection = (PropertyProjection) projection;
                         final PersistentProperty validProperty = getValidProperty(propertyProjection);
                         final List<String> values = projectProperty(finalKey, postSortAndPaginationKey, validProperty);
-                        projectionResults.add( DefaultGroovyMethods.unique(values).size() );
+                        projectionResults.add(new HashSet<String>(values).size());
+                    }
+                    else if (projection instanceof GroupPropertyProjection) {
+                        throw new UnsupportedOperationException("Group property projections are not supported by the Redis datastore");
                     }
                     else if (projection instanceof PropertyProjection) {
                         List resultList = new ArrayList();
@@ -171,6 +180,20 @@ public class RedisQuery extends Query {
         return template.sort(postSortAndPaginationKey, template.sortParams().get(entityKey + ":*->" + validProperty.getName()));
     }
 
+    private PropertyAggregator aggregateProperty(String finalKey, String postSortAndPaginationKey, PropertyProjection projection) {
+        final PersistentProperty validProperty = getValidProperty(projection);
+        final Class type = validProperty.getType();
+        if (!Number.class.isAssignableFrom(type) && !(type.isPrimitive() && type != boolean.class && type != char.class)) {
+            unsupportedProjection(projection.getClass().getSimpleName());
+        }
+
+        PropertyAggregator aggregator = new PropertyAggregator(false);
+        for (String value : projectProperty(finalKey, postSortAndPaginationKey, validProperty)) {
+            aggregator.add(value == null ? null : conversionService.convert(value, type));
+        }
+        return aggregator;
+    }
+
     private List unsupportedProjection(String projectionType) {
         throw new InvalidDataAccessResourceUsageException("Cannot use ["+ projectionType +"] projection. ["+projectionType+"] projections are not currently supported.");
     }
@@ -212,6 +235,7 @@ public class RedisQuery extends Query {
 
             String sortKey = builder.toString();
             template.sortstore(finalKey, sortKey, getSortAndPaginationParams());
+            registerTemporaryKey(sortKey);
             return sortKey;
         }
         return finalKey;
@@ -236,6 +260,7 @@ public class RedisQuery extends Query {
             finalKey = formulateDisjunctionKey(indices);
             template.sunionstore(finalKey, keyArray);
         }
+        registerTemporaryKey(finalKey);
 
         //  since the keys used for queries are temporary we set Redis to kill them after a while
 //        template.expire(finalKey, 1000);
@@ -251,6 +276,30 @@ public class RedisQuery extends Query {
         return template.smembers(key);
     }
 
+    /**
+     * Pages through all entities in the lexicographical index of the String property they are ordered by
+     *
+     * @return The identifiers, or null if the entities are not ordered by a property with a lexicographical index
+     */
+    private List<String> paginateLexIndex() {
+        if (orderBy.size() != 1 || !getEntity().isRoot()) {
+            return null;
+        }
+
+        final Order order = orderBy.get(0);
+        PersistentProperty prop = getEntity().getPropertyByName(order.getProperty());
+        if (prop == null || !String.class.equals(prop.getType())) {
+            return null;
+        }
+        RedisPropertyValueIndexer indexer = getLexIndexer(entityPersister, prop, false);
+        // entities without a value are not in the lexicographical index
+        if (indexer == null ||
+                template.zcard(indexer.getLexIndexName(false)) != entityPersister.getAllEntityIndex().size()) {
+            return null;
+        }
+        return indexer.queryLexRange(offset, max, order.getDirection() == Order.Direction.DESC);
+    }
+
     private boolean shouldSortOrPaginate() {
         return offset > 0 || max > -1 || !orderBy.isEmpty();
     }
@@ -262,6 +311,10 @@ public class RedisQuery extends Query {
             String orderBy = entityPersister.getEntityBaseKey() + ":*->" + o.getProperty();
 
             params.by(orderBy);
+            PersistentProperty prop = getEntity().getPropertyByName(o.getProperty());
+            if (prop != null && String.class.equals(prop.getType())) {
+                params.alpha();
+            }
             if (o.getDirection() == Order.Direction.DESC) {
                params.desc();
             }
@@ -290,6 +343,10 @@ public class RedisQuery extends Query {
         return "~" + indices.toString().replaceAll("\\s", "");
     }
 
+    private void registerTemporaryKey(String key) {
+        template.sadd(RedisSession.TEMPORARY_QUERY_KEYS, key);
+    }
+
     private long getCountResult(String redisKey) {
         if (shouldSortOrPaginate()) {
             return template.llen(redisKey);
@@ -321,25 +378,25 @@ public class RedisQuery extends Query {
        });
        put(GreaterThanEquals.class, new CriterionHandler<GreaterThanEquals>() {
            public void handle(RedisEntityPersister entityPersister, List<String> indices, GreaterThanEquals criterion) {
-               String key = executeGreaterThanEquals(entityPersister, criterion);
+               String key = executeGreaterThanEquals(entityPersister, criterion, true);
                indices.add(key);
            }
        });
        put(GreaterThan.class, new CriterionHandler<GreaterThan>() {
            public void handle(RedisEntityPersister entityPersister, List<String> indices, GreaterThan criterion) {
-               String key = executeGreaterThanEquals(entityPersister, criterion);
+               String key = executeGreaterThanEquals(entityPersister, criterion, false);
                indices.add(key);
            }
        });
        put(LessThanEquals.class, new CriterionHandler<LessThanEquals>() {
            public void handle(RedisEntityPersister entityPersister, List<String> indices, LessThanEquals criterion) {
-               String key = executeLessThanEquals(entityPersister, criterion);
+               String key = executeLessThanEquals(entityPersister, criterion, true);
                indices.add(key);
            }
        });
        put(LessThan.class, new CriterionHandler<LessThan>() {
            public void handle(RedisEntityPersister entityPersister, List<String> indices, LessThan criterion) {
-               String key = executeLessThanEquals(entityPersister, criterion);
+               String key = executeLessThanEquals(entityPersister, criterion, false);
                indices.add(key);
            }
        });
@@ -418,18 +475,30 @@ public class RedisQuery extends Query {
         return indices;
     }
 
-    protected String executeLessThanEquals(RedisEntityPersister entityPersister, PropertyCriterion criterion) {
+    protected String executeLessThanEquals(RedisEntityPersister entityPersister, PropertyCriterion criterion, boolean inclusive) {
 
         final String property = criterion.getProperty();
         PersistentProperty prop = getAndValidateProperty(entityPersister, property);
 
+        final Object value = criterion.getValue();
+        RedisPropertyValueIndexer lexIndexer = getLexIndexer(entityPersister, prop, value);
+        if (lexIndexer != null) {
+            return lexIndexer.storeLexRange("-", RedisPropertyValueIndexer.lexTo((String) value, inclusive), false);
+        }
+
         return executeBetweenInternal(entityPersister, prop, 0, criterion.getValue(), false, true);
     }
 
-    protected String executeGreaterThanEquals(RedisEntityPersister entityPersister, PropertyCriterion criterion) {
+    protected String executeGreaterThanEquals(RedisEntityPersister entityPersister, PropertyCriterion criterion, boolean inclusive) {
         final String property = criterion.getProperty();
         PersistentProperty prop = getAndValidateProperty(entityPersister, property);
 
+        final Object value = criterion.getValue();
+        RedisPropertyValueIndexer lexIndexer = getLexIndexer(entityPersister, prop, value);
+        if (lexIndexer != null) {
+            return lexIndexer.storeLexRange(RedisPropertyValueIndexer.lexFrom((String) value, inclusive), "+", false);
+        }
+
         String sortKey = entityPersister.getPropertySortKey(prop);
         Object max = getMaxValueFromSortedSet(sortKey);
 
@@ -450,6 +519,7 @@ public class RedisQuery extends Query {
             }
 
             template.setex(maxKey, max, 500);
+            entityPersister.registerCachedSortKey(maxKey);
         }
 
         return conversionService.convert(max, Double.class);
@@ -469,6 +539,7 @@ public class RedisQuery extends Query {
             }
 
             template.setex(minKey, min, 500);
+            entityPersister.registerCachedSortKey(minKey);
         }
         return conversionService.convert(min, Double.class);
     }
@@ -477,9 +548,31 @@ public class RedisQuery extends Query {
         final String property = between.getProperty();
 
         PersistentProperty prop = getAndValidateProperty(entityPersister, property);
+        RedisPropertyValueIndexer lexIndexer = getLexIndexer(entityPersister, prop, between.getFrom());
+        if (lexIndexer != null && between.getTo() instanceof String) {
+            return lexIndexer.storeLexRange(RedisPropertyValueIndexer.lexFrom((String) between.getFrom(), true),
+                    RedisPropertyValueIndexer.lexTo((String) between.getTo(), true), false);
+        }
         return executeBetweenInternal(entityPersister, prop, between.getFrom(), between.getTo(), false, true);
     }
 
+    /**
+     * @return The indexer of the property if the value is a String and the property has a lexicographical index
+     */
+    private RedisPropertyValueIndexer getLexIndexer(RedisEntityPersister entityPersister, PersistentProperty prop, Object value) {
+        return value instanceof String ? getLexIndexer(entityPersister, prop, false) : null;
+    }
+
+    private RedisPropertyValueIndexer getLexIndexer(RedisEntityPersister entityPersister, PersistentProperty prop, boolean ignoreCase) {
+        PropertyValueIndexer indexer = entityPersister.getPropertyIndexer(prop);
+        if (!(indexer instanceof RedisPropertyValueIndexer)) {
+            return null;
+        }
+        RedisPropertyValueIndexer redisIndexer = (RedisPropertyValueIndexer) indexer;
+        boolean indexed = ignoreCase ? redisIndexer.isLexIndexIgnoreCase() : redisIndexer.isLexIndexed();
+        return indexed ? redisIndexer : null;
+    }
+
     private String executeBetweenInternal(RedisEntityPersister entityPersister,
             PersistentProperty prop, Object fromObject, Object toObject,
             boolean includeFrom, boolean includeTo) {
@@ -505,12 +598,15 @@ public class RedisQuery extends Query {
         if (!template.exists(key)) {
             final Set<String> results = template.zrangebyscore(sortKey, from, to);
             if (results != null && !results.isEmpty()) {
+                final String cachedSortKeysKey = entityPersister.getCachedSortKeysKey();
                 template.pipeline(new RedisCallback<RedisTemplate>() {
                     public Object doInRedis(RedisTemplate redis) throws IOException {
+                        // registered first so that the results are removed when the indices change
+                        redis.sadd(cachedSortKeysKey, key);
                         for (String result : results) {
                             redis.sadd(key, result);
                         }
-//                        redis.expire(key, 1000);
+                        redis.expire(key, RedisEntityPersister.CACHED_SORT_KEY_TIMEOUT);
 
                         return null;
                     }
@@ -533,13 +629,45 @@ public class RedisQuery extends Query {
     private String executeSubLike(RedisEntityPersister entityPersister, Like like) {
         final String property = like.getProperty();
         String pattern = like.getPattern();
+        final String prefixKey = executeLexPrefix(entityPersister, property, pattern, like instanceof ILike);
+        if (prefixKey != null) {
+            return prefixKey;
+        }
         final List<String> keys = resolveMatchingIndices(entityPersister, property, pattern);
         final String disjKey = formulateDisjunctionKey(keys);
         template.sunionstore(disjKey, keys.toArray(new String[keys.size()]));
+        registerTemporaryKey(disjKey);
 //        template.expire(disjKey, 1000);
         return disjKey;
     }
 
+    /**
+     * Resolves a prefix pattern such as 'abc%' with a range of the lexicographical index of the property
+     *
+     * @return The key of the results, or null if the pattern is not a prefix or the property has no lexicographical index
+     */
+    private String executeLexPrefix(RedisEntityPersister entityPersister, String property, String pattern, boolean ignoreCase) {
+        if (pattern.indexOf('%') != pattern.length() - 1 || pattern.indexOf('_') > -1) {
+            return null;
+        }
+        PersistentProperty prop = getEntity().getPropertyByName(property);
+        assertIndexed(property, prop);
+        RedisPropertyValueIndexer indexer = getLexIndexer(entityPersister, prop, ignoreCase);
+        if (indexer == null) {
+            return null;
+        }
+
+        String prefix = pattern.substring(0, pattern.length() - 1);
+        if (ignoreCase) {
+            prefix = prefix.toLowerCase();
+        }
+        final String to = RedisPropertyValueIndexer.lexPrefixTo(prefix);
+        if (to == null) {
+            return null;
+        }
+        return indexer.storeLexRange(RedisPropertyValueIndexer.lexFrom(prefix, true), to, ignoreCase);
+    }
+
     private List<String> resolveMatchingIndices(RedisEntityPersister entityPersister, String property, String pattern) {
         PersistentProperty prop = getEntity().getPropertyByName(property);
         assertIndexed(property, prop);
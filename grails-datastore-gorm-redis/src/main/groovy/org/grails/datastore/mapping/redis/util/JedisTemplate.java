@@ -1237,6 +1237,46 @@ public class JedisTemplate implements RedisTemplate<Jedis, SortingParams> {
         });
     }
 
+    public String scriptLoad(final String script) {
+        return (String) execute(new RedisCallback<Jedis>() {
+            public Object doInRedis(Jedis redis) {
+                return redis.scriptLoad(script);
+            }
+        });
+    }
+
+    public Object evalsha(final String sha1, final List<String> keys, final List<String> args) {
+        return execute(new RedisCallback<Jedis>() {
+            public Object doInRedis(Jedis redis) {
+                if (transaction != null) {
+                    transaction.evalsha(sha1, keys, args);
+                    return null;
+                }
+                if (pipeline != null) {
+                    pipeline.evalsha(sha1, keys, args);
+                    return null;
+                }
+                return redis.evalsha(sha1, keys, args);
+            }
+        });
+    }
+
+    public Object eval(final String script, final List<String> keys, final List<String> args) {
+        return execute(new RedisCallback<Jedis>() {
+            public Object doInRedis(Jedis redis) {
+                if (transaction != null) {
+                    transaction.eval(script, keys, args);
+                    return null;
+                }
+                if (pipeline != null) {
+                    pipeline.eval(script, keys, args);
+                    return null;
+                }
+                return redis.eval(script, keys, args);
+            }
+        });
+    }
+
     public boolean isInMulti() {
         return getRedisClient().getClient().isInMulti();
     }
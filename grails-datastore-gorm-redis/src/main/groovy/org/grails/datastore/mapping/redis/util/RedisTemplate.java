@@ -223,6 +223,21 @@ public interface RedisTemplate<T, S> {
 
     void sortstore(String key, String destKey,  SortParams<S> params);
 
+    /**
+     * See http://redis.io/commands/script-load
+     */
+    String scriptLoad(String script);
+
+    /**
+     * See http://redis.io/commands/evalsha
+     */
+    Object evalsha(String sha1, List<String> keys, List<String> args);
+
+    /**
+     * See http://redis.io/commands/eval
+     */
+    Object eval(String script, List<String> keys, List<String> args);
+
     T getRedisClient();
 
     boolean isInMulti();
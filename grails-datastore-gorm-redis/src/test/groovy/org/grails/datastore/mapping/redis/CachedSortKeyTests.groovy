@@ -0,0 +1,52 @@
+package org.grails.datastore.mapping.redis
+
+import grails.persistence.Entity
+
+import org.junit.Test
+import org.grails.datastore.mapping.query.Query
+import org.grails.datastore.mapping.redis.engine.RedisEntityPersister
+
+class CachedSortKeyTests extends AbstractRedisTest {
+
+    @Test
+    void testCachedRangeResultsAreClearedOnWrite() {
+        ds.mappingContext.addPersistentEntity(Score)
+        session.getNativeInterface().flushall()
+
+        session.persist(new Score(player:"Bob", points:10))
+        session.persist(new Score(player:"Fred", points:20))
+        session.persist(new Score(player:"Joe", points:30))
+        session.flush()
+
+        Query q = session.createQuery(Score)
+        q.between("points", 5, 25)
+        assert 2 == q.list().size()
+
+        RedisEntityPersister persister = (RedisEntityPersister) session.getPersister(Score)
+        def cachedKeys = session.getNativeInterface().smembers(persister.cachedSortKeysKey)
+        assert 1 == cachedKeys.size()
+        assert session.getNativeInterface().ttl(cachedKeys.iterator().next()) > 0
+
+        session.persist(new Score(player:"Barney", points:15))
+        session.flush()
+
+        assert !session.getNativeInterface().exists(persister.cachedSortKeysKey)
+        assert !session.getNativeInterface().exists(cachedKeys.iterator().next())
+        assert session.getNativeInterface().keys("*~clearing-*").isEmpty()
+
+        q = session.createQuery(Score)
+        q.between("points", 5, 25)
+        assert 3 == q.list().size()
+    }
+}
+
+@Entity
+class Score {
+    Long id
+    String player
+    Integer points
+
+    static mapping = {
+        points index:true
+    }
+}
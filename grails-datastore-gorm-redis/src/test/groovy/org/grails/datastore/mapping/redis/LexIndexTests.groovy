@@ -0,0 +1,86 @@
+package org.grails.datastore.mapping.redis
+
+import grails.persistence.Entity
+
+import org.junit.Test
+import org.grails.datastore.mapping.query.Query
+
+/**
+ * Tests for queries on the lexicographical index of String properties
+ */
+class LexIndexTests extends AbstractRedisTest {
+
+    @Test
+    void testPrefixAndRangeQueries() {
+        createCities()
+
+        Query q = session.createQuery(City)
+        q.like("name", "Ber%")
+        assert ["Bergen", "Berlin", "Bern"] == q.list()*.name.sort()
+
+        q = session.createQuery(City)
+        q.ilike("name", "ber%")
+        assert ["Bergen", "Berlin", "Bern"] == q.list()*.name.sort()
+
+        q = session.createQuery(City)
+        q.between("name", "Berlin", "Bonn")
+        assert ["Berlin", "Bern", "Bonn"] == q.list()*.name.sort()
+
+        q = session.createQuery(City)
+        q.gt("name", "Bern")
+        assert ["Bonn", "Paris"] == q.list()*.name.sort()
+
+        q = session.createQuery(City)
+        q.lt("name", "Bern")
+        assert ["Amsterdam", "Bergen", "Berlin"] == q.list()*.name.sort()
+    }
+
+    @Test
+    void testOrderByLexIndexedProperty() {
+        createCities()
+
+        Query q = session.createQuery(City)
+        q.order(Query.Order.asc("name"))
+        q.max(3)
+        assert ["Amsterdam", "Bergen", "Berlin"] == q.list()*.name
+
+        q = session.createQuery(City)
+        q.order(Query.Order.desc("name"))
+        q.offset(1)
+        assert ["Bonn", "Bern", "Berlin", "Bergen", "Amsterdam"] == q.list()*.name
+    }
+
+    @Test
+    void testIndexIsUpdated() {
+        createCities()
+
+        City bonn = session.createQuery(City).eq("name", "Bonn").list()[0]
+        bonn.name = "Brussels"
+        session.persist(bonn)
+        session.flush()
+
+        Query q = session.createQuery(City)
+        q.like("name", "B%")
+        assert ["Bergen", "Berlin", "Bern", "Brussels"] == q.list()*.name.sort()
+    }
+
+    private void createCities() {
+        ds.mappingContext.addPersistentEntity(City)
+        session.getNativeInterface().flushall()
+
+        ["Berlin", "Paris", "Bonn", "Bern", "Amsterdam", "Bergen"].each {
+            session.persist(new City(name: it))
+        }
+        session.flush()
+    }
+}
+
+@Entity
+class City {
+    Long id
+    String name
+
+    static mapping = {
+        name lexIndex:true, lexIndexIgnoreCase:true
+    }
+}
@@ -0,0 +1,91 @@
+package org.grails.datastore.mapping.redis
+
+import grails.persistence.Entity
+
+import org.junit.Test
+import org.grails.datastore.mapping.core.OptimisticLockingException
+import org.grails.datastore.mapping.core.Session
+import org.grails.datastore.mapping.query.Query
+
+/**
+ * Tests for the version check performed when an entry is written
+ */
+class OptimisticLockingTests extends AbstractRedisTest {
+
+    @Test
+    void testConcurrentUpdateIsDetected() {
+        ds.mappingContext.addPersistentEntity(Ballot)
+        session.getNativeInterface().flushall()
+
+        def b = new Ballot(name:"Bob", votes:1)
+        session.persist(b)
+        session.flush()
+        session.clear()
+
+        Ballot first = session.retrieve(Ballot, b.id)
+
+        Session other = ds.connect()
+        try {
+            Ballot second = other.retrieve(Ballot, b.id)
+            second.votes = 2
+            other.persist(second)
+            other.flush()
+        }
+        finally {
+            other.disconnect()
+        }
+
+        first.votes = 3
+        session.persist(first)
+        try {
+            session.flush()
+            assert false : "should have thrown an optimistic locking exception"
+        }
+        catch (OptimisticLockingException e) {
+            // expected
+        }
+
+        // the version is only incremented once the write has passed the version check
+        assert 0 == first.version
+
+        session.clear()
+        Ballot stored = session.retrieve(Ballot, b.id)
+        assert 2 == stored.votes
+        assert 1 == stored.version
+    }
+
+    @Test
+    void testIndicesAreUpdatedWithTheEntry() {
+        ds.mappingContext.addPersistentEntity(Ballot)
+        session.getNativeInterface().flushall()
+
+        def b = new Ballot(name:"Bob", votes:1)
+        session.persist(b)
+        session.flush()
+
+        b.name = "Fred"
+        session.persist(b)
+        session.flush()
+        session.clear()
+
+        Query q = session.createQuery(Ballot)
+        q.eq("name", "Fred")
+        assert 1 == q.list().size()
+
+        q = session.createQuery(Ballot)
+        q.eq("name", "Bob")
+        assert 0 == q.list().size()
+    }
+}
+
+@Entity
+class Ballot {
+    Long id
+    Long version
+    String name
+    Integer votes
+
+    static mapping = {
+        name index:true
+    }
+}
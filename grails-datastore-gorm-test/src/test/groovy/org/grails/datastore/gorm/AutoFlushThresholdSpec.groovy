@@ -0,0 +1,36 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.gorm.tests.Person
+
+class AutoFlushThresholdSpec extends GormDatastoreSpec {
+
+    void "Test that the session flushes incrementally when the auto-flush threshold is reached"() {
+        given:"A session with an auto-flush threshold"
+            session.autoFlushThreshold = 4
+
+        when:"More entities than the threshold are saved without flushing"
+            10.times { new Person(firstName: "Bart$it", lastName: "Simpson", age: it).save() }
+
+        then:"The oldest pending operations were flushed automatically"
+            session.autoFlushCount == 2
+            session.pendingOperationCount == 2
+
+        when:"The session is flushed"
+            session.flush()
+            session.clear()
+
+        then:"All of the entities are persisted"
+            session.pendingOperationCount == 0
+            Person.count() == 10
+    }
+
+    void "Test that no auto-flush happens when no threshold is set"() {
+        when:"Entities are saved without flushing"
+            10.times { new Person(firstName: "Bart$it", lastName: "Simpson", age: it).save() }
+
+        then:"The operations remain pending"
+            session.autoFlushCount == 0
+            session.pendingOperationCount == 10
+    }
+}
@@ -208,6 +208,22 @@ class CriteriaProjectedResultsSpec extends GormDatastoreSpec {
             [['eighty-three', 83], ['seventy', 83]] == model
     }
 
+    void "Test that group property projections are rejected"() {
+        given:"A domain instance"
+            new Check(amount: 57, descr: 'fifty-seven').save(flush: true)
+
+        when:"A projection groups by a property"
+            Check.withCriteria {
+                projections {
+                    groupProperty 'descr'
+                    sum 'amount'
+                }
+            }
+
+        then:"The projection is not supported"
+            thrown(UnsupportedOperationException)
+    }
+
     @Override
     List getDomainClasses() {
         [Check]
@@ -0,0 +1,44 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.gorm.tests.Person
+
+class FirstLevelCacheMaxSizeSpec extends GormDatastoreSpec {
+
+    void "Test that the least recently used instances are evicted from a size-capped first level cache"() {
+        given:"Persisted entities"
+            20.times { new Person(firstName: "Bart$it", lastName: "Simpson", age: it).save() }
+            session.flush()
+            session.clear()
+
+        when:"They are loaded by a session with a capped first level cache"
+            session.firstLevelCacheMaxSize = 5
+            def people = Person.list(sort: 'age')
+
+        then:"Only the most recently loaded instances are cached"
+            people.size() == 20
+            session.firstLevelCache[Person].size() == 5
+            session.contains(people[19])
+            !session.contains(people[0])
+    }
+
+    void "Test that instances pending a flush are not evicted until the session is flushed"() {
+        given:"A session with a capped first level cache"
+            session.firstLevelCacheMaxSize = 5
+
+        when:"More entities than the cap are saved without flushing"
+            def people = (0..<10).collect { new Person(firstName: "Bart$it", lastName: "Simpson", age: it).save() }
+
+        then:"None of them is evicted"
+            session.firstLevelCache[Person].size() == 10
+            people.every { session.contains(it) }
+
+        when:"The session is flushed and another entity is saved"
+            session.flush()
+            new Person(firstName: "Lisa", lastName: "Simpson", age: 10).save(flush: true)
+
+        then:"The flushed instances can be evicted again"
+            session.firstLevelCache[Person].size() == 5
+            Person.count() == 11
+    }
+}
@@ -0,0 +1,81 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.gorm.tests.Person
+
+import org.grails.datastore.mapping.core.impl.PendingDelete
+import org.grails.datastore.mapping.core.impl.PendingInsert
+import org.grails.datastore.mapping.core.impl.PendingUpdate
+import org.grails.datastore.mapping.engine.DefaultBatchWriter
+import org.grails.datastore.mapping.engine.EntityPersister
+import org.grails.datastore.mapping.model.PersistentEntity
+
+class FlushBatchSizeSpec extends GormDatastoreSpec {
+
+    void "Test that pending operations are flushed in chunks of the flush batch size"() {
+        given:"A session with a small flush batch size and a batch writer that records the chunks"
+            session.flushBatchSize = 3
+            def writer = new RecordingBatchWriter()
+            ((EntityPersister)session.getPersister(Person)).batchWriter = writer
+
+        when:"More entities than the batch size are saved and flushed"
+            10.times { new Person(firstName: "Bart$it", lastName: "Simpson", age: it).save() }
+            session.flush()
+            session.clear()
+
+        then:"The inserts were written in chunks of the batch size"
+            writer.inserts == [3, 3, 3, 1]
+            Person.count() == 10
+
+        when:"The entities are updated and deleted in chunks"
+            Person.list().each { it.age = it.age + 10; it.save() }
+            session.flush()
+            session.clear()
+            Person.findAllByAgeLessThan(15)*.delete()
+            session.flush()
+            session.clear()
+
+        then:"The updates were written in chunks of the batch size and the deletes applied"
+            writer.updates == [3, 3, 3, 1]
+            Person.count() == 5
+            Person.list()*.age.sort() == [15, 16, 17, 18, 19]
+    }
+
+    void "Test that a flush batch size of zero writes the operations of an entity in a single batch"() {
+        given:"A session without a flush batch size"
+            session.flushBatchSize = 0
+            def writer = new RecordingBatchWriter()
+            ((EntityPersister)session.getPersister(Person)).batchWriter = writer
+
+        when:"Entities are saved and flushed"
+            10.times { new Person(firstName: "Bart$it", lastName: "Simpson", age: it).save() }
+            session.flush()
+
+        then:"The inserts were written in a single batch"
+            writer.inserts == [10]
+    }
+
+    static class RecordingBatchWriter extends DefaultBatchWriter {
+        List<Integer> inserts = []
+        List<Integer> updates = []
+        List<Integer> deletes = []
+
+        @Override
+        void insert(PersistentEntity entity, List<PendingInsert> inserts) {
+            this.inserts << inserts.size()
+            super.insert(entity, inserts)
+        }
+
+        @Override
+        void update(PersistentEntity entity, List<PendingUpdate> updates) {
+            this.updates << updates.size()
+            super.update(entity, updates)
+        }
+
+        @Override
+        void delete(PersistentEntity entity, List<PendingDelete> deletes) {
+            this.deletes << deletes.size()
+            super.delete(entity, deletes)
+        }
+    }
+}
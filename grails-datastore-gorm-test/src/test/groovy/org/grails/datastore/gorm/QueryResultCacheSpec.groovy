@@ -0,0 +1,79 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.gorm.tests.Person
+
+class QueryResultCacheSpec extends GormDatastoreSpec {
+
+    void "Test that the results of cached queries are reused until the entity is written"() {
+        given:"Some people"
+            new Person(firstName: "Bart", lastName: "Simpson", age: 10).save()
+            new Person(firstName: "Lisa", lastName: "Simpson", age: 8).save()
+            new Person(firstName: "Ned", lastName: "Flanders", age: 40).save(flush: true)
+            session.clear()
+            def queryResultCache = session.datastore.queryResultCache
+            queryResultCache.clear()
+            long hits = queryResultCache.hitCount
+
+        when:"A cached query is executed twice"
+            def first = Person.findAllByLastName("Simpson", [cache: true, sort: 'firstName'])
+            def second = Person.findAllByLastName("Simpson", [cache: true, sort: 'firstName'])
+
+        then:"The second execution is served from the cache"
+            first*.firstName == ["Bart", "Lisa"]
+            second*.firstName == ["Bart", "Lisa"]
+            queryResultCache.hitCount == hits + 1
+
+        when:"A matching entity is saved and the query is executed again"
+            new Person(firstName: "Maggie", lastName: "Simpson", age: 1).save(flush: true)
+            def third = Person.findAllByLastName("Simpson", [cache: true, sort: 'firstName'])
+
+        then:"The cache was invalidated"
+            third*.firstName == ["Bart", "Lisa", "Maggie"]
+            queryResultCache.hitCount == hits + 1
+
+        when:"A query is executed without caching enabled"
+            Person.findAllByLastName("Simpson", [sort: 'firstName'])
+            Person.findAllByLastName("Simpson", [sort: 'firstName'])
+
+        then:"The cache is not used"
+            queryResultCache.hitCount == hits + 1
+    }
+
+    void "Test that cached queries bypass the cache for entities written within a transaction"() {
+        given:"A person"
+            new Person(firstName: "Bart", lastName: "Simpson", age: 10).save(flush: true)
+            session.clear()
+            def queryResultCache = session.datastore.queryResultCache
+            def entity = session.mappingContext.getPersistentEntity(Person.name)
+            queryResultCache.clear()
+            long hits = queryResultCache.hitCount
+            long misses = queryResultCache.missCount
+            long generation
+
+        when:"A cached query is executed within a transaction before and after the entity is written"
+            def results = Person.withTransaction {
+                Person.findAllByLastName("Simpson", [cache: true])
+                new Person(firstName: "Lisa", lastName: "Simpson", age: 8).save(flush: true)
+                generation = queryResultCache.getGeneration(entity)
+                Person.findAllByLastName("Simpson", [cache: true])
+            }
+
+        then:"The cache is only used before the write"
+            results*.firstName.sort() == ["Bart", "Lisa"]
+            queryResultCache.hitCount == hits
+            queryResultCache.missCount == misses + 1
+
+        and:"The cached results of the entity are invalidated again when the transaction completes"
+            queryResultCache.getGeneration(entity) > generation
+
+        when:"The query is executed again after the transaction"
+            def first = Person.findAllByLastName("Simpson", [cache: true])
+            def second = Person.findAllByLastName("Simpson", [cache: true])
+
+        then:"The cache is used again"
+            first*.firstName.sort() == ["Bart", "Lisa"]
+            second*.firstName.sort() == ["Bart", "Lisa"]
+            queryResultCache.hitCount == hits + 1
+    }
+}
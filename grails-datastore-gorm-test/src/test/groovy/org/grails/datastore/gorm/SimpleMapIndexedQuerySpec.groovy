@@ -0,0 +1,55 @@
+package org.grails.datastore.gorm
+
+import grails.gorm.tests.GormDatastoreSpec
+import grails.gorm.tests.Person
+
+import org.grails.datastore.mapping.simple.engine.PropertyValueIndex
+
+class SimpleMapIndexedQuerySpec extends GormDatastoreSpec {
+
+    void "Test that range queries reflect updates and deletes"() {
+        given:"Some people"
+            new Person(firstName: "Bart", lastName: "Simpson", age: 10).save()
+            new Person(firstName: "Lisa", lastName: "Simpson", age: 8).save()
+            new Person(firstName: "Homer", lastName: "Simpson", age: 40).save()
+            new Person(firstName: "Marge", lastName: "Simpson", age: 38).save(flush: true)
+            session.clear()
+
+        expect:"Range queries return the matching people in the order they were saved"
+            Person.findAllByAgeGreaterThan(9)*.firstName == ["Bart", "Homer", "Marge"]
+            Person.findAllByAgeLessThanEquals(10)*.firstName == ["Bart", "Lisa"]
+            Person.findAllByAgeBetween(8, 38)*.firstName == ["Bart", "Lisa", "Marge"]
+            Person.findAllByFirstNameLike("M%")*.firstName == ["Marge"]
+
+        when:"A person is updated and another deleted"
+            def homer = Person.findByFirstName("Homer")
+            homer.age = 5
+            homer.save()
+            Person.findByFirstName("Marge").delete(flush: true)
+            session.clear()
+
+        then:"The range queries reflect the changes"
+            Person.findAllByAgeGreaterThan(9)*.firstName == ["Bart"]
+            Person.findAllByAgeLessThan(9)*.firstName == ["Lisa", "Homer"]
+            Person.findAllByFirstNameLike("M%").isEmpty()
+    }
+
+    void "Test that a value that can't be compared with the others doesn't disable sorted lookups for good"() {
+        given:"An index holding a value that can't be compared with the others"
+            def index = new PropertyValueIndex()
+            index.index(5, 'a')
+            index.index('x', 'b')
+            index.index(7, 'c')
+
+        expect:"Range queries fall back to scanning the entries while it is indexed"
+            index.range(4, true, 6, true) == null
+            index.range(null, false, 'y', false) == null
+
+        when:"The value is removed"
+            index.remove('b')
+
+        then:"Range queries are answered from the sorted index again"
+            index.range(4, true, 6, true) == ['a']
+            index.range(6, false, null, false) == ['c']
+    }
+}
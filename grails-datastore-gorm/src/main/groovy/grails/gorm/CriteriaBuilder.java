@@ -201,6 +201,19 @@ public class CriteriaBuilder extends GroovyObjectSupport implements BuildableCri
         return projectionList;
     }
 
+    /**
+     * A projection that groups the results by the value of a property
+     *
+     * @param name The name of the property
+     * @return The projection list
+     */
+    public ProjectionList groupProperty(String name) {
+        if (projectionList != null) {
+            projectionList.groupProperty(name);
+        }
+        return projectionList;
+    }
+
     /**
      * Computes the sum of a property
      *
@@ -16,11 +16,14 @@ package org.grails.datastore.mapping.simple;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.grails.datastore.mapping.core.AbstractDatastore;
 import org.grails.datastore.mapping.core.Session;
+import org.grails.datastore.mapping.core.impl.IdentityBlockAllocator;
 import org.grails.datastore.mapping.keyvalue.mapping.config.KeyValueMappingContext;
 import org.grails.datastore.mapping.model.MappingContext;
+import org.grails.datastore.mapping.simple.engine.PropertyValueIndex;
 import org.springframework.context.ConfigurableApplicationContext;
 
 /**
@@ -34,6 +37,23 @@ import org.springframework.context.ConfigurableApplicationContext;
 public class SimpleMapDatastore extends AbstractDatastore {
     private Map<String, Map> datastore = new ConcurrentHashMap<String, Map>();
     private Map indices = new ConcurrentHashMap();
+    private Map<String, PropertyValueIndex> propertyIndices = new ConcurrentHashMap<String, PropertyValueIndex>();
+    private final Map<String, AtomicLong> identityCounters = new ConcurrentHashMap<String, AtomicLong>();
+    private final IdentityBlockAllocator identityBlockAllocator = new IdentityBlockAllocator(new IdentityBlockAllocator.BlockSource() {
+        public long reserve(String family, int blockSize) {
+            AtomicLong counter = identityCounters.get(family);
+            if (counter == null) {
+                synchronized (identityCounters) {
+                    counter = identityCounters.get(family);
+                    if (counter == null) {
+                        counter = new AtomicLong();
+                        identityCounters.put(family, counter);
+                    }
+                }
+            }
+            return counter.addAndGet(blockSize);
+        }
+    });
 
     /**
      * Creates a map based datastore backing onto the specified map
@@ -69,6 +89,33 @@ public class SimpleMapDatastore extends AbstractDatastore {
         return indices;
     }
 
+    /**
+     * Obtains the index of the values of a property, creating it if necessary
+     *
+     * @param indexRoot The name of the index, unique per root entity and property
+     * @return The index
+     */
+    public PropertyValueIndex getPropertyIndex(String indexRoot) {
+        PropertyValueIndex index = propertyIndices.get(indexRoot);
+        if (index == null) {
+            synchronized (propertyIndices) {
+                index = propertyIndices.get(indexRoot);
+                if (index == null) {
+                    index = new PropertyValueIndex();
+                    propertyIndices.put(indexRoot, index);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return The allocator of the identifiers of new entities, shared by all sessions
+     */
+    public IdentityBlockAllocator getIdentityBlockAllocator() {
+        return identityBlockAllocator;
+    }
+
     @Override
     protected Session createSession(Map<String, String> connectionDetails) {
         return new SimpleMapSession(this, getMappingContext(), getApplicationEventPublisher());
@@ -81,5 +128,8 @@ public class SimpleMapDatastore extends AbstractDatastore {
     public void clearData() {
         datastore.clear();
         indices.clear();
+        propertyIndices.clear();
+        identityCounters.clear();
+        identityBlockAllocator.reset();
     }
 }
@@ -0,0 +1,342 @@
+/* Copyright (C) 2015 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.grails.datastore.mapping.simple.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * The index of the values of a single property of the simple datastore. Keys are held in a hash index by the string
+ * form of the value, which is how equality queries have always matched, and in a sorted index by the value itself, so
+ * that equality, range and like queries don't have to scan every entry.
+ *
+ * Each key is indexed under a single value, indexing a key under a new value moves it. The keys returned by queries
+ * are in the order they were first indexed, the order of the entries of the datastore.
+ *
+ * Values that can't be compared with the values already in the sorted index are kept out of it and compared with the
+ * bounds of each range query instead. If they can't be compared with the bounds either,
+ * {@link #range(Object, boolean, Object, boolean)} returns null and that query has to scan the entries.
+ *
+ * Reads and writes are guarded by a read write lock per index.
+ *
+ * @since 5.0
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class PropertyValueIndex {
+
+    private static final Comparator<Object> VALUE_COMPARATOR = new Comparator<Object>() {
+        public int compare(Object left, Object right) {
+            return compareValues(left, right);
+        }
+    };
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Set<Object>> keysByValue = new HashMap<String, Set<Object>>();
+    private final Map<Object, IndexedKey> indexedKeys = new HashMap<Object, IndexedKey>();
+    private final Set<Object> nullKeys = new LinkedHashSet<Object>();
+    private final NavigableMap<Object, Set<Object>> sortedKeys = new TreeMap<Object, Set<Object>>(VALUE_COMPARATOR);
+    private final Set<Object> unsortedKeys = new LinkedHashSet<Object>();
+    private long sequence;
+
+    /**
+     * Indexes the key under the given value, removing it from the value it was previously indexed under
+     *
+     * @param value The value
+     * @param key The key
+     */
+    public void index(Object value, Object key) {
+        lock.writeLock().lock();
+        try {
+            IndexedKey indexed = indexedKeys.get(key);
+            if (indexed != null) {
+                if (indexed.value == null ? value == null : value != null && indexed.stringValue.equals(value.toString())) {
+                    return;
+                }
+                removeFromValue(indexed, key);
+                indexed = new IndexedKey(value, indexed.sequence);
+            }
+            else {
+                indexed = new IndexedKey(value, sequence++);
+            }
+            indexedKeys.put(key, indexed);
+
+            if (value == null) {
+                nullKeys.add(key);
+                return;
+            }
+
+            Set<Object> keys = keysByValue.get(indexed.stringValue);
+            if (keys == null) {
+                keys = new LinkedHashSet<Object>();
+                keysByValue.put(indexed.stringValue, keys);
+            }
+            keys.add(key);
+
+            try {
+                Set<Object> sorted = sortedKeys.get(value);
+                if (sorted == null) {
+                    sorted = new LinkedHashSet<Object>();
+                    sortedKeys.put(value, sorted);
+                }
+                sorted.add(key);
+            } catch (IncomparableValuesException e) {
+                unsortedKeys.add(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the key if it is indexed under the given value
+     *
+     * @param value The value
+     * @param key The key
+     */
+    public void deindex(Object value, Object key) {
+        lock.writeLock().lock();
+        try {
+            IndexedKey indexed = indexedKeys.get(key);
+            if (indexed != null && (indexed.value == null ? value == null : value != null && indexed.stringValue.equals(value.toString()))) {
+                removeFromValue(indexed, key);
+                indexedKeys.remove(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the key whatever value it is indexed under
+     *
+     * @param key The key
+     */
+    public void remove(Object key) {
+        lock.writeLock().lock();
+        try {
+            IndexedKey indexed = indexedKeys.remove(key);
+            if (indexed != null) {
+                removeFromValue(indexed, key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param value The value
+     * @return The keys indexed under a value with the same string form
+     */
+    public List<Object> query(Object value) {
+        lock.readLock().lock();
+        try {
+            Set<Object> keys = value == null ? nullKeys : keysByValue.get(value.toString());
+            return keys == null ? new ArrayList<Object>() : new ArrayList<Object>(keys);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the keys whose value lies in the given range. Either bound may be null for an open range. Keys with a null
+     * value are included if there is no lower bound, since null is lower than any value.
+     *
+     * @return The keys in the order they were first indexed, or null if the values of the property and the bounds can't be compared
+     */
+    public List<Object> range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<Object, Set<Object>> range;
+            try {
+                if (from != null && to != null) {
+                    if (compareValues(from, to) > 0) {
+                        return new ArrayList<Object>();
+                    }
+                    range = sortedKeys.subMap(from, fromInclusive, to, toInclusive);
+                }
+                else if (from != null) {
+                    range = sortedKeys.tailMap(from, fromInclusive);
+                }
+                else if (to != null) {
+                    range = sortedKeys.headMap(to, toInclusive);
+                }
+                else {
+                    range = sortedKeys;
+                }
+                List<Object> keys = new ArrayList<Object>();
+                for (Set<Object> valueKeys : range.values()) {
+                    keys.addAll(valueKeys);
+                }
+                for (Object key : unsortedKeys) {
+                    if (isInRange(indexedKeys.get(key).value, from, fromInclusive, to, toInclusive)) {
+                        keys.add(key);
+                    }
+                }
+                if (from == null) {
+                    keys.addAll(nullKeys);
+                }
+                return inIndexOrder(keys);
+            } catch (IncomparableValuesException e) {
+                return null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param pattern The pattern the string form of the value has to match
+     * @return The keys whose value matches the pattern, in the order they were first indexed
+     */
+    public List<Object> matching(Pattern pattern) {
+        lock.readLock().lock();
+        try {
+            List<Object> keys = new ArrayList<Object>();
+            for (Map.Entry<String, Set<Object>> entry : keysByValue.entrySet()) {
+                if (pattern.matcher(entry.getKey()).matches()) {
+                    keys.addAll(entry.getValue());
+                }
+            }
+            return inIndexOrder(keys);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isInRange(Object value, Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        if (from != null) {
+            int cmp = compareValues(value, from);
+            if (cmp < 0 || (cmp == 0 && !fromInclusive)) {
+                return false;
+            }
+        }
+        if (to != null) {
+            int cmp = compareValues(value, to);
+            if (cmp > 0 || (cmp == 0 && !toInclusive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Object> inIndexOrder(List<Object> keys) {
+        Collections.sort(keys, new Comparator<Object>() {
+            public int compare(Object left, Object right) {
+                long l = indexedKeys.get(left).sequence;
+                long r = indexedKeys.get(right).sequence;
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        return keys;
+    }
+
+    private void removeFromValue(IndexedKey indexed, Object key) {
+        if (indexed.value == null) {
+            nullKeys.remove(key);
+            return;
+        }
+
+        Set<Object> keys = keysByValue.get(indexed.stringValue);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByValue.remove(indexed.stringValue);
+            }
+        }
+        if (unsortedKeys.remove(key)) {
+            return;
+        }
+        Set<Object> sorted = sortedKeys.get(indexed.value);
+        if (sorted != null) {
+            sorted.remove(key);
+            if (sorted.isEmpty()) {
+                sortedKeys.remove(indexed.value);
+            }
+        }
+    }
+
+    /**
+     * Compares values the way Groovy does for the types that can be held by a property. Numbers of different types
+     * compare by value and character sequences by their string form.
+     */
+    static int compareValues(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            if (isIntegral(left) && isIntegral(right)) {
+                long l = ((Number) left).longValue();
+                long r = ((Number) right).longValue();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+            if (left instanceof BigDecimal || left instanceof BigInteger || right instanceof BigDecimal || right instanceof BigInteger) {
+                return toBigDecimal((Number) left).compareTo(toBigDecimal((Number) right));
+            }
+            return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        }
+        if (left instanceof CharSequence && right instanceof CharSequence) {
+            return left.toString().compareTo(right.toString());
+        }
+        if (left instanceof Comparable && (left.getClass().isInstance(right) || right.getClass().isInstance(left))) {
+            return ((Comparable) left).compareTo(right);
+        }
+        throw new IncomparableValuesException();
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (isIntegral(number)) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        return BigDecimal.valueOf(number.doubleValue());
+    }
+
+    private static class IndexedKey {
+        final Object value;
+        final String stringValue;
+        final long sequence;
+
+        IndexedKey(Object value, long sequence) {
+            this.value = value;
+            this.stringValue = value == null ? null : value.toString();
+            this.sequence = sequence;
+        }
+    }
+
+    private static class IncomparableValuesException extends RuntimeException {
+        IncomparableValuesException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -18,6 +18,7 @@ import org.grails.datastore.mapping.config.Property
 import org.grails.datastore.mapping.core.IdentityGenerationException
 import org.grails.datastore.mapping.core.OptimisticLockingException
 import org.grails.datastore.mapping.core.Session
+import org.grails.datastore.mapping.core.impl.SnowflakeIdentityGenerator
 import org.grails.datastore.mapping.engine.AssociationIndexer
 import org.grails.datastore.mapping.engine.EntityAccess
 import org.grails.datastore.mapping.engine.EntityPersister
@@ -28,6 +29,7 @@ import org.grails.datastore.mapping.model.PersistentEntity
 import org.grails.datastore.mapping.model.PersistentProperty
 import org.grails.datastore.mapping.model.types.Association
 import org.grails.datastore.mapping.model.types.ManyToMany
+import org.grails.datastore.mapping.model.types.Simple
 import org.grails.datastore.mapping.query.Query
 import org.grails.datastore.mapping.simple.SimpleMapDatastore
 import org.grails.datastore.mapping.simple.query.SimpleMapQuery
@@ -44,7 +46,7 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
 
     Map<String, Map> datastore
     Map indices
-    def lastKey
+    SimpleMapDatastore simpleMapDatastore
     String family
 
     SimpleMapEntityPersister(MappingContext context, PersistentEntity entity, Session session,
@@ -52,15 +54,8 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         super(context, entity, session, publisher)
         this.datastore = datastore.backingMap
         this.indices = datastore.indices
+        this.simpleMapDatastore = datastore
         family = getFamily(entity, entity.getMapping())
-        final identity = entity.getIdentity()
-        def idType = identity?.type
-        if (idType == Integer) {
-            lastKey = 0
-        }
-        else {
-            lastKey = 0L
-        }
         if (this.datastore[family] == null) this.datastore[family] = [:]
     }
 
@@ -79,6 +74,12 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
 
     protected void deleteEntry(String family, key, entry) {
         datastore[family].remove(key)
+        if (persistentEntity.identity != null) {
+            getPropertyIndex(persistentEntity.identity).remove(key)
+        }
+        for (PersistentProperty property in persistentEntity.persistentProperties) {
+            getPropertyIndex(property).remove(key)
+        }
         def parent = persistentEntity.parentEntity
         while (parent != null) {
             def f = getFamily(parent, parent.mapping)
@@ -92,46 +93,44 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         return true // index all
     }
 
+    /**
+     * @param property The property
+     * @return The index of the values of the property, shared by all the entities of the inheritance hierarchy
+     */
+    PropertyValueIndex getPropertyIndex(PersistentProperty property) {
+        simpleMapDatastore.getPropertyIndex(getIndexRoot(property))
+    }
+
+    protected String getIndexRoot(PersistentProperty property) {
+        "~${property.owner.rootEntity.name}:${property.name}"
+    }
+
     PropertyValueIndexer getPropertyIndexer(PersistentProperty property) {
+        final String root = getIndexRoot(property)
+        final PropertyValueIndex propertyIndex = simpleMapDatastore.getPropertyIndex(root)
         return new PropertyValueIndexer() {
 
             String getIndexRoot() {
-                return "~${property.owner.rootEntity.name}:${property.name}"
+                return root
             }
 
             void deindex(value, primaryKey) {
-                def index = getIndexName(value)
-                def indexed = indices[index]
-                if (indexed) {
-                    indexed.remove(primaryKey)
-                }
+                propertyIndex.deindex(value, primaryKey)
             }
 
             void index(value, primaryKey) {
-
-                def index = getIndexName(value)
-                def indexed = indices[index]
-                if (indexed == null) {
-                    indexed = []
-                    indices[index] = indexed
-                }
-                if (!indexed.contains(primaryKey)) {
-                    indexed << primaryKey
-                }
+                propertyIndex.index(value, primaryKey)
             }
 
             List query(value) {
-                query(value, 0, -1)
+                propertyIndex.query(value)
             }
 
             List query(value, int offset, int max) {
-                def index = getIndexName(value)
-
-                def indexed = indices[index]
-                if (!indexed) {
-                    return Collections.emptyList()
-                }
-                return indexed[offset..max]
+                def indexed = propertyIndex.query(value)
+                int from = Math.min(offset, indexed.size())
+                int to = max < 0 ? indexed.size() : Math.min(from + max, indexed.size())
+                return indexed.subList(from, to)
             }
 
             String getIndexName(value) {
@@ -257,17 +256,19 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         final isRoot = persistentEntity.root
         final type = isRoot ? persistentEntity.identity.type : persistentEntity.rootEntity.identity.type
         if ((String.isAssignableFrom(type)) || (Number.isAssignableFrom(type))) {
-            def key
-            if (isRoot) {
-                key = ++lastKey
-
+            long key
+            if (SnowflakeIdentityGenerator.isSnowflakeIdentity(persistentEntity)) {
+                key = simpleMapDatastore.snowflakeIdentityGenerator.nextId(persistentEntity)
             }
             else {
-                def root = persistentEntity.rootEntity
-                session.getPersister(root).lastKey++
-                key = session.getPersister(root).lastKey
+                // identifiers are shared by all sessions of the datastore and generated per root entity
+                String rootFamily = isRoot ? family : session.getPersister(persistentEntity.rootEntity).family
+                key = simpleMapDatastore.identityBlockAllocator.nextId(rootFamily)
             }
-            return type == String ? key.toString() : key
+            if (type == String) {
+                return key.toString()
+            }
+            return type == Integer ? (int) key : key
         }
         else if (UUID.isAssignableFrom(type)) {
           return UUID.randomUUID()
@@ -287,6 +288,7 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         }
         datastore[family].put(storeId, nativeEntry)
         indexIdentifier(persistentEntity, storeId)
+        indexSimpleProperties(persistentEntity, storeId, nativeEntry)
         updateInheritanceHierarchy(persistentEntity, storeId, nativeEntry)
         return storeId
     }
@@ -296,6 +298,19 @@ class SimpleMapEntityPersister extends AbstractKeyValueEntityPersister<Map, Obje
         indexer.index(storeId, storeId)
     }
 
+    /**
+     * Indexes the simple properties when the entry is stored, including null values which are otherwise only indexed on
+     * update, so that the indexed keys are in the order of the entries and range queries find the null values.
+     */
+    protected void indexSimpleProperties(PersistentEntity persistentEntity, storeId, Map nativeEntry) {
+        for (PersistentProperty property in persistentEntity.persistentProperties) {
+            if (property instanceof Simple) {
+                def key = property.mapping?.mappedForm?.targetName ?: property.name
+                getPropertyIndex(property).index(nativeEntry[key], storeId)
+            }
+        }
+    }
+
     private updateInheritanceHierarchy(PersistentEntity persistentEntity, storeId, Map nativeEntry) {
         def parent = persistentEntity.parentEntity
         while (parent != null) {
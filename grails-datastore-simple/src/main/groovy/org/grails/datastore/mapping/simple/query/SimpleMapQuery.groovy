@@ -22,11 +22,15 @@ import org.grails.datastore.mapping.model.PersistentEntity
 import org.grails.datastore.mapping.model.PersistentProperty
 import org.grails.datastore.mapping.model.types.Association
 import org.grails.datastore.mapping.model.types.Custom
+import org.grails.datastore.mapping.model.types.Identity
+import org.grails.datastore.mapping.model.types.Simple
 import org.grails.datastore.mapping.model.types.ToOne
 import org.grails.datastore.mapping.query.AssociationQuery
 import org.grails.datastore.mapping.query.Query
 import org.grails.datastore.mapping.query.Restrictions
 import org.grails.datastore.mapping.query.api.QueryableCriteria
+import org.grails.datastore.mapping.query.order.ManualEntityOrdering
+import org.grails.datastore.mapping.query.projections.ManualProjections
 import org.grails.datastore.mapping.query.criteria.FunctionCallingCriterion
 import org.grails.datastore.mapping.simple.SimpleMapSession
 import org.grails.datastore.mapping.simple.engine.SimpleMapEntityPersister
@@ -71,13 +75,16 @@ class SimpleMapQuery extends Query {
         entityMap.keySet().removeAll(nullEntries.collect { it.key })
 
         if (orderBy) {
-            orderBy.reverseEach { Query.Order order ->
-                boolean desc = order.direction == Query.Order.Direction.DESC
-                entityMap = entityMap.sort { a, b ->
-                    int cmp = (a.value."${order.property}" <=> b.value."${order.property}")
-                    return desc ? -cmp : cmp
-                }
-            }
+            // without projections only the first offset + max results are needed
+            int maxResults = projections.isEmpty() && max > -1 ? offset + max : -1
+            def sorted = new ManualEntityOrdering(entity).applyOrder(entityMap.values() as List, orderBy, maxResults)
+            def keysByInstance = new IdentityHashMap()
+            entityMap.each { key, instance -> keysByInstance.put(instance, key) }
+            def sortedMap = new LinkedHashMap()
+            for (instance in sorted) {
+                sortedMap.put(keysByInstance.get(instance), instance)
+            }
+            entityMap = sortedMap
         }
         if (projections.isEmpty()) {
             results = entityMap.values() as List
@@ -87,6 +94,12 @@ class SimpleMapQuery extends Query {
             def projectionCount = projectionList.size()
             def entityList = entityMap.values()
 
+            // all aggregates are computed together in a single pass over the entities
+            def aggregateProjections = projectionList.findAll { Query.Projection p -> isAggregate(p) }
+            def aggregates = aggregateProjections ?
+                new ManualProjections(entity).project(entityList.iterator(), aggregateProjections).iterator() :
+                Collections.emptyIterator()
+
             projectionList.each { Query.Projection p ->
 
                 if (p instanceof Query.IdProjection) {
@@ -97,50 +110,34 @@ class SimpleMapQuery extends Query {
                         results.add(entityMap.keySet().toList())
                     }
                 }
-                else if (p instanceof Query.CountProjection) {
-                    results.add(entityList.size())
+                else if (isAggregate(p)) {
+                    results.add(aggregates.next())
                 }
-                else if (p instanceof Query.CountDistinctProjection) {
-                    final uniqueList = new ArrayList(entityList).unique { it."$p.propertyName"}
-                    results.add(uniqueList.size() )
+                else if (p instanceof Query.GroupPropertyProjection) {
+                    throw new UnsupportedOperationException("Group property projections are not supported by the SimpleMap datastore")
                 }
                 else if (p instanceof Query.PropertyProjection) {
                     def propertyValues = entityList.collect { it."$p.propertyName"}
-                    if (p instanceof Query.MaxProjection) {
-                        results.add(propertyValues.max())
-                    }
-                    else if (p instanceof Query.MinProjection) {
-                        results.add(propertyValues.min())
+                    PersistentProperty prop = entity.getPropertyByName(p.propertyName)
+                    boolean distinct = p instanceof Query.DistinctPropertyProjection
+                    if (distinct) {
+                        propertyValues = propertyValues.unique()
                     }
-                    else if (p instanceof Query.SumProjection) {
-                        results.add(propertyValues.sum())
-                    }
-                    else if (p instanceof Query.AvgProjection) {
-                        def average = propertyValues.sum() / propertyValues.size()
-                        results.add(average)
-                    }
-                    else {
-                        PersistentProperty prop = entity.getPropertyByName(p.propertyName)
-                        boolean distinct = p instanceof Query.DistinctPropertyProjection
-                        if (distinct) {
-                            propertyValues = propertyValues.unique()
-                        }
 
-                        if (prop) {
-                            if (prop instanceof ToOne) {
-                                propertyValues = propertyValues.collect {
-                                    if (prop.associatedEntity.isInstance(it)) {
-                                        return it
-                                    }
-                                    session.retrieve(prop.type, it)
+                    if (prop) {
+                        if (prop instanceof ToOne) {
+                            propertyValues = propertyValues.collect {
+                                if (prop.associatedEntity.isInstance(it)) {
+                                    return it
                                 }
+                                session.retrieve(prop.type, it)
                             }
-                            if (projectionCount == 1) {
-                                results.addAll(propertyValues)
-                            }
-                            else {
-                                results.add(propertyValues)
-                            }
+                        }
+                        if (projectionCount == 1) {
+                            results.addAll(propertyValues)
+                        }
+                        else {
+                            results.add(propertyValues)
                         }
                     }
                 }
@@ -160,6 +157,12 @@ class SimpleMapQuery extends Query {
         return Collections.emptyList()
     }
 
+    private static boolean isAggregate(Query.Projection p) {
+        p instanceof Query.CountProjection || p instanceof Query.CountDistinctProjection ||
+            p instanceof Query.MaxProjection || p instanceof Query.MinProjection ||
+            p instanceof Query.SumProjection || p instanceof Query.AvgProjection
+    }
+
     private List applyMaxAndOffset(List sortedResults) {
         final def total = sortedResults.size()
         if (offset > total) return Collections.emptyList()
@@ -468,21 +471,8 @@ class SimpleMapQuery extends Query {
             return negateResults(indexed)
         },
         (Query.Like): { Query.Like like, PersistentProperty property ->
-            def indexer = entityPersister.getPropertyIndexer(property)
-
-            def root = indexer.indexRoot
             def regexFormat = like.pattern.replaceAll('%', '.*?')
-            def pattern = "${root}:${regexFormat}"
-            def matchingIndices = entityPersister.indices.findAll { key, value ->
-                key ==~ pattern
-            }
-
-            Set result = []
-            for (indexed in matchingIndices) {
-                result.addAll(indexed.value)
-            }
-
-            return result.toList()
+            return entityPersister.getPropertyIndex(property).matching(Pattern.compile(regexFormat))
         },
         (Query.ILike): { Query.ILike like, PersistentProperty property ->
             def regexFormat = like.pattern.replaceAll('%', '.*?')
@@ -506,7 +496,11 @@ class SimpleMapQuery extends Query {
             def name = between.property
             def allEntities = datastore[family]
 
-            if (function != null) {
+            def indexed = function == null ? queryRange(property, name, from, true, to, true) : null
+            if (indexed != null) {
+                indexed
+            }
+            else if (function != null) {
                 allEntities.findAll { function(resolveIfEmbedded(name, it.value)) >= from && function(resolveIfEmbedded(name, it.value)) <= to }.collect { it.key }
             }
             else {
@@ -516,6 +510,10 @@ class SimpleMapQuery extends Query {
         (Query.GreaterThan): { Query.GreaterThan gt, PersistentProperty property, Closure function = null, boolean onValue = false ->
             def name = gt.property
             final value = subqueryIfNecessary(gt)
+            def indexed = function == null ? queryRange(property, name, value, false, null, false) : null
+            if (indexed != null) {
+                return indexed
+            }
             def allEntities = datastore[family]
 
             allEntities.findAll { (function != null ? function(resolveIfEmbedded(name, it.value)) : resolveIfEmbedded(name, it.value)) > value }.collect { it.key }
@@ -595,6 +593,10 @@ class SimpleMapQuery extends Query {
         (Query.GreaterThanEquals): { Query.GreaterThanEquals gt, PersistentProperty property ->
             def name = gt.property
             final value = subqueryIfNecessary(gt)
+            def indexed = queryRange(property, name, value, true, null, false)
+            if (indexed != null) {
+                return indexed
+            }
             def allEntities = datastore[family]
 
             allEntities.findAll { resolveIfEmbedded(name, it.value) >= value }.collect { it.key }
@@ -602,6 +604,10 @@ class SimpleMapQuery extends Query {
         (Query.LessThan): { Query.LessThan lt, PersistentProperty property ->
             def name = lt.property
             final value = subqueryIfNecessary(lt)
+            def indexed = queryRange(property, name, null, false, value, false)
+            if (indexed != null) {
+                return indexed
+            }
             def allEntities = datastore[family]
 
             allEntities.findAll { resolveIfEmbedded(name, it.value) < value }.collect { it.key }
@@ -609,6 +615,10 @@ class SimpleMapQuery extends Query {
         (Query.LessThanEquals): { Query.LessThanEquals lte, PersistentProperty property ->
             def name = lte.property
             final value = subqueryIfNecessary(lte)
+            def indexed = queryRange(property, name, null, false, value, true)
+            if (indexed != null) {
+                return indexed
+            }
             def allEntities = datastore[family]
 
             allEntities.findAll { resolveIfEmbedded(name, it.value) <= value }.collect { it.key }
@@ -648,20 +658,25 @@ class SimpleMapQuery extends Query {
     }
 
     protected List executeLikeWithRegex(SimpleMapEntityPersister entityPersister, PersistentProperty property, regexFormat) {
-        def indexer = entityPersister.getPropertyIndexer(property)
+        def pattern = Pattern.compile(regexFormat, Pattern.CASE_INSENSITIVE)
+        return entityPersister.getPropertyIndex(property).matching(pattern)
+    }
 
-        def root = indexer.indexRoot
-        def pattern = Pattern.compile("${root}:${regexFormat}", Pattern.CASE_INSENSITIVE)
-        def matchingIndices = entityPersister.indices.findAll { key, value ->
-            pattern.matcher(key).matches()
+    /**
+     * Finds the keys of a range query using the sorted index of the property. Returns null if the range has to be
+     * found by scanning the entries, which is the case for embedded properties, associations, null bounds and values
+     * that can't be compared with the indexed values.
+     */
+    protected List queryRange(PersistentProperty property, String name, from, boolean fromInclusive, to, boolean toInclusive) {
+        if (name.contains('.') || !(property instanceof Simple || property instanceof Identity)) {
+            return null
         }
-
-        Set result = []
-        for (indexed in matchingIndices) {
-            result.addAll(indexed.value)
+        if ((from == null && to == null) || from instanceof QueryableCriteria || to instanceof QueryableCriteria) {
+            return null
         }
-
-        return result.toList()
+        if (from instanceof GString) from = from.toString()
+        if (to instanceof GString) to = to.toString()
+        return entityPersister.getPropertyIndex(property).range(from, fromInclusive, to, toInclusive)
     }
 
     private ArrayList negateResults(List results) {